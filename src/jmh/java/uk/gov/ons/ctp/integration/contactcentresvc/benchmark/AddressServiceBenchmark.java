@@ -0,0 +1,93 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.benchmark;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+import uk.gov.ons.ctp.common.jackson.CustomObjectMapper;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.AddressServiceClientServiceImpl;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.model.AddressIndexSearchResultsDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.model.AddressIndexSummaryResultsDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.AddressQueryResponseDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.PostcodeQueryRequestDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.service.impl.AddressServiceImpl;
+
+/**
+ * Reading and summarising a full 100 address page of AIMS postcode results, as done by {@link
+ * AddressServiceImpl} for every postcode and address search. AIMS itself is replaced by a canned
+ * response. Reading the page into the full AIMS model is kept for comparison.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class AddressServiceBenchmark {
+  private static final int PAGE_SIZE = 100;
+
+  private CustomObjectMapper mapper = new CustomObjectMapper();
+  private AddressServiceImpl addressService = new AddressServiceImpl();
+  private PostcodeQueryRequestDTO request = new PostcodeQueryRequestDTO();
+  private byte[] page;
+
+  @Setup
+  public void setup() throws Exception {
+    page = createPage();
+    AddressServiceClientServiceImpl aims =
+        new AddressServiceClientServiceImpl() {
+          @Override
+          public AddressIndexSummaryResultsDTO searchByPostcode(
+              PostcodeQueryRequestDTO postcodeQueryRequest) {
+            try {
+              return mapper.readValue(page, AddressIndexSummaryResultsDTO.class);
+            } catch (Exception e) {
+              throw new IllegalStateException(e);
+            }
+          }
+        };
+    ReflectionTestUtils.setField(addressService, "addressServiceClient", aims);
+    request.setPostcode("EX2 8DD");
+    request.setOffset(0);
+    request.setLimit(PAGE_SIZE);
+  }
+
+  @Benchmark
+  public AddressQueryResponseDTO summarisePostcodePage() {
+    return addressService.postcodeQuery(request);
+  }
+
+  @Benchmark
+  public AddressIndexSearchResultsDTO readFullPostcodePage() throws Exception {
+    return mapper.readValue(page, AddressIndexSearchResultsDTO.class);
+  }
+
+  /** Fill out a page of AIMS results from the addresses in the AIMS fixture. */
+  private byte[] createPage() throws Exception {
+    ObjectNode fixture =
+        BenchmarkFixtures.load(
+            "service/impl/AddressServiceImplTest.AddressIndexSummaryResultsDTO.current.json",
+            ObjectNode.class);
+    ObjectNode response = (ObjectNode) fixture.get("response");
+    ArrayNode fixtureAddresses = (ArrayNode) response.get("addresses");
+    ArrayNode addresses = mapper.createArrayNode();
+    for (int i = 0; i < PAGE_SIZE; i++) {
+      ObjectNode address = fixtureAddresses.get(i % fixtureAddresses.size()).deepCopy();
+      address.put("uprn", Long.toString(100041045000L + i));
+      addresses.add(address);
+    }
+    response.set("addresses", addresses);
+    response.put("total", PAGE_SIZE);
+    return mapper.writeValueAsBytes(fixture);
+  }
+}
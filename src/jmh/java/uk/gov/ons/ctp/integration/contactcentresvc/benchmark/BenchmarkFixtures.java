@@ -0,0 +1,31 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import uk.gov.ons.ctp.common.jackson.CustomObjectMapper;
+
+/** Reads the unit test fixtures used as input to the benchmarks. */
+final class BenchmarkFixtures {
+  private static final String FIXTURE_ROOT = "/uk/gov/ons/ctp/integration/contactcentresvc/";
+
+  private static final CustomObjectMapper MAPPER = new CustomObjectMapper();
+
+  private BenchmarkFixtures() {}
+
+  /**
+   * Read a fixture.
+   *
+   * @param name of the fixture file, relative to the service's root test package
+   * @param type of the fixture
+   * @return the fixture
+   * @throws IOException if the fixture can't be read
+   */
+  static <T> T load(String name, Class<T> type) throws IOException {
+    try (InputStream in = BenchmarkFixtures.class.getResourceAsStream(FIXTURE_ROOT + name)) {
+      if (in == null) {
+        throw new IOException("No fixture " + name);
+      }
+      return MAPPER.readValue(in, type);
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+import uk.gov.ons.ctp.common.event.EventPublisher.Channel;
+import uk.gov.ons.ctp.integration.contactcentresvc.CCSPostcodesBean;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.AppConfig;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.CCSPostcodes;
+
+/** Checking whether a postcode is in the CCS sample, loaded from a file of CCS postcodes. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class CCSPostcodesBenchmark {
+  private static final int POSTCODES = 50_000;
+
+  private CCSPostcodesBean ccsPostcodesBean = new CCSPostcodesBean();
+  private String ccsPostcode;
+
+  @Setup
+  public void setup() throws Exception {
+    List<String> postcodes = new ArrayList<>();
+    for (int i = 0; i < POSTCODES; i++) {
+      char first = (char) ('A' + i % 26);
+      char second = (char) ('A' + i / 26 % 26);
+      postcodes.add(String.format("EX%d %d%c%c", i / 1000, i % 10, first, second));
+    }
+    ccsPostcode = postcodes.get(POSTCODES / 2);
+    File postcodeFile = File.createTempFile("ccs-postcodes", ".txt");
+    postcodeFile.deleteOnExit();
+    Files.write(postcodeFile.toPath(), postcodes);
+
+    CCSPostcodes ccsPostcodes = new CCSPostcodes();
+    ccsPostcodes.setCcsPostcodePath(postcodeFile.getPath());
+    AppConfig appConfig = new AppConfig();
+    appConfig.setChannel(Channel.CC);
+    appConfig.setCcsPostcodes(ccsPostcodes);
+    ReflectionTestUtils.setField(ccsPostcodesBean, "appConfig", appConfig);
+    ReflectionTestUtils.setField(ccsPostcodesBean, "meterRegistry", new SimpleMeterRegistry());
+    ReflectionTestUtils.invokeMethod(ccsPostcodesBean, "init");
+  }
+
+  @Benchmark
+  public boolean ccsPostcode() {
+    return ccsPostcodesBean.isInCCSPostcodes(ccsPostcode);
+  }
+
+  @Benchmark
+  public boolean nonCcsPostcode() {
+    return ccsPostcodesBean.isInCCSPostcodes("SW1A 1AA");
+  }
+}
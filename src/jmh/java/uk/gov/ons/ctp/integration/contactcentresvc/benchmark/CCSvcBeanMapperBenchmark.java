@@ -0,0 +1,59 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import ma.glasnost.orika.MapperFacade;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.ons.ctp.common.event.model.CollectionCaseNewAddress;
+import uk.gov.ons.ctp.integration.caseapiclient.caseservice.model.CaseContainerDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.CCSvcBeanMapper;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.model.AddressIndexAddressCompositeDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.cloud.CachedCase;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.CaseDTO;
+
+/** The {@link CCSvcBeanMapper} mappings made on every case lookup and new case. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class CCSvcBeanMapperBenchmark {
+  private MapperFacade mapper = new CCSvcBeanMapper();
+
+  private CaseContainerDTO rmCase;
+  private AddressIndexAddressCompositeDTO address;
+
+  @Setup
+  public void setup() throws Exception {
+    rmCase =
+        BenchmarkFixtures.load("CCSvcBeanMapperTest.CaseContainerDTO.json", CaseContainerDTO.class);
+    address =
+        BenchmarkFixtures.load(
+            "CCSvcBeanMapperTest.AddressIndexAddressCompositeDTO.json",
+            AddressIndexAddressCompositeDTO.class);
+  }
+
+  @Benchmark
+  public CaseDTO mapCaseContainerToCase() {
+    return mapper.map(rmCase, CaseDTO.class);
+  }
+
+  @Benchmark
+  public CachedCase mapAddressToCachedCase() {
+    return mapper.map(address, CachedCase.class);
+  }
+
+  @Benchmark
+  public CollectionCaseNewAddress mapAddressToNewAddress() {
+    return mapper.map(address, CollectionCaseNewAddress.class);
+  }
+}
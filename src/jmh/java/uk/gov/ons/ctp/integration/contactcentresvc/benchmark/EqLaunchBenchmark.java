@@ -0,0 +1,69 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.benchmark;
+
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yaml.snakeyaml.Yaml;
+import uk.gov.ons.ctp.common.domain.Channel;
+import uk.gov.ons.ctp.common.domain.Language;
+import uk.gov.ons.ctp.common.domain.Source;
+import uk.gov.ons.ctp.integration.caseapiclient.caseservice.model.CaseContainerDTO;
+import uk.gov.ons.ctp.integration.eqlaunch.crypto.KeyStore;
+import uk.gov.ons.ctp.integration.eqlaunch.service.EqLaunchData;
+import uk.gov.ons.ctp.integration.eqlaunch.service.EqLaunchService;
+import uk.gov.ons.ctp.integration.eqlaunch.service.impl.EqLaunchServiceImpl;
+
+/**
+ * Creating the encrypted EQ launch payload, as done for every launch URL. Uses the keystore
+ * configured in application.yml.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class EqLaunchBenchmark {
+  private EqLaunchService eqLaunchService;
+  private EqLaunchData launchData;
+
+  @Setup
+  public void setup() throws Exception {
+    Map<String, Object> config;
+    try (InputStream in = EqLaunchBenchmark.class.getResourceAsStream("/application.yml")) {
+      config = new Yaml().load(in);
+    }
+    eqLaunchService = new EqLaunchServiceImpl(new KeyStore((String) config.get("keystore")));
+
+    CaseContainerDTO caseDetails =
+        BenchmarkFixtures.load("CCSvcBeanMapperTest.CaseContainerDTO.json", CaseContainerDTO.class);
+    launchData =
+        EqLaunchData.builder()
+            .language(Language.ENGLISH)
+            .source(Source.CONTACT_CENTRE_API)
+            .channel(Channel.CC)
+            .questionnaireId("0130000000000300")
+            .formType("H")
+            .salt("CENSUS")
+            .caseContainer(caseDetails)
+            .userId("12345")
+            .accountServiceUrl(null)
+            .accountServiceLogoutUrl(null)
+            .build();
+  }
+
+  @Benchmark
+  public String createLaunchJwe() throws Exception {
+    return eqLaunchService.getEqLaunchJwe(launchData);
+  }
+}
@@ -0,0 +1,54 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import uk.gov.ons.ctp.integration.contactcentresvc.util.PgpEncrypt;
+
+/** PGP encryption of the respondent's name on a HARD refusal. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class PgpEncryptBenchmark {
+  private static final String SURNAME = "Bloggs";
+
+  private List<Resource> keyResources;
+  private List<PGPPublicKey> keys;
+
+  @Setup
+  public void setup() throws Exception {
+    keyResources =
+        List.of(new ClassPathResource("pgp/key1.asc"), new ClassPathResource("pgp/key2.asc"));
+    keys = PgpEncrypt.readPublicKeys(keyResources);
+  }
+
+  @Benchmark
+  public String encryptReadingKeys() {
+    return PgpEncrypt.encrypt(SURNAME, keyResources);
+  }
+
+  @Benchmark
+  public String encryptWithParsedKeys() {
+    return PgpEncrypt.encryptWithKeys(SURNAME, keys);
+  }
+
+  @Benchmark
+  public List<String> encryptNameWithParsedKeys() {
+    return PgpEncrypt.encryptAll(List.of("Mr", "Joe", SURNAME), keys);
+  }
+}
@@ -0,0 +1,66 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.benchmark;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.CaseDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.service.impl.TimeOrderedCases;
+
+/** Merging the RM and cached cases for an address to find the latest one. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TimeOrderedCasesBenchmark {
+  @Param({"1", "10"})
+  private int casesPerSource;
+
+  private List<CaseDTO> rmCases;
+  private List<CaseDTO> cachedCases;
+
+  @Setup
+  public void setup() {
+    long now = System.currentTimeMillis();
+    rmCases = createCases(casesPerSource, now, true);
+    cachedCases = createCases(casesPerSource, now + 500, false);
+  }
+
+  @Benchmark
+  public Optional<CaseDTO> mergeAndFindLatest() {
+    TimeOrderedCases timeOrderedCases = new TimeOrderedCases();
+    timeOrderedCases.add(rmCases);
+    timeOrderedCases.add(cachedCases);
+    return timeOrderedCases.latest();
+  }
+
+  /** RM cases have been updated since they were created, cached cases have not. */
+  private List<CaseDTO> createCases(int count, long start, boolean updated) {
+    List<CaseDTO> cases = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      CaseDTO caze = new CaseDTO();
+      caze.setId(UUID.randomUUID());
+      caze.setCreatedDateTime(new Date(start + i * 1000L));
+      if (updated) {
+        caze.setLastUpdated(new Date(start + i * 1000L + 250));
+      }
+      cases.add(caze);
+    }
+    return cases;
+  }
+}
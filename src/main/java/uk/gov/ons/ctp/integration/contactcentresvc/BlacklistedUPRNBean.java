@@ -2,27 +2,46 @@ package uk.gov.ons.ctp.integration.contactcentresvc;
 
 import com.godaddy.logging.Logger;
 import com.godaddy.logging.LoggerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
-import java.util.HashSet;
-import java.util.Set;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import uk.gov.ons.ctp.common.domain.UniquePropertyReferenceNumber;
 import uk.gov.ons.ctp.common.event.EventPublisher.Channel;
 import uk.gov.ons.ctp.integration.contactcentresvc.config.AppConfig;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.UPRNBlacklist;
+import uk.gov.ons.ctp.integration.contactcentresvc.util.FileWatcher;
+import uk.gov.ons.ctp.integration.contactcentresvc.util.UprnSet;
 
-/** This class contains UPRNs which have been blacklisted. */
+/**
+ * This class contains UPRNs which have been blacklisted. They are held in a {@link UprnSet}, with a
+ * bloom filter in front of it if configured. If the blacklist file is to be reloaded, it is watched
+ * and read again when it changes, and the new blacklist replaces the old in one step. A reload
+ * which fails leaves the old blacklist in place.
+ *
+ * <p>The number of blacklisted UPRNs, and the time taken to load them, are published as <code>
+ * uprn.blacklist.size</code> and <code>uprn.blacklist.load</code>.
+ */
 @Component
 public class BlacklistedUPRNBean {
   private static final Logger log = LoggerFactory.getLogger(BlacklistedUPRNBean.class);
 
   @Autowired private AppConfig appConfig;
 
-  private Set<Long> blacklistedUprns;
+  @Autowired private MeterRegistry meterRegistry;
+
+  private volatile UprnSet blacklistedUprns;
+  private Timer loadTimer;
+  private FileWatcher watcher;
 
   /**
    * Determine if the supplied uprn is on the list of blacklisted UPRN.
@@ -39,22 +58,25 @@ public class BlacklistedUPRNBean {
   }
 
   @PostConstruct
-  private void init() {
-    this.blacklistedUprns = new HashSet<>();
+  void init() {
+    UPRNBlacklist config = appConfig.getUprnBlacklist();
+    this.blacklistedUprns = UprnSet.builder(false).build();
+
+    loadTimer =
+        Timer.builder("uprn.blacklist.load")
+            .description("Time taken to read the blacklisted UPRNs")
+            .register(meterRegistry);
+    Gauge.builder("uprn.blacklist.size", this, bean -> bean.blacklistedUprns.size())
+        .description("Number of blacklisted UPRNs")
+        .register(meterRegistry);
 
     boolean isRunningCC = appConfig.getChannel() == Channel.CC;
 
     if (isRunningCC) {
-      String strUprnBlacklistPath = appConfig.getUprnBlacklist().getUprnBlacklistPath();
-
-      String uprnAsString;
-      try (BufferedReader br = new BufferedReader(new FileReader(strUprnBlacklistPath))) {
-        while ((uprnAsString = br.readLine()) != null) {
-          log.with("uprn", uprnAsString).debug("Reading blacklisted entry");
-          UniquePropertyReferenceNumber uprn =
-              new UniquePropertyReferenceNumber(uprnAsString.trim());
-          blacklistedUprns.add(uprn.getValue());
-        }
+      String strUprnBlacklistPath = config.getUprnBlacklistPath();
+
+      try {
+        blacklistedUprns = read(strUprnBlacklistPath);
         log.with("size", blacklistedUprns.size()).info("Read blacklisted UPRNs from file");
       } catch (IOException e) {
         if (new File(strUprnBlacklistPath).exists()) {
@@ -69,8 +91,62 @@ public class BlacklistedUPRNBean {
                   "APPLICATION IS MISCONFIGURED - Blacklisted UPRN file doesn't exist."
                       + " Using default blacklisted UPRNs from application.yml instead.");
         }
-        blacklistedUprns = appConfig.getUprnBlacklist().getDefaultUprnBlacklist();
+        UprnSet.Builder defaults = UprnSet.builder(config.isBloomFilter());
+        config.getDefaultUprnBlacklist().forEach(defaults::add);
+        blacklistedUprns = defaults.build();
+      }
+
+      if (config.isReload()) {
+        watch(strUprnBlacklistPath);
+      }
+    }
+  }
+
+  @PreDestroy
+  void close() throws IOException {
+    if (watcher != null) {
+      watcher.close();
+    }
+  }
+
+  private void watch(String strUprnBlacklistPath) {
+    try {
+      watcher =
+          new FileWatcher(Paths.get(strUprnBlacklistPath), () -> reload(strUprnBlacklistPath));
+      log.with("strUprnBlacklistPath", strUprnBlacklistPath)
+          .info("Watching blacklisted UPRN file for changes");
+    } catch (IOException e) {
+      log.with("strUprnBlacklistPath", strUprnBlacklistPath)
+          .warn("Unable to watch blacklisted UPRN file, changes will not be picked up", e);
+    }
+  }
+
+  private void reload(String strUprnBlacklistPath) {
+    try {
+      UprnSet reloaded = read(strUprnBlacklistPath);
+      blacklistedUprns = reloaded;
+      log.with("size", reloaded.size()).info("Reloaded blacklisted UPRNs from file");
+    } catch (IOException | IllegalArgumentException e) {
+      log.with("strUprnBlacklistPath", strUprnBlacklistPath)
+          .with("size", blacklistedUprns.size())
+          .error("Unable to reload blacklisted UPRNs from file, keeping current blacklist", e);
+    }
+  }
+
+  private UprnSet read(String strUprnBlacklistPath) throws IOException {
+    long start = System.nanoTime();
+    UprnSet.Builder builder = UprnSet.builder(appConfig.getUprnBlacklist().isBloomFilter());
+    String uprnAsString;
+    try (BufferedReader br = new BufferedReader(new FileReader(strUprnBlacklistPath))) {
+      while ((uprnAsString = br.readLine()) != null) {
+        log.with("uprn", uprnAsString).debug("Reading blacklisted entry");
+        UniquePropertyReferenceNumber uprn =
+            new UniquePropertyReferenceNumber(uprnAsString.trim());
+        builder.add(uprn.getValue());
       }
     }
+    UprnSet uprns = builder.build();
+    loadTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    return uprns;
   }
 }
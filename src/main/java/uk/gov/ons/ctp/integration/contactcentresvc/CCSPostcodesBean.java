@@ -2,26 +2,45 @@ package uk.gov.ons.ctp.integration.contactcentresvc;
 
 import com.godaddy.logging.Logger;
 import com.godaddy.logging.LoggerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import uk.gov.ons.ctp.common.event.EventPublisher.Channel;
 import uk.gov.ons.ctp.integration.contactcentresvc.config.AppConfig;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.CCSPostcodes;
+import uk.gov.ons.ctp.integration.contactcentresvc.util.FileWatcher;
+import uk.gov.ons.ctp.integration.contactcentresvc.util.PostcodeIndex;
 
+/**
+ * The postcodes in the CCS sample, read from the postcode file into a compact {@link
+ * PostcodeIndex}. If the file is to be reloaded, it is watched and read again when it changes, and
+ * the new postcodes replace the old in one step. A reload which fails leaves the old postcodes in
+ * place.
+ *
+ * <p>The number of postcodes, and the time taken to load them, are published as <code>
+ * ccs.postcodes.size</code> and <code>ccs.postcodes.load</code>.
+ */
 @Component
 public class CCSPostcodesBean {
   private static final Logger log = LoggerFactory.getLogger(CCSPostcodesBean.class);
 
   @Autowired private AppConfig appConfig;
 
-  private Set<String> ccsPostcodes;
+  @Autowired private MeterRegistry meterRegistry;
+
+  private volatile PostcodeIndex ccsPostcodes;
+  private Timer loadTimer;
+  private FileWatcher watcher;
 
   public boolean isInCCSPostcodes(String rawPostcode) {
     String cleanedPostcode = normalisePostcode(rawPostcode);
@@ -30,18 +49,23 @@ public class CCSPostcodesBean {
 
   @PostConstruct
   void init() {
-    this.ccsPostcodes = new HashSet<>();
-    String strPostcodePath = appConfig.getCcsPostcodes().getCcsPostcodePath();
+    this.ccsPostcodes = PostcodeIndex.builder().build();
+    CCSPostcodes config = appConfig.getCcsPostcodes();
+    String strPostcodePath = config.getCcsPostcodePath();
+
+    loadTimer =
+        Timer.builder("ccs.postcodes.load")
+            .description("Time taken to read the CCS postcodes")
+            .register(meterRegistry);
+    Gauge.builder("ccs.postcodes.size", this, bean -> bean.ccsPostcodes.size())
+        .description("Number of postcodes in the CCS sample")
+        .register(meterRegistry);
 
     boolean isRunningCC = appConfig.getChannel() == Channel.CC;
 
     if (isRunningCC) {
-      try (BufferedReader br = new BufferedReader(new FileReader(strPostcodePath))) {
-        String rawPostcode;
-        while ((rawPostcode = br.readLine()) != null) {
-          String postcode = normalisePostcode(rawPostcode);
-          ccsPostcodes.add(postcode);
-        }
+      try {
+        ccsPostcodes = read(strPostcodePath);
         log.with("size", ccsPostcodes.size()).info("Read ccsPostcodes from file");
       } catch (IOException e) {
         if (new File(strPostcodePath).exists()) {
@@ -56,12 +80,58 @@ public class CCSPostcodesBean {
                   "APPLICATION IS MISCONFIGURED - Postcode file doesn't exist."
                       + " Using postcodes from application.yml instead.");
         }
-        ccsPostcodes =
-            appConfig.getCcsPostcodes().getCcsDefaultPostcodes().stream()
-                .map(p -> normalisePostcode(p))
-                .collect(Collectors.toSet());
+        PostcodeIndex.Builder defaults = PostcodeIndex.builder();
+        config.getCcsDefaultPostcodes().forEach(p -> defaults.add(normalisePostcode(p)));
+        ccsPostcodes = defaults.build();
+      }
+
+      if (config.isReload()) {
+        watch(strPostcodePath);
+      }
+    }
+  }
+
+  @PreDestroy
+  void close() throws IOException {
+    if (watcher != null) {
+      watcher.close();
+    }
+  }
+
+  private void watch(String strPostcodePath) {
+    try {
+      watcher = new FileWatcher(Paths.get(strPostcodePath), () -> reload(strPostcodePath));
+      log.with("strPostcodePath", strPostcodePath).info("Watching ccsPostcodes file for changes");
+    } catch (IOException e) {
+      log.with("strPostcodePath", strPostcodePath)
+          .warn("Unable to watch ccsPostcodes file, changes will not be picked up", e);
+    }
+  }
+
+  private void reload(String strPostcodePath) {
+    try {
+      PostcodeIndex reloaded = read(strPostcodePath);
+      ccsPostcodes = reloaded;
+      log.with("size", reloaded.size()).info("Reloaded ccsPostcodes from file");
+    } catch (IOException e) {
+      log.with("strPostcodePath", strPostcodePath)
+          .with("size", ccsPostcodes.size())
+          .error("Unable to reload postcodes from file, keeping current postcodes", e);
+    }
+  }
+
+  private PostcodeIndex read(String strPostcodePath) throws IOException {
+    long start = System.nanoTime();
+    PostcodeIndex.Builder builder = PostcodeIndex.builder();
+    try (BufferedReader br = new BufferedReader(new FileReader(strPostcodePath))) {
+      String rawPostcode;
+      while ((rawPostcode = br.readLine()) != null) {
+        builder.add(normalisePostcode(rawPostcode));
       }
     }
+    PostcodeIndex index = builder.build();
+    loadTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    return index;
   }
 
   private String normalisePostcode(String rawPostcode) {
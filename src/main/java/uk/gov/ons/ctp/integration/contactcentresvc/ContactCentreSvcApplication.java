@@ -3,29 +3,42 @@ package uk.gov.ons.ctp.integration.contactcentresvc;
 import com.godaddy.logging.Logger;
 import com.godaddy.logging.LoggerFactory;
 import com.godaddy.logging.LoggingConfigs;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.FirestoreOptions;
 import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.config.MeterFilter;
 import io.micrometer.core.instrument.config.MeterFilterReply;
 import io.micrometer.stackdriver.StackdriverConfig;
 import io.micrometer.stackdriver.StackdriverMeterRegistry;
+import java.net.http.HttpClient;
 import java.time.Duration;
 import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.PostConstruct;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cloud.circuitbreaker.resilience4j.Resilience4JCircuitBreakerFactory;
 import org.springframework.cloud.client.circuitbreaker.CircuitBreaker;
 import org.springframework.cloud.client.circuitbreaker.Customizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
 import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.annotation.Scope;
 import org.springframework.http.HttpStatus;
 import org.springframework.integration.annotation.IntegrationComponentScan;
 import org.springframework.retry.RetryCallback;
@@ -33,8 +46,11 @@ import org.springframework.retry.RetryContext;
 import org.springframework.retry.RetryListener;
 import org.springframework.retry.policy.SimpleRetryPolicy;
 import org.springframework.retry.support.RetryTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.web.client.RestTemplate;
 import uk.gov.ons.ctp.common.cloud.CloudRetryListener;
+import uk.gov.ons.ctp.common.cloud.FirestoreDataStore;
+import uk.gov.ons.ctp.common.cloud.RetryableCloudDataStore;
 import uk.gov.ons.ctp.common.config.CustomCircuitBreakerConfig;
 import uk.gov.ons.ctp.common.error.CTPException;
 import uk.gov.ons.ctp.common.event.EventPublisher;
@@ -45,15 +61,32 @@ import uk.gov.ons.ctp.common.jackson.CustomObjectMapper;
 import uk.gov.ons.ctp.common.rest.RestClient;
 import uk.gov.ons.ctp.common.rest.RestClientConfig;
 import uk.gov.ons.ctp.integration.caseapiclient.caseservice.CaseServiceClientServiceImpl;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.AsyncRestClient;
 import uk.gov.ons.ctp.integration.contactcentresvc.config.AppConfig;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.AsyncHttpSettings;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.LookupSettings;
 import uk.gov.ons.ctp.integration.contactcentresvc.config.MessagingConfig.PublishConfig;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.MessagingConfig.PublishMode;
+import uk.gov.ons.ctp.integration.contactcentresvc.event.ConfirmedRabbitEventSender;
+import uk.gov.ons.ctp.integration.contactcentresvc.repository.impl.InMemoryCaseDataRepository;
+import uk.gov.ons.ctp.integration.contactcentresvc.util.LogSampler;
 import uk.gov.ons.ctp.integration.eqlaunch.service.EqLaunchService;
 import uk.gov.ons.ctp.integration.eqlaunch.service.impl.EqLaunchServiceImpl;
 
 /** The 'main' entry point for the ContactCentre Svc SpringBoot Application. */
 @SpringBootApplication
 @IntegrationComponentScan("uk.gov.ons.ctp.integration")
-@ComponentScan(basePackages = {"uk.gov.ons.ctp.integration", "uk.gov.ons.ctp.common"})
+@ComponentScan(
+    basePackages = {"uk.gov.ons.ctp.integration", "uk.gov.ons.ctp.common"},
+    // Built below, unless cached cases are held in memory
+    excludeFilters =
+        @ComponentScan.Filter(
+            type = FilterType.ASSIGNABLE_TYPE,
+            classes = {
+              FirestoreDataStore.class,
+              RetryableCloudDataStore.class,
+              FirestoreEventPersistence.class
+            }))
 @EnableCaching
 public class ContactCentreSvcApplication {
   private static final Logger log = LoggerFactory.getLogger(ContactCentreSvcApplication.class);
@@ -117,6 +150,170 @@ public class ContactCentreSvcApplication {
     return csClientServiceImpl;
   }
 
+  /**
+   * Pool on which the non-blocking HTTP client completes responses. When it is full, responses are
+   * completed by the thread which received them.
+   *
+   * @return the executor for the HTTP client
+   */
+  @Bean(destroyMethod = "shutdown")
+  @Qualifier("asyncHttpExecutor")
+  @ConditionalOnProperty(name = "async-http.enabled", havingValue = "true")
+  public ExecutorService asyncHttpExecutor() {
+    AsyncHttpSettings settings = appConfig.getAsyncHttp();
+    return new ThreadPoolExecutor(
+        settings.getPoolSize(),
+        settings.getPoolSize(),
+        60L,
+        TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(settings.getQueueCapacity()),
+        new CustomizableThreadFactory("async-http-"),
+        new ThreadPoolExecutor.CallerRunsPolicy());
+  }
+
+  /**
+   * Non-blocking HTTP client shared by the asynchronous clients of AIMS and RM. Connections are
+   * pooled and kept alive between requests, as set by the JVM arguments in the Dockerfile.
+   *
+   * @param asyncHttpExecutor to complete responses on
+   * @return the HTTP client
+   */
+  @Bean
+  @Qualifier("asyncHttpClient")
+  @ConditionalOnProperty(name = "async-http.enabled", havingValue = "true")
+  public HttpClient asyncHttpClient(
+      @Qualifier("asyncHttpExecutor") ExecutorService asyncHttpExecutor) {
+    AsyncHttpSettings settings = appConfig.getAsyncHttp();
+    HttpClient.Builder builder =
+        HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(asyncHttpExecutor);
+    if (settings.getConnectTimeoutMillis() > 0) {
+      builder.connectTimeout(Duration.ofMillis(settings.getConnectTimeoutMillis()));
+    }
+    return builder.build();
+  }
+
+  @Bean
+  @Qualifier("addressIndexAsyncClient")
+  @ConditionalOnProperty(name = "async-http.enabled", havingValue = "true")
+  public AsyncRestClient addressIndexAsyncClient(
+      @Qualifier("asyncHttpClient") HttpClient asyncHttpClient, CustomObjectMapper mapper) {
+    RestClientConfig clientConfig = appConfig.getAddressIndexSettings().getRestClientConfig();
+    return new AsyncRestClient(
+        asyncHttpClient, clientConfig, mapper, httpErrorMapping, defaultHttpStatus);
+  }
+
+  @Bean
+  @Qualifier("caseServiceAsyncClient")
+  @ConditionalOnProperty(name = "async-http.enabled", havingValue = "true")
+  public AsyncRestClient caseServiceAsyncClient(
+      @Qualifier("asyncHttpClient") HttpClient asyncHttpClient, CustomObjectMapper mapper) {
+    RestClientConfig clientConfig = appConfig.getCaseServiceSettings().getRestClientConfig();
+    return new AsyncRestClient(
+        asyncHttpClient, clientConfig, mapper, httpErrorMapping, defaultHttpStatus);
+  }
+
+  /**
+   * Bounded pool on which case lookups against RM and Firestore are run concurrently. When the
+   * queue is full the lookup runs on the calling request thread instead, so a saturated pool
+   * degrades to the sequential behaviour rather than failing requests.
+   *
+   * @return the executor for concurrent lookups
+   */
+  @Bean
+  @Qualifier("lookupExecutor")
+  public ExecutorService lookupExecutor() {
+    LookupSettings lookupSettings = appConfig.getLookupSettings();
+    return new ThreadPoolExecutor(
+        lookupSettings.getPoolSize(),
+        lookupSettings.getPoolSize(),
+        60L,
+        TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(lookupSettings.getQueueCapacity()),
+        new CustomizableThreadFactory("lookup-"),
+        new ThreadPoolExecutor.CallerRunsPolicy());
+  }
+
+  /**
+   * Bounded pool on which the items of a batch request are run, each of which may start lookups of
+   * its own on the lookup pool. A batch item which finds the pool full fails on its own rather than
+   * running on the request thread, as the request already has its deadline.
+   *
+   * @return the executor for batch items
+   */
+  @Bean
+  @Qualifier("batchExecutor")
+  public ExecutorService batchExecutor() {
+    LookupSettings lookupSettings = appConfig.getLookupSettings();
+    return new ThreadPoolExecutor(
+        lookupSettings.getBatchPoolSize(),
+        lookupSettings.getBatchPoolSize(),
+        60L,
+        TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(lookupSettings.getBatchQueueCapacity()),
+        new CustomizableThreadFactory("batch-"),
+        new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  /**
+   * Pool on which the launch URLs of a batch are created, once RM has given each its questionnaire
+   * ID. Encrypting a launch token is CPU bound, so the pool has a thread for each processor. When
+   * its queue is full the launch URL is created on the request thread.
+   *
+   * @return the executor for creating launch URLs
+   */
+  @Bean
+  @Qualifier("launchExecutor")
+  public ExecutorService launchExecutor() {
+    int processors = Runtime.getRuntime().availableProcessors();
+    return new ThreadPoolExecutor(
+        processors,
+        processors,
+        60L,
+        TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(appConfig.getLookupSettings().getBatchQueueCapacity()),
+        new CustomizableThreadFactory("launch-"),
+        new ThreadPoolExecutor.CallerRunsPolicy());
+  }
+
+  /**
+   * Firestore client for the case queries which the cloud data store can't express, such as
+   * reading the cases for several UPRNs in one query.
+   *
+   * @param gcpProject the project holding the Firestore database
+   * @return the Firestore client
+   */
+  @Bean
+  @Qualifier("firestore")
+  @Profile("!" + InMemoryCaseDataRepository.PROFILE)
+  public Firestore firestore(@Value("${GOOGLE_CLOUD_PROJECT}") String gcpProject) {
+    return FirestoreOptions.newBuilder().setProjectId(gcpProject).build().getService();
+  }
+
+  /**
+   * The cloud data store through which cached cases and events which could not be sent are
+   * written to Firestore. It is not built when cached cases are held in memory, so that the service
+   * can run without a GCP project.
+   *
+   * @return the cloud data store
+   */
+  @Bean
+  @Profile("!" + InMemoryCaseDataRepository.PROFILE)
+  public FirestoreDataStore cloudDataStore() {
+    return new FirestoreDataStore();
+  }
+
+  @Bean
+  @Profile("!" + InMemoryCaseDataRepository.PROFILE)
+  public RetryableCloudDataStore retryableCloudDataStore() {
+    return new RetryableCloudDataStore();
+  }
+
+  @Bean
+  @Profile("!" + InMemoryCaseDataRepository.PROFILE)
+  public FirestoreEventPersistence eventPersistence() {
+    return new FirestoreEventPersistence();
+  }
+
   /**
    * The main entry point for this application.
    *
@@ -147,17 +344,45 @@ public class ContactCentreSvcApplication {
     return new CustomObjectMapper();
   }
 
+  /**
+   * The template used to publish events. Depending on the publish mode, each event is either sent
+   * in a channel transaction, or on a channel with publisher confirms and returns enabled. Confirms
+   * and returns are enabled on the connection factory by <code>
+   * spring.rabbitmq.publisher-confirm-type</code> and <code>spring.rabbitmq.publisher-returns</code>,
+   * which must agree with the mode. The <code>confirmed-publishing</code> profile sets all three.
+   *
+   * @param connectionFactory the Rabbit connection factory
+   * @param sendRetryTemplate retries for sending an event
+   * @return the template
+   */
   @Bean
   public RabbitTemplate rabbitTemplate(
       final ConnectionFactory connectionFactory, RetryTemplate sendRetryTemplate) {
     final var template = new RabbitTemplate(connectionFactory);
     template.setMessageConverter(new Jackson2JsonMessageConverter());
     template.setExchange("events");
-    template.setChannelTransacted(true);
+    if (publishMode() == PublishMode.CONFIRMED) {
+      if (!connectionFactory.isPublisherConfirms() || !connectionFactory.isPublisherReturns()) {
+        throw new IllegalStateException(
+            "CONFIRMED publish mode needs spring.rabbitmq.publisher-confirm-type: correlated"
+                + " and spring.rabbitmq.publisher-returns: true");
+      }
+      template.setMandatory(true);
+    } else {
+      if (connectionFactory.isPublisherConfirms()) {
+        throw new IllegalStateException(
+            "TRANSACTED publish mode needs spring.rabbitmq.publisher-confirm-type: none");
+      }
+      template.setChannelTransacted(true);
+    }
     template.setRetryTemplate(sendRetryTemplate);
     return template;
   }
 
+  private PublishMode publishMode() {
+    return appConfig.getMessaging().getPublish().getMode();
+  }
+
   @Bean
   public RetryTemplate sendRetryTemplate(RetryListener sendRetryListener) {
     RetryTemplate template = new RetryTemplate();
@@ -180,21 +405,36 @@ public class ContactCentreSvcApplication {
   }
 
   /**
-   * Bean used to publish asynchronous event messages
+   * Bean used to publish asynchronous event messages. Events which can't be sent are persisted to
+   * Firestore, unless cached cases are held in memory, when there is no Firestore to persist them
+   * to and the failure is passed on to the caller.
    *
    * @param rabbitTemplate rabbit template
-   * @param eventPersistence event persistence object
+   * @param eventPersistence event persistence object, if there is one
    * @param circuitBreakerFactory circuit breaker factory
    * @return event publisher bean
    */
   @Bean
   public EventPublisher eventPublisher(
       final RabbitTemplate rabbitTemplate,
-      final FirestoreEventPersistence eventPersistence,
+      final ObjectProvider<FirestoreEventPersistence> eventPersistence,
       final Resilience4JCircuitBreakerFactory circuitBreakerFactory) {
-    EventSender sender = new SpringRabbitEventSender(rabbitTemplate);
+    EventSender sender;
+    if (publishMode() == PublishMode.CONFIRMED) {
+      PublishConfig publishConfig = appConfig.getMessaging().getPublish();
+      sender =
+          new ConfirmedRabbitEventSender(rabbitTemplate, publishConfig.getConfirmTimeoutMillis());
+    } else {
+      sender = new SpringRabbitEventSender(rabbitTemplate);
+    }
+    log.with("publishMode", publishMode()).info("Publishing events");
+    FirestoreEventPersistence persistence = eventPersistence.getIfAvailable();
+    if (persistence == null) {
+      log.info("Events which can't be sent are not persisted");
+      return EventPublisher.createWithoutEventPersistence(sender);
+    }
     CircuitBreaker circuitBreaker = circuitBreakerFactory.create("eventSendCircuitBreaker");
-    return EventPublisher.createWithEventPersistence(sender, eventPersistence, circuitBreaker);
+    return EventPublisher.createWithEventPersistence(sender, persistence, circuitBreaker);
   }
 
   @Bean
@@ -218,13 +458,26 @@ public class ContactCentreSvcApplication {
   private boolean useJsonLogging;
 
   @PostConstruct
-  public void initJsonLogging() {
+  public void initLogging() {
     if (useJsonLogging) {
       LoggingConfigs.setCurrent(LoggingConfigs.getCurrent().useJson());
     }
   }
 
+  /**
+   * Bean giving each endpoint its own sampler of its high volume log events.
+   *
+   * @return a sampler keeping one in logging.sample-one-in events
+   */
+  @Bean
+  @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
+  public LogSampler lookupLogSampler() {
+    return new LogSampler(
+        appConfig.getLogging() == null ? 1 : appConfig.getLogging().getSampleOneIn());
+  }
+
   @Bean
+  @Profile("!" + InMemoryCaseDataRepository.PROFILE)
   StackdriverConfig stackdriverConfig() {
     return new StackdriverConfig() {
       @Override
@@ -268,6 +521,7 @@ public class ContactCentreSvcApplication {
   }
 
   @Bean
+  @Profile("!" + InMemoryCaseDataRepository.PROFILE)
   StackdriverMeterRegistry meterRegistry(StackdriverConfig stackdriverConfig) {
 
     StackdriverMeterRegistry.builder(stackdriverConfig).build();
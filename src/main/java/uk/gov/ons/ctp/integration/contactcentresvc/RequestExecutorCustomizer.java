@@ -0,0 +1,102 @@
+package uk.gov.ons.ctp.integration.contactcentresvc;
+
+import com.godaddy.logging.Logger;
+import com.godaddy.logging.LoggerFactory;
+import io.undertow.servlet.api.DeploymentInfo;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.embedded.undertow.UndertowServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.AppConfig;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.RequestExecution;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.RequestExecution.Mode;
+
+/**
+ * Chooses the threads which requests run on. Requests spend most of their time waiting on RM, AIMS,
+ * Firestore and Rabbit, so running them on the fixed set of Undertow worker threads limits how many
+ * can be served at once well before the pod runs short of CPU.
+ *
+ * <p>In the ELASTIC and VIRTUAL modes requests are handed to an executor which isn't bound by the
+ * number of worker threads. The number of calls in flight to RM and AIMS can then be held down by
+ * their concurrency limits instead. Virtual threads need Java 21; on an older JVM the VIRTUAL mode
+ * falls back to an elastic pool.
+ *
+ * <p>The elastic pool queues no more than its queue capacity of requests waiting for a thread.
+ * Beyond that a request is rejected when it is handed to the pool, rather than queued without
+ * limit while the pod runs out of memory.
+ */
+@Component
+public class RequestExecutorCustomizer
+    implements WebServerFactoryCustomizer<UndertowServletWebServerFactory>, DisposableBean {
+  private static final Logger log = LoggerFactory.getLogger(RequestExecutorCustomizer.class);
+
+  @Autowired private AppConfig appConfig;
+
+  private ExecutorService executor;
+
+  @Override
+  public void customize(UndertowServletWebServerFactory factory) {
+    factory.addDeploymentInfoCustomizers(this::customizeDeployment);
+  }
+
+  void customizeDeployment(DeploymentInfo deploymentInfo) {
+    RequestExecution settings = appConfig.getRequestExecution();
+    Mode mode = settings == null ? Mode.WORKER : settings.getMode();
+    if (mode == Mode.WORKER) {
+      log.info("Requests run on the Undertow worker threads");
+      return;
+    }
+    if (executor == null) {
+      executor = mode == Mode.VIRTUAL ? virtualThreads() : null;
+      if (executor == null) {
+        executor = elasticPool(settings.getMaxThreads(), settings.getQueueCapacity());
+      }
+    }
+    deploymentInfo.setExecutor(executor);
+  }
+
+  @Override
+  public void destroy() throws InterruptedException {
+    if (executor != null) {
+      executor.shutdown();
+      executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+  }
+
+  /** @return an executor running each request on a virtual thread, or null if there are none */
+  private ExecutorService virtualThreads() {
+    try {
+      Object virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+      log.info("Requests run on virtual threads");
+      return (ExecutorService) virtual;
+    } catch (ReflectiveOperationException e) {
+      log.with("javaVersion", System.getProperty("java.version"))
+          .warn("Virtual threads are not available, so requests run on an elastic pool");
+      return null;
+    }
+  }
+
+  private ExecutorService elasticPool(int maxThreads, int queueCapacity) {
+    ThreadPoolExecutor pool =
+        new ThreadPoolExecutor(
+            maxThreads,
+            maxThreads,
+            60L,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(queueCapacity),
+            new CustomizableThreadFactory("request-"),
+            new ThreadPoolExecutor.AbortPolicy());
+    pool.allowCoreThreadTimeOut(true);
+    log.with("maxThreads", maxThreads)
+        .with("queueCapacity", queueCapacity)
+        .info("Requests run on an elastic pool");
+    return pool;
+  }
+}
@@ -28,7 +28,7 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
         .permitAll()
         .antMatchers("/version")
         .permitAll()
-        .antMatchers("/cases/**/uac")
+        .antMatchers("/cases/**/uac", "/cases/**/uac/batch")
         .hasRole("AD")
         .antMatchers("/cases")
         .hasRole("CC")
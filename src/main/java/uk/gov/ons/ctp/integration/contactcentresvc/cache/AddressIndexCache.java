@@ -0,0 +1,416 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.godaddy.logging.Logger;
+import com.godaddy.logging.LoggerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import lombok.Value;
+import ma.glasnost.orika.MapperFacade;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import uk.gov.ons.ctp.integration.contactcentresvc.CCSvcBeanMapper;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.model.AddressIndexAddressCompositeDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.model.AddressIndexSearchResultsCompositeDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.model.AddressIndexSummaryResultsDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.model.ResponseStatusData;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.AppConfig;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.CacheSettings;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.AddressDTO;
+
+/**
+ * In-process cache of Address Index (AIMS) postcode and UPRN responses. AIMS data only changes when
+ * it is reloaded, which AIMS reports by answering with a new data version. The whole cache is
+ * dropped the first time a response carries a later data version than any seen before. While AIMS
+ * is being reloaded some responses may still come from the earlier data; these are passed on but
+ * not held, so they neither drop the cache again nor refill it with old data. Responses are also
+ * keyed on the epoch we query AIMS with.
+ *
+ * <p>The cache is bounded by the estimated memory taken by the responses it holds, as the size of
+ * a postcode response varies with the number of addresses in it. Only successful responses are
+ * held.
+ *
+ * <p>Identical searches that miss the cache at the same time share a single call to AIMS, so a
+ * popular postcode doesn't bring a rush of calls to AIMS when its entry expires. Free text address
+ * searches are too varied to be worth caching, but identical ones in flight at the same time are
+ * also shared. This applies when the cache is disabled too.
+ *
+ * <p>Address and postcode responses are shared between callers and must not be changed. UPRN
+ * responses are copied for each caller, as a new case is built by adjusting the address they
+ * contain.
+ *
+ * <p>Each lookup has an asynchronous form, for callers using the non-blocking AIMS client, which
+ * shares the same cache and in-flight calls.
+ */
+@Component
+public class AddressIndexCache {
+  private static final Logger log = LoggerFactory.getLogger(AddressIndexCache.class);
+
+  // Rough sizes, in bytes, used to estimate the weight of a response
+  private static final int OBJECT_OVERHEAD = 16;
+  private static final int STRING_OVERHEAD = 40;
+
+  @Autowired private AppConfig appConfig;
+
+  @Autowired private MeterRegistry meterRegistry;
+
+  private MapperFacade mapper = new CCSvcBeanMapper();
+
+  private Cache<Key, Object> responses;
+
+  private SingleFlight<Key, AddressIndexSummaryResultsDTO> addressCalls;
+  private SingleFlight<Key, AddressIndexSummaryResultsDTO> postcodeCalls;
+  private SingleFlight<Key, AddressIndexSearchResultsCompositeDTO> uprnCalls;
+
+  // Guarded by this
+  private String dataVersion;
+
+  @Value
+  private static class Key {
+    private String path;
+    private String id;
+    private int offset;
+    private int limit;
+    private String epoch;
+  }
+
+  @PostConstruct
+  public void init() {
+    Duration timeout = Duration.ofMillis(appConfig.getLookupSettings().getAimsTimeoutMillis());
+    addressCalls = new SingleFlight<>("aimsAddress", timeout, meterRegistry);
+    postcodeCalls = new SingleFlight<>("aimsPostcode", timeout, meterRegistry);
+    uprnCalls = new SingleFlight<>("aimsUprn", timeout, meterRegistry);
+
+    CacheSettings settings = appConfig.getAddressIndexSettings().getResponseCache();
+    if (settings == null || !settings.isEnabled()) {
+      log.info("Address Index response cache is disabled");
+      return;
+    }
+    responses =
+        Caffeine.newBuilder()
+            .maximumWeight(settings.getMaximumWeightBytes())
+            .weigher(AddressIndexCache::weighResponse)
+            .expireAfterWrite(Duration.ofSeconds(settings.getTimeToLiveSeconds()))
+            .recordStats()
+            .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, responses, "addressIndexResponses");
+    log.with("maximumWeightBytes", settings.getMaximumWeightBytes())
+        .with("timeToLiveSeconds", settings.getTimeToLiveSeconds())
+        .info("Address Index response cache is enabled");
+  }
+
+  /**
+   * Get the AIMS response for a free text address search. These are not cached, but an identical
+   * search already in flight is shared.
+   *
+   * @param path of the AIMS address endpoint
+   * @param input searched for
+   * @param offset of the first address requested
+   * @param limit on the number of addresses returned
+   * @param aimsLookup to call AIMS
+   * @return the response, which must not be changed by the caller
+   */
+  public AddressIndexSummaryResultsDTO getAddressResults(
+      String path,
+      String input,
+      int offset,
+      int limit,
+      Supplier<AddressIndexSummaryResultsDTO> aimsLookup) {
+    return addressCalls.call(new Key(path, input, offset, limit, currentEpoch()), aimsLookup);
+  }
+
+  /**
+   * Get the AIMS response for a postcode search, calling AIMS if we don't already hold it.
+   *
+   * @param path of the AIMS postcode endpoint
+   * @param postcode searched for
+   * @param offset of the first address requested
+   * @param limit on the number of addresses returned
+   * @param aimsLookup to call AIMS
+   * @return the response, which must not be changed by the caller
+   */
+  public AddressIndexSummaryResultsDTO getPostcodeResults(
+      String path,
+      String postcode,
+      int offset,
+      int limit,
+      Supplier<AddressIndexSummaryResultsDTO> aimsLookup) {
+    Key key = new Key(path, postcode, offset, limit, currentEpoch());
+    return get(
+        key,
+        AddressIndexSummaryResultsDTO.class,
+        postcodeCalls,
+        aimsLookup,
+        AddressIndexSummaryResultsDTO::getStatus);
+  }
+
+  /**
+   * Get the AIMS response for a UPRN search, calling AIMS if we don't already hold it.
+   *
+   * @param path of the AIMS UPRN endpoint
+   * @param uprn searched for
+   * @param aimsLookup to call AIMS
+   * @return the caller's own copy of the response
+   */
+  public AddressIndexSearchResultsCompositeDTO getUprnResults(
+      String path, long uprn, Supplier<AddressIndexSearchResultsCompositeDTO> aimsLookup) {
+    Key key = new Key(path, Long.toString(uprn), 0, 0, currentEpoch());
+    AddressIndexSearchResultsCompositeDTO results =
+        get(
+            key,
+            AddressIndexSearchResultsCompositeDTO.class,
+            uprnCalls,
+            aimsLookup,
+            AddressIndexSearchResultsCompositeDTO::getStatus);
+    if (results == null) {
+      return null;
+    }
+    return mapper.map(results, AddressIndexSearchResultsCompositeDTO.class);
+  }
+
+  /**
+   * Asynchronous form of {@link #getAddressResults(String, String, int, int, Supplier)}.
+   *
+   * @param path of the AIMS address endpoint
+   * @param input searched for
+   * @param offset of the first address requested
+   * @param limit on the number of addresses returned
+   * @param aimsLookup to start a call to AIMS
+   * @return the future response, which must not be changed by the caller
+   */
+  public CompletableFuture<AddressIndexSummaryResultsDTO> getAddressResultsAsync(
+      String path,
+      String input,
+      int offset,
+      int limit,
+      Supplier<CompletableFuture<AddressIndexSummaryResultsDTO>> aimsLookup) {
+    return addressCalls.callAsync(new Key(path, input, offset, limit, currentEpoch()), aimsLookup);
+  }
+
+  /**
+   * Asynchronous form of {@link #getPostcodeResults(String, String, int, int, Supplier)}.
+   *
+   * @param path of the AIMS postcode endpoint
+   * @param postcode searched for
+   * @param offset of the first address requested
+   * @param limit on the number of addresses returned
+   * @param aimsLookup to start a call to AIMS
+   * @return the future response, which must not be changed by the caller
+   */
+  public CompletableFuture<AddressIndexSummaryResultsDTO> getPostcodeResultsAsync(
+      String path,
+      String postcode,
+      int offset,
+      int limit,
+      Supplier<CompletableFuture<AddressIndexSummaryResultsDTO>> aimsLookup) {
+    Key key = new Key(path, postcode, offset, limit, currentEpoch());
+    return getAsync(
+        key,
+        AddressIndexSummaryResultsDTO.class,
+        postcodeCalls,
+        aimsLookup,
+        AddressIndexSummaryResultsDTO::getStatus);
+  }
+
+  /**
+   * Asynchronous form of {@link #getUprnResults(String, long, Supplier)}.
+   *
+   * @param path of the AIMS UPRN endpoint
+   * @param uprn searched for
+   * @param aimsLookup to start a call to AIMS
+   * @return the caller's own copy of the future response
+   */
+  public CompletableFuture<AddressIndexSearchResultsCompositeDTO> getUprnResultsAsync(
+      String path,
+      long uprn,
+      Supplier<CompletableFuture<AddressIndexSearchResultsCompositeDTO>> aimsLookup) {
+    Key key = new Key(path, Long.toString(uprn), 0, 0, currentEpoch());
+    return getAsync(
+            key,
+            AddressIndexSearchResultsCompositeDTO.class,
+            uprnCalls,
+            aimsLookup,
+            AddressIndexSearchResultsCompositeDTO::getStatus)
+        .thenApply(
+            results ->
+                results == null
+                    ? null
+                    : mapper.map(results, AddressIndexSearchResultsCompositeDTO.class));
+  }
+
+  private <V> CompletableFuture<V> getAsync(
+      Key key,
+      Class<V> type,
+      SingleFlight<Key, V> calls,
+      Supplier<CompletableFuture<V>> aimsLookup,
+      Function<V, ResponseStatusData> status) {
+    if (responses != null) {
+      V cached = type.cast(responses.getIfPresent(key));
+      if (cached != null) {
+        return CompletableFuture.completedFuture(cached);
+      }
+    }
+    return calls.callAsync(
+        key, () -> aimsLookup.get().thenApply(results -> store(key, results, status)));
+  }
+
+  private <V> V get(
+      Key key,
+      Class<V> type,
+      SingleFlight<Key, V> calls,
+      Supplier<V> aimsLookup,
+      Function<V, ResponseStatusData> status) {
+    if (responses != null) {
+      V cached = type.cast(responses.getIfPresent(key));
+      if (cached != null) {
+        return cached;
+      }
+    }
+    return calls.call(key, () -> store(key, aimsLookup.get(), status));
+  }
+
+  /**
+   * Hold a successful response from the latest AIMS data, returning it as given. The check and put
+   * are made together, so a response can't be held after the cache has been dropped for a later
+   * data version.
+   */
+  private <V> V store(Key key, V results, Function<V, ResponseStatusData> status) {
+    if (responses != null && results != null && isSuccess(status.apply(results))) {
+      synchronized (this) {
+        if (moveToDataVersion(dataVersion(results))) {
+          responses.put(key, results);
+        }
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Drop all cached responses if AIMS has answered with a later data version than any seen before.
+   *
+   * @param version the data version of a response, or null if it has none
+   * @return false if the response comes from earlier data than that already held
+   */
+  private boolean moveToDataVersion(String version) {
+    if (version == null) {
+      return true;
+    }
+    if (dataVersion == null) {
+      dataVersion = version;
+      return true;
+    }
+    int order = compareDataVersions(version, dataVersion);
+    if (order > 0) {
+      log.with("previousDataVersion", dataVersion)
+          .with("dataVersion", version)
+          .info("Address Index data version has changed, dropping cached responses");
+      responses.invalidateAll();
+      dataVersion = version;
+    }
+    return order >= 0;
+  }
+
+  /** Compare data versions as numbers where they are numbers, as AIMS versions are. */
+  private static int compareDataVersions(String a, String b) {
+    if (NumberUtils.isDigits(a) && NumberUtils.isDigits(b)) {
+      return new BigInteger(a).compareTo(new BigInteger(b));
+    }
+    return a.compareTo(b);
+  }
+
+  private String currentEpoch() {
+    return StringUtils.defaultString(appConfig.getAddressIndexSettings().getEpoch());
+  }
+
+  private boolean isSuccess(ResponseStatusData status) {
+    return status != null && status.getCode() == 200;
+  }
+
+  private static String dataVersion(Object response) {
+    if (response instanceof AddressIndexSummaryResultsDTO) {
+      return ((AddressIndexSummaryResultsDTO) response).getDataVersion();
+    }
+    if (response instanceof AddressIndexSearchResultsCompositeDTO) {
+      return ((AddressIndexSearchResultsCompositeDTO) response).getDataVersion();
+    }
+    return null;
+  }
+
+  private static int weighResponse(Key key, Object response) {
+    int weight =
+        OBJECT_OVERHEAD + weigh(key.getPath()) + weigh(key.getId()) + weigh(key.getEpoch());
+    if (response instanceof AddressIndexSummaryResultsDTO) {
+      AddressIndexSummaryResultsDTO results = (AddressIndexSummaryResultsDTO) response;
+      weight += weighResults(results.getDataVersion(), results.getErrors());
+      List<AddressDTO> addresses = results.getAddresses();
+      if (addresses != null) {
+        weight += OBJECT_OVERHEAD;
+        for (AddressDTO address : addresses) {
+          weight += weigh(address);
+        }
+      }
+    } else if (response instanceof AddressIndexSearchResultsCompositeDTO) {
+      AddressIndexSearchResultsCompositeDTO results =
+          (AddressIndexSearchResultsCompositeDTO) response;
+      weight += weighResults(results.getDataVersion(), results.getErrors());
+      if (results.getResponse() != null) {
+        weight += OBJECT_OVERHEAD + weigh(results.getResponse().getAddress());
+      }
+    }
+    return weight;
+  }
+
+  private static int weighResults(String dataVersion, List<String> errors) {
+    int weight = 3 * OBJECT_OVERHEAD + weigh(dataVersion);
+    if (errors != null) {
+      for (String error : errors) {
+        weight += weigh(error);
+      }
+    }
+    return weight;
+  }
+
+  private static int weigh(AddressDTO address) {
+    return OBJECT_OVERHEAD
+        + weigh(address.getUprn())
+        + weigh(address.getFormattedAddress())
+        + weigh(address.getWelshFormattedAddress())
+        + weigh(address.getRegion())
+        + weigh(address.getAddressType())
+        + weigh(address.getEstabType())
+        + weigh(address.getEstabDescription());
+  }
+
+  private static int weigh(AddressIndexAddressCompositeDTO address) {
+    if (address == null) {
+      return 0;
+    }
+    return OBJECT_OVERHEAD
+        + weigh(address.getUprn())
+        + weigh(address.getFormattedAddress())
+        + weigh(address.getAddressLine1())
+        + weigh(address.getAddressLine2())
+        + weigh(address.getAddressLine3())
+        + weigh(address.getTownName())
+        + weigh(address.getPostcode())
+        + weigh(address.getFoundAddressType())
+        + weigh(address.getCensusAddressType())
+        + weigh(address.getCensusEstabType())
+        + weigh(address.getCountryCode())
+        + weigh(address.getOrganisationName());
+  }
+
+  private static int weigh(String value) {
+    return value == null ? 0 : STRING_OVERHEAD + value.length();
+  }
+}
@@ -0,0 +1,272 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.cache;
+
+import static java.util.stream.Collectors.toList;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.godaddy.logging.Logger;
+import com.godaddy.logging.LoggerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import lombok.Value;
+import ma.glasnost.orika.MapperFacade;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import uk.gov.ons.ctp.integration.caseapiclient.caseservice.model.CaseContainerDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.CCSvcBeanMapper;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.AppConfig;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.CacheSettings;
+
+/**
+ * Short lived, size bounded, in-process copy of the cases read from RM, keyed by case id, case
+ * reference and UPRN. An agent typically looks up the same case several times during a call, and
+ * this saves each of those lookups going back to RM.
+ *
+ * <p>Only successful RM responses are held, so a case that RM did not know about is looked up again
+ * next time. Callers are given their own copy of a cached case, as the service layer adjusts the
+ * cases it is given. Any change this service makes to a case must be followed by a call to {@link
+ * #invalidate(UUID, String, String)} or {@link #invalidateUprn(String)}, which also stops an RM
+ * lookup already in flight from holding the case as it was before the change.
+ *
+ * <p>Identical lookups that miss the cache at the same time share a single call to RM, so a popular
+ * case doesn't bring a rush of calls to RM when its entry expires. This also applies when the
+ * cache is disabled.
+ */
+@Component
+public class RmCaseCache {
+  private static final Logger log = LoggerFactory.getLogger(RmCaseCache.class);
+
+  @Autowired private AppConfig appConfig;
+
+  @Autowired private MeterRegistry meterRegistry;
+
+  private MapperFacade mapper = new CCSvcBeanMapper();
+
+  private Cache<Key, CaseContainerDTO> casesById;
+  private Cache<Key, CaseContainerDTO> casesByCaseRef;
+  private Cache<Key, List<CaseContainerDTO>> casesByUprn;
+
+  private SingleFlight<Key, CaseContainerDTO> caseCalls;
+  private SingleFlight<Key, List<CaseContainerDTO>> uprnCalls;
+  private SingleFlight<String, List<CaseContainerDTO>> ccsCalls;
+
+  @Value
+  private static class Key {
+    private Object id;
+    private boolean caseEvents;
+  }
+
+  @PostConstruct
+  public void init() {
+    Duration timeout = Duration.ofMillis(appConfig.getLookupSettings().getRmTimeoutMillis());
+    caseCalls = new SingleFlight<>("rmCase", timeout, meterRegistry);
+    uprnCalls = new SingleFlight<>("rmCasesByUprn", timeout, meterRegistry);
+    ccsCalls = new SingleFlight<>("rmCcsCasesByPostcode", timeout, meterRegistry);
+
+    CacheSettings settings = appConfig.getCaseServiceSettings().getCaseCache();
+    if (settings == null || !settings.isEnabled()) {
+      log.info("RM case cache is disabled");
+      return;
+    }
+    casesById = build(settings, "rmCasesById");
+    casesByCaseRef = build(settings, "rmCasesByCaseRef");
+    casesByUprn = build(settings, "rmCasesByUprn");
+    log.with("maximumSize", settings.getMaximumSize())
+        .with("timeToLiveSeconds", settings.getTimeToLiveSeconds())
+        .info("RM case cache is enabled");
+  }
+
+  /**
+   * Get a case by id, going to RM if we don't already hold it.
+   *
+   * @param caseId of the case
+   * @param caseEvents true if the case is to be requested from RM with its events
+   * @param rmLookup to read the case from RM
+   * @return a copy of the case
+   */
+  public CaseContainerDTO getCaseById(
+      UUID caseId, boolean caseEvents, Supplier<CaseContainerDTO> rmLookup) {
+    return getCase(casesById, new Key(caseId, caseEvents), rmLookup);
+  }
+
+  /**
+   * Get a case by case reference, going to RM if we don't already hold it.
+   *
+   * @param caseRef of the case
+   * @param caseEvents true if the case is to be requested from RM with its events
+   * @param rmLookup to read the case from RM
+   * @return a copy of the case
+   */
+  public CaseContainerDTO getCaseByCaseRef(
+      long caseRef, boolean caseEvents, Supplier<CaseContainerDTO> rmLookup) {
+    return getCase(casesByCaseRef, new Key(caseRef, caseEvents), rmLookup);
+  }
+
+  /**
+   * Get the cases for a UPRN, going to RM if we don't already hold them.
+   *
+   * @param uprn of the address
+   * @param caseEvents true if the cases are to be requested from RM with their events
+   * @param rmLookup to read the cases from RM
+   * @return copies of the cases
+   */
+  public List<CaseContainerDTO> getCasesByUprn(
+      long uprn, boolean caseEvents, Supplier<List<CaseContainerDTO>> rmLookup) {
+    return copyAll(get(casesByUprn, uprnCalls, new Key(uprn, caseEvents), rmLookup));
+  }
+
+  /**
+   * Asynchronous form of {@link #getCaseById(UUID, boolean, Supplier)}.
+   *
+   * @param caseId of the case
+   * @param caseEvents true if the case is to be requested from RM with its events
+   * @param rmLookup to start reading the case from RM
+   * @return a copy of the future case
+   */
+  public CompletableFuture<CaseContainerDTO> getCaseByIdAsync(
+      UUID caseId, boolean caseEvents, Supplier<CompletableFuture<CaseContainerDTO>> rmLookup) {
+    return getAsync(casesById, caseCalls, new Key(caseId, caseEvents), rmLookup)
+        .thenApply(this::copy);
+  }
+
+  /**
+   * Asynchronous form of {@link #getCasesByUprn(long, boolean, Supplier)}.
+   *
+   * @param uprn of the address
+   * @param caseEvents true if the cases are to be requested from RM with their events
+   * @param rmLookup to start reading the cases from RM
+   * @return copies of the future cases
+   */
+  public CompletableFuture<List<CaseContainerDTO>> getCasesByUprnAsync(
+      long uprn, boolean caseEvents, Supplier<CompletableFuture<List<CaseContainerDTO>>> rmLookup) {
+    return getAsync(casesByUprn, uprnCalls, new Key(uprn, caseEvents), rmLookup)
+        .thenApply(this::copyAll);
+  }
+
+  /**
+   * Get the CCS cases for a postcode from RM. These are not cached, but an identical lookup already
+   * in flight is shared.
+   *
+   * @param postcode of the CCS cases
+   * @param rmLookup to read the cases from RM
+   * @return the cases, which must not be changed by the caller
+   */
+  public List<CaseContainerDTO> getCcsCasesByPostcode(
+      String postcode, Supplier<List<CaseContainerDTO>> rmLookup) {
+    return ccsCalls.call(postcode, rmLookup);
+  }
+
+  /**
+   * Drop everything held for a case.
+   *
+   * @param caseId of the case, may be null
+   * @param caseRef of the case, may be null
+   * @param uprn of the case address, may be null
+   */
+  public void invalidate(UUID caseId, String caseRef, String uprn) {
+    if (casesById == null) {
+      return;
+    }
+    if (caseId != null) {
+      invalidate(casesById, caseCalls, caseId);
+    }
+    if (StringUtils.isNumeric(caseRef)) {
+      invalidate(casesByCaseRef, caseCalls, Long.valueOf(caseRef));
+    }
+    invalidateUprn(uprn);
+  }
+
+  /**
+   * Drop the cases held for an address.
+   *
+   * @param uprn of the address, may be null
+   */
+  public void invalidateUprn(String uprn) {
+    if (casesByUprn != null && StringUtils.isNumeric(uprn)) {
+      invalidate(casesByUprn, uprnCalls, Long.valueOf(uprn));
+    }
+  }
+
+  private <V> Cache<Key, V> build(CacheSettings settings, String name) {
+    Cache<Key, V> cache =
+        Caffeine.newBuilder()
+            .maximumSize(settings.getMaximumSize())
+            .expireAfterWrite(Duration.ofSeconds(settings.getTimeToLiveSeconds()))
+            .recordStats()
+            .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+    return cache;
+  }
+
+  private CaseContainerDTO getCase(
+      Cache<Key, CaseContainerDTO> cache, Key key, Supplier<CaseContainerDTO> rmLookup) {
+    return copy(get(cache, caseCalls, key, rmLookup));
+  }
+
+  private <V> V get(
+      Cache<Key, V> cache, SingleFlight<Key, V> calls, Key key, Supplier<V> rmLookup) {
+    if (cache != null) {
+      V cached = cache.getIfPresent(key);
+      if (cached != null) {
+        return cached;
+      }
+    }
+    long generation = calls.generation();
+    return calls.call(key, () -> store(cache, calls, generation, key, rmLookup.get()));
+  }
+
+  private <V> CompletableFuture<V> getAsync(
+      Cache<Key, V> cache,
+      SingleFlight<Key, V> calls,
+      Key key,
+      Supplier<CompletableFuture<V>> rmLookup) {
+    if (cache != null) {
+      V cached = cache.getIfPresent(key);
+      if (cached != null) {
+        return CompletableFuture.completedFuture(cached);
+      }
+    }
+    long generation = calls.generation();
+    return calls.callAsync(
+        key,
+        () -> rmLookup.get().thenApply(result -> store(cache, calls, generation, key, result)));
+  }
+
+  /**
+   * Hold the result of a call to RM, unless an invalidation has come in while the call was in
+   * flight, in which case the result may be out of date. The result is checked after it is held,
+   * so that an invalidation which comes in meanwhile is not missed.
+   */
+  private <V> V store(
+      Cache<Key, V> cache, SingleFlight<Key, V> calls, long generation, Key key, V result) {
+    if (cache != null && result != null) {
+      cache.put(key, result);
+      if (!calls.isCurrent(generation)) {
+        cache.invalidate(key);
+      }
+    }
+    return result;
+  }
+
+  private <V> void invalidate(Cache<Key, V> cache, SingleFlight<Key, V> calls, Object id) {
+    for (Key key : List.of(new Key(id, true), new Key(id, false))) {
+      calls.invalidate(key);
+      cache.invalidate(key);
+    }
+  }
+
+  private CaseContainerDTO copy(CaseContainerDTO caze) {
+    return caze == null ? null : mapper.map(caze, CaseContainerDTO.class);
+  }
+
+  private List<CaseContainerDTO> copyAll(List<CaseContainerDTO> cases) {
+    return cases == null ? null : cases.stream().map(this::copy).collect(toList());
+  }
+}
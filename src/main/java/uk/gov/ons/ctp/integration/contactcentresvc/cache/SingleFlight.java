@@ -0,0 +1,229 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import java.io.InterruptedIOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Coalesces identical calls to a downstream service. While a call for a key is in flight, any
+ * other request for the same key waits for that call and shares its result, or its failure,
+ * rather than making a call of its own. Once the call completes the next request for the key makes
+ * a new call.
+ *
+ * <p>All callers receive the same result object, so a caller that changes the result must be
+ * given its own copy.
+ *
+ * <p>A request waits for an identical call no longer than the call's own timeout, and then fails
+ * with a GATEWAY_TIMEOUT. If the thread making the call is interrupted, the requests waiting for
+ * it are not failed with it, but try again, one of them making a new call.
+ *
+ * <p>Each call is tagged with the generation it started in. {@link #invalidate(Object)} starts a
+ * new generation and forgets the call in flight for a key, so later requests make a new call, and
+ * a caller storing a result can tell that it has been invalidated since by {@link
+ * #isCurrent(long)}.
+ *
+ * <p>The number of requests which shared another request's call, and the number currently
+ * waiting, are published as <code>singleflight.coalesced</code> and <code>singleflight.waiting
+ * </code>, tagged with the name of the call.
+ *
+ * @param <K> the type of key identifying identical calls
+ * @param <V> the type of the call result
+ */
+public class SingleFlight<K, V> {
+  private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+  private final AtomicLong generation = new AtomicLong();
+  private final String name;
+  private final Duration timeout;
+  private final Counter coalesced;
+  private final AtomicInteger waiting;
+
+  /** Completes the call of an interrupted thread, so that those waiting for it try again. */
+  private static class Abandoned extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    Abandoned() {
+      super(null, null, false, false);
+    }
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param name of the call, used to tag the metrics
+   * @param timeout of the call, which is the longest a request waits for an identical call
+   * @param meterRegistry to publish the metrics to
+   */
+  public SingleFlight(String name, Duration timeout, MeterRegistry meterRegistry) {
+    this.name = name;
+    this.timeout = timeout;
+    coalesced =
+        Counter.builder("singleflight.coalesced")
+            .description("Requests which shared an identical call already in flight")
+            .tag("call", name)
+            .register(meterRegistry);
+    waiting =
+        meterRegistry.gauge("singleflight.waiting", Tags.of("call", name), new AtomicInteger());
+  }
+
+  /**
+   * Make the call for a key, or wait for the identical call already in flight.
+   *
+   * @param key identifying the call
+   * @param call to make if there is no identical call in flight
+   * @return the result of the call
+   */
+  public V call(K key, Supplier<V> call) {
+    while (true) {
+      CompletableFuture<V> ours = new CompletableFuture<>();
+      CompletableFuture<V> existing = inFlight.putIfAbsent(key, ours);
+      if (existing == null) {
+        return make(key, call, ours);
+      }
+      try {
+        return await(existing);
+      } catch (Abandoned e) {
+        // The thread making the call was interrupted, so try again
+      }
+    }
+  }
+
+  /** @return the current generation, to be passed to {@link #isCurrent(long)} */
+  public long generation() {
+    return generation.get();
+  }
+
+  /**
+   * @param callGeneration the generation when a call was started
+   * @return true if nothing has been invalidated since the call was started
+   */
+  public boolean isCurrent(long callGeneration) {
+    return generation.get() == callGeneration;
+  }
+
+  /**
+   * Start a new generation, and forget any call in flight for a key, so that the next request for
+   * it makes a new call. Requests already waiting for the forgotten call still share its result.
+   *
+   * @param key identifying the call
+   */
+  public void invalidate(K key) {
+    generation.incrementAndGet();
+    inFlight.remove(key);
+  }
+
+  private V make(K key, Supplier<V> call, CompletableFuture<V> ours) {
+    try {
+      V result = call.get();
+      ours.complete(result);
+      return result;
+    } catch (RuntimeException | Error e) {
+      ours.completeExceptionally(interrupted(e) ? new Abandoned() : e);
+      throw e;
+    } finally {
+      inFlight.remove(key, ours);
+    }
+  }
+
+  /**
+   * Start the call for a key, or join the identical call already in flight, without waiting for
+   * either to complete. Calls made by {@link #call(Object, Supplier)} and by this method are shared
+   * with each other.
+   *
+   * @param key identifying the call
+   * @param call to start if there is no identical call in flight
+   * @return the future result of the call, which the caller may compose or cancel without affecting
+   *     anyone else waiting for it
+   */
+  public CompletableFuture<V> callAsync(K key, Supplier<CompletableFuture<V>> call) {
+    CompletableFuture<V> ours = new CompletableFuture<>();
+    CompletableFuture<V> existing = inFlight.putIfAbsent(key, ours);
+    if (existing != null) {
+      coalesced.increment();
+      return existing
+          .handle(
+              (result, failure) ->
+                  unwrap(failure) instanceof Abandoned ? callAsync(key, call) : existing.copy())
+          .thenCompose(Function.identity());
+    }
+
+    try {
+      call.get()
+          .whenComplete(
+              (result, failure) -> {
+                if (failure == null) {
+                  ours.complete(result);
+                } else {
+                  ours.completeExceptionally(unwrap(failure));
+                }
+                inFlight.remove(key, ours);
+              });
+    } catch (RuntimeException | Error e) {
+      ours.completeExceptionally(e);
+      inFlight.remove(key, ours);
+    }
+    return ours.copy();
+  }
+
+  private static boolean interrupted(Throwable failure) {
+    if (Thread.currentThread().isInterrupted()) {
+      return true;
+    }
+    for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+      if (cause instanceof InterruptedException
+          || cause instanceof InterruptedIOException
+          || cause instanceof ClosedByInterruptException) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Throwable unwrap(Throwable failure) {
+    if (failure instanceof CompletionException && failure.getCause() != null) {
+      return failure.getCause();
+    }
+    return failure;
+  }
+
+  private V await(CompletableFuture<V> existing) {
+    coalesced.increment();
+    waiting.incrementAndGet();
+    try {
+      return existing.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new CompletionException(cause);
+    } catch (TimeoutException e) {
+      throw new ResponseStatusException(
+          HttpStatus.GATEWAY_TIMEOUT, "Timed out waiting for identical " + name + " call");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CancellationException("Interrupted waiting for identical " + name + " call");
+    } finally {
+      waiting.decrementAndGet();
+    }
+  }
+}
@@ -0,0 +1,191 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.godaddy.logging.Logger;
+import com.godaddy.logging.LoggerFactory;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.UnknownHttpStatusCodeException;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriComponentsBuilder;
+import uk.gov.ons.ctp.common.rest.RestClientConfig;
+
+/**
+ * Non-blocking counterpart to {@link uk.gov.ons.ctp.common.rest.RestClient} for GET requests. A
+ * request returns a future straight away, and no thread is held while it is in flight. Connections
+ * are pooled and kept alive by the {@link HttpClient} the client is given, which may be shared by
+ * several clients.
+ *
+ * <p>Each request has a deadline, after which it fails. Failures are reported as the blocking
+ * client reports them: a {@link ResponseStatusException} with the downstream status translated by
+ * the error mapping, and the {@link HttpStatusCodeException} as its cause.
+ */
+public class AsyncRestClient {
+  private static final Logger log = LoggerFactory.getLogger(AsyncRestClient.class);
+
+  private final HttpClient httpClient;
+  private final ObjectMapper mapper;
+  private final String baseUrl;
+  private final String authorization;
+  private final Map<HttpStatus, HttpStatus> httpErrorMapping;
+  private final HttpStatus defaultHttpStatus;
+
+  /**
+   * Constructor.
+   *
+   * @param httpClient to send requests with
+   * @param clientConfig holding the scheme, host, port and credentials of the downstream service
+   * @param mapper to read responses with
+   * @param httpErrorMapping translating downstream statuses to those we report
+   * @param defaultHttpStatus reported for a downstream status without a mapping
+   */
+  public AsyncRestClient(
+      HttpClient httpClient,
+      RestClientConfig clientConfig,
+      ObjectMapper mapper,
+      Map<HttpStatus, HttpStatus> httpErrorMapping,
+      HttpStatus defaultHttpStatus) {
+    this(
+        httpClient,
+        clientConfig.getScheme() + "://" + clientConfig.getHost() + ":" + clientConfig.getPort(),
+        clientConfig.getUsername(),
+        clientConfig.getPassword(),
+        mapper,
+        httpErrorMapping,
+        defaultHttpStatus);
+  }
+
+  AsyncRestClient(
+      HttpClient httpClient,
+      String baseUrl,
+      String username,
+      String password,
+      ObjectMapper mapper,
+      Map<HttpStatus, HttpStatus> httpErrorMapping,
+      HttpStatus defaultHttpStatus) {
+    this.httpClient = httpClient;
+    this.mapper = mapper;
+    this.baseUrl = baseUrl;
+    this.authorization = basicAuthorization(username, password);
+    this.httpErrorMapping = httpErrorMapping;
+    this.defaultHttpStatus = defaultHttpStatus;
+  }
+
+  /**
+   * Get a resource.
+   *
+   * @param <T> the type of the resource
+   * @param path of the resource, which may contain path parameters
+   * @param clazz of the resource
+   * @param queryParams to add to the request, may be null
+   * @param timeout after which the request fails
+   * @param pathParams to fill in the path with
+   * @return the future resource
+   */
+  public <T> CompletableFuture<T> getResource(
+      String path,
+      Class<T> clazz,
+      MultiValueMap<String, String> queryParams,
+      Duration timeout,
+      Object... pathParams) {
+    URI uri =
+        UriComponentsBuilder.fromHttpUrl(baseUrl)
+            .path(path)
+            .queryParams(queryParams)
+            .buildAndExpand(pathParams)
+            .encode()
+            .toUri();
+    HttpRequest.Builder request =
+        HttpRequest.newBuilder(uri)
+            .timeout(timeout)
+            .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+            .GET();
+    if (authorization != null) {
+      request.header(HttpHeaders.AUTHORIZATION, authorization);
+    }
+    return httpClient
+        .sendAsync(request.build(), BodyHandlers.ofByteArray())
+        .handle((response, failure) -> read(uri, clazz, response, failure));
+  }
+
+  private <T> T read(URI uri, Class<T> clazz, HttpResponse<byte[]> response, Throwable failure) {
+    if (failure != null) {
+      throw failed(uri, failure);
+    }
+    HttpStatus status = HttpStatus.resolve(response.statusCode());
+    if (status == null || !status.is2xxSuccessful()) {
+      HttpStatusCodeException cause = statusCodeException(response, status);
+      HttpStatus mappedStatus = httpErrorMapping.getOrDefault(status, defaultHttpStatus);
+      log.with("uri", uri)
+          .with("status", response.statusCode())
+          .with("mappedStatus", mappedStatus)
+          .warn("Downstream service returned an error");
+      throw new ResponseStatusException(mappedStatus, cause.getMessage(), cause);
+    }
+    try {
+      return mapper.readValue(response.body(), clazz);
+    } catch (IOException e) {
+      log.with("uri", uri).with("type", clazz.getSimpleName()).error("Unreadable response", e);
+      throw new ResponseStatusException(defaultHttpStatus, "Unreadable response", e);
+    }
+  }
+
+  private ResponseStatusException failed(URI uri, Throwable failure) {
+    Throwable cause = failure;
+    if (cause instanceof CompletionException && cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+    HttpStatus status =
+        cause instanceof HttpTimeoutException
+            ? HttpStatus.GATEWAY_TIMEOUT
+            : HttpStatus.SERVICE_UNAVAILABLE;
+    HttpStatus mappedStatus = httpErrorMapping.getOrDefault(status, defaultHttpStatus);
+    log.with("uri", uri)
+        .with("mappedStatus", mappedStatus)
+        .warn("Downstream request failed", cause);
+    return new ResponseStatusException(mappedStatus, cause.getMessage(), cause);
+  }
+
+  private static HttpStatusCodeException statusCodeException(
+      HttpResponse<byte[]> response, HttpStatus status) {
+    byte[] body = response.body();
+    if (status != null && status.is4xxClientError()) {
+      return HttpClientErrorException.create(
+          status, status.getReasonPhrase(), new HttpHeaders(), body, StandardCharsets.UTF_8);
+    }
+    if (status != null && status.is5xxServerError()) {
+      return HttpServerErrorException.create(
+          status, status.getReasonPhrase(), new HttpHeaders(), body, StandardCharsets.UTF_8);
+    }
+    return new UnknownHttpStatusCodeException(
+        response.statusCode(), "", new HttpHeaders(), body, StandardCharsets.UTF_8);
+  }
+
+  private static String basicAuthorization(String username, String password) {
+    if (StringUtils.isEmpty(username)) {
+      return null;
+    }
+    String credentials = username + ":" + password;
+    return "Basic "
+        + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+  }
+}
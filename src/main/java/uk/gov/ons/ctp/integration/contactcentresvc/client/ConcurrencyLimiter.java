@@ -0,0 +1,104 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.client;
+
+import com.godaddy.logging.Logger;
+import com.godaddy.logging.LoggerFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Limits the number of calls in flight to a downstream service. A call which finds the limit
+ * reached fails at once with a {@link HttpStatus#SERVICE_UNAVAILABLE} status, so that a burst of
+ * requests is turned away here rather than being passed on to the downstream service. Blocking and
+ * asynchronous calls are treated alike, neither waiting for room.
+ */
+public class ConcurrencyLimiter {
+  private static final Logger log = LoggerFactory.getLogger(ConcurrencyLimiter.class);
+
+  private final String name;
+  private final int maxConcurrentCalls;
+  private final Semaphore permits;
+  private final Counter rejected;
+
+  /**
+   * Constructor.
+   *
+   * @param name of the downstream service, used to tag the metrics
+   * @param maxConcurrentCalls the most calls which may be in flight at once
+   * @param meterRegistry to publish the metrics to
+   */
+  public ConcurrencyLimiter(String name, int maxConcurrentCalls, MeterRegistry meterRegistry) {
+    this.name = name;
+    this.maxConcurrentCalls = maxConcurrentCalls;
+    this.permits = new Semaphore(maxConcurrentCalls);
+    Gauge.builder("downstream.calls.active", this, ConcurrencyLimiter::active)
+        .description("Calls in flight to a downstream service")
+        .tag("downstream", name)
+        .register(meterRegistry);
+    rejected =
+        Counter.builder("downstream.calls.rejected")
+            .description("Calls turned away as too many were already in flight")
+            .tag("downstream", name)
+            .register(meterRegistry);
+  }
+
+  /**
+   * Make the call, if there is room for it now.
+   *
+   * @param call to the downstream service
+   * @return the result of the call
+   * @throws ResponseStatusException with a service unavailable status if there was no room for the
+   *     call
+   */
+  public <T> T call(Supplier<T> call) {
+    if (!permits.tryAcquire()) {
+      throw rejected();
+    }
+    try {
+      return call.get();
+    } finally {
+      permits.release();
+    }
+  }
+
+  /**
+   * Start a call which completes asynchronously, if there is room for it now. The call holds its
+   * place until its future completes.
+   *
+   * @param call to the downstream service
+   * @return the future result of the call, or a future failed with a service unavailable status if
+   *     there was no room for the call
+   */
+  public <T> CompletableFuture<T> callAsync(Supplier<CompletableFuture<T>> call) {
+    if (!permits.tryAcquire()) {
+      return CompletableFuture.failedFuture(rejected());
+    }
+    CompletableFuture<T> result;
+    try {
+      result = call.get();
+    } catch (RuntimeException | Error e) {
+      permits.release();
+      throw e;
+    }
+    return result.whenComplete((r, e) -> permits.release());
+  }
+
+  /** @return the number of calls in flight */
+  public int active() {
+    return maxConcurrentCalls - permits.availablePermits();
+  }
+
+  private ResponseStatusException rejected() {
+    rejected.increment();
+    log.with("downstream", name)
+        .with("maxConcurrentCalls", maxConcurrentCalls)
+        .warn("Too many calls in flight to downstream service");
+    return new ResponseStatusException(
+        HttpStatus.SERVICE_UNAVAILABLE, "Too many calls in flight to " + name);
+  }
+}
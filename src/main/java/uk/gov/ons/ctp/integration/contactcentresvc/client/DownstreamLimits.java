@@ -0,0 +1,129 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.client;
+
+import com.godaddy.logging.Logger;
+import com.godaddy.logging.LoggerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.AppConfig;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.ConcurrencyLimit;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.HedgingPolicy;
+
+/**
+ * The limits on the number of calls in flight to RM and to AIMS. When requests are not bound to the
+ * Undertow worker threads, these are what stop a burst of requests from becoming a burst of calls
+ * to the services behind us.
+ *
+ * <p>A service without a configured limit is called without limit.
+ *
+ * <p>Calls to AIMS may also be hedged, see {@link HedgedCaller}. Each hedge is a call in its own
+ * right, and so counts against the limit.
+ */
+@Component
+public class DownstreamLimits {
+  private static final Logger log = LoggerFactory.getLogger(DownstreamLimits.class);
+
+  @Autowired private AppConfig appConfig;
+
+  @Autowired private MeterRegistry meterRegistry;
+
+  private ConcurrencyLimiter rm;
+  private ConcurrencyLimiter aims;
+  private HedgedCaller aimsHedging;
+
+  @PostConstruct
+  void init() {
+    rm = build("rm", appConfig.getCaseServiceSettings().getConcurrencyLimit());
+    aims = build("aims", appConfig.getAddressIndexSettings().getConcurrencyLimit());
+    aimsHedging = buildHedging("aims", appConfig.getAddressIndexSettings().getHedging());
+  }
+
+  /**
+   * Make a call to RM, if there is room for it.
+   *
+   * @param call to RM
+   * @return the result of the call
+   */
+  public <T> T callRm(Supplier<T> call) {
+    return rm == null ? call.get() : rm.call(call);
+  }
+
+  /**
+   * Make a call to AIMS, if there is room for it.
+   *
+   * @param call to AIMS
+   * @return the result of the call
+   */
+  public <T> T callAims(Supplier<T> call) {
+    return aims == null ? call.get() : aims.call(call);
+  }
+
+  /**
+   * Start a call to RM which completes asynchronously, if there is room for it.
+   *
+   * @param call to RM
+   * @return the future result of the call
+   */
+  public <T> CompletableFuture<T> callRmAsync(Supplier<CompletableFuture<T>> call) {
+    return rm == null ? call.get() : rm.callAsync(call);
+  }
+
+  /**
+   * Start a call to AIMS which completes asynchronously, if there is room for it.
+   *
+   * @param call to AIMS
+   * @return the future result of the call
+   */
+  public <T> CompletableFuture<T> callAimsAsync(Supplier<CompletableFuture<T>> call) {
+    return aims == null ? call.get() : aims.callAsync(call);
+  }
+
+  /**
+   * Start a call to AIMS which completes asynchronously, making it again if it is slow to answer
+   * and hedging is enabled.
+   *
+   * @param call to AIMS, which may be made twice
+   * @return the future result of whichever call answers first
+   */
+  public <T> CompletableFuture<T> callAimsHedged(Supplier<CompletableFuture<T>> call) {
+    return aimsHedging == null ? callAimsAsync(call) : aimsHedging.call(() -> callAimsAsync(call));
+  }
+
+  /** @return true if calls to AIMS are hedged */
+  public boolean isAimsHedged() {
+    return aimsHedging != null;
+  }
+
+  private ConcurrencyLimiter build(String name, ConcurrencyLimit limit) {
+    if (limit == null || limit.getMaxConcurrentCalls() <= 0) {
+      log.with("downstream", name).info("Calls to downstream service are not limited");
+      return null;
+    }
+    log.with("downstream", name)
+        .with("maxConcurrentCalls", limit.getMaxConcurrentCalls())
+        .info("Calls to downstream service are limited");
+    return new ConcurrencyLimiter(name, limit.getMaxConcurrentCalls(), meterRegistry);
+  }
+
+  private HedgedCaller buildHedging(String name, HedgingPolicy policy) {
+    if (policy == null || !policy.isEnabled() || policy.getWindowSize() <= 0) {
+      log.with("downstream", name).info("Calls to downstream service are not hedged");
+      return null;
+    }
+    log.with("downstream", name)
+        .with("percentile", policy.getPercentile())
+        .with("maxExtraLoadPercent", policy.getMaxExtraLoadPercent())
+        .info("Calls to downstream service are hedged");
+    return new HedgedCaller(
+        name,
+        policy.getPercentile(),
+        policy.getMinDelayMillis(),
+        policy.getWindowSize(),
+        policy.getMinSamples(),
+        policy.getMaxExtraLoadPercent(),
+        meterRegistry);
+  }
+}
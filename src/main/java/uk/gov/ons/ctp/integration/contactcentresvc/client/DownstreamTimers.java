@@ -0,0 +1,221 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import lombok.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.server.ResponseStatusException;
+import uk.gov.ons.ctp.common.error.CTPException;
+import uk.gov.ons.ctp.common.error.CTPException.Fault;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.AppConfig;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.DownstreamTiming;
+import uk.gov.ons.ctp.integration.contactcentresvc.trace.RequestTrace;
+import uk.gov.ons.ctp.integration.contactcentresvc.trace.RequestTrace.Span;
+
+/**
+ * Times the calls a request makes to the services behind us, and the costly steps it takes itself,
+ * so that the time taken by a request can be put down to RM, AIMS, Firestore, RabbitMQ, or the EQ
+ * launch and PGP encryption steps.
+ *
+ * <p>Each call is recorded by the <code>downstream.calls</code> timer, tagged with the downstream
+ * service, the operation and the outcome. A call which answers with nothing to find, whether as a
+ * 404 or an empty {@link Optional}, has an outcome of <code>not_found</code>, so that the lookups
+ * which fall back to another source can be told apart from those which failed.
+ *
+ * <p>If the request is being traced, each call is also added to its span tree, see {@link
+ * RequestTrace}.
+ */
+@Component
+public class DownstreamTimers {
+  public static final String RM = "rm";
+  public static final String AIMS = "aims";
+  public static final String FIRESTORE = "firestore";
+  public static final String RABBIT = "rabbit";
+  public static final String EQ = "eq";
+  public static final String PGP = "pgp";
+
+  private static final String METRIC = "downstream.calls";
+
+  @Autowired private AppConfig appConfig;
+
+  @Autowired private MeterRegistry meterRegistry;
+
+  private final ConcurrentMap<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+
+  private boolean percentileHistogram;
+  private Duration[] slos;
+
+  @Value
+  private static class TimerKey {
+    private String downstream;
+    private String operation;
+    private String outcome;
+  }
+
+  /** A call which may throw a checked exception. */
+  @FunctionalInterface
+  public interface Call<T, E extends Exception> {
+    T call() throws E;
+  }
+
+  /** A call which returns nothing and may throw a checked exception. */
+  @FunctionalInterface
+  public interface VoidCall<E extends Exception> {
+    void call() throws E;
+  }
+
+  @PostConstruct
+  public void init() {
+    DownstreamTiming timing = appConfig.getDownstreamTiming();
+    List<Long> sloMillis = timing == null ? null : timing.getSloMillis();
+    percentileHistogram = timing != null && timing.isPercentileHistogram();
+    slos =
+        sloMillis == null
+            ? new Duration[0]
+            : sloMillis.stream().map(Duration::ofMillis).toArray(Duration[]::new);
+  }
+
+  /**
+   * Make a call, timing it.
+   *
+   * @param downstream the service called
+   * @param operation the call made
+   * @param call to make
+   * @return the result of the call
+   * @throws E if the call fails
+   */
+  public <T, E extends Exception> T record(String downstream, String operation, Call<T, E> call)
+      throws E {
+    long start = System.nanoTime();
+    Span span = RequestTrace.startSpan(downstream, operation);
+    Span parent = RequestTrace.enter(span);
+    try {
+      T result = call.call();
+      stop(downstream, operation, resultOutcome(result), start, span);
+      return result;
+    } catch (Exception | Error e) {
+      stop(downstream, operation, failureOutcome(e), start, span);
+      throw e;
+    } finally {
+      RequestTrace.restore(parent);
+    }
+  }
+
+  /**
+   * Make a call which returns nothing, timing it.
+   *
+   * @param downstream the service called
+   * @param operation the call made
+   * @param call to make
+   * @throws E if the call fails
+   */
+  public <E extends Exception> void run(String downstream, String operation, VoidCall<E> call)
+      throws E {
+    record(
+        downstream,
+        operation,
+        () -> {
+          call.call();
+          return null;
+        });
+  }
+
+  /**
+   * Start a call which completes asynchronously, timing it until it completes.
+   *
+   * @param downstream the service called
+   * @param operation the call made
+   * @param call to start
+   * @return the future result of the call
+   */
+  public <T> CompletableFuture<T> recordAsync(
+      String downstream, String operation, Supplier<CompletableFuture<T>> call) {
+    long start = System.nanoTime();
+    Span span = RequestTrace.startSpan(downstream, operation);
+    Span parent = RequestTrace.enter(span);
+    CompletableFuture<T> result;
+    try {
+      result = call.get();
+    } catch (RuntimeException | Error e) {
+      stop(downstream, operation, failureOutcome(e), start, span);
+      throw e;
+    } finally {
+      RequestTrace.restore(parent);
+    }
+    return result.whenComplete(
+        (value, failure) ->
+            stop(
+                downstream,
+                operation,
+                failure == null ? resultOutcome(value) : failureOutcome(failure),
+                start,
+                span));
+  }
+
+  private void stop(String downstream, String operation, String outcome, long start, Span span) {
+    if (span != null) {
+      span.end(outcome);
+    }
+    timers
+        .computeIfAbsent(new TimerKey(downstream, operation, outcome), this::register)
+        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+  }
+
+  private Timer register(TimerKey key) {
+    Timer.Builder timer =
+        Timer.builder(METRIC)
+            .description("Calls to downstream services")
+            .tag("downstream", key.getDownstream())
+            .tag("operation", key.getOperation())
+            .tag("outcome", key.getOutcome())
+            .serviceLevelObjectives(slos);
+    if (percentileHistogram) {
+      timer.publishPercentileHistogram();
+    }
+    return timer.register(meterRegistry);
+  }
+
+  static String resultOutcome(Object result) {
+    return result instanceof Optional && ((Optional<?>) result).isEmpty()
+        ? "not_found"
+        : "success";
+  }
+
+  static String failureOutcome(Throwable failure) {
+    Throwable cause = failure;
+    if (cause instanceof CompletionException && cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+    if (cause instanceof ResponseStatusException) {
+      return statusOutcome(((ResponseStatusException) cause).getStatus());
+    }
+    if (cause instanceof HttpStatusCodeException) {
+      return statusOutcome(((HttpStatusCodeException) cause).getStatusCode());
+    }
+    if (cause instanceof CTPException
+        && ((CTPException) cause).getFault() == Fault.RESOURCE_NOT_FOUND) {
+      return "not_found";
+    }
+    return "error";
+  }
+
+  private static String statusOutcome(HttpStatus status) {
+    if (status == HttpStatus.NOT_FOUND) {
+      return "not_found";
+    }
+    return status.is4xxClientError() ? "client_error" : "server_error";
+  }
+}
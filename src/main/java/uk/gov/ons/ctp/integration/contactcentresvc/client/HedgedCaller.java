@@ -0,0 +1,204 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import uk.gov.ons.ctp.integration.contactcentresvc.trace.RequestTrace;
+
+/**
+ * Hedges calls to a downstream service. If a call has not answered by a percentile of the latency
+ * of recent calls, the same call is made again and whichever answers first is taken. The other is
+ * left to finish, so that its latency is still measured.
+ *
+ * <p>The latency is measured over the last <code>windowSize</code> calls which succeeded, and no
+ * call is hedged until <code>minSamples</code> of them have been seen. Only first calls are
+ * measured: a hedge starts late, so its own latency would understate how long callers waited.
+ * Hedges are paid for out of a budget which each call adds <code>maxExtraLoadPercent</code>
+ * hundredths of a hedge to, so hedging never adds more than that share of calls to the downstream
+ * load, even when the service slows down as a whole. A call which fails before it is hedged is not
+ * hedged; if one of two calls fails, the other is waited for.
+ */
+public class HedgedCaller {
+  // Hedges which may be saved up in the budget while calls are answering in time
+  private static final int MAX_BANKED_HEDGES = 10;
+  private static final long HEDGE_COST = 100;
+
+  private final double percentile;
+  private final long minDelayNanos;
+  private final int minSamples;
+  private final int maxExtraLoadPercent;
+  private final int updateEvery;
+
+  private final long[] latencies;
+  private int next;
+  private int samples;
+  private int sinceUpdate;
+  private volatile long delayNanos = -1;
+
+  private final AtomicLong budget = new AtomicLong();
+  private final Counter calls;
+  private final Counter hedges;
+  private final Counter wins;
+  private final Counter overBudget;
+
+  /**
+   * Constructor.
+   *
+   * @param name of the downstream service, used to tag the metrics
+   * @param percentile of recent latency, in percent, after which a call is hedged
+   * @param minDelayMillis the least time to wait before hedging a call
+   * @param windowSize the number of recent calls to measure latency over
+   * @param minSamples the number of calls to measure before hedging any
+   * @param maxExtraLoadPercent the most hedges to make, as a percentage of calls
+   * @param meterRegistry to publish the metrics to
+   */
+  public HedgedCaller(
+      String name,
+      double percentile,
+      long minDelayMillis,
+      int windowSize,
+      int minSamples,
+      int maxExtraLoadPercent,
+      MeterRegistry meterRegistry) {
+    this.percentile = percentile;
+    this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(minDelayMillis);
+    this.latencies = new long[windowSize];
+    this.minSamples = Math.max(1, Math.min(minSamples, windowSize));
+    this.maxExtraLoadPercent = maxExtraLoadPercent;
+    this.updateEvery = Math.max(1, windowSize / 10);
+    calls =
+        Counter.builder("downstream.hedge.calls")
+            .description("Calls which may be hedged")
+            .tag("downstream", name)
+            .register(meterRegistry);
+    hedges =
+        Counter.builder("downstream.hedge.sent")
+            .description("Calls made again as the first had not answered in time")
+            .tag("downstream", name)
+            .register(meterRegistry);
+    wins =
+        Counter.builder("downstream.hedge.wins")
+            .description("Hedges which answered before the call they hedged")
+            .tag("downstream", name)
+            .register(meterRegistry);
+    overBudget =
+        Counter.builder("downstream.hedge.over.budget")
+            .description("Hedges not made as too many had been made already")
+            .tag("downstream", name)
+            .register(meterRegistry);
+    Gauge.builder("downstream.hedge.delay", this, HedgedCaller::delayMillis)
+        .description("How long a call waits before it is hedged")
+        .tag("downstream", name)
+        .baseUnit("milliseconds")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Make the call, and make it again if it does not answer in time.
+   *
+   * @param call to the downstream service, which may be made twice
+   * @return the future result of whichever call answers first
+   */
+  public <T> CompletableFuture<T> call(Supplier<CompletableFuture<T>> call) {
+    calls.increment();
+    budget.updateAndGet(b -> Math.min(b + maxExtraLoadPercent, MAX_BANKED_HEDGES * HEDGE_COST));
+
+    CompletableFuture<T> result = new CompletableFuture<>();
+    AtomicInteger outstanding = new AtomicInteger(1);
+    start(call, result, outstanding, false);
+    long delay = delayNanos;
+    if (delay >= 0 && !result.isDone()) {
+      CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS)
+          .execute(RequestTrace.propagate(() -> hedge(call, result, outstanding)));
+    }
+    return result;
+  }
+
+  /** @return how long a call waits before it is hedged, or NaN until enough have been measured */
+  public double delayMillis() {
+    long delay = delayNanos;
+    return delay < 0 ? Double.NaN : delay / 1e6;
+  }
+
+  private <T> void hedge(
+      Supplier<CompletableFuture<T>> call, CompletableFuture<T> result, AtomicInteger outstanding) {
+    if (result.isDone()) {
+      return;
+    }
+    if (!spend()) {
+      overBudget.increment();
+      return;
+    }
+    // The first call may have failed meanwhile, leaving nothing to hedge
+    if (outstanding.getAndUpdate(n -> n == 0 ? 0 : n + 1) == 0) {
+      budget.addAndGet(HEDGE_COST);
+      return;
+    }
+    hedges.increment();
+    start(call, result, outstanding, true);
+  }
+
+  private <T> void start(
+      Supplier<CompletableFuture<T>> call,
+      CompletableFuture<T> result,
+      AtomicInteger outstanding,
+      boolean hedge) {
+    long start = System.nanoTime();
+    CompletableFuture<T> attempt;
+    try {
+      attempt = call.get();
+    } catch (RuntimeException e) {
+      attempt = CompletableFuture.failedFuture(e);
+    }
+    attempt.whenComplete(
+        (value, failure) -> {
+          if (failure == null) {
+            if (!hedge) {
+              record(System.nanoTime() - start);
+            }
+            if (result.complete(value) && hedge) {
+              wins.increment();
+            }
+          } else if (outstanding.decrementAndGet() == 0) {
+            result.completeExceptionally(unwrap(failure));
+          }
+        });
+  }
+
+  private boolean spend() {
+    long before = budget.getAndUpdate(b -> b >= HEDGE_COST ? b - HEDGE_COST : b);
+    return before >= HEDGE_COST;
+  }
+
+  private synchronized void record(long latencyNanos) {
+    latencies[next] = latencyNanos;
+    next = (next + 1) % latencies.length;
+    if (samples < latencies.length) {
+      samples++;
+    }
+    if (samples >= minSamples && (delayNanos < 0 || ++sinceUpdate >= updateEvery)) {
+      sinceUpdate = 0;
+      delayNanos = Math.max(minDelayNanos, percentileOfWindow());
+    }
+  }
+
+  private long percentileOfWindow() {
+    long[] sorted = Arrays.copyOf(latencies, samples);
+    Arrays.sort(sorted);
+    int index = (int) Math.ceil(percentile / 100 * samples) - 1;
+    return sorted[Math.max(0, Math.min(index, samples - 1))];
+  }
+
+  private static Throwable unwrap(Throwable failure) {
+    return failure instanceof CompletionException && failure.getCause() != null
+        ? failure.getCause()
+        : failure;
+  }
+}
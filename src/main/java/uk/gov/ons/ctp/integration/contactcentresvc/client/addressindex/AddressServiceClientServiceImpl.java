@@ -1,23 +1,45 @@
 package uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex;
 
+import static uk.gov.ons.ctp.integration.contactcentresvc.client.DownstreamTimers.AIMS;
+
 import com.godaddy.logging.Logger;
 import com.godaddy.logging.LoggerFactory;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import javax.inject.Inject;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.validation.annotation.Validated;
+import org.springframework.web.server.ResponseStatusException;
 import uk.gov.ons.ctp.common.rest.RestClient;
+import uk.gov.ons.ctp.integration.contactcentresvc.cache.AddressIndexCache;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.AsyncRestClient;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.DownstreamLimits;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.DownstreamTimers;
 import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.model.AddressIndexSearchResultsCompositeDTO;
-import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.model.AddressIndexSearchResultsDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.model.AddressIndexSummaryResultsDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.config.AppConfig;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.AddressQueryRequestDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.PostcodeQueryRequestDTO;
 
-/** This class is responsible for communications with the Address Index service. */
+/**
+ * This class is responsible for communications with the Address Index service. Address and postcode
+ * search responses are summarised as they are read, see {@link AddressSummaryDeserializer}.
+ *
+ * <p>Each search can also be started without waiting for AIMS to answer, using the non-blocking
+ * client, so that several searches can be made at once without holding a thread for each. When
+ * hedging is enabled for AIMS, address searches are always made this way, so that a search which is
+ * slow to answer can be made again, see {@link DownstreamLimits#callAimsHedged}.
+ */
 @Service
 @Validated
 public class AddressServiceClientServiceImpl {
@@ -29,40 +51,64 @@ public class AddressServiceClientServiceImpl {
   @Qualifier("addressIndexClient")
   private RestClient addressIndexClient;
 
-  public AddressIndexSearchResultsDTO searchByAddress(AddressQueryRequestDTO addressQueryRequest) {
+  @Autowired private AddressIndexCache addressIndexCache;
+
+  @Autowired private DownstreamLimits downstreamLimits;
+
+  @Autowired private DownstreamTimers downstreamTimers;
+
+  // Only present when async HTTP is enabled, which hedging needs
+  @Autowired(required = false)
+  @Qualifier("addressIndexAsyncClient")
+  private AsyncRestClient addressIndexAsyncClient;
+
+  public AddressIndexSummaryResultsDTO searchByAddress(AddressQueryRequestDTO addressQueryRequest) {
     if (log.isDebugEnabled()) {
       log.debug("Delegating address search to AddressIndex service");
     }
 
+    if (addressIndexAsyncClient != null && downstreamLimits.isAimsHedged()) {
+      return await(searchByAddressAsync(addressQueryRequest));
+    }
+
     String input = addressQueryRequest.getInput().trim();
     int offset = addressQueryRequest.getOffset();
     int limit = addressQueryRequest.getLimit();
 
     // Address query is delegated to Address Index. Build the query params for the request
-    MultiValueMap<String, String> queryParams = new LinkedMultiValueMap<>();
-    queryParams.add("input", input);
-    queryParams.add("offset", Integer.toString(offset));
-    queryParams.add("limit", Integer.toString(limit));
-    queryParams.add("historical", "false");
-    queryParams.add("includeauxiliarysearch", "true");
-    queryParams.add("matchthreshold", "0");
-    addEpoch(queryParams);
+    MultiValueMap<String, String> queryParams = addressQueryParams(input, offset, limit);
 
     // Ask Address Index to do an address search
     String path = appConfig.getAddressIndexSettings().getAddressQueryPath();
-    AddressIndexSearchResultsDTO addressIndexResponse =
-        addressIndexClient.getResource(
-            path, AddressIndexSearchResultsDTO.class, null, queryParams, new Object[] {});
+    AddressIndexSummaryResultsDTO addressIndexResponse =
+        addressIndexCache.getAddressResults(
+            path,
+            input,
+            offset,
+            limit,
+            () ->
+                downstreamLimits.callAims(
+                    () ->
+                        downstreamTimers.record(
+                            AIMS,
+                            "searchByAddress",
+                            () ->
+                                addressIndexClient.getResource(
+                                    path,
+                                    AddressIndexSummaryResultsDTO.class,
+                                    null,
+                                    queryParams,
+                                    new Object[] {}))));
     if (log.isDebugEnabled()) {
       log.with("status", addressIndexResponse.getStatus().getCode())
-          .with("addresses", addressIndexResponse.getResponse().getAddresses().size())
+          .with("addresses", addressIndexResponse.getAddresses().size())
           .debug("Address query response received");
     }
 
     return addressIndexResponse;
   }
 
-  public AddressIndexSearchResultsDTO searchByPostcode(
+  public AddressIndexSummaryResultsDTO searchByPostcode(
       PostcodeQueryRequestDTO postcodeQueryRequest) {
     if (log.isDebugEnabled()) {
       log.debug("Delegating postcode search to the AddressIndex service");
@@ -72,22 +118,34 @@ public class AddressServiceClientServiceImpl {
     int limit = postcodeQueryRequest.getLimit();
 
     // Postcode query is delegated to Address Index. Build the query params
-    MultiValueMap<String, String> queryParams = new LinkedMultiValueMap<>();
-    queryParams.add("offset", Integer.toString(offset));
-    queryParams.add("limit", Integer.toString(limit));
-    queryParams.add("includeauxiliarysearch", "true");
-    addEpoch(queryParams);
+    MultiValueMap<String, String> queryParams = postcodeQueryParams(offset, limit);
 
     // Ask Address Index to do postcode search
     String postcode = postcodeQueryRequest.getPostcode();
     String path = appConfig.getAddressIndexSettings().getPostcodeLookupPath();
-    AddressIndexSearchResultsDTO addressIndexResponse =
-        addressIndexClient.getResource(
-            path, AddressIndexSearchResultsDTO.class, null, queryParams, postcode);
+    AddressIndexSummaryResultsDTO addressIndexResponse =
+        addressIndexCache.getPostcodeResults(
+            path,
+            postcode,
+            offset,
+            limit,
+            () ->
+                downstreamLimits.callAims(
+                    () ->
+                        downstreamTimers.record(
+                            AIMS,
+                            "searchByPostcode",
+                            () ->
+                                addressIndexClient.getResource(
+                                    path,
+                                    AddressIndexSummaryResultsDTO.class,
+                                    null,
+                                    queryParams,
+                                    postcode))));
     if (log.isDebugEnabled()) {
       log.with("postcode", postcode)
           .with("status", addressIndexResponse.getStatus().getCode())
-          .with("addresses", addressIndexResponse.getResponse().getAddresses().size())
+          .with("addresses", addressIndexResponse.getAddresses().size())
           .debug("Postcode query response received");
     }
 
@@ -100,15 +158,27 @@ public class AddressServiceClientServiceImpl {
     }
 
     // Build map for query params
-    MultiValueMap<String, String> queryParams = new LinkedMultiValueMap<>();
-    queryParams.add("addresstype", appConfig.getAddressIndexSettings().getAddressType());
-    addEpoch(queryParams);
+    MultiValueMap<String, String> queryParams = uprnQueryParams();
 
     // Ask Address Index to do uprn search
     String path = appConfig.getAddressIndexSettings().getUprnLookupPath();
     AddressIndexSearchResultsCompositeDTO addressIndexResponse =
-        addressIndexClient.getResource(
-            path, AddressIndexSearchResultsCompositeDTO.class, null, queryParams, uprn.toString());
+        addressIndexCache.getUprnResults(
+            path,
+            uprn,
+            () ->
+                downstreamLimits.callAims(
+                    () ->
+                        downstreamTimers.record(
+                            AIMS,
+                            "searchByUPRN",
+                            () ->
+                                addressIndexClient.getResource(
+                                    path,
+                                    AddressIndexSearchResultsCompositeDTO.class,
+                                    null,
+                                    queryParams,
+                                    uprn.toString()))));
 
     if (log.isDebugEnabled()) {
       log.with("uprn", uprn)
@@ -119,6 +189,148 @@ public class AddressServiceClientServiceImpl {
     return addressIndexResponse;
   }
 
+  /**
+   * Start an address search without waiting for AIMS to answer.
+   *
+   * @param addressQueryRequest the search
+   * @return the future response, which must not be changed
+   */
+  public CompletableFuture<AddressIndexSummaryResultsDTO> searchByAddressAsync(
+      AddressQueryRequestDTO addressQueryRequest) {
+    String input = addressQueryRequest.getInput().trim();
+    int offset = addressQueryRequest.getOffset();
+    int limit = addressQueryRequest.getLimit();
+    MultiValueMap<String, String> queryParams = addressQueryParams(input, offset, limit);
+    String path = appConfig.getAddressIndexSettings().getAddressQueryPath();
+    return addressIndexCache.getAddressResultsAsync(
+        path,
+        input,
+        offset,
+        limit,
+        () ->
+            downstreamLimits.callAimsHedged(
+                () ->
+                    downstreamTimers.recordAsync(
+                        AIMS,
+                        "searchByAddress",
+                        () ->
+                            addressIndexAsyncClient.getResource(
+                                path,
+                                AddressIndexSummaryResultsDTO.class,
+                                queryParams,
+                                aimsTimeout()))));
+  }
+
+  /**
+   * Start a postcode search without waiting for AIMS to answer.
+   *
+   * @param postcodeQueryRequest the search
+   * @return the future response, which must not be changed
+   */
+  public CompletableFuture<AddressIndexSummaryResultsDTO> searchByPostcodeAsync(
+      PostcodeQueryRequestDTO postcodeQueryRequest) {
+    int offset = postcodeQueryRequest.getOffset();
+    int limit = postcodeQueryRequest.getLimit();
+    MultiValueMap<String, String> queryParams = postcodeQueryParams(offset, limit);
+    String postcode = postcodeQueryRequest.getPostcode();
+    String path = appConfig.getAddressIndexSettings().getPostcodeLookupPath();
+    return addressIndexCache.getPostcodeResultsAsync(
+        path,
+        postcode,
+        offset,
+        limit,
+        () ->
+            downstreamLimits.callAimsAsync(
+                () ->
+                    downstreamTimers.recordAsync(
+                        AIMS,
+                        "searchByPostcode",
+                        () ->
+                            addressIndexAsyncClient.getResource(
+                                path,
+                                AddressIndexSummaryResultsDTO.class,
+                                queryParams,
+                                aimsTimeout(),
+                                postcode))));
+  }
+
+  /**
+   * Start a UPRN search without waiting for AIMS to answer.
+   *
+   * @param uprn searched for
+   * @return the caller's own copy of the future response
+   */
+  public CompletableFuture<AddressIndexSearchResultsCompositeDTO> searchByUPRNAsync(Long uprn) {
+    MultiValueMap<String, String> queryParams = uprnQueryParams();
+    String path = appConfig.getAddressIndexSettings().getUprnLookupPath();
+    return addressIndexCache.getUprnResultsAsync(
+        path,
+        uprn,
+        () ->
+            downstreamLimits.callAimsAsync(
+                () ->
+                    downstreamTimers.recordAsync(
+                        AIMS,
+                        "searchByUPRN",
+                        () ->
+                            addressIndexAsyncClient.getResource(
+                                path,
+                                AddressIndexSearchResultsCompositeDTO.class,
+                                queryParams,
+                                aimsTimeout(),
+                                uprn.toString()))));
+  }
+
+  private MultiValueMap<String, String> addressQueryParams(String input, int offset, int limit) {
+    MultiValueMap<String, String> queryParams = new LinkedMultiValueMap<>();
+    queryParams.add("input", input);
+    queryParams.add("offset", Integer.toString(offset));
+    queryParams.add("limit", Integer.toString(limit));
+    queryParams.add("historical", "false");
+    queryParams.add("includeauxiliarysearch", "true");
+    queryParams.add("matchthreshold", "0");
+    return addEpoch(queryParams);
+  }
+
+  private MultiValueMap<String, String> postcodeQueryParams(int offset, int limit) {
+    MultiValueMap<String, String> queryParams = new LinkedMultiValueMap<>();
+    queryParams.add("offset", Integer.toString(offset));
+    queryParams.add("limit", Integer.toString(limit));
+    queryParams.add("includeauxiliarysearch", "true");
+    return addEpoch(queryParams);
+  }
+
+  private MultiValueMap<String, String> uprnQueryParams() {
+    MultiValueMap<String, String> queryParams = new LinkedMultiValueMap<>();
+    queryParams.add("addresstype", appConfig.getAddressIndexSettings().getAddressType());
+    return addEpoch(queryParams);
+  }
+
+  private Duration aimsTimeout() {
+    return Duration.ofMillis(appConfig.getLookupSettings().getAimsTimeoutMillis());
+  }
+
+  private <T> T await(CompletableFuture<T> response) {
+    try {
+      return response.get(
+          appConfig.getLookupSettings().getAimsTimeoutMillis(), TimeUnit.MILLISECONDS);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new CompletionException(e.getCause());
+    } catch (TimeoutException e) {
+      response.cancel(true);
+      throw new ResponseStatusException(
+          HttpStatus.GATEWAY_TIMEOUT, "AIMS address search did not complete in time");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      response.cancel(true);
+      throw new ResponseStatusException(
+          HttpStatus.INTERNAL_SERVER_ERROR, "Interrupted waiting for AIMS address search", e);
+    }
+  }
+
   private MultiValueMap<String, String> addEpoch(MultiValueMap<String, String> queryParams) {
     String epoch = appConfig.getAddressIndexSettings().getEpoch();
     if (!StringUtils.isBlank(epoch)) {
@@ -0,0 +1,224 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.godaddy.logging.Logger;
+import com.godaddy.logging.LoggerFactory;
+import java.io.IOException;
+import java.util.ArrayList;
+import uk.gov.ons.ctp.common.domain.AddressType;
+import uk.gov.ons.ctp.common.domain.EstabType;
+import uk.gov.ons.ctp.common.util.StringUtils;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.model.AddressIndexSummaryResultsDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.model.ResponseStatusData;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.AddressDTO;
+
+/**
+ * Reads an Address Index address or postcode search response token by token, summarising each
+ * address as it is read. Only the few fields of an address which go into its summary are kept, and
+ * historical addresses are dropped, so a large page of results never exists as a full object graph.
+ *
+ * <p>NA addresses are reclassified as HH, to allow Serco to handle them.
+ */
+public class AddressSummaryDeserializer extends StdDeserializer<AddressIndexSummaryResultsDTO> {
+  private static final long serialVersionUID = 1L;
+  private static final Logger log = LoggerFactory.getLogger(AddressSummaryDeserializer.class);
+  private static final String HISTORICAL_ADDRESS_STATUS = "8";
+
+  public AddressSummaryDeserializer() {
+    super(AddressIndexSummaryResultsDTO.class);
+  }
+
+  @Override
+  public AddressIndexSummaryResultsDTO deserialize(JsonParser p, DeserializationContext ctxt)
+      throws IOException {
+    AddressIndexSummaryResultsDTO results = new AddressIndexSummaryResultsDTO();
+    results.setAddresses(new ArrayList<>());
+    expectObject(p, ctxt);
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      String field = p.getCurrentName();
+      JsonToken value = p.nextToken();
+      switch (field) {
+        case "dataVersion":
+          results.setDataVersion(p.getValueAsString());
+          break;
+        case "response":
+          if (value == JsonToken.START_OBJECT) {
+            readResponse(p, ctxt, results);
+          }
+          break;
+        case "status":
+          results.setStatus(ctxt.readValue(p, ResponseStatusData.class));
+          break;
+        case "errors":
+          results.setErrors(readErrors(p));
+          break;
+        default:
+          p.skipChildren();
+      }
+    }
+    return results;
+  }
+
+  private void readResponse(
+      JsonParser p, DeserializationContext ctxt, AddressIndexSummaryResultsDTO results)
+      throws IOException {
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      String field = p.getCurrentName();
+      JsonToken value = p.nextToken();
+      switch (field) {
+        case "addresses":
+        case "address":
+          if (value == JsonToken.START_ARRAY) {
+            while (p.nextToken() != JsonToken.END_ARRAY) {
+              addAddress(p, ctxt, results);
+            }
+          } else if (value == JsonToken.START_OBJECT) {
+            addAddress(p, ctxt, results);
+          }
+          break;
+        case "total":
+          results.setTotal(p.getValueAsInt());
+          break;
+        default:
+          p.skipChildren();
+      }
+    }
+  }
+
+  private void addAddress(
+      JsonParser p, DeserializationContext ctxt, AddressIndexSummaryResultsDTO results)
+      throws IOException {
+    expectObject(p, ctxt);
+    String uprn = null;
+    String formattedAddress = null;
+    String addressPaf = null;
+    String addressNag = null;
+    String welshAddressPaf = null;
+    String welshAddressNag = null;
+    String lpiLogicalStatus = null;
+    String countryCode = null;
+    String addressType = null;
+    String estabDescription = null;
+
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      String field = p.getCurrentName();
+      JsonToken value = p.nextToken();
+      switch (field) {
+        case "uprn":
+          uprn = p.getValueAsString();
+          break;
+        case "formattedAddress":
+          formattedAddress = p.getValueAsString();
+          break;
+        case "formattedAddressPaf":
+          addressPaf = p.getValueAsString();
+          break;
+        case "formattedAddressNag":
+          addressNag = p.getValueAsString();
+          break;
+        case "welshFormattedAddressPaf":
+          welshAddressPaf = p.getValueAsString();
+          break;
+        case "welshFormattedAddressNag":
+          welshAddressNag = p.getValueAsString();
+          break;
+        case "lpiLogicalStatus":
+          lpiLogicalStatus = p.getValueAsString();
+          break;
+        case "census":
+          if (value == JsonToken.START_OBJECT) {
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+              String censusField = p.getCurrentName();
+              p.nextToken();
+              if ("countryCode".equals(censusField)) {
+                countryCode = p.getValueAsString();
+              } else if ("addressType".equals(censusField)) {
+                addressType = p.getValueAsString();
+              } else if ("estabType".equals(censusField)) {
+                estabDescription = p.getValueAsString();
+              } else {
+                p.skipChildren();
+              }
+            }
+          }
+          break;
+        default:
+          p.skipChildren();
+      }
+    }
+
+    if (isHistorical(uprn, formattedAddress, lpiLogicalStatus)) {
+      return;
+    }
+
+    AddressDTO addressSummary = new AddressDTO();
+    addressSummary.setUprn(uprn);
+    addressSummary.setRegion(countryCode);
+    addressSummary.setFormattedAddress(
+        StringUtils.selectFirstNonBlankString(addressPaf, addressNag, formattedAddress));
+    addressSummary.setWelshFormattedAddress(
+        StringUtils.selectFirstNonBlankString(welshAddressPaf, welshAddressNag, formattedAddress));
+    if ("NA".equals(addressType)) {
+      // Allow Serco to handle NA addresses by reclassifying as HH
+      log.with("uprn", uprn).debug("Reclassifying NA address as HH");
+      addressSummary.setAddressType(AddressType.HH.name());
+      addressSummary.setEstabType(EstabType.HOUSEHOLD.name());
+      addressSummary.setEstabDescription("Household");
+    } else {
+      addressSummary.setAddressType(addressType);
+      EstabType estabType =
+          estabDescription == null ? EstabType.OTHER : EstabType.forCode(estabDescription);
+      addressSummary.setEstabType(estabType.name());
+      addressSummary.setEstabDescription(estabDescription);
+    }
+    results.getAddresses().add(addressSummary);
+  }
+
+  /**
+   * Determine whether an address returned from AIMS is historical.
+   *
+   * <p>In reality, we should never get historical addresses from AIMS. However since it is so
+   * important not to return historical addresses, we accept the pagination breakage to filter out
+   * any that we find. The theory is that logging errors will notify operations to fix AIMS if it is
+   * not honouring the historical=false query parameter, and the service will be rectified as a
+   * result.
+   *
+   * <p>See CR-976.
+   *
+   * @param uprn of the address
+   * @param formattedAddress of the address
+   * @param lpiLogicalStatus of the address
+   * @return true if historical; false otherwise.
+   */
+  private boolean isHistorical(String uprn, String formattedAddress, String lpiLogicalStatus) {
+    boolean historical = HISTORICAL_ADDRESS_STATUS.equals(lpiLogicalStatus);
+    if (historical) {
+      log.with("uprn", uprn)
+          .with("formattedAddress", formattedAddress)
+          .error("Unexpected historical address returned from AIMS");
+    }
+    return historical;
+  }
+
+  private ArrayList<String> readErrors(JsonParser p) throws IOException {
+    if (p.currentToken() != JsonToken.START_ARRAY) {
+      p.skipChildren();
+      return null;
+    }
+    ArrayList<String> errors = new ArrayList<>();
+    while (p.nextToken() != JsonToken.END_ARRAY) {
+      errors.add(p.getValueAsString());
+      p.skipChildren();
+    }
+    return errors;
+  }
+
+  private void expectObject(JsonParser p, DeserializationContext ctxt) throws IOException {
+    if (p.currentToken() != JsonToken.START_OBJECT) {
+      ctxt.handleUnexpectedToken(AddressIndexSummaryResultsDTO.class, p);
+    }
+  }
+}
@@ -0,0 +1,26 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.model;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import java.util.ArrayList;
+import lombok.Data;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.AddressSummaryDeserializer;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.AddressDTO;
+
+/**
+ * A page of Address Index search results, with each address already summarised. It is read
+ * straight from the AIMS response by the {@link AddressSummaryDeserializer}.
+ */
+@Data
+@JsonDeserialize(using = AddressSummaryDeserializer.class)
+public class AddressIndexSummaryResultsDTO {
+
+  private String dataVersion;
+
+  private ArrayList<AddressDTO> addresses;
+
+  private int total;
+
+  private ResponseStatusData status;
+
+  private ArrayList<String> errors;
+}
@@ -0,0 +1,79 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.client.caseservice;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import javax.inject.Inject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import uk.gov.ons.ctp.integration.caseapiclient.caseservice.model.CaseContainerDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.AsyncRestClient;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.AppConfig;
+
+/**
+ * Reads cases from the case service (RM) without waiting for it to answer, so that case lookups
+ * can be made alongside others without holding a thread for each. The endpoints are configured in
+ * the case service settings, beside the blocking client's connection settings, and the responses
+ * are those used by the blocking client. Each request has the RM lookup timeout as its deadline.
+ * Only available when async HTTP is enabled.
+ */
+@Service
+@ConditionalOnProperty(name = "async-http.enabled", havingValue = "true")
+public class CaseServiceAsyncClient {
+  @Autowired private AppConfig appConfig;
+
+  @Inject
+  @Qualifier("caseServiceAsyncClient")
+  private AsyncRestClient caseServiceAsyncClient;
+
+  /**
+   * Start reading a case.
+   *
+   * @param caseId of the case
+   * @param listCaseEvents true if the case events are wanted
+   * @return the future case
+   */
+  public CompletableFuture<CaseContainerDTO> getCaseById(UUID caseId, boolean listCaseEvents) {
+    return caseServiceAsyncClient.getResource(
+        appConfig.getCaseServiceSettings().getCaseByIdPath(),
+        CaseContainerDTO.class,
+        caseEventsParam(listCaseEvents),
+        rmTimeout(),
+        caseId);
+  }
+
+  /**
+   * Start reading the cases for an address.
+   *
+   * @param uprn of the address
+   * @param listCaseEvents true if the case events are wanted
+   * @return the future cases
+   */
+  public CompletableFuture<List<CaseContainerDTO>> getCaseByUprn(
+      long uprn, boolean listCaseEvents) {
+    return caseServiceAsyncClient
+        .getResource(
+            appConfig.getCaseServiceSettings().getCaseByUprnPath(),
+            CaseContainerDTO[].class,
+            caseEventsParam(listCaseEvents),
+            rmTimeout(),
+            uprn)
+        .thenApply(Arrays::asList);
+  }
+
+  private MultiValueMap<String, String> caseEventsParam(boolean listCaseEvents) {
+    MultiValueMap<String, String> queryParams = new LinkedMultiValueMap<>();
+    queryParams.add("caseEvents", Boolean.toString(listCaseEvents));
+    return queryParams;
+  }
+
+  private Duration rmTimeout() {
+    return Duration.ofMillis(appConfig.getLookupSettings().getRmTimeoutMillis());
+  }
+}
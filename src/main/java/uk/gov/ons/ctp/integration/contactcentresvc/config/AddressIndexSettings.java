@@ -10,5 +10,8 @@ public class AddressIndexSettings {
   private String uprnLookupPath;
   private String addressType;
   private String epoch;
+  private CacheSettings responseCache;
   private RestClientConfig restClientConfig;
+  private ConcurrencyLimit concurrencyLimit;
+  private HedgingPolicy hedging;
 }
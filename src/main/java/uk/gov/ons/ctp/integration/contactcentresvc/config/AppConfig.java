@@ -20,6 +20,11 @@ public class AppConfig {
   private String collectionExerciseId;
   private AddressIndexSettings addressIndexSettings;
   private CaseServiceSettings caseServiceSettings;
+  private LookupSettings lookupSettings;
+  private RequestExecution requestExecution;
+  private AsyncHttpSettings asyncHttp;
+  private DownstreamTiming downstreamTiming;
+  private RequestTracing requestTracing;
   private Fulfilments fulfilments;
   private KeyStore keystore;
   private EqConfig eq;
@@ -27,6 +32,7 @@ public class AppConfig {
   private Channel channel;
   private Resource publicPgpKey1;
   private Resource publicPgpKey2;
+  private int publicPgpKeyCheckSeconds;
   private CCSPostcodes ccsPostcodes;
   private UPRNBlacklist uprnBlacklist;
   private CustomCircuitBreakerConfig circuitBreaker;
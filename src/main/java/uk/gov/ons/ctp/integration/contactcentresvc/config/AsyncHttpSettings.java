@@ -0,0 +1,11 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.config;
+
+import lombok.Data;
+
+@Data
+public class AsyncHttpSettings {
+  private boolean enabled;
+  private long connectTimeoutMillis;
+  private int poolSize;
+  private int queueCapacity;
+}
@@ -7,4 +7,5 @@ import lombok.Data;
 public class CCSPostcodes {
   private String ccsPostcodePath;
   private Set<String> ccsDefaultPostcodes;
+  private boolean reload;
 }
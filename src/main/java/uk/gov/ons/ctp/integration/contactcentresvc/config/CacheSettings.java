@@ -0,0 +1,11 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.config;
+
+import lombok.Data;
+
+@Data
+public class CacheSettings {
+  private boolean enabled;
+  private long maximumSize;
+  private long maximumWeightBytes;
+  private long timeToLiveSeconds;
+}
@@ -8,4 +8,8 @@ import uk.gov.ons.ctp.common.rest.RestClientConfig;
 public class CaseServiceSettings {
   private Set<String> whitelistedEventCategories;
   private RestClientConfig restClientConfig;
+  private String caseByIdPath;
+  private String caseByUprnPath;
+  private CacheSettings caseCache;
+  private ConcurrencyLimit concurrencyLimit;
 }
@@ -0,0 +1,8 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.config;
+
+import lombok.Data;
+
+@Data
+public class ConcurrencyLimit {
+  private int maxConcurrentCalls;
+}
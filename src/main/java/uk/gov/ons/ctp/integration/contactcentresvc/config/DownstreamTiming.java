@@ -0,0 +1,10 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.config;
+
+import java.util.List;
+import lombok.Data;
+
+@Data
+public class DownstreamTiming {
+  private boolean percentileHistogram;
+  private List<Long> sloMillis;
+}
@@ -0,0 +1,13 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.config;
+
+import lombok.Data;
+
+@Data
+public class HedgingPolicy {
+  private boolean enabled;
+  private double percentile;
+  private long minDelayMillis;
+  private int windowSize;
+  private int minSamples;
+  private int maxExtraLoadPercent;
+}
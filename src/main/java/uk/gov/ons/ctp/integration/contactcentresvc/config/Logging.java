@@ -8,4 +8,5 @@ import lombok.Data;
 @Data
 public class Logging {
   private boolean useJson;
+  private int sampleOneIn;
 }
@@ -0,0 +1,18 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.config;
+
+import lombok.Data;
+
+@Data
+public class LookupSettings {
+  private boolean concurrent;
+  private int poolSize;
+  private int queueCapacity;
+  private long rmTimeoutMillis;
+  private long cacheTimeoutMillis;
+  private long aimsTimeoutMillis;
+  private int batchMaxUprns;
+  private int batchConcurrency;
+  private int batchPoolSize;
+  private int batchQueueCapacity;
+  private int batchMaxLaunches;
+}
@@ -5,9 +5,31 @@ import lombok.Data;
 @Data
 public class MessagingConfig {
   private PublishConfig publish;
+  private OutboxConfig outbox;
 
   @Data
   public static class PublishConfig {
     private int maxAttempts;
+    private PublishMode mode = PublishMode.TRANSACTED;
+    private int confirmTimeoutMillis;
+  }
+
+  @Data
+  public static class OutboxConfig {
+    private boolean enabled;
+    private String directory;
+    private int publishers;
+    private int queueCapacity;
+    private int batchSize;
+    private long compactBytes;
+    private long appendTimeoutMillis;
+  }
+
+  /** How an event is known to have been accepted by Rabbit. */
+  public enum PublishMode {
+    /** Each event is published in its own channel transaction. */
+    TRANSACTED,
+    /** Each event is published and then waits for the broker to confirm it. */
+    CONFIRMED
   }
 }
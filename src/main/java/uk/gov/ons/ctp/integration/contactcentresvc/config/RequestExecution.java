@@ -0,0 +1,22 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.config;
+
+import lombok.Data;
+
+@Data
+public class RequestExecution {
+  private Mode mode = Mode.WORKER;
+  private int maxThreads;
+  private int queueCapacity;
+
+  public enum Mode {
+    /** Requests run on the Undertow worker threads */
+    WORKER,
+    /**
+     * Requests run on a pool which grows to max-threads, and shrinks again when idle. Requests
+     * beyond queue-capacity waiting for a thread are turned away
+     */
+    ELASTIC,
+    /** Requests run on virtual threads if the JVM has them, otherwise as for ELASTIC */
+    VIRTUAL
+  }
+}
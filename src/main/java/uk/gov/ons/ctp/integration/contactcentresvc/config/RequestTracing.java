@@ -0,0 +1,10 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.config;
+
+import lombok.Data;
+
+@Data
+public class RequestTracing {
+  private boolean enabled;
+  private String header;
+  private double sampleRate;
+}
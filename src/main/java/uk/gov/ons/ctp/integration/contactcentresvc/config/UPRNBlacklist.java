@@ -7,4 +7,6 @@ import lombok.Data;
 public class UPRNBlacklist {
   private String uprnBlacklistPath;
   private Set<Long> defaultUprnBlacklist;
+  private boolean reload;
+  private boolean bloomFilter;
 }
@@ -4,6 +4,7 @@ import com.godaddy.logging.Logger;
 import com.godaddy.logging.LoggerFactory;
 import io.micrometer.core.annotation.Timed;
 import javax.validation.Valid;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
@@ -15,6 +16,7 @@ import uk.gov.ons.ctp.integration.contactcentresvc.representation.AddressQueryRe
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.AddressQueryResponseDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.PostcodeQueryRequestDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.service.AddressService;
+import uk.gov.ons.ctp.integration.contactcentresvc.util.LogSampler;
 
 /** The REST endpoint controller for ContactCentreSvc Details */
 @Timed
@@ -24,16 +26,19 @@ public final class AddressEndpoint implements CTPEndpoint {
   private static final Logger log = LoggerFactory.getLogger(AddressEndpoint.class);
 
   private AddressService addressService;
+  private LogSampler lookupSampler;
 
   /**
    * Constructor for ContactCentreDataEndpoint
    *
    * @param addressService is the object that this endpoint can call for address and postcode
    *     searches.
+   * @param lookupSampler picks which lookups to log
    */
   @Autowired
-  public AddressEndpoint(final AddressService addressService) {
+  public AddressEndpoint(final AddressService addressService, final LogSampler lookupSampler) {
     this.addressService = addressService;
+    this.lookupSampler = lookupSampler;
   }
 
   /**
@@ -46,7 +51,12 @@ public final class AddressEndpoint implements CTPEndpoint {
   @RequestMapping(value = "", method = RequestMethod.GET)
   public AddressQueryResponseDTO getAddressesBySearchQuery(
       @Valid AddressQueryRequestDTO addressQueryRequest) throws CTPException {
-    log.with("requestParams", addressQueryRequest).info("Entering GET getAddressesBySearchQuery");
+    if (lookupSampler.sample()) {
+      log.with("inputLength", StringUtils.length(addressQueryRequest.getInput()))
+          .with("offset", addressQueryRequest.getOffset())
+          .with("limit", addressQueryRequest.getLimit())
+          .info("Entering GET getAddressesBySearchQuery");
+    }
 
     String addressQueryInput =
         addressQueryRequest.getInput().trim().replaceAll("'", "").replaceAll(",", "").trim();
@@ -70,7 +80,12 @@ public final class AddressEndpoint implements CTPEndpoint {
   @RequestMapping(value = "/postcode", method = RequestMethod.GET)
   public AddressQueryResponseDTO getAddressesByPostcode(
       @Valid PostcodeQueryRequestDTO postcodeQueryRequest) {
-    log.with("requestParams", postcodeQueryRequest).info("Entering GET getAddressesByPostcode");
+    if (lookupSampler.sample()) {
+      log.with("postcodeLength", StringUtils.length(postcodeQueryRequest.getPostcode()))
+          .with("offset", postcodeQueryRequest.getOffset())
+          .with("limit", postcodeQueryRequest.getLimit())
+          .info("Entering GET getAddressesByPostcode");
+    }
 
     return addressService.postcodeQuery(postcodeQueryRequest);
   }
@@ -25,6 +25,8 @@ import uk.gov.ons.ctp.integration.contactcentresvc.Constants;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.CaseDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.CaseQueryRequestDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.InvalidateCaseRequestDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.LaunchBatchRequestDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.LaunchBatchResultDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.LaunchRequestDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.ModifyCaseRequestDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.NewCaseRequestDTO;
@@ -32,9 +34,14 @@ import uk.gov.ons.ctp.integration.contactcentresvc.representation.PostalFulfilme
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.RefusalRequestDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.ResponseDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.SMSFulfilmentRequestDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.UACBatchRequestDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.UACBatchResultDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.UACRequestDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.UACResponseDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.UprnBatchRequestDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.UprnCaseResultDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.service.CaseService;
+import uk.gov.ons.ctp.integration.contactcentresvc.util.LogSampler;
 
 /** The REST controller for ContactCentreSvc find cases end points */
 @Timed
@@ -44,16 +51,19 @@ public class CaseEndpoint implements CTPEndpoint {
   private static final Logger log = LoggerFactory.getLogger(CaseEndpoint.class);
 
   private CaseService caseService;
+  private LogSampler lookupSampler;
 
   /**
    * Constructor for ContactCentreDataEndpoint
    *
    * @param caseService is a service layer object that we be doing the processing on behalf of this
    *     endpoint.
+   * @param lookupSampler picks which lookups to log
    */
   @Autowired
-  public CaseEndpoint(final CaseService caseService) {
+  public CaseEndpoint(final CaseService caseService, final LogSampler lookupSampler) {
     this.caseService = caseService;
+    this.lookupSampler = lookupSampler;
   }
 
   /**
@@ -68,7 +78,10 @@ public class CaseEndpoint implements CTPEndpoint {
   public ResponseEntity<CaseDTO> newCase(@Valid @RequestBody NewCaseRequestDTO newCaseRequest)
       throws CTPException {
 
-    log.with("newCaseRequest", newCaseRequest).info("Entering POST newCase");
+    log.with("caseType", newCaseRequest.getCaseType())
+        .with("estabType", newCaseRequest.getEstabType())
+        .with("region", newCaseRequest.getRegion())
+        .info("Entering POST newCase");
 
     CaseDTO response = caseService.createCaseForNewAddress(newCaseRequest);
 
@@ -87,9 +100,11 @@ public class CaseEndpoint implements CTPEndpoint {
   public ResponseEntity<CaseDTO> getCaseById(
       @PathVariable("caseId") final UUID caseId, @Valid CaseQueryRequestDTO requestParamsDTO)
       throws CTPException {
-    log.with("pathParam", caseId)
-        .with("requestParams", requestParamsDTO)
-        .info("Entering GET getCaseById");
+    if (lookupSampler.sample()) {
+      log.with("pathParam", caseId)
+          .with("caseEvents", requestParamsDTO.getCaseEvents())
+          .info("Entering GET getCaseById");
+    }
 
     CaseDTO result = caseService.getCaseById(caseId, requestParamsDTO);
 
@@ -109,15 +124,36 @@ public class CaseEndpoint implements CTPEndpoint {
       @PathVariable(value = "uprn") final UniquePropertyReferenceNumber uprn,
       @Valid CaseQueryRequestDTO requestParamsDTO)
       throws CTPException {
-    log.with("pathParam", uprn)
-        .with("requestParams", requestParamsDTO)
-        .info("Entering GET getCaseByUPRN");
+    if (lookupSampler.sample()) {
+      log.with("pathParam", uprn)
+          .with("caseEvents", requestParamsDTO.getCaseEvents())
+          .info("Entering GET getCaseByUPRN");
+    }
 
     List<CaseDTO> results = caseService.getCaseByUPRN(uprn, requestParamsDTO);
 
     return ResponseEntity.ok(results);
   }
 
+  /**
+   * the POST end point to get the latest Case for each of a number of UPRNs
+   *
+   * @param batchRequest the UPRNs, and whether case events are wanted
+   * @return the cases, or the error, for each UPRN
+   * @throws CTPException something went wrong
+   */
+  @RequestMapping(value = "/uprn/batch", method = RequestMethod.POST)
+  public ResponseEntity<List<UprnCaseResultDTO>> getCasesByUPRNs(
+      @Valid @RequestBody UprnBatchRequestDTO batchRequest) throws CTPException {
+    log.with("uprns", batchRequest.getUprns().size())
+        .with("caseEvents", batchRequest.getCaseEvents())
+        .info("Entering POST getCasesByUPRNs");
+
+    List<UprnCaseResultDTO> results = caseService.getCasesByUPRNs(batchRequest);
+
+    return ResponseEntity.ok(results);
+  }
+
   /**
    * the GET end point to get a Case by Case Ref
    *
@@ -130,9 +166,11 @@ public class CaseEndpoint implements CTPEndpoint {
   public ResponseEntity<CaseDTO> getCaseByCaseReference(
       @PathVariable(value = "ref") final long ref, @Valid CaseQueryRequestDTO requestParamsDTO)
       throws CTPException {
-    log.with("pathParam", ref)
-        .with("requestParams", requestParamsDTO)
-        .info("Entering GET getCaseByCaseReference");
+    if (lookupSampler.sample()) {
+      log.with("pathParam", ref)
+          .with("caseEvents", requestParamsDTO.getCaseEvents())
+          .info("Entering GET getCaseByCaseReference");
+    }
 
     CaseDTO result = caseService.getCaseByCaseReference(ref, requestParamsDTO);
 
@@ -153,7 +191,8 @@ public class CaseEndpoint implements CTPEndpoint {
       throws CTPException {
     // INFO because we need to log agent-id
     log.with("pathParam", caseId)
-        .with("requestParams", requestParamsDTO)
+        .with("agentId", requestParamsDTO.getAgentId())
+        .with("individual", requestParamsDTO.getIndividual())
         .info("Entering GET getLaunchURLForCaseId");
 
     String launchURL = caseService.getLaunchURLForCaseId(caseId, requestParamsDTO);
@@ -161,6 +200,31 @@ public class CaseEndpoint implements CTPEndpoint {
     return ResponseEntity.ok(launchURL);
   }
 
+  /**
+   * the POST end point to create a number of EQ Launch URLs for a case at once
+   *
+   * @param caseId the id of the case
+   * @param batchRequest the agent, how many launches, and whether they are for individuals
+   * @return the questionnaire and URL to launch it, or the error, for each launch
+   * @throws CTPException something went wrong
+   */
+  @RequestMapping(value = "/{caseId}/launch/batch", method = RequestMethod.POST)
+  public ResponseEntity<List<LaunchBatchResultDTO>> getLaunchURLsForCaseId(
+      @PathVariable(value = "caseId") final UUID caseId,
+      @Valid @RequestBody LaunchBatchRequestDTO batchRequest)
+      throws CTPException {
+    // INFO because we need to log agent-id
+    log.with("pathParam", caseId)
+        .with("agentId", batchRequest.getAgentId())
+        .with("individual", batchRequest.getIndividual())
+        .with("count", batchRequest.getCount())
+        .info("Entering POST getLaunchURLsForCaseId");
+
+    List<LaunchBatchResultDTO> results = caseService.getLaunchURLsForCaseId(caseId, batchRequest);
+
+    return ResponseEntity.ok(results);
+  }
+
   /**
    * the POST end point to request a postal fulfilment for a case
    *
@@ -177,7 +241,7 @@ public class CaseEndpoint implements CTPEndpoint {
       throws CTPException {
 
     log.with("pathParam", caseId)
-        .with("requestBody", requestBodyDTO)
+        .with("fulfilmentCode", requestBodyDTO.getFulfilmentCode())
         .info("Entering POST fulfilmentRequestByPost");
 
     validateMatchingCaseId(caseId, requestBodyDTO.getCaseId());
@@ -201,7 +265,7 @@ public class CaseEndpoint implements CTPEndpoint {
       throws CTPException {
 
     log.with("pathParam", caseId)
-        .with("requestBody", requestBodyDTO)
+        .with("fulfilmentCode", requestBodyDTO.getFulfilmentCode())
         .info("Entering POST fulfilmentRequestBySMS");
 
     validateMatchingCaseId(caseId, requestBodyDTO.getCaseId());
@@ -225,7 +289,8 @@ public class CaseEndpoint implements CTPEndpoint {
       throws CTPException {
 
     log.with("pathParam", caseId)
-        .with("requestBody", requestBodyDTO)
+        .with("agentId", requestBodyDTO.getAgentId())
+        .with("reason", requestBodyDTO.getReason())
         .info("Entering POST reportRefusal");
 
     if (!caseId.equals(requestBodyDTO.getCaseId())) {
@@ -258,7 +323,9 @@ public class CaseEndpoint implements CTPEndpoint {
       @Valid @RequestBody InvalidateCaseRequestDTO requestBodyDTO)
       throws CTPException {
 
-    log.with("requestBody", requestBodyDTO).info("Entering POST invalidate");
+    log.with("pathParam", caseId)
+        .with("status", requestBodyDTO.getStatus())
+        .info("Entering POST invalidate");
     validateMatchingCaseId(caseId, requestBodyDTO.getCaseId());
     ResponseDTO response = caseService.invalidateCase(requestBodyDTO);
     return ResponseEntity.ok(response);
@@ -282,7 +349,10 @@ public class CaseEndpoint implements CTPEndpoint {
       @PathVariable(value = "caseId") final UUID caseId,
       @Valid @RequestBody ModifyCaseRequestDTO requestBodyDTO)
       throws CTPException {
-    log.with("requestBody", requestBodyDTO).info("Entering PUT modifyCase");
+    log.with("pathParam", caseId)
+        .with("caseType", requestBodyDTO.getCaseType())
+        .with("estabType", requestBodyDTO.getEstabType())
+        .info("Entering PUT modifyCase");
     validateMatchingCaseId(caseId, requestBodyDTO.getCaseId());
     CaseDTO result = caseService.modifyCase(requestBodyDTO);
     return ResponseEntity.ok(result);
@@ -303,13 +373,37 @@ public class CaseEndpoint implements CTPEndpoint {
       throws CTPException {
 
     log.with("pathParam", caseId)
-        .with("requestBody", requestParamsDTO)
+        .with("adLocationId", requestParamsDTO.getAdLocationId())
+        .with("individual", requestParamsDTO.getIndividual())
         .info("Entering GET getUACForCase");
 
     UACResponseDTO response = caseService.getUACForCaseId(caseId, requestParamsDTO);
     return ResponseEntity.ok(response);
   }
 
+  /**
+   * the POST end point to request a number of UACs for a case at once
+   *
+   * @param caseId the id of the case
+   * @param batchRequest how many UACs, and whether they are for individuals
+   * @return the questionnaire and UAC, or the error, for each UAC
+   * @throws CTPException something went wrong
+   */
+  @RequestMapping(value = "/{caseId}/uac/batch", method = RequestMethod.POST)
+  public ResponseEntity<List<UACBatchResultDTO>> getUACsForCase(
+      @PathVariable(value = "caseId") final UUID caseId,
+      @Valid @RequestBody UACBatchRequestDTO batchRequest)
+      throws CTPException {
+
+    log.with("pathParam", caseId)
+        .with("individual", batchRequest.getIndividual())
+        .with("count", batchRequest.getCount())
+        .info("Entering POST getUACsForCase");
+
+    List<UACBatchResultDTO> results = caseService.getUACsForCaseId(caseId, batchRequest);
+    return ResponseEntity.ok(results);
+  }
+
   /**
    * the GET end point to request a CCS case by postcode
    *
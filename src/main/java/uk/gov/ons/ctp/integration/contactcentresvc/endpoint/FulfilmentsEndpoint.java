@@ -15,6 +15,7 @@ import uk.gov.ons.ctp.common.error.CTPException;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.FulfilmentDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.FulfilmentsRequestDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.service.FulfilmentsService;
+import uk.gov.ons.ctp.integration.contactcentresvc.util.LogSampler;
 
 /** The REST controller for ContactCentreSvc Fulfilments end points */
 @Timed
@@ -24,16 +25,20 @@ public final class FulfilmentsEndpoint implements CTPEndpoint {
   private static final Logger log = LoggerFactory.getLogger(FulfilmentsEndpoint.class);
 
   private FulfilmentsService fulfilmentsService;
+  private LogSampler lookupSampler;
 
   /**
    * Constructor for ContactCentre Fulfilment endpoint
    *
    * @param fulfilmentsService is a service layer object that will do processing on behalf of this
    *     endpoint.
+   * @param lookupSampler picks which lookups to log
    */
   @Autowired
-  public FulfilmentsEndpoint(final FulfilmentsService fulfilmentsService) {
+  public FulfilmentsEndpoint(
+      final FulfilmentsService fulfilmentsService, final LogSampler lookupSampler) {
     this.fulfilmentsService = fulfilmentsService;
+    this.lookupSampler = lookupSampler;
   }
 
   /**
@@ -47,7 +52,14 @@ public final class FulfilmentsEndpoint implements CTPEndpoint {
   @RequestMapping(value = "/fulfilments", method = RequestMethod.GET)
   public ResponseEntity<List<FulfilmentDTO>> getFulfilments(@Valid FulfilmentsRequestDTO requestDTO)
       throws CTPException {
-    log.with("requestParams", requestDTO).info("Entering GET getFulfilments");
+    if (lookupSampler.sample()) {
+      log.with("caseType", requestDTO.getCaseType())
+          .with("region", requestDTO.getRegion())
+          .with("deliveryChannel", requestDTO.getDeliveryChannel())
+          .with("individual", requestDTO.getIndividual())
+          .with("productGroup", requestDTO.getProductGroup())
+          .info("Entering GET getFulfilments");
+    }
     List<FulfilmentDTO> fulfilments =
         fulfilmentsService.getFulfilments(
             requestDTO.getCaseType(),
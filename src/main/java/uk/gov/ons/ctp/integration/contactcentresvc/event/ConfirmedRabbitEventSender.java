@@ -0,0 +1,77 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.event;
+
+import com.godaddy.logging.Logger;
+import com.godaddy.logging.LoggerFactory;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.AmqpTimeoutException;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.connection.CorrelationData.Confirm;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import uk.gov.ons.ctp.common.event.EventPublisher.RoutingKey;
+import uk.gov.ons.ctp.common.event.EventSender;
+import uk.gov.ons.ctp.common.event.model.GenericEvent;
+
+/**
+ * Sends events on a non-transacted channel, treating an event as sent only once the broker has
+ * confirmed it. An event which is nacked, returned as unroutable, or not confirmed in time fails
+ * the send, so that the event publisher falls back to persisting it.
+ *
+ * <p>The template must be mandatory, and its connection factory must have correlated publisher
+ * confirms and publisher returns enabled.
+ */
+public class ConfirmedRabbitEventSender implements EventSender {
+  private static final Logger log = LoggerFactory.getLogger(ConfirmedRabbitEventSender.class);
+
+  private final RabbitTemplate rabbitTemplate;
+  private final long confirmTimeoutMillis;
+
+  public ConfirmedRabbitEventSender(RabbitTemplate rabbitTemplate, long confirmTimeoutMillis) {
+    this.rabbitTemplate = rabbitTemplate;
+    this.confirmTimeoutMillis = confirmTimeoutMillis;
+  }
+
+  @Override
+  public void sendEvent(RoutingKey routingKey, GenericEvent genericEvent) {
+    send(routingKey.getKey(), genericEvent);
+  }
+
+  void send(String routingKey, Object event) {
+    CorrelationData correlation = new CorrelationData(UUID.randomUUID().toString());
+    rabbitTemplate.convertAndSend(routingKey, event, correlation);
+
+    Confirm confirm;
+    try {
+      confirm = correlation.getFuture().get(confirmTimeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      log.with("routingKey", routingKey)
+          .with("correlationId", correlation.getId())
+          .warn("Event was not confirmed in time");
+      throw new AmqpTimeoutException("Event " + correlation.getId() + " was not confirmed", e);
+    } catch (ExecutionException e) {
+      throw new AmqpException("Failed to confirm event " + correlation.getId(), e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AmqpException("Interrupted confirming event " + correlation.getId(), e);
+    }
+
+    if (!confirm.isAck()) {
+      log.with("routingKey", routingKey)
+          .with("correlationId", correlation.getId())
+          .with("reason", confirm.getReason())
+          .warn("Event was nacked");
+      throw new AmqpException(
+          "Event " + correlation.getId() + " was nacked: " + confirm.getReason());
+    }
+    // A returned message is recorded before the broker confirms it
+    if (correlation.getReturnedMessage() != null) {
+      log.with("routingKey", routingKey)
+          .with("correlationId", correlation.getId())
+          .warn("Event could not be routed");
+      throw new AmqpException("Event " + correlation.getId() + " could not be routed");
+    }
+  }
+}
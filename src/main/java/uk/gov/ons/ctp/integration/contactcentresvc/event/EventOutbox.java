@@ -0,0 +1,392 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.event;
+
+import com.godaddy.logging.Logger;
+import com.godaddy.logging.LoggerFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import uk.gov.ons.ctp.common.event.EventPublisher;
+import uk.gov.ons.ctp.common.event.EventPublisher.Channel;
+import uk.gov.ons.ctp.common.event.EventPublisher.EventType;
+import uk.gov.ons.ctp.common.event.EventPublisher.Source;
+import uk.gov.ons.ctp.common.event.model.EventPayload;
+import uk.gov.ons.ctp.common.jackson.CustomObjectMapper;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.DownstreamTimers;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.AppConfig;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.MessagingConfig.OutboxConfig;
+
+/**
+ * Takes events off the request path. An event is appended to the {@link OutboxJournal}, whose
+ * writer queues it once it is on disk, and background publishers send queued events on through the
+ * {@link EventPublisher}, a batch at a time. Events are queued in the order of their sequence
+ * numbers, and each case's events are queued for the same publisher, so they are sent in the order
+ * they were appended.
+ *
+ * <p>The journal writer never waits for a publisher. Once a publisher's queue is full, its events
+ * are left in the journal, and the publisher takes them from there when it has emptied its queue.
+ * So when Rabbit is slow only the publishers fall behind, and appending still returns as soon as
+ * the events are on disk. If the journal writer has not taken an event by the append timeout, the
+ * event is sent straight to the {@link EventPublisher} instead.
+ *
+ * <p>Events left in the journal when the service stopped are sent when it next starts.
+ *
+ * <p>The number of events waiting to be sent, and the age of the oldest, are published as <code>
+ * outbox.backlog</code> and <code>outbox.backlog.age</code>.
+ *
+ * <p>If the outbox is not enabled, or can't write its journal, events are sent straight to the
+ * {@link EventPublisher}.
+ */
+@Component
+public class EventOutbox {
+  private static final Logger log = LoggerFactory.getLogger(EventOutbox.class);
+
+  private static final long POLL_MILLIS = 500;
+  private static final long RETRY_MILLIS = 1000;
+  private static final long DRAIN_SECONDS = 10;
+
+  @Autowired private AppConfig appConfig;
+
+  @Autowired private EventPublisher eventPublisher;
+
+  @Autowired private CustomObjectMapper mapper;
+
+  @Autowired private MeterRegistry meterRegistry;
+
+  @Autowired private DownstreamTimers downstreamTimers;
+
+  private OutboxJournal journal;
+  private List<Partition> partitions;
+  private ExecutorService publishers;
+  private Counter publishedEvents;
+  private volatile boolean stopping;
+
+  @AllArgsConstructor
+  private static class Queued {
+    private OutboxEvent event;
+    private EventPayload payload;
+  }
+
+  /** The events for one publisher. */
+  private static class Partition {
+    private final BlockingQueue<Queued> queue;
+    // Guarded by this. The sequence number to take events from the journal from, or -1 if none
+    // have been left there
+    private long leftFrom = -1;
+    // The highest sequence number sent on, only used by the publisher
+    private long lastSent = -1;
+
+    Partition(int capacity) {
+      queue = new ArrayBlockingQueue<>(capacity);
+    }
+  }
+
+  @PostConstruct
+  void init() throws IOException {
+    OutboxConfig config = appConfig.getMessaging().getOutbox();
+    if (config == null || !config.isEnabled()) {
+      log.info("Event outbox is disabled");
+      return;
+    }
+    journal =
+        new OutboxJournal(
+            Paths.get(config.getDirectory()),
+            mapper,
+            config.getCompactBytes(),
+            config.getAppendTimeoutMillis());
+    List<OutboxEvent> unpublished = journal.open();
+
+    publishedEvents =
+        Counter.builder("outbox.published")
+            .description("Events sent on from the outbox")
+            .register(meterRegistry);
+    partitions = new ArrayList<>();
+    for (int i = 0; i < config.getPublishers(); i++) {
+      partitions.add(new Partition(config.getQueueCapacity()));
+    }
+    // Recovered events which the queues can't hold are left in the journal
+    for (OutboxEvent event : unpublished) {
+      enqueue(new Queued(event, null));
+    }
+    publishers =
+        Executors.newFixedThreadPool(
+            config.getPublishers(), new CustomizableThreadFactory("outbox-"));
+    partitions.forEach(
+        partition -> publishers.execute(() -> publish(partition, config.getBatchSize())));
+
+    Gauge.builder("outbox.backlog", journal, OutboxJournal::backlog)
+        .description("Events in the outbox waiting to be sent")
+        .register(meterRegistry);
+    Gauge.builder("outbox.backlog.age", journal, this::backlogAgeSeconds)
+        .description("Time the oldest event in the outbox has been waiting to be sent")
+        .baseUnit("seconds")
+        .register(meterRegistry);
+    log.with("directory", config.getDirectory())
+        .with("publishers", config.getPublishers())
+        .with("recovered", unpublished.size())
+        .info("Event outbox is enabled");
+  }
+
+  /** @return true if events are being sent through the outbox */
+  public boolean isEnabled() {
+    return journal != null;
+  }
+
+  /**
+   * Append an event to the outbox, to be sent in the background.
+   *
+   * @param eventType the type of the event
+   * @param source the source of the event
+   * @param channel the channel of the event
+   * @param payload the event payload
+   * @param caseId the case the event is for; events for the same case are sent in order
+   */
+  public void append(
+      EventType eventType, Source source, Channel channel, EventPayload payload, Object caseId) {
+    OutboxEvent event = outboxEvent(eventType, source, channel, payload, caseId);
+    try {
+      journal.append(List.of(event), written -> enqueue(new Queued(event, payload)));
+    } catch (IOException e) {
+      log.with("eventType", eventType)
+          .with("caseId", caseId)
+          .error("Failed to append event to outbox, sending it directly", e);
+      sendDirectly(eventType, source, channel, payload);
+    }
+  }
+
+  /**
+   * Append a number of events for the same case to the outbox at once, to be sent in the
+   * background in the order given. The events are written to the journal together.
+   *
+   * @param eventType the type of the events
+   * @param source the source of the events
+   * @param channel the channel of the events
+   * @param payloads the event payloads
+   * @param caseId the case the events are for
+   */
+  public void appendAll(
+      EventType eventType,
+      Source source,
+      Channel channel,
+      List<? extends EventPayload> payloads,
+      Object caseId) {
+    List<OutboxEvent> events = new ArrayList<>(payloads.size());
+    for (EventPayload payload : payloads) {
+      events.add(outboxEvent(eventType, source, channel, payload, caseId));
+    }
+    try {
+      journal.append(
+          events,
+          written -> {
+            for (int i = 0; i < written.size(); i++) {
+              enqueue(new Queued(written.get(i), payloads.get(i)));
+            }
+          });
+    } catch (IOException e) {
+      log.with("eventType", eventType)
+          .with("caseId", caseId)
+          .with("events", payloads.size())
+          .error("Failed to append events to outbox, sending them directly", e);
+      payloads.forEach(payload -> sendDirectly(eventType, source, channel, payload));
+    }
+  }
+
+  @PreDestroy
+  void shutdown() throws IOException, InterruptedException {
+    if (!isEnabled()) {
+      return;
+    }
+    // Give the publishers a chance to empty their queues, anything left is sent on the next start.
+    // The journal is closed last, so that events sent while stopping are recorded as published.
+    stopping = true;
+    publishers.shutdown();
+    if (!publishers.awaitTermination(DRAIN_SECONDS, TimeUnit.SECONDS)) {
+      publishers.shutdownNow();
+      log.with("backlog", journal.backlog()).warn("Event outbox stopped before it was empty");
+    }
+    journal.close();
+  }
+
+  private OutboxEvent outboxEvent(
+      EventType eventType, Source source, Channel channel, EventPayload payload, Object caseId) {
+    return new OutboxEvent(
+        0L,
+        eventType,
+        source,
+        channel,
+        Objects.toString(caseId, null),
+        payload.getClass().getName(),
+        mapper.valueToTree(payload),
+        System.currentTimeMillis());
+  }
+
+  private void sendDirectly(
+      EventType eventType, Source source, Channel channel, EventPayload payload) {
+    downstreamTimers.record(
+        DownstreamTimers.RABBIT,
+        "sendEvent",
+        () -> eventPublisher.sendEvent(eventType, source, channel, payload));
+  }
+
+  /**
+   * Queue a journalled event for its publisher, without waiting. If the queue is full, or events
+   * before it have been left in the journal, the event is left in the journal too.
+   */
+  private void enqueue(Queued queued) {
+    Partition partition = partitionOf(queued.event);
+    synchronized (partition) {
+      if (partition.leftFrom < 0 && partition.queue.offer(queued)) {
+        return;
+      }
+      if (partition.leftFrom < 0) {
+        partition.leftFrom = queued.event.getSeq();
+        log.with("seq", queued.event.getSeq())
+            .warn("Outbox publisher queue is full, leaving events in the journal");
+      }
+    }
+  }
+
+  /**
+   * Queue the events left in the journal for a publisher whose queue is empty, as many as the queue
+   * holds. New events are queued once all those left in the journal have been taken. The journal is
+   * searched while holding the partition, so that an event written meanwhile is either found or
+   * queued when it is passed on by the writer. An event which is both is sent once, see {@link
+   * #publish}.
+   */
+  private void refill(Partition partition) {
+    synchronized (partition) {
+      if (partition.leftFrom < 0) {
+        return;
+      }
+      int room = partition.queue.remainingCapacity();
+      if (room == 0) {
+        return;
+      }
+      List<OutboxEvent> left =
+          journal.unpublished(partition.leftFrom, event -> partitionOf(event) == partition, room);
+      left.forEach(event -> partition.queue.offer(new Queued(event, null)));
+      partition.leftFrom = left.size() < room ? -1 : left.get(left.size() - 1).getSeq() + 1;
+    }
+  }
+
+  private Partition partitionOf(OutboxEvent event) {
+    return partitions.get(Math.floorMod(Objects.hashCode(event.getCaseId()), partitions.size()));
+  }
+
+  private void publish(Partition partition, int batchSize) {
+    List<Queued> batch = new ArrayList<>(batchSize);
+    List<Long> sent = new ArrayList<>(batchSize);
+    try {
+      while (true) {
+        Queued first = partition.queue.poll();
+        if (first == null) {
+          refill(partition);
+          first = partition.queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        if (first == null) {
+          if (stopping) {
+            return;
+          }
+          continue;
+        }
+        batch.add(first);
+        partition.queue.drainTo(batch, batchSize - 1);
+        try {
+          for (Queued queued : batch) {
+            long seq = queued.event.getSeq();
+            // Already sent when it was taken from the journal
+            if (seq <= partition.lastSent) {
+              continue;
+            }
+            if (!send(queued)) {
+              return;
+            }
+            partition.lastSent = seq;
+            sent.add(seq);
+          }
+        } finally {
+          recordPublished(sent);
+          batch.clear();
+          sent.clear();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Send an event, retrying until it is sent so that later events for the case wait for it.
+   *
+   * @return false if the outbox stopped before the event could be sent
+   */
+  private boolean send(Queued queued) throws InterruptedException {
+    OutboxEvent event = queued.event;
+    while (true) {
+      try {
+        EventPayload payload = queued.payload;
+        if (payload == null) {
+          payload =
+              (EventPayload)
+                  mapper.treeToValue(event.getPayload(), Class.forName(event.getPayloadType()));
+        }
+        EventPayload sending = payload;
+        downstreamTimers.record(
+            DownstreamTimers.RABBIT,
+            "sendEvent",
+            () ->
+                eventPublisher.sendEvent(
+                    event.getEventType(), event.getSource(), event.getChannel(), sending));
+        publishedEvents.increment();
+        return true;
+      } catch (IOException | ClassNotFoundException e) {
+        // Can never be sent, so don't hold up the case's other events
+        log.with("seq", event.getSeq())
+            .with("eventType", event.getEventType())
+            .error("Failed to read event from outbox, dropping it", e);
+        return true;
+      } catch (RuntimeException e) {
+        log.with("seq", event.getSeq())
+            .with("eventType", event.getEventType())
+            .with("caseId", event.getCaseId())
+            .warn("Failed to send event from outbox", e);
+        if (stopping) {
+          return false;
+        }
+        Thread.sleep(RETRY_MILLIS);
+      }
+    }
+  }
+
+  private void recordPublished(List<Long> seqs) {
+    if (seqs.isEmpty()) {
+      return;
+    }
+    try {
+      journal.published(seqs);
+    } catch (IOException e) {
+      // The events will be sent again when the service next starts
+      log.with("events", seqs.size()).error("Failed to record events sent from outbox", e);
+    }
+  }
+
+  private double backlogAgeSeconds(OutboxJournal outboxJournal) {
+    Long oldest = outboxJournal.oldestAppendedAt();
+    return oldest == null ? 0 : (System.currentTimeMillis() - oldest) / 1000.0;
+  }
+}
@@ -0,0 +1,24 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.event;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import uk.gov.ons.ctp.common.event.EventPublisher.Channel;
+import uk.gov.ons.ctp.common.event.EventPublisher.EventType;
+import uk.gov.ons.ctp.common.event.EventPublisher.Source;
+
+/** An event as recorded in the outbox journal, with what is needed to publish it again. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+class OutboxEvent {
+  private long seq;
+  private EventType eventType;
+  private Source source;
+  private Channel channel;
+  private String caseId;
+  private String payloadType;
+  private JsonNode payload;
+  private long appendedAt;
+}
@@ -0,0 +1,409 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.event;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.godaddy.logging.Logger;
+import com.godaddy.logging.LoggerFactory;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import lombok.AllArgsConstructor;
+
+/**
+ * Append-only record of the events in the outbox. Events are written by a single writer thread:
+ * the events appended while it was writing the last group are written and forced to disk together,
+ * and are only then given to the outbox, in the order of their sequence numbers. The sequence
+ * numbers of published events are recorded in a second file, so the events still to be published
+ * can be recovered after a restart. Publication is recorded without forcing it to disk, so an event
+ * may be published again after a crash, but is never lost.
+ *
+ * <p>The unpublished events are also held in memory, so that the outbox can go back to those it
+ * could not queue when they were written.
+ *
+ * <p>Each time the events file grows by the compaction threshold, the events before the lowest
+ * unpublished sequence number are dropped from both files, if there are any.
+ */
+class OutboxJournal implements AutoCloseable {
+  private static final Logger log = LoggerFactory.getLogger(OutboxJournal.class);
+
+  static final String EVENTS_FILE = "events.log";
+  static final String PUBLISHED_FILE = "published.log";
+
+  private static final long POLL_MILLIS = 500;
+
+  private final Path directory;
+  private final ObjectMapper mapper;
+  private final long compactBytes;
+  private final long appendTimeoutMillis;
+
+  // Each unpublished event, by sequence number
+  private final ConcurrentSkipListMap<Long, OutboxEvent> pending = new ConcurrentSkipListMap<>();
+  private final BlockingQueue<Append> appends = new LinkedBlockingQueue<>();
+
+  private FileChannel events;
+  private FileChannel published;
+  private long nextSeq;
+  private long compactedSize;
+  private long compactedTo;
+  private Thread writer;
+  private volatile boolean closed;
+
+  /** Events appended together, and what to do with them once they are on disk. */
+  @AllArgsConstructor
+  private static class Append {
+    private List<OutboxEvent> events;
+    private Consumer<List<OutboxEvent>> onWritten;
+    private CompletableFuture<Void> written;
+    // Set by the writer when it takes the events, or by the caller when it gives up waiting
+    private AtomicBoolean taken;
+  }
+
+  OutboxJournal(Path directory, ObjectMapper mapper, long compactBytes, long appendTimeoutMillis) {
+    this.directory = directory;
+    this.mapper = mapper;
+    this.compactBytes = compactBytes;
+    this.appendTimeoutMillis = appendTimeoutMillis;
+  }
+
+  /**
+   * Open the journal, recovering the events left unpublished when it was last closed. The journal
+   * is rewritten to hold just those events, and the writer is started.
+   *
+   * @return the unpublished events, in the order they were appended
+   * @throws IOException if the journal can't be read or rewritten
+   */
+  synchronized List<OutboxEvent> open() throws IOException {
+    Files.createDirectories(directory);
+    Path eventsFile = directory.resolve(EVENTS_FILE);
+    Path publishedFile = directory.resolve(PUBLISHED_FILE);
+
+    Set<Long> publishedSeqs = new HashSet<>();
+    if (Files.exists(publishedFile)) {
+      for (String line : Files.readAllLines(publishedFile, UTF_8)) {
+        if (!line.isBlank()) {
+          publishedSeqs.add(Long.valueOf(line.trim()));
+        }
+      }
+    }
+    List<OutboxEvent> unpublished = new ArrayList<>();
+    if (Files.exists(eventsFile)) {
+      try (BufferedReader reader = Files.newBufferedReader(eventsFile, UTF_8)) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          // A partial last line is an event whose append never completed
+          if (line.isBlank() || !line.endsWith("}")) {
+            continue;
+          }
+          OutboxEvent event = mapper.readValue(line, OutboxEvent.class);
+          nextSeq = Math.max(nextSeq, event.getSeq() + 1);
+          if (!publishedSeqs.contains(event.getSeq())) {
+            unpublished.add(event);
+          }
+        }
+      }
+    }
+
+    // Rewrite the journal before forgetting what has been published
+    Path rewritten = directory.resolve(EVENTS_FILE + ".tmp");
+    try (FileChannel channel = openForAppend(rewritten, StandardOpenOption.TRUNCATE_EXISTING)) {
+      for (OutboxEvent event : unpublished) {
+        write(channel, event);
+      }
+      channel.force(true);
+    }
+    Files.move(rewritten, eventsFile, StandardCopyOption.ATOMIC_MOVE);
+    events = openForAppend(eventsFile);
+    published = openForAppend(publishedFile, StandardOpenOption.TRUNCATE_EXISTING);
+
+    unpublished.forEach(event -> pending.put(event.getSeq(), event));
+    compactedSize = events.size();
+    compactedTo = unpublished.isEmpty() ? nextSeq : unpublished.get(0).getSeq();
+
+    writer = new Thread(this::write, "outbox-journal");
+    writer.start();
+    return unpublished;
+  }
+
+  /**
+   * Append a number of events, giving them the next sequence numbers in order, and wait until they
+   * are on disk. Once they are, and before any events appended after them, they are passed to
+   * <code>onWritten</code> on the writer thread, which must not block.
+   *
+   * <p>If the writer has not taken the events by the append timeout they are withdrawn, and are
+   * never written. Once the writer has taken them the caller waits for them to be written, so the
+   * caller always learns whether the events were written.
+   *
+   * @param batch of events to append
+   * @param onWritten takes the events once they are on disk
+   * @throws IOException if the events were withdrawn, or could not be written to disk
+   */
+  void append(List<OutboxEvent> batch, Consumer<List<OutboxEvent>> onWritten)
+      throws IOException {
+    Append append = new Append(batch, onWritten, new CompletableFuture<>(), new AtomicBoolean());
+    synchronized (appends) {
+      if (closed) {
+        throw new IOException("Outbox journal is closed");
+      }
+      appends.add(append);
+    }
+    try {
+      append.written.get(appendTimeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (ExecutionException e) {
+      throw asIOException(e.getCause());
+    } catch (TimeoutException | InterruptedException e) {
+      if (e instanceof InterruptedException) {
+        Thread.currentThread().interrupt();
+      }
+      if (append.taken.compareAndSet(false, true)) {
+        throw new IOException("Timed out waiting for the outbox journal writer", e);
+      }
+      // The writer has the events, and only has to put them on disk
+      try {
+        append.written.join();
+      } catch (CompletionException ce) {
+        throw asIOException(ce.getCause());
+      }
+    }
+  }
+
+  /**
+   * Record that events have been published.
+   *
+   * @param seqs of the published events
+   * @throws IOException if the record could not be written
+   */
+  synchronized void published(Collection<Long> seqs) throws IOException {
+    StringBuilder lines = new StringBuilder();
+    for (Long seq : seqs) {
+      lines.append(seq).append('\n');
+      pending.remove(seq);
+    }
+    writeFully(published, ByteBuffer.wrap(lines.toString().getBytes(UTF_8)));
+  }
+
+  /**
+   * Find unpublished events, in the order they were appended.
+   *
+   * @param fromSeq the lowest sequence number to look at
+   * @param wanted picks the events to return
+   * @param limit the most events to return
+   * @return the unpublished events picked
+   */
+  List<OutboxEvent> unpublished(long fromSeq, Predicate<OutboxEvent> wanted, int limit) {
+    List<OutboxEvent> found = new ArrayList<>();
+    for (OutboxEvent event : pending.tailMap(fromSeq).values()) {
+      if (found.size() == limit) {
+        break;
+      }
+      if (wanted.test(event)) {
+        found.add(event);
+      }
+    }
+    return found;
+  }
+
+  /** @return the number of events not yet published */
+  int backlog() {
+    return pending.size();
+  }
+
+  /** @return the time the oldest unpublished event was appended, or null if there are none */
+  Long oldestAppendedAt() {
+    Map.Entry<Long, OutboxEvent> oldest = pending.firstEntry();
+    return oldest == null ? null : oldest.getValue().getAppendedAt();
+  }
+
+  /**
+   * Stop the writer once it has written the events already appended, and close the journal.
+   *
+   * @throws IOException if the journal could not be closed
+   */
+  @Override
+  public void close() throws IOException {
+    synchronized (appends) {
+      closed = true;
+    }
+    if (writer != null) {
+      try {
+        writer.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    synchronized (this) {
+      if (events != null) {
+        events.close();
+      }
+      if (published != null) {
+        published.close();
+      }
+    }
+  }
+
+  private void write() {
+    List<Append> group = new ArrayList<>();
+    // Nothing is appended once closed is set, so the writer stops only once it has written all
+    while (!closed || !appends.isEmpty()) {
+      try {
+        Append first = appends.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        group.add(first);
+      } catch (InterruptedException e) {
+        // Only closing the journal stops the writer
+        continue;
+      }
+      appends.drainTo(group);
+      // Leave out the events whose callers have given up waiting
+      group.removeIf(append -> !append.taken.compareAndSet(false, true));
+      if (!group.isEmpty()) {
+        writeGroup(group);
+      }
+      group.clear();
+      compactIfGrown();
+    }
+  }
+
+  private void writeGroup(List<Append> group) {
+    long size = -1;
+    long seq = nextSeq;
+    try {
+      size = events.size();
+      StringBuilder lines = new StringBuilder();
+      for (Append append : group) {
+        for (OutboxEvent event : append.events) {
+          event.setSeq(seq++);
+          lines.append(mapper.writeValueAsString(event)).append('\n');
+        }
+      }
+      writeFully(events, ByteBuffer.wrap(lines.toString().getBytes(UTF_8)));
+      events.force(false);
+    } catch (IOException e) {
+      truncate(size);
+      group.forEach(append -> append.written.completeExceptionally(e));
+      return;
+    }
+    nextSeq = seq;
+    for (Append append : group) {
+      append.events.forEach(event -> pending.put(event.getSeq(), event));
+      try {
+        append.onWritten.accept(append.events);
+      } catch (RuntimeException e) {
+        log.with("events", append.events.size()).error("Failed to pass on outbox events", e);
+      }
+      append.written.complete(null);
+    }
+  }
+
+  // Drop a partly written group, so that the next group starts on a line of its own
+  private void truncate(long size) {
+    if (size < 0) {
+      return;
+    }
+    try {
+      events.truncate(size);
+    } catch (IOException e) {
+      log.error("Failed to drop partly written events from outbox journal", e);
+    }
+  }
+
+  private void compactIfGrown() {
+    Map.Entry<Long, OutboxEvent> lowest = pending.firstEntry();
+    long lowestSeq = lowest == null ? nextSeq : lowest.getKey();
+    try {
+      if (events.size() - compactedSize < compactBytes || lowestSeq <= compactedTo) {
+        return;
+      }
+      compact(lowestSeq);
+    } catch (IOException e) {
+      log.with("lowestSeq", lowestSeq).error("Failed to compact outbox journal", e);
+    }
+  }
+
+  /**
+   * Drop the events before the lowest unpublished sequence number, which have all been published,
+   * from both files. Run by the writer, so no events are appended while the events file is being
+   * rewritten.
+   */
+  private synchronized void compact(long lowestSeq) throws IOException {
+    Path eventsFile = directory.resolve(EVENTS_FILE);
+    Path rewritten = directory.resolve(EVENTS_FILE + ".tmp");
+    try (BufferedReader reader = Files.newBufferedReader(eventsFile, UTF_8);
+        FileChannel channel = openForAppend(rewritten, StandardOpenOption.TRUNCATE_EXISTING)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (!line.isBlank() && mapper.readValue(line, OutboxEvent.class).getSeq() >= lowestSeq) {
+          writeFully(channel, ByteBuffer.wrap((line + "\n").getBytes(UTF_8)));
+        }
+      }
+      channel.force(true);
+    }
+    Files.move(rewritten, eventsFile, StandardCopyOption.ATOMIC_MOVE);
+    events.close();
+    events = openForAppend(eventsFile);
+
+    Path publishedFile = directory.resolve(PUBLISHED_FILE);
+    StringBuilder kept = new StringBuilder();
+    for (String line : Files.readAllLines(publishedFile, UTF_8)) {
+      if (!line.isBlank() && Long.parseLong(line.trim()) >= lowestSeq) {
+        kept.append(line.trim()).append('\n');
+      }
+    }
+    published.truncate(0);
+    writeFully(published, ByteBuffer.wrap(kept.toString().getBytes(UTF_8)));
+
+    compactedSize = events.size();
+    compactedTo = lowestSeq;
+    log.with("lowestSeq", lowestSeq).with("bytes", compactedSize).info("Compacted outbox journal");
+  }
+
+  private static IOException asIOException(Throwable cause) {
+    return cause instanceof IOException ? (IOException) cause : new IOException(cause);
+  }
+
+  private void write(FileChannel channel, OutboxEvent event) throws IOException {
+    byte[] line = (mapper.writeValueAsString(event) + "\n").getBytes(UTF_8);
+    writeFully(channel, ByteBuffer.wrap(line));
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  private static FileChannel openForAppend(Path file, StandardOpenOption... extraOptions)
+      throws IOException {
+    List<StandardOpenOption> options =
+        new ArrayList<>(List.of(StandardOpenOption.CREATE, StandardOpenOption.WRITE));
+    options.addAll(List.of(extraOptions));
+    if (!options.contains(StandardOpenOption.TRUNCATE_EXISTING)) {
+      options.add(StandardOpenOption.APPEND);
+    }
+    return FileChannel.open(file, options.toArray(new StandardOpenOption[0]));
+  }
+}
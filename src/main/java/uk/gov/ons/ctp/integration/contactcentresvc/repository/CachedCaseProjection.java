@@ -0,0 +1,51 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.repository;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import uk.gov.ons.ctp.integration.contactcentresvc.cloud.CachedCase;
+
+/** The fields of a {@link CachedCase} to read from the repository. */
+public enum CachedCaseProjection {
+  /** The whole case. */
+  FULL(null),
+  /**
+   * Everything but the case events. The events are the only part of a case which grows, so they
+   * are left behind whenever the caller doesn't want them.
+   */
+  WITHOUT_EVENTS(fieldNamesExcept("caseEvents"));
+
+  private final String[] fieldNames;
+
+  CachedCaseProjection(String[] fieldNames) {
+    this.fieldNames = fieldNames;
+  }
+
+  /**
+   * Get the projection for a caller which may or may not want case events.
+   *
+   * @param caseEvents true if the caller wants case events
+   * @return the projection
+   */
+  public static CachedCaseProjection forCaseEvents(boolean caseEvents) {
+    return caseEvents ? FULL : WITHOUT_EVENTS;
+  }
+
+  /** @return true if the whole case is read */
+  public boolean isFull() {
+    return fieldNames == null;
+  }
+
+  /** @return the names of the fields read, or null if the whole case is read */
+  public String[] getFieldNames() {
+    return fieldNames == null ? null : fieldNames.clone();
+  }
+
+  private static String[] fieldNamesExcept(String excluded) {
+    return Arrays.stream(CachedCase.class.getDeclaredFields())
+        .filter(f -> !f.isSynthetic() && !Modifier.isStatic(f.getModifiers()))
+        .map(Field::getName)
+        .filter(name -> !name.equals(excluded))
+        .toArray(String[]::new);
+  }
+}
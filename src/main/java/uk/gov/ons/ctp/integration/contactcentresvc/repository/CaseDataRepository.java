@@ -1,6 +1,8 @@
 package uk.gov.ons.ctp.integration.contactcentresvc.repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import uk.gov.ons.ctp.common.domain.UniquePropertyReferenceNumber;
@@ -25,7 +27,64 @@ public interface CaseDataRepository {
    * @return list of cached cases found that match the given UPRN
    * @throws CTPException on error
    */
-  List<CachedCase> readCachedCasesByUprn(final UniquePropertyReferenceNumber uprn)
+  default List<CachedCase> readCachedCasesByUprn(final UniquePropertyReferenceNumber uprn)
+      throws CTPException {
+    return readCachedCasesByUprn(uprn, CachedCaseProjection.FULL);
+  }
+
+  /**
+   * Get all Cached cases for an address by Unique Property Reference Number, reading only the
+   * projected fields of each case.
+   *
+   * @param uprn UPRN of the case to read
+   * @param projection the fields of each case to read
+   * @return list of cached cases found that match the given UPRN
+   * @throws CTPException on error
+   */
+  List<CachedCase> readCachedCasesByUprn(
+      final UniquePropertyReferenceNumber uprn, final CachedCaseProjection projection)
+      throws CTPException;
+
+  /**
+   * Get the most recently created Cached case for an address by Unique Property Reference Number,
+   * reading only the projected fields of the case. Only the newest case is read, however many
+   * cases have been cached for the address.
+   *
+   * @param uprn UPRN of the case to read
+   * @param projection the fields of the case to read
+   * @return Optional containing the newest cached case for the UPRN, if there is one
+   * @throws CTPException on error
+   */
+  Optional<CachedCase> readLatestCachedCaseByUprn(
+      final UniquePropertyReferenceNumber uprn, final CachedCaseProjection projection)
+      throws CTPException;
+
+  /**
+   * Get all Cached cases for a number of addresses at once, reading them in as few queries as
+   * possible.
+   *
+   * @param uprns UPRNs of the cases to read
+   * @return the cached cases found for each of the UPRNs, with an empty list for a UPRN which has
+   *     none
+   * @throws CTPException on error
+   */
+  default Map<UniquePropertyReferenceNumber, List<CachedCase>> readCachedCasesByUprns(
+      final Collection<UniquePropertyReferenceNumber> uprns) throws CTPException {
+    return readCachedCasesByUprns(uprns, CachedCaseProjection.FULL);
+  }
+
+  /**
+   * Get all Cached cases for a number of addresses at once, reading only the projected fields of
+   * each case.
+   *
+   * @param uprns UPRNs of the cases to read
+   * @param projection the fields of each case to read
+   * @return the cached cases found for each of the UPRNs, with an empty list for a UPRN which has
+   *     none
+   * @throws CTPException on error
+   */
+  Map<UniquePropertyReferenceNumber, List<CachedCase>> readCachedCasesByUprns(
+      final Collection<UniquePropertyReferenceNumber> uprns, final CachedCaseProjection projection)
       throws CTPException;
 
   /**
@@ -35,5 +94,18 @@ public interface CaseDataRepository {
    * @return Optional containing case for Id if available
    * @throws CTPException for error reading case
    */
-  Optional<CachedCase> readCachedCaseById(final UUID caseId) throws CTPException;
+  default Optional<CachedCase> readCachedCaseById(final UUID caseId) throws CTPException {
+    return readCachedCaseById(caseId, CachedCaseProjection.FULL);
+  }
+
+  /**
+   * Read a skeleton Case by Id, reading only the projected fields of the case.
+   *
+   * @param caseId of case to read
+   * @param projection the fields of the case to read
+   * @return Optional containing case for Id if available
+   * @throws CTPException for error reading case
+   */
+  Optional<CachedCase> readCachedCaseById(final UUID caseId, final CachedCaseProjection projection)
+      throws CTPException;
 }
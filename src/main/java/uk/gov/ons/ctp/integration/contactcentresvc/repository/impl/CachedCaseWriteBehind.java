@@ -0,0 +1,283 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.repository.impl;
+
+import static java.util.stream.Collectors.toList;
+
+import com.godaddy.logging.Logger;
+import com.godaddy.logging.LoggerFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import uk.gov.ons.ctp.integration.contactcentresvc.cloud.CachedCase;
+
+/**
+ * Collects cached case writes for a few milliseconds and commits them to the store in batches, from
+ * a background writer. A case is pending from when it is written until its batch has been
+ * committed, and pending cases are served to readers from memory, so a caller always reads back
+ * what it has written. A later write of a case replaces a pending one.
+ *
+ * <p>A batch which fails to commit is retried, waiting twice as long before each attempt, up to
+ * <code>maxAttempts</code> times. Its cases are then committed one at a time, so that one bad case
+ * can't hold up the rest. A case which fails on its own stays pending and is queued again, to be
+ * retried in a later batch; such cases are counted by {@link #failing()}. Pending cases count
+ * towards <code>maxPending</code>, so while cases keep failing, writes are refused and go straight
+ * to the store, where the caller sees any failure.
+ *
+ * <p>Once {@link #stop(Runnable)} is called only cases which are already pending are accepted, so
+ * that a later write of a case can't be overtaken by the commit of an earlier one, and the writer
+ * commits everything pending without waiting before it finishes.
+ */
+class CachedCaseWriteBehind {
+  private static final Logger log = LoggerFactory.getLogger(CachedCaseWriteBehind.class);
+
+  private static final long MAX_RETRY_MILLIS = 30000;
+
+  private final Committer committer;
+  private final int maxBatchSize;
+  private final long maxDelayMillis;
+  private final long retryMillis;
+  private final int maxAttempts;
+  private final int maxPending;
+
+  // Every case written but not yet committed, those of them waiting to go into a batch, and those
+  // which have failed to commit on their own
+  private final Map<String, CachedCase> pending = new HashMap<>();
+  private final LinkedHashMap<String, CachedCase> queued = new LinkedHashMap<>();
+  private final Set<String> failing = new HashSet<>();
+  private final ExecutorService writer;
+  private boolean stopping;
+  private boolean stopped;
+  private Runnable onStopped;
+
+  /** Commits a batch of cases to the store, returning once they have been committed. */
+  interface Committer {
+    void commit(List<CachedCase> batch) throws ExecutionException, InterruptedException;
+  }
+
+  CachedCaseWriteBehind(
+      Committer committer,
+      int maxBatchSize,
+      long maxDelayMillis,
+      long retryMillis,
+      int maxAttempts,
+      int maxPending) {
+    this.committer = committer;
+    this.maxBatchSize = maxBatchSize;
+    this.maxDelayMillis = maxDelayMillis;
+    this.retryMillis = retryMillis;
+    this.maxAttempts = Math.max(1, maxAttempts);
+    this.maxPending = maxPending;
+    this.writer = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("case-writer-"));
+    writer.execute(this::write);
+  }
+
+  /**
+   * Queue a case to be written.
+   *
+   * @param caze the case to write
+   * @return false if the case was not queued, because the writer is stopping or too many cases are
+   *     already pending, and no earlier write of the case is pending; the caller should write it
+   *     directly
+   */
+  synchronized boolean offer(CachedCase caze) {
+    boolean alreadyPending = pending.containsKey(caze.getId());
+    if (stopped || (!alreadyPending && (stopping || pending.size() >= maxPending))) {
+      return false;
+    }
+    pending.put(caze.getId(), caze);
+    queued.remove(caze.getId());
+    queued.put(caze.getId(), caze);
+    notifyAll();
+    return true;
+  }
+
+  /**
+   * @param id of the case
+   * @return the pending write of the case, if there is one
+   */
+  synchronized Optional<CachedCase> pending(String id) {
+    return Optional.ofNullable(pending.get(id));
+  }
+
+  /**
+   * @param uprn of the cases
+   * @return the pending writes of cases for the UPRN
+   */
+  synchronized List<CachedCase> pendingForUprn(String uprn) {
+    if (pending.isEmpty()) {
+      return List.of();
+    }
+    return pending.values().stream().filter(c -> uprn.equals(c.getUprn())).collect(toList());
+  }
+
+  /** @return the number of cases written but not yet committed */
+  synchronized int size() {
+    return pending.size();
+  }
+
+  /** @return the number of pending cases which have failed to commit on their own */
+  synchronized int failing() {
+    return failing.size();
+  }
+
+  /**
+   * Stop accepting writes, and commit everything pending.
+   *
+   * @param callback run once everything pending has been committed
+   */
+  void stop(Runnable callback) {
+    synchronized (this) {
+      stopping = true;
+      if (!stopped) {
+        onStopped = callback;
+        notifyAll();
+        return;
+      }
+    }
+    callback.run();
+  }
+
+  /** Stop the writer straight away, whether or not everything pending has been committed. */
+  void close() throws InterruptedException {
+    synchronized (this) {
+      stopping = true;
+    }
+    writer.shutdownNow();
+    writer.awaitTermination(retryMillis, TimeUnit.MILLISECONDS);
+    int lost = size();
+    if (lost > 0) {
+      log.with("cases", lost).error("Case writer stopped before all cases were written");
+    }
+  }
+
+  private void write() {
+    try {
+      while (true) {
+        List<CachedCase> batch = nextBatch();
+        if (batch == null) {
+          return;
+        }
+        commit(batch);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      Runnable callback;
+      synchronized (this) {
+        stopped = true;
+        callback = onStopped;
+      }
+      if (callback != null) {
+        callback.run();
+      }
+    }
+  }
+
+  /**
+   * Wait for a write, then give other writes a few milliseconds to join it in the batch.
+   *
+   * @return the next batch to commit, or null once the writer has stopped with nothing pending
+   */
+  private synchronized List<CachedCase> nextBatch() throws InterruptedException {
+    while (queued.isEmpty()) {
+      if (stopping) {
+        return null;
+      }
+      wait();
+    }
+    long deadline = System.currentTimeMillis() + maxDelayMillis;
+    long remaining = maxDelayMillis;
+    while (!stopping && queued.size() < maxBatchSize && remaining > 0) {
+      wait(remaining);
+      remaining = deadline - System.currentTimeMillis();
+    }
+
+    List<CachedCase> batch = new ArrayList<>(Math.min(queued.size(), maxBatchSize));
+    Iterator<CachedCase> cases = queued.values().iterator();
+    while (cases.hasNext() && batch.size() < maxBatchSize) {
+      batch.add(cases.next());
+      cases.remove();
+    }
+    return batch;
+  }
+
+  private void commit(List<CachedCase> batch) throws InterruptedException {
+    long backoffMillis = retryMillis;
+    for (int attempt = 1; ; attempt++) {
+      try {
+        committer.commit(batch);
+        committed(batch);
+        return;
+      } catch (ExecutionException | RuntimeException e) {
+        log.with("cases", batch.size())
+            .with("attempt", attempt)
+            .warn("Failed to write batch of cached cases", e);
+        if (attempt >= maxAttempts) {
+          break;
+        }
+        Thread.sleep(backoffMillis);
+        backoffMillis = Math.min(backoffMillis * 2, MAX_RETRY_MILLIS);
+        batch = stillPending(batch);
+        if (batch.isEmpty()) {
+          return;
+        }
+      }
+    }
+    commitEach(stillPending(batch));
+  }
+
+  /**
+   * Commit the cases of a batch which keeps failing one at a time, queueing those which fail to be
+   * retried.
+   */
+  private void commitEach(List<CachedCase> batch) throws InterruptedException {
+    for (CachedCase caze : batch) {
+      List<CachedCase> single = List.of(caze);
+      try {
+        committer.commit(single);
+        committed(single);
+      } catch (ExecutionException | RuntimeException e) {
+        log.with("caseId", caze.getId()).error("Failed to write cached case, will retry it", e);
+        retryLater(caze);
+      }
+    }
+  }
+
+  /** Cases which have been written again while being committed stay pending for the new write. */
+  private synchronized void committed(List<CachedCase> batch) {
+    batch.stream()
+        .filter(this::isLatestWrite)
+        .forEach(
+            caze -> {
+              pending.remove(caze.getId());
+              failing.remove(caze.getId());
+            });
+  }
+
+  /** Queue a case which failed to commit again, unless it has since been written again. */
+  private synchronized void retryLater(CachedCase caze) {
+    failing.add(caze.getId());
+    if (isLatestWrite(caze)) {
+      queued.put(caze.getId(), caze);
+    }
+  }
+
+  /** @return the cases in a failed batch which haven't since been written again */
+  private synchronized List<CachedCase> stillPending(List<CachedCase> batch) {
+    return batch.stream().filter(this::isLatestWrite).collect(toList());
+  }
+
+  private boolean isLatestWrite(CachedCase caze) {
+    return pending.get(caze.getId()) == caze && !queued.containsKey(caze.getId());
+  }
+}
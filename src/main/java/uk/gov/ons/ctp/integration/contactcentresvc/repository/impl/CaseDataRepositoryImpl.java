@@ -1,24 +1,54 @@
 package uk.gov.ons.ctp.integration.contactcentresvc.repository.impl;
 
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+
 import com.godaddy.logging.Logger;
 import com.godaddy.logging.LoggerFactory;
+import com.google.api.core.ApiFuture;
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.StatusCode;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldMask;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.google.cloud.firestore.WriteBatch;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 import uk.gov.ons.ctp.common.cloud.RetryableCloudDataStore;
 import uk.gov.ons.ctp.common.domain.UniquePropertyReferenceNumber;
 import uk.gov.ons.ctp.common.error.CTPException;
 import uk.gov.ons.ctp.common.error.CTPException.Fault;
 import uk.gov.ons.ctp.integration.contactcentresvc.cloud.CachedCase;
+import uk.gov.ons.ctp.integration.contactcentresvc.repository.CachedCaseProjection;
 import uk.gov.ons.ctp.integration.contactcentresvc.repository.CaseDataRepository;
 
 @Service
-public class CaseDataRepositoryImpl implements CaseDataRepository {
+@Profile("!" + InMemoryCaseDataRepository.PROFILE)
+public class CaseDataRepositoryImpl implements CaseDataRepository, SmartLifecycle {
 
   private static final Logger log = LoggerFactory.getLogger(CaseDataRepositoryImpl.class);
 
@@ -28,24 +58,129 @@ public class CaseDataRepositoryImpl implements CaseDataRepository {
   @Value("${cloud-storage.case-schema-name}")
   private String caseSchemaName;
 
+  @Value("${cloud-storage.write-behind.enabled:false}")
+  private boolean writeBehindEnabled;
+
+  @Value("${cloud-storage.write-behind.max-batch-size:500}")
+  private int writeBehindMaxBatchSize;
+
+  @Value("${cloud-storage.write-behind.max-delay-millis:5}")
+  private long writeBehindMaxDelayMillis;
+
+  @Value("${cloud-storage.write-behind.retry-millis:1000}")
+  private long writeBehindRetryMillis;
+
+  @Value("${cloud-storage.write-behind.max-attempts:3}")
+  private int writeBehindMaxAttempts;
+
+  @Value("${cloud-storage.write-behind.max-pending:10000}")
+  private int writeBehindMaxPending;
+
   private String caseSchema;
 
+  private CachedCaseWriteBehind writeBehind;
+
+  @Autowired private MeterRegistry meterRegistry;
+
+  private volatile boolean running;
+
   private RetryableCloudDataStore cloudDataStore;
 
+  private Firestore firestore;
+
+  private final AtomicBoolean missingIndexLogged = new AtomicBoolean();
+
   // This is the name of the document that is used to create and retain the new-case collection
   private static final String PLACEHOLDER_CASE_NAME = "placeholder";
 
   private static final String[] SEARCH_BY_UPRN_PATH = new String[] {"uprn"};
 
+  private static final String CREATED_DATE_TIME = "createdDateTime";
+
+  // Firestore limits the number of values an 'in' query can match
+  private static final int MAX_UPRNS_PER_QUERY = 10;
+
+  // Stop after the web server has finished its graceful shutdown, so no more cases are written
+  private static final int WRITE_BEHIND_PHASE = SmartLifecycle.DEFAULT_PHASE - 1024;
+
   @PostConstruct
   public void init() throws CTPException {
     caseSchema = gcpProject + "-" + caseSchemaName.toLowerCase();
     ensureCollectionExists(caseSchema);
+    if (writeBehindEnabled) {
+      writeBehind =
+          new CachedCaseWriteBehind(
+              this::commitBatch,
+              writeBehindMaxBatchSize,
+              writeBehindMaxDelayMillis,
+              writeBehindRetryMillis,
+              writeBehindMaxAttempts,
+              writeBehindMaxPending);
+      Gauge.builder("cached.case.writes.pending", writeBehind, CachedCaseWriteBehind::size)
+          .description("Cached cases waiting to be written behind")
+          .register(meterRegistry);
+      Gauge.builder("cached.case.writes.failing", writeBehind, CachedCaseWriteBehind::failing)
+          .description("Cached cases waiting to be written behind which have failed to commit")
+          .register(meterRegistry);
+      log.with("maxDelayMillis", writeBehindMaxDelayMillis)
+          .with("maxBatchSize", writeBehindMaxBatchSize)
+          .info("Cached cases are written behind");
+    }
+  }
+
+  @Override
+  public void start() {
+    running = true;
+  }
+
+  @Override
+  public void stop() {
+    CountDownLatch stopped = new CountDownLatch(1);
+    stop(stopped::countDown);
+    try {
+      stopped.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Commit any cases still waiting to be written behind. Spring waits for this for up to the
+   * <code>spring.lifecycle.timeout-per-shutdown-phase</code>.
+   */
+  @Override
+  public void stop(Runnable callback) {
+    running = false;
+    if (writeBehind == null) {
+      callback.run();
+      return;
+    }
+    log.with("pending", writeBehind.size()).info("Writing pending cached cases before stopping");
+    writeBehind.stop(callback);
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  @Override
+  public int getPhase() {
+    return WRITE_BEHIND_PHASE;
+  }
+
+  @PreDestroy
+  void close() throws InterruptedException {
+    if (writeBehind != null) {
+      writeBehind.close();
+    }
   }
 
   @Autowired
-  public CaseDataRepositoryImpl(RetryableCloudDataStore cloudDataStore) {
+  public CaseDataRepositoryImpl(
+      RetryableCloudDataStore cloudDataStore, @Qualifier("firestore") Firestore firestore) {
     this.cloudDataStore = cloudDataStore;
+    this.firestore = firestore;
   }
 
   private void ensureCollectionExists(String collectionName) throws CTPException {
@@ -75,18 +210,197 @@ public class CaseDataRepositoryImpl implements CaseDataRepository {
 
   @Override
   public void writeCachedCase(final CachedCase caze) throws CTPException {
+    if (writeBehind != null && writeBehind.offer(caze)) {
+      return;
+    }
     cloudDataStore.storeObject(caseSchema, caze.getId(), caze, caze.getId());
   }
 
   @Override
-  public List<CachedCase> readCachedCasesByUprn(UniquePropertyReferenceNumber uprn)
-      throws CTPException {
+  public List<CachedCase> readCachedCasesByUprn(
+      UniquePropertyReferenceNumber uprn, CachedCaseProjection projection) throws CTPException {
     String key = String.valueOf(uprn.getValue());
-    return cloudDataStore.search(CachedCase.class, caseSchema, SEARCH_BY_UPRN_PATH, key);
+    if (projection.isFull()) {
+      return withPending(
+          key, cloudDataStore.search(CachedCase.class, caseSchema, SEARCH_BY_UPRN_PATH, key));
+    }
+    Query query =
+        firestore
+            .collection(caseSchema)
+            .whereEqualTo(SEARCH_BY_UPRN_PATH[0], key)
+            .select(projection.getFieldNames());
+    QuerySnapshot snapshot = read(query.get(), "uprn", key);
+    return withPending(
+        key,
+        snapshot.getDocuments().stream()
+            .map(document -> document.toObject(CachedCase.class))
+            .collect(toList()));
+  }
+
+  /**
+   * Read the newest cached case for a UPRN by ordering on createdDateTime and keeping only the
+   * first document. Firestore needs a composite index on the case collection to serve this query,
+   * of uprn ascending then createdDateTime descending, as defined in firestore.indexes.json. While
+   * the index is missing every case for the UPRN is read, and the newest is picked here.
+   */
+  @Override
+  public Optional<CachedCase> readLatestCachedCaseByUprn(
+      UniquePropertyReferenceNumber uprn, CachedCaseProjection projection) throws CTPException {
+    String key = String.valueOf(uprn.getValue());
+    Query uprnQuery = firestore.collection(caseSchema).whereEqualTo(SEARCH_BY_UPRN_PATH[0], key);
+    Query query = uprnQuery.orderBy(CREATED_DATE_TIME, Query.Direction.DESCENDING).limit(1);
+    if (!projection.isFull()) {
+      query = query.select(projection.getFieldNames());
+      uprnQuery = uprnQuery.select(projection.getFieldNames());
+    }
+    Optional<CachedCase> latest;
+    ApiFuture<QuerySnapshot> ordered = query.get();
+    try {
+      latest =
+          ordered.get().getDocuments().stream()
+              .findFirst()
+              .map(document -> document.toObject(CachedCase.class));
+    } catch (ExecutionException e) {
+      if (!isMissingIndex(e.getCause())) {
+        log.with("uprn", key).error("Failed to read cached case", e);
+        throw new CTPException(Fault.SYSTEM_ERROR, e.getCause());
+      }
+      if (missingIndexLogged.compareAndSet(false, true)) {
+        log.with("collection", caseSchema)
+            .warn("No index to read latest cached case by UPRN, reading all cases for the UPRN");
+      }
+      latest =
+          read(uprnQuery.get(), "uprn", key).getDocuments().stream()
+              .map(document -> document.toObject(CachedCase.class))
+              .filter(caze -> caze.getCreatedDateTime() != null)
+              .max(Comparator.comparing(CachedCase::getCreatedDateTime));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      ordered.cancel(true);
+      throw new CTPException(Fault.SYSTEM_ERROR, e);
+    }
+    if (writeBehind == null) {
+      return latest;
+    }
+    return withPending(key, latest.map(List::of).orElse(List.of())).stream()
+        .filter(caze -> caze.getCreatedDateTime() != null)
+        .max(Comparator.comparing(CachedCase::getCreatedDateTime));
   }
 
   @Override
-  public Optional<CachedCase> readCachedCaseById(final UUID caseId) throws CTPException {
-    return cloudDataStore.retrieveObject(CachedCase.class, caseSchema, caseId.toString());
+  public Map<UniquePropertyReferenceNumber, List<CachedCase>> readCachedCasesByUprns(
+      Collection<UniquePropertyReferenceNumber> uprns, CachedCaseProjection projection)
+      throws CTPException {
+    Map<UniquePropertyReferenceNumber, List<CachedCase>> casesByUprn = new LinkedHashMap<>();
+    uprns.forEach(uprn -> casesByUprn.put(uprn, new ArrayList<>()));
+    List<String> keys =
+        casesByUprn.keySet().stream().map(u -> String.valueOf(u.getValue())).collect(toList());
+
+    // Start all the queries before waiting for any of them
+    List<ApiFuture<QuerySnapshot>> queries = new ArrayList<>();
+    for (int i = 0; i < keys.size(); i += MAX_UPRNS_PER_QUERY) {
+      List<String> queryKeys = keys.subList(i, Math.min(i + MAX_UPRNS_PER_QUERY, keys.size()));
+      Query query = firestore.collection(caseSchema).whereIn(SEARCH_BY_UPRN_PATH[0], queryKeys);
+      if (!projection.isFull()) {
+        query = query.select(projection.getFieldNames());
+      }
+      queries.add(query.get());
+    }
+
+    try {
+      for (ApiFuture<QuerySnapshot> query : queries) {
+        for (QueryDocumentSnapshot document : query.get().getDocuments()) {
+          CachedCase caze = document.toObject(CachedCase.class);
+          casesByUprn.get(new UniquePropertyReferenceNumber(caze.getUprn())).add(caze);
+        }
+      }
+    } catch (ExecutionException e) {
+      log.with("uprns", keys.size()).error("Failed to read cached cases by UPRN", e);
+      throw new CTPException(Fault.SYSTEM_ERROR, e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      queries.forEach(q -> q.cancel(true));
+      throw new CTPException(Fault.SYSTEM_ERROR, e);
+    }
+    if (writeBehind != null) {
+      casesByUprn.replaceAll((uprn, cases) -> withPending(String.valueOf(uprn.getValue()), cases));
+    }
+    return casesByUprn;
+  }
+
+  @Override
+  public Optional<CachedCase> readCachedCaseById(
+      final UUID caseId, CachedCaseProjection projection) throws CTPException {
+    if (writeBehind != null) {
+      Optional<CachedCase> pending = writeBehind.pending(caseId.toString());
+      if (pending.isPresent()) {
+        return pending;
+      }
+    }
+    if (projection.isFull()) {
+      return cloudDataStore.retrieveObject(CachedCase.class, caseSchema, caseId.toString());
+    }
+    ApiFuture<DocumentSnapshot> lookup =
+        firestore
+            .collection(caseSchema)
+            .document(caseId.toString())
+            .get(FieldMask.of(projection.getFieldNames()));
+    DocumentSnapshot document = read(lookup, "caseId", caseId);
+    if (!document.exists()) {
+      return Optional.empty();
+    }
+    return Optional.ofNullable(document.toObject(CachedCase.class));
+  }
+
+  private void commitBatch(List<CachedCase> cases)
+      throws ExecutionException, InterruptedException {
+    CollectionReference collection = firestore.collection(caseSchema);
+    WriteBatch batch = firestore.batch();
+    cases.forEach(caze -> batch.set(collection.document(caze.getId()), caze));
+    batch.commit().get();
+  }
+
+  /**
+   * Add the cases for a UPRN which are waiting to be written behind to those read from Firestore,
+   * in place of any older copies which were read.
+   */
+  private List<CachedCase> withPending(String uprn, List<CachedCase> stored) {
+    List<CachedCase> pending = writeBehind == null ? List.of() : writeBehind.pendingForUprn(uprn);
+    if (pending.isEmpty()) {
+      return stored;
+    }
+    Set<String> pendingIds = pending.stream().map(CachedCase::getId).collect(toSet());
+    List<CachedCase> cases = new ArrayList<>(pending);
+    stored.stream().filter(caze -> !pendingIds.contains(caze.getId())).forEach(cases::add);
+    return cases;
+  }
+
+  /** @return true if Firestore failed a query because it has no index to serve it */
+  private static boolean isMissingIndex(Throwable failure) {
+    for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+      if (cause instanceof ApiException
+          && ((ApiException) cause).getStatusCode().getCode()
+              == StatusCode.Code.FAILED_PRECONDITION) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Wait for a projected read, which goes straight to Firestore as the cloud data store only reads
+   * whole objects.
+   */
+  private <T> T read(ApiFuture<T> lookup, String key, Object value) throws CTPException {
+    try {
+      return lookup.get();
+    } catch (ExecutionException e) {
+      log.with(key, value).error("Failed to read cached case", e);
+      throw new CTPException(Fault.SYSTEM_ERROR, e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      lookup.cancel(true);
+      throw new CTPException(Fault.SYSTEM_ERROR, e);
+    }
   }
 }
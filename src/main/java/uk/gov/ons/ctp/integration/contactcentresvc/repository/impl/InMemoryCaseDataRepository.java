@@ -0,0 +1,307 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.repository.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.godaddy.logging.Logger;
+import com.godaddy.logging.LoggerFactory;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import uk.gov.ons.ctp.common.domain.UniquePropertyReferenceNumber;
+import uk.gov.ons.ctp.common.error.CTPException;
+import uk.gov.ons.ctp.common.error.CTPException.Fault;
+import uk.gov.ons.ctp.common.jackson.CustomObjectMapper;
+import uk.gov.ons.ctp.integration.contactcentresvc.cloud.CachedCase;
+import uk.gov.ons.ctp.integration.contactcentresvc.repository.CachedCaseProjection;
+import uk.gov.ons.ctp.integration.contactcentresvc.repository.CaseDataRepository;
+
+/**
+ * Holds cached cases in memory instead of Firestore, for load testing on a laptop and for
+ * ephemeral environments. It is used in place of {@link CaseDataRepositoryImpl} when the <code>
+ * in-memory-cases</code> profile is active.
+ *
+ * <p>Each case is held as its JSON, indexed by id and by UPRN, so every read gets its own copy of a
+ * case just as it would from Firestore. Reads answer as the Firestore queries do: a projected read
+ * leaves out the case events, and the latest case for a UPRN is the newest of those with a
+ * createdDateTime. A case which can't be converted to or from JSON fails with a system error, as a
+ * failed Firestore call does. There are no transient failures, so nothing is retried.
+ *
+ * <p>If a snapshot path is configured, the cases are written to a memory-mapped snapshot file
+ * whenever they have changed, every <code>snapshot-seconds</code> and when the service stops. The
+ * cases are read back from the snapshot when the service starts. A snapshot which can't be read is
+ * moved aside, and the service starts with no cases.
+ */
+@Service
+@Profile(InMemoryCaseDataRepository.PROFILE)
+public class InMemoryCaseDataRepository implements CaseDataRepository {
+  private static final Logger log = LoggerFactory.getLogger(InMemoryCaseDataRepository.class);
+
+  public static final String PROFILE = "in-memory-cases";
+
+  private static final int SNAPSHOT_MAGIC = 0x43435331; // CCS1
+
+  @Value("${cloud-storage.in-memory.snapshot-path:}")
+  private String snapshotPath;
+
+  @Value("${cloud-storage.in-memory.snapshot-seconds:60}")
+  private long snapshotSeconds;
+
+  private final CustomObjectMapper mapper;
+
+  private final Map<String, byte[]> casesById = new ConcurrentHashMap<>();
+  private final Map<String, Set<String>> idsByUprn = new ConcurrentHashMap<>();
+  private final Map<String, String> uprnsById = new ConcurrentHashMap<>();
+  private final AtomicBoolean changed = new AtomicBoolean();
+  private ScheduledExecutorService snapshotter;
+
+  @Autowired
+  public InMemoryCaseDataRepository(CustomObjectMapper mapper) {
+    this.mapper = mapper;
+  }
+
+  @PostConstruct
+  void init() throws IOException {
+    if (snapshotPath == null || snapshotPath.isEmpty()) {
+      log.info("Cached cases are held in memory without snapshots");
+      return;
+    }
+    Path snapshot = Paths.get(snapshotPath);
+    if (Files.exists(snapshot)) {
+      try {
+        restore(snapshot);
+      } catch (IOException e) {
+        discard(snapshot, e);
+      }
+    }
+    snapshotter =
+        Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("case-snapshot-"));
+    snapshotter.scheduleWithFixedDelay(
+        this::snapshotIfChanged, snapshotSeconds, snapshotSeconds, TimeUnit.SECONDS);
+    log.with("snapshotPath", snapshotPath)
+        .with("cases", casesById.size())
+        .info("Cached cases are held in memory with snapshots");
+  }
+
+  @PreDestroy
+  void close() throws InterruptedException {
+    if (snapshotter == null) {
+      return;
+    }
+    snapshotter.shutdown();
+    snapshotter.awaitTermination(snapshotSeconds, TimeUnit.SECONDS);
+    snapshotIfChanged();
+  }
+
+  @Override
+  public void writeCachedCase(CachedCase caze) throws CTPException {
+    byte[] json;
+    try {
+      json = mapper.writeValueAsBytes(caze);
+    } catch (JsonProcessingException e) {
+      log.with("caseId", caze.getId()).error("Failed to write cached case", e);
+      throw new CTPException(Fault.SYSTEM_ERROR, e);
+    }
+    put(caze.getId(), caze.getUprn(), json);
+    changed.set(true);
+  }
+
+  @Override
+  public List<CachedCase> readCachedCasesByUprn(
+      UniquePropertyReferenceNumber uprn, CachedCaseProjection projection) throws CTPException {
+    String key = String.valueOf(uprn.getValue());
+    Set<String> ids = idsByUprn.get(key);
+    List<CachedCase> cases = new ArrayList<>();
+    if (ids != null) {
+      for (String id : ids) {
+        byte[] json = casesById.get(id);
+        if (json != null) {
+          cases.add(read(json, projection));
+        }
+      }
+    }
+    // Firestore returns documents in id order
+    cases.sort(Comparator.comparing(CachedCase::getId));
+    return cases;
+  }
+
+  @Override
+  public Optional<CachedCase> readLatestCachedCaseByUprn(
+      UniquePropertyReferenceNumber uprn, CachedCaseProjection projection) throws CTPException {
+    CachedCase latest = null;
+    for (CachedCase caze : readCachedCasesByUprn(uprn, projection)) {
+      if (caze.getCreatedDateTime() != null
+          && (latest == null || caze.getCreatedDateTime().after(latest.getCreatedDateTime()))) {
+        latest = caze;
+      }
+    }
+    return Optional.ofNullable(latest);
+  }
+
+  @Override
+  public Map<UniquePropertyReferenceNumber, List<CachedCase>> readCachedCasesByUprns(
+      Collection<UniquePropertyReferenceNumber> uprns, CachedCaseProjection projection)
+      throws CTPException {
+    Map<UniquePropertyReferenceNumber, List<CachedCase>> casesByUprn = new LinkedHashMap<>();
+    for (UniquePropertyReferenceNumber uprn : uprns) {
+      casesByUprn.put(uprn, readCachedCasesByUprn(uprn, projection));
+    }
+    return casesByUprn;
+  }
+
+  @Override
+  public Optional<CachedCase> readCachedCaseById(UUID caseId, CachedCaseProjection projection)
+      throws CTPException {
+    byte[] json = casesById.get(caseId.toString());
+    return json == null ? Optional.empty() : Optional.of(read(json, projection));
+  }
+
+  /** @return the number of cases held */
+  public int size() {
+    return casesById.size();
+  }
+
+  /**
+   * Hold a case, moving it in the UPRN index if it has a new UPRN. It is taken out of the index for
+   * its old UPRN before it is replaced, and put in the index for its new UPRN after, so that a read
+   * by either UPRN never finds the case with the other.
+   */
+  private synchronized void put(String id, String uprn, byte[] json) {
+    String oldUprn = uprn == null ? uprnsById.remove(id) : uprnsById.put(id, uprn);
+    if (oldUprn != null && !oldUprn.equals(uprn)) {
+      idsByUprn.computeIfPresent(
+          oldUprn,
+          (u, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+          });
+    }
+    casesById.put(id, json);
+    if (uprn != null) {
+      idsByUprn.computeIfAbsent(uprn, u -> ConcurrentHashMap.newKeySet()).add(id);
+    }
+  }
+
+  private CachedCase read(byte[] json, CachedCaseProjection projection) throws CTPException {
+    CachedCase caze;
+    try {
+      caze = mapper.readValue(json, CachedCase.class);
+    } catch (IOException e) {
+      log.error("Failed to read cached case", e);
+      throw new CTPException(Fault.SYSTEM_ERROR, e);
+    }
+    if (!projection.isFull()) {
+      // As a projected Firestore read, the case events are as a new case has them
+      caze.setCaseEvents(new CachedCase().getCaseEvents());
+    }
+    return caze;
+  }
+
+  private void snapshotIfChanged() {
+    if (!changed.getAndSet(false)) {
+      return;
+    }
+    try {
+      snapshot(Paths.get(snapshotPath));
+    } catch (IOException | RuntimeException e) {
+      changed.set(true);
+      log.with("snapshotPath", snapshotPath).error("Failed to snapshot cached cases", e);
+    }
+  }
+
+  /**
+   * Write every case to a new snapshot file, then move it over the old one. The file holds a magic
+   * number and the number of cases, followed by the length and JSON of each case.
+   */
+  void snapshot(Path snapshot) throws IOException {
+    List<byte[]> cases = new ArrayList<>(casesById.values());
+    long size = 2 * Integer.BYTES;
+    for (byte[] json : cases) {
+      size += Integer.BYTES + json.length;
+    }
+    if (size > Integer.MAX_VALUE) {
+      throw new IOException("Too many cached cases to snapshot: " + cases.size());
+    }
+
+    Path next = snapshot.resolveSibling(snapshot.getFileName() + ".next");
+    try (FileChannel channel =
+        FileChannel.open(
+            next,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+      buffer.putInt(SNAPSHOT_MAGIC);
+      buffer.putInt(cases.size());
+      for (byte[] json : cases) {
+        buffer.putInt(json.length);
+        buffer.put(json);
+      }
+      buffer.force();
+    }
+    Files.move(
+        next, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    log.with("cases", cases.size()).debug("Snapshot cached cases");
+  }
+
+  /** Start with no cases, keeping the snapshot which couldn't be read to look at later. */
+  private void discard(Path snapshot, IOException failure) {
+    casesById.clear();
+    idsByUprn.clear();
+    uprnsById.clear();
+    Path aside = snapshot.resolveSibling(snapshot.getFileName() + ".failed");
+    try {
+      Files.move(snapshot, aside, StandardCopyOption.REPLACE_EXISTING);
+      log.with("snapshotPath", snapshot)
+          .with("movedTo", aside)
+          .error("Failed to restore cached cases, starting with none", failure);
+    } catch (IOException e) {
+      log.with("snapshotPath", snapshot)
+          .error("Failed to restore cached cases or move the snapshot aside", failure);
+    }
+  }
+
+  void restore(Path snapshot) throws IOException {
+    try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.remaining() < 2 * Integer.BYTES || buffer.getInt() != SNAPSHOT_MAGIC) {
+        throw new IOException("Not a cached case snapshot: " + snapshot);
+      }
+      int count = buffer.getInt();
+      for (int i = 0; i < count; i++) {
+        byte[] json = new byte[buffer.getInt()];
+        buffer.get(json);
+        CachedCase caze = mapper.readValue(json, CachedCase.class);
+        put(caze.getId(), caze.getUprn(), json);
+      }
+      log.with("cases", count).with("snapshotPath", snapshot).info("Restored cached cases");
+    } catch (RuntimeException e) {
+      throw new IOException("Failed to restore cached cases from " + snapshot, e);
+    }
+  }
+}
@@ -0,0 +1,20 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.representation;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** The request body for creating a number of EQ launch URLs for a case at once. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LaunchBatchRequestDTO {
+
+  @NotNull private Integer agentId;
+
+  private Boolean individual = false;
+
+  @NotNull @Min(1) private Integer count;
+}
@@ -0,0 +1,23 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.representation;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One of a batch of EQ launch URLs. Either the questionnaire and the URL to launch it are given,
+ * or the error which prevented the launch.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LaunchBatchResultDTO {
+
+  private String questionnaireId;
+
+  private String launchUrl;
+
+  private String error;
+
+  private String message;
+}
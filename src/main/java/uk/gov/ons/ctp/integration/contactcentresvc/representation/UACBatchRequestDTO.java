@@ -0,0 +1,18 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.representation;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** The request body for getting a number of UACs for a case at once. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UACBatchRequestDTO {
+
+  private Boolean individual = false;
+
+  @NotNull @Min(1) private Integer count;
+}
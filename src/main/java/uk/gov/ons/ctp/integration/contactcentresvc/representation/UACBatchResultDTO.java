@@ -0,0 +1,23 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.representation;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One of a batch of UACs. Either the questionnaire and its UAC are given, or the error which
+ * prevented the UAC being got.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UACBatchResultDTO {
+
+  private String id;
+
+  private String uac;
+
+  private String error;
+
+  private String message;
+}
@@ -0,0 +1,20 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.representation;
+
+import java.util.List;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import uk.gov.ons.ctp.common.domain.UniquePropertyReferenceNumber;
+
+/** The request body for looking up the latest cases for a number of UPRNs at once. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UprnBatchRequestDTO {
+
+  @NotEmpty private List<@NotNull UniquePropertyReferenceNumber> uprns;
+
+  private Boolean caseEvents = false;
+}
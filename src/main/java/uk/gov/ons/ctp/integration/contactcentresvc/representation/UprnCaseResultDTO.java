@@ -0,0 +1,25 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.representation;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import uk.gov.ons.ctp.common.domain.UniquePropertyReferenceNumber;
+
+/**
+ * The outcome of looking up one UPRN in a batch. Either the cases are given, as they would be for
+ * a single lookup of the UPRN, or the error which prevented the UPRN being resolved.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UprnCaseResultDTO {
+
+  private UniquePropertyReferenceNumber uprn;
+
+  private List<CaseDTO> cases;
+
+  private String error;
+
+  private String message;
+}
@@ -8,6 +8,8 @@ import uk.gov.ons.ctp.common.error.CTPException;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.CaseDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.CaseQueryRequestDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.InvalidateCaseRequestDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.LaunchBatchRequestDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.LaunchBatchResultDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.LaunchRequestDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.ModifyCaseRequestDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.NewCaseRequestDTO;
@@ -15,8 +17,12 @@ import uk.gov.ons.ctp.integration.contactcentresvc.representation.PostalFulfilme
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.RefusalRequestDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.ResponseDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.SMSFulfilmentRequestDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.UACBatchRequestDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.UACBatchResultDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.UACRequestDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.UACResponseDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.UprnBatchRequestDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.UprnCaseResultDTO;
 
 /** Service responsible for dealing with Cases */
 public interface CaseService {
@@ -39,6 +45,18 @@ public interface CaseService {
       final UniquePropertyReferenceNumber uprn, CaseQueryRequestDTO requestParamsDTO)
       throws CTPException;
 
+  /**
+   * Return the latest case for each of a number of UPRNs, as {@link
+   * #getCaseByUPRN(UniquePropertyReferenceNumber, CaseQueryRequestDTO)} would for each UPRN alone.
+   * The UPRNs are resolved concurrently, and a failure to resolve one UPRN is reported in its
+   * result rather than failing the whole batch.
+   *
+   * @param batchRequest the UPRNs, and whether case events are wanted
+   * @return a result for each distinct UPRN, in the order requested
+   * @throws CTPException if the batch is too large, or our cached cases could not be read
+   */
+  List<UprnCaseResultDTO> getCasesByUPRNs(UprnBatchRequestDTO batchRequest) throws CTPException;
+
   CaseDTO getCaseByCaseReference(final long caseRef, CaseQueryRequestDTO requestParamsDTO)
       throws CTPException;
 
@@ -47,8 +65,35 @@ public interface CaseService {
   String getLaunchURLForCaseId(final UUID caseId, LaunchRequestDTO requestParamsDTO)
       throws CTPException;
 
+  /**
+   * Create a number of EQ launch URLs for a case at once, as a CE manager launching questionnaires
+   * for the residents of an establishment would. The case is fetched once, the questionnaire IDs
+   * are requested from RM concurrently, and the SURVEY_LAUNCHED events are sent together. A failure
+   * to create one launch URL is reported in its result rather than failing the whole batch.
+   *
+   * @param caseId the case to launch questionnaires for
+   * @param batchRequest the agent, how many launches, and whether they are for individuals
+   * @return a result for each launch
+   * @throws CTPException if the batch is too large, or the case can't be launched
+   */
+  List<LaunchBatchResultDTO> getLaunchURLsForCaseId(UUID caseId, LaunchBatchRequestDTO batchRequest)
+      throws CTPException;
+
   UACResponseDTO getUACForCaseId(UUID caseId, UACRequestDTO requestParamsDTO) throws CTPException;
 
+  /**
+   * Get a number of UACs for a case at once. The case is fetched once, and the questionnaire IDs
+   * are requested from RM concurrently. A failure to get one UAC is reported in its result rather
+   * than failing the whole batch.
+   *
+   * @param caseId the case to get UACs for
+   * @param batchRequest how many UACs, and whether they are for individuals
+   * @return a result for each UAC
+   * @throws CTPException if the batch is too large, or the case can't be found
+   */
+  List<UACBatchResultDTO> getUACsForCaseId(UUID caseId, UACBatchRequestDTO batchRequest)
+      throws CTPException;
+
   ResponseDTO invalidateCase(InvalidateCaseRequestDTO invalidateCaseRequestDTO) throws CTPException;
 
   ResponseDTO fulfilmentRequestByPost(PostalFulfilmentRequestDTO requestBodyDTO)
@@ -1,24 +1,17 @@
 package uk.gov.ons.ctp.integration.contactcentresvc.service.impl;
 
-import static java.util.stream.Collectors.toList;
-
 import com.godaddy.logging.Logger;
 import com.godaddy.logging.LoggerFactory;
 import java.util.ArrayList;
-import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.server.ResponseStatusException;
-import uk.gov.ons.ctp.common.domain.AddressType;
-import uk.gov.ons.ctp.common.domain.EstabType;
 import uk.gov.ons.ctp.common.error.CTPException;
-import uk.gov.ons.ctp.common.util.StringUtils;
 import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.AddressServiceClientServiceImpl;
 import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.model.AddressIndexAddressCompositeDTO;
-import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.model.AddressIndexAddressDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.model.AddressIndexSearchResultsCompositeDTO;
-import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.model.AddressIndexSearchResultsDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.model.AddressIndexSummaryResultsDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.AddressDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.AddressQueryRequestDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.AddressQueryResponseDTO;
@@ -33,7 +26,6 @@ import uk.gov.ons.ctp.integration.contactcentresvc.service.AddressService;
 @Validated()
 public class AddressServiceImpl implements AddressService {
   private static final Logger log = LoggerFactory.getLogger(AddressServiceImpl.class);
-  private static final String HISTORICAL_ADDRESS_STATUS = "8";
 
   @Autowired private AddressServiceClientServiceImpl addressServiceClient;
 
@@ -44,7 +36,7 @@ public class AddressServiceImpl implements AddressService {
     }
 
     // Delegate the query to Address Index
-    AddressIndexSearchResultsDTO addressIndexResponse =
+    AddressIndexSummaryResultsDTO addressIndexResponse =
         addressServiceClient.searchByAddress(addressQueryRequest);
 
     // Summarise the returned addresses
@@ -65,7 +57,7 @@ public class AddressServiceImpl implements AddressService {
     }
 
     // Delegate the query to Address Index
-    AddressIndexSearchResultsDTO addressIndexResponse =
+    AddressIndexSummaryResultsDTO addressIndexResponse =
         addressServiceClient.searchByPostcode(postcodeQueryRequest);
 
     // Summarise the returned addresses
@@ -117,76 +109,17 @@ public class AddressServiceImpl implements AddressService {
     }
   }
 
-  private AddressDTO convertToSummarised(AddressIndexAddressDTO fullAddress) {
-    String formattedAddress = fullAddress.getFormattedAddress();
-    String addressPaf = fullAddress.getFormattedAddressPaf();
-    String addressNag = fullAddress.getFormattedAddressNag();
-    String welshAddressPaf = fullAddress.getWelshFormattedAddressPaf();
-    String welshAddressNag = fullAddress.getWelshFormattedAddressNag();
-    String estabDescription = fullAddress.getCensus().getEstabType();
-
-    AddressDTO addressSummary = new AddressDTO();
-    addressSummary.setUprn(fullAddress.getUprn());
-    addressSummary.setRegion(fullAddress.getCensus().getCountryCode());
-    addressSummary.setAddressType(fullAddress.getCensus().getAddressType());
-    addressSummary.setEstabType(EstabType.forCode(estabDescription).name());
-    addressSummary.setEstabDescription(estabDescription);
-    addressSummary.setFormattedAddress(
-        StringUtils.selectFirstNonBlankString(addressPaf, addressNag, formattedAddress));
-    addressSummary.setWelshFormattedAddress(
-        StringUtils.selectFirstNonBlankString(welshAddressPaf, welshAddressNag, formattedAddress));
-    return addressSummary;
-  }
-
-  /**
-   * Determine whether an address returned from AIMS is historical.
-   *
-   * <p>In reality, we should never get historical addresses from AIMS. However since it is so
-   * important not to return historical addresses, we accept the pagination breakage to filter out
-   * any that we find. The theory is that logging errors will notify operations to fix AIMS if it is
-   * not honouring the historical=false query parameter, and the service will be rectified as a
-   * result.
-   *
-   * <p>See CR-976.
-   *
-   * @param dto the address from AIMS
-   * @return true if historical; false otherwise.
-   */
-  private boolean isHistorical(AddressIndexAddressDTO dto) {
-    boolean historical = HISTORICAL_ADDRESS_STATUS.equals(dto.getLpiLogicalStatus());
-    if (historical) {
-      log.with("uprn", dto.getUprn())
-          .with("formattedAddress", dto.getFormattedAddress())
-          .error("Unexpected historical address returned from AIMS");
-    }
-    return historical;
-  }
-
   private AddressQueryResponseDTO convertAddressIndexResultsToSummarisedAdresses(
-      AddressIndexSearchResultsDTO addressIndexResponse) {
-    List<AddressDTO> summarisedAddresses =
-        addressIndexResponse.getResponse().getAddresses().stream()
-            .filter(a -> !isHistorical(a))
-            .map(this::convertToSummarised)
-            .collect(toList());
-
-    // Allow Serco to handle NA addresses by reclassifying as HH
-    for (AddressDTO address : summarisedAddresses) {
-      String addressType = address.getAddressType();
-      if (addressType != null && addressType.equals("NA")) {
-        log.with("uprn", address.getUprn()).debug("Reclassifying NA address as HH");
-        address.setAddressType(AddressType.HH.name());
-        address.setEstabType(EstabType.HOUSEHOLD.name());
-        address.setEstabDescription("Household");
-      }
-    }
+      AddressIndexSummaryResultsDTO addressIndexResponse) {
+    // The addresses were summarised, and historical addresses dropped, as they were read from AIMS
+    ArrayList<AddressDTO> summarisedAddresses = addressIndexResponse.getAddresses();
 
     // Complete construction of response objects
     AddressQueryResponseDTO queryResponse = new AddressQueryResponseDTO();
     queryResponse.setDataVersion(addressIndexResponse.getDataVersion());
     queryResponse.setAddresses(new ArrayList<>(summarisedAddresses));
 
-    int total = addressIndexResponse.getResponse().getTotal();
+    int total = addressIndexResponse.getTotal();
     int arraySize = summarisedAddresses.size();
 
     // UPRN search has no JSON total attribute as only one or zero
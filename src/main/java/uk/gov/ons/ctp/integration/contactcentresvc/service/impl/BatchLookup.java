@@ -0,0 +1,106 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.service.impl;
+
+import com.godaddy.logging.Logger;
+import com.godaddy.logging.LoggerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import uk.gov.ons.ctp.common.error.CTPException;
+import uk.gov.ons.ctp.common.error.CTPException.Fault;
+import uk.gov.ons.ctp.integration.contactcentresvc.trace.RequestTrace;
+
+/**
+ * Runs the calls for the items of one batch request on the batch executor, no more than a set
+ * number at a time. The batch executor is kept apart from the lookup executor, so that an item may
+ * itself start lookups without waiting on the pool which is running it.
+ *
+ * <p>Each item fails on its own: an item which can't get a turn before its deadline fails with a
+ * GATEWAY_TIMEOUT, and one turned away by a full batch executor with a SERVICE_UNAVAILABLE. Closing
+ * the batch cancels any item still running, so a failed request leaves nothing behind it.
+ */
+final class BatchLookup implements AutoCloseable {
+  private static final Logger log = LoggerFactory.getLogger(BatchLookup.class);
+
+  private final ExecutorService executor;
+  private final Semaphore permits;
+  private final List<Future<?>> started = new ArrayList<>();
+
+  /**
+   * Constructor.
+   *
+   * @param executor to run the items on
+   * @param concurrency the most items of the batch to run at once
+   */
+  BatchLookup(ExecutorService executor, int concurrency) {
+    this.executor = executor;
+    this.permits = new Semaphore(Math.max(1, concurrency));
+  }
+
+  /**
+   * Start the call for an item, once fewer than the permitted number are in flight.
+   *
+   * @param <T> the type of the item result
+   * @param lookup the call for the item
+   * @param deadlineNanos the deadline for the item, as calculated by {@link
+   *     ConcurrentLookup#deadline(long)}
+   * @param source name of the source being called, for logging
+   * @return the future result of the item
+   * @throws CTPException if the request was interrupted while waiting for a turn
+   */
+  <T> Future<T> start(ConcurrentLookup.Lookup<T> lookup, long deadlineNanos, String source)
+      throws CTPException {
+    Future<T> item;
+    try {
+      long remainingNanos = Math.max(0L, deadlineNanos - System.nanoTime());
+      if (permits.tryAcquire(remainingNanos, TimeUnit.NANOSECONDS)) {
+        item = run(lookup, source);
+      } else {
+        log.with("source", source).warn("Batch item did not start within its deadline");
+        item =
+            CompletableFuture.failedFuture(
+                new ResponseStatusException(
+                    HttpStatus.GATEWAY_TIMEOUT, source + " lookup did not start in time"));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CTPException(Fault.SYSTEM_ERROR, e);
+    }
+    started.add(item);
+    return item;
+  }
+
+  private <T> Future<T> run(ConcurrentLookup.Lookup<T> lookup, String source) {
+    // done() runs once however the item ends, including when it is cancelled before it has run
+    FutureTask<T> item =
+        new FutureTask<>(RequestTrace.propagate(lookup)) {
+          @Override
+          protected void done() {
+            permits.release();
+          }
+        };
+    try {
+      executor.execute(item);
+      return item;
+    } catch (RejectedExecutionException e) {
+      permits.release();
+      log.with("source", source).warn("Batch executor is full");
+      return CompletableFuture.failedFuture(
+          new ResponseStatusException(
+              HttpStatus.SERVICE_UNAVAILABLE, source + " lookup could not be started"));
+    }
+  }
+
+  /** Cancel every item which is still running. */
+  @Override
+  public void close() {
+    started.forEach(item -> item.cancel(true));
+  }
+}
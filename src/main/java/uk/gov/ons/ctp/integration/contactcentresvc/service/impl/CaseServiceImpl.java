@@ -1,25 +1,37 @@
 package uk.gov.ons.ctp.integration.contactcentresvc.service.impl;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.stream.Collectors.toList;
+import static uk.gov.ons.ctp.integration.contactcentresvc.client.DownstreamTimers.AIMS;
+import static uk.gov.ons.ctp.integration.contactcentresvc.client.DownstreamTimers.FIRESTORE;
+import static uk.gov.ons.ctp.integration.contactcentresvc.client.DownstreamTimers.PGP;
+import static uk.gov.ons.ctp.integration.contactcentresvc.client.DownstreamTimers.RABBIT;
+import static uk.gov.ons.ctp.integration.contactcentresvc.client.DownstreamTimers.RM;
 
 import com.godaddy.logging.Logger;
 import com.godaddy.logging.LoggerFactory;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import javax.inject.Inject;
 import ma.glasnost.orika.MapperFacade;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.validator.routines.checkdigit.LuhnCheckDigit;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.core.io.Resource;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.util.LinkedMultiValueMap;
@@ -31,7 +43,6 @@ import uk.gov.ons.ctp.common.domain.AddressType;
 import uk.gov.ons.ctp.common.domain.CaseType;
 import uk.gov.ons.ctp.common.domain.EstabType;
 import uk.gov.ons.ctp.common.domain.FormType;
-import uk.gov.ons.ctp.common.domain.Language;
 import uk.gov.ons.ctp.common.domain.UniquePropertyReferenceNumber;
 import uk.gov.ons.ctp.common.error.CTPException;
 import uk.gov.ons.ctp.common.error.CTPException.Fault;
@@ -65,16 +76,25 @@ import uk.gov.ons.ctp.integration.common.product.model.Product.Region;
 import uk.gov.ons.ctp.integration.contactcentresvc.BlacklistedUPRNBean;
 import uk.gov.ons.ctp.integration.contactcentresvc.CCSPostcodesBean;
 import uk.gov.ons.ctp.integration.contactcentresvc.CCSvcBeanMapper;
+import uk.gov.ons.ctp.integration.contactcentresvc.cache.RmCaseCache;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.DownstreamLimits;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.DownstreamTimers;
 import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.model.AddressIndexAddressCompositeDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.model.AddressIndexAddressDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.model.AddressIndexSearchResultsDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.caseservice.CaseServiceAsyncClient;
 import uk.gov.ons.ctp.integration.contactcentresvc.cloud.CachedCase;
 import uk.gov.ons.ctp.integration.contactcentresvc.config.AppConfig;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.LookupSettings;
+import uk.gov.ons.ctp.integration.contactcentresvc.event.EventOutbox;
+import uk.gov.ons.ctp.integration.contactcentresvc.repository.CachedCaseProjection;
 import uk.gov.ons.ctp.integration.contactcentresvc.repository.CaseDataRepository;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.CaseDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.CaseQueryRequestDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.DeliveryChannel;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.InvalidateCaseRequestDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.LaunchBatchRequestDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.LaunchBatchResultDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.LaunchRequestDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.ModifyCaseRequestDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.NewCaseRequestDTO;
@@ -83,13 +103,16 @@ import uk.gov.ons.ctp.integration.contactcentresvc.representation.Reason;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.RefusalRequestDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.ResponseDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.SMSFulfilmentRequestDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.UACBatchRequestDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.UACBatchResultDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.UACRequestDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.UACResponseDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.UprnBatchRequestDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.UprnCaseResultDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.service.AddressService;
 import uk.gov.ons.ctp.integration.contactcentresvc.service.CaseService;
 import uk.gov.ons.ctp.integration.contactcentresvc.util.PgpEncrypt;
-import uk.gov.ons.ctp.integration.eqlaunch.service.EqLaunchData;
-import uk.gov.ons.ctp.integration.eqlaunch.service.EqLaunchService;
+import uk.gov.ons.ctp.integration.contactcentresvc.util.PgpPublicKeys;
 
 @Service
 public class CaseServiceImpl implements CaseService {
@@ -114,11 +137,21 @@ public class CaseServiceImpl implements CaseService {
 
   @Autowired private CaseServiceClientServiceImpl caseServiceClient;
 
+  @Autowired private RmCaseCache rmCaseCache;
+
+  @Autowired private DownstreamLimits downstreamLimits;
+
+  @Autowired private DownstreamTimers downstreamTimers;
+
+  // Only present when async HTTP is enabled
+  @Autowired(required = false)
+  private CaseServiceAsyncClient caseServiceAsyncClient;
+
   @Autowired private ProductReference productReference;
 
   private MapperFacade caseDTOMapper = new CCSvcBeanMapper();
 
-  @Autowired private EqLaunchService eqLaunchService;
+  @Autowired private LaunchTokenEngine launchTokenEngine;
 
   @Autowired private CaseDataRepository dataRepo;
 
@@ -126,14 +159,32 @@ public class CaseServiceImpl implements CaseService {
 
   @Autowired private EventPublisher eventPublisher;
 
+  @Autowired private EventOutbox eventOutbox;
+
   @Autowired private CCSPostcodesBean ccsPostcodesBean;
 
   @Autowired private BlacklistedUPRNBean blacklistedUPRNBean;
 
+  @Autowired private PgpPublicKeys pgpPublicKeys;
+
   @Inject
   @Qualifier("addressIndexClient")
   private RestClient addressIndexClient;
 
+  @Inject
+  @Qualifier("lookupExecutor")
+  private ExecutorService lookupExecutor;
+
+  @Inject
+  @Qualifier("batchExecutor")
+  private ExecutorService batchExecutor;
+
+  @Inject
+  @Qualifier("launchExecutor")
+  private ExecutorService launchExecutor;
+
+  @Autowired private RabbitTemplate rabbitTemplate;
+
   private LuhnCheckDigit luhnChecker = new LuhnCheckDigit();
 
   public ResponseDTO fulfilmentRequestByPost(PostalFulfilmentRequestDTO requestBodyDTO)
@@ -238,7 +289,8 @@ public class CaseServiceImpl implements CaseService {
     cachedCase.setAddressType(addressType);
     cachedCase.setCreatedDateTime(DateTimeUtil.nowUTC());
 
-    dataRepo.writeCachedCase(cachedCase);
+    downstreamTimers.run(FIRESTORE, "writeCachedCase", () -> dataRepo.writeCachedCase(cachedCase));
+    rmCaseCache.invalidateUprn(cachedCase.getUprn());
 
     // Publish NewAddress event
     AddressIndexAddressCompositeDTO address =
@@ -279,6 +331,11 @@ public class CaseServiceImpl implements CaseService {
       log.with("uprn", uprn).debug("Fetching latest case details by UPRN");
     }
 
+    if (appConfig.getLookupSettings().isConcurrent()) {
+      return Collections.singletonList(
+          resolveCaseByUprnConcurrently(uprn, requestParamsDTO.getCaseEvents()));
+    }
+
     Optional<CaseDTO> latest = getLatestCaseByUprn(uprn, requestParamsDTO.getCaseEvents());
 
     CaseDTO response;
@@ -297,6 +354,187 @@ public class CaseServiceImpl implements CaseService {
     return Collections.singletonList(response);
   }
 
+  @Override
+  public List<UprnCaseResultDTO> getCasesByUPRNs(UprnBatchRequestDTO batchRequest)
+      throws CTPException {
+    LookupSettings lookupSettings = appConfig.getLookupSettings();
+    Set<UniquePropertyReferenceNumber> uprns = new LinkedHashSet<>(batchRequest.getUprns());
+    if (uprns.size() > lookupSettings.getBatchMaxUprns()) {
+      log.with("uprns", uprns.size()).info("Too many UPRNs in batch lookup");
+      throw new CTPException(
+          Fault.BAD_REQUEST,
+          "No more than %s UPRNs can be looked up at once",
+          lookupSettings.getBatchMaxUprns());
+    }
+    boolean addCaseEvents = Boolean.TRUE.equals(batchRequest.getCaseEvents());
+    if (log.isDebugEnabled()) {
+      log.with("uprns", uprns.size()).debug("Fetching latest case details for batch of UPRNs");
+    }
+
+    // Read our cached cases for all the UPRNs in one go, while RM is queried for each UPRN
+    int concurrency = lookupSettings.getBatchConcurrency();
+    long rounds = (uprns.size() + concurrency - 1) / concurrency;
+    long cacheDeadline = ConcurrentLookup.deadline(lookupSettings.getCacheTimeoutMillis());
+    long rmDeadline = ConcurrentLookup.deadline(rounds * lookupSettings.getRmTimeoutMillis());
+    Future<Map<UniquePropertyReferenceNumber, List<CachedCase>>> cacheLookup =
+        ConcurrentLookup.start(
+            lookupExecutor,
+            () ->
+                downstreamTimers.record(
+                    FIRESTORE,
+                    "readCachedCasesByUprns",
+                    () ->
+                        dataRepo.readCachedCasesByUprns(
+                            uprns, CachedCaseProjection.forCaseEvents(addCaseEvents))));
+    try (BatchLookup batch = new BatchLookup(batchExecutor, concurrency)) {
+      Map<UniquePropertyReferenceNumber, Future<List<CaseDTO>>> rmLookups = new LinkedHashMap<>();
+      Map<UniquePropertyReferenceNumber, List<CachedCase>> cachedCases;
+      try {
+        for (UniquePropertyReferenceNumber uprn : uprns) {
+          rmLookups.put(
+              uprn,
+              batch.start(() -> findRmCasesByUprn(uprn, addCaseEvents), rmDeadline, "RM"));
+        }
+        cachedCases = ConcurrentLookup.await(cacheLookup, cacheDeadline, "Firestore");
+      } finally {
+        cacheLookup.cancel(true);
+      }
+
+      // Pick the latest case for each UPRN, and create new cases for any UPRN without one
+      long aimsDeadline =
+          ConcurrentLookup.deadline(rounds * lookupSettings.getAimsTimeoutMillis());
+      Map<UniquePropertyReferenceNumber, UprnCaseResultDTO> results = new LinkedHashMap<>();
+      Map<UniquePropertyReferenceNumber, Future<CachedCase>> newCases = new LinkedHashMap<>();
+      for (UniquePropertyReferenceNumber uprn : uprns) {
+        try {
+          TimeOrderedCases timeOrderedCases = new TimeOrderedCases();
+          timeOrderedCases.add(ConcurrentLookup.await(rmLookups.get(uprn), rmDeadline, "RM"));
+          timeOrderedCases.add(
+              cachedCases.getOrDefault(uprn, Collections.emptyList()).stream()
+                  .map(cc -> createNewCachedCaseResponse(cc, addCaseEvents))
+                  .collect(toList()));
+          Optional<CaseDTO> latest = timeOrderedCases.latest();
+          if (latest.isPresent()) {
+            results.put(uprn, batchResult(uprn, latest.get()));
+          } else {
+            results.put(uprn, null);
+            newCases.put(
+                uprn,
+                batch.start(() -> createNewCachedCase(uprn.getValue()), aimsDeadline, "AIMS"));
+          }
+        } catch (CTPException | RuntimeException e) {
+          results.put(uprn, batchFailure(uprn, e));
+        }
+      }
+
+      for (Map.Entry<UniquePropertyReferenceNumber, Future<CachedCase>> newCase :
+          newCases.entrySet()) {
+        UniquePropertyReferenceNumber uprn = newCase.getKey();
+        try {
+          CachedCase cachedCase = ConcurrentLookup.await(newCase.getValue(), aimsDeadline, "AIMS");
+          results.put(uprn, batchResult(uprn, createNewCachedCaseResponse(cachedCase, false)));
+        } catch (CTPException | RuntimeException e) {
+          results.put(uprn, batchFailure(uprn, e));
+        }
+      }
+      return new ArrayList<>(results.values());
+    }
+  }
+
+  private UprnCaseResultDTO batchResult(UniquePropertyReferenceNumber uprn, CaseDTO caze) {
+    return new UprnCaseResultDTO(uprn, Collections.singletonList(caze), null, null);
+  }
+
+  private UprnCaseResultDTO batchFailure(UniquePropertyReferenceNumber uprn, Exception e) {
+    String error = batchError(e);
+    if (e instanceof CTPException || e instanceof ResponseStatusException) {
+      log.with("uprn", uprn).with("error", error).warn("Failed to resolve UPRN in batch lookup");
+    } else {
+      log.with("uprn", uprn).error("Failed to resolve UPRN in batch lookup", e);
+    }
+    return new UprnCaseResultDTO(uprn, null, error, batchMessage(e));
+  }
+
+  /**
+   * @return the fault of a CTPException, the status of a ResponseStatusException, or a system error
+   *     for anything else
+   */
+  private static String batchError(Exception e) {
+    if (e instanceof CTPException) {
+      return ((CTPException) e).getFault().name();
+    }
+    if (e instanceof ResponseStatusException) {
+      return ((ResponseStatusException) e).getStatus().name();
+    }
+    return Fault.SYSTEM_ERROR.name();
+  }
+
+  private static String batchMessage(Exception e) {
+    if (e instanceof CTPException) {
+      return e.getMessage();
+    }
+    if (e instanceof ResponseStatusException) {
+      return ((ResponseStatusException) e).getReason();
+    }
+    return "Unexpected failure";
+  }
+
+  private BatchLookup newBatch() {
+    return new BatchLookup(batchExecutor, appConfig.getLookupSettings().getBatchConcurrency());
+  }
+
+  /** @return the deadline for a number of calls made a batch at a time */
+  private long batchDeadline(int calls, long timeoutMillis) {
+    int concurrency = appConfig.getLookupSettings().getBatchConcurrency();
+    long rounds = (calls + concurrency - 1) / concurrency;
+    return ConcurrentLookup.deadline(rounds * timeoutMillis);
+  }
+
+  private void rejectIfTooManyLaunches(int count) throws CTPException {
+    int maxLaunches = appConfig.getLookupSettings().getBatchMaxLaunches();
+    if (count > maxLaunches) {
+      log.with("count", count).info("Too many launches in batch");
+      throw new CTPException(
+          Fault.BAD_REQUEST, "No more than %s launches can be made at once", maxLaunches);
+    }
+  }
+
+  /**
+   * The case to launch each of a batch of questionnaires for. An individual launch for a household
+   * gives the launch a new case of its own, so each individual launch has its own copy of the case.
+   */
+  private List<CaseContainerDTO> launchCases(
+      CaseContainerDTO caseDetails, boolean individual, int count) {
+    List<CaseContainerDTO> launchCases = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      launchCases.add(
+          individual ? caseDTOMapper.map(caseDetails, CaseContainerDTO.class) : caseDetails);
+    }
+    return launchCases;
+  }
+
+  /**
+   * Create the launch URL for a launch in a batch which RM has given a new questionnaire ID. A
+   * launch which fails keeps the questionnaire ID in its result.
+   */
+  private LaunchBatchResultDTO launchInBatch(
+      CaseContainerDTO launchCase, SingleUseQuestionnaireIdDTO newQid, int agentId) {
+    try {
+      String launchUrl =
+          launchTokenEngine.launchUrl(
+              newQid.getFormType(), launchCase, agentId, newQid.getQuestionnaireId());
+      return new LaunchBatchResultDTO(newQid.getQuestionnaireId(), launchUrl, null, null);
+    } catch (CTPException | RuntimeException e) {
+      logLaunchFailure(launchCase.getId(), e);
+      return new LaunchBatchResultDTO(
+          newQid.getQuestionnaireId(), null, batchError(e), batchMessage(e));
+    }
+  }
+
+  private void logLaunchFailure(UUID caseId, Exception e) {
+    log.with("caseId", caseId).with("error", batchError(e)).warn("Failed launch in batch");
+  }
+
   @Override
   public List<CaseDTO> getCCSCaseByPostcode(String postcode) throws CTPException {
     if (log.isDebugEnabled()) {
@@ -397,6 +635,7 @@ public class CaseServiceImpl implements CaseService {
       rejectNorthernIrelandHouseholdToCE(requestedCaseType, caseDetails);
       caseId = UUID.randomUUID();
       sendAddressTypeChangedEvent(caseId, originalCaseId, modifyRequestDTO);
+      rmCaseCache.invalidate(originalCaseId, caseDetails.getCaseRef(), caseDetails.getUprn());
       caseRef = null;
     } else {
       sendAddressModifiedEvent(originalCaseId, modifyRequestDTO, caseDetails);
@@ -446,18 +685,7 @@ public class CaseServiceImpl implements CaseService {
     }
 
     CaseContainerDTO caseDetails = getLaunchCase(caseId);
-
-    // Exit if the survey type is on the disabled list
-    Set<String> disabledSurveyTypes = appConfig.getTelephoneCapture().getDisabled();
-    for (String rawDisabledSurveyType : disabledSurveyTypes) {
-      String disabledSurveyType = rawDisabledSurveyType.trim().toUpperCase();
-      String caseSurveyType = caseDetails.getSurveyType().trim().toUpperCase();
-      if (caseSurveyType.contentEquals(disabledSurveyType)) {
-        throw new CTPException(
-            Fault.ACCEPTED_UNABLE_TO_PROCESS,
-            "The " + caseSurveyType + " Survey related to this case has been closed");
-      }
-    }
+    rejectIfSurveyDisabled(caseDetails);
 
     SingleUseQuestionnaireIdDTO newQuestionnaireIdDto =
         getNewQidForCase(caseDetails, requestParamsDTO.getIndividual());
@@ -491,6 +719,110 @@ public class CaseServiceImpl implements CaseService {
         .build();
   }
 
+  @Override
+  public List<LaunchBatchResultDTO> getLaunchURLsForCaseId(
+      UUID caseId, LaunchBatchRequestDTO batchRequest) throws CTPException {
+    int count = batchRequest.getCount();
+    rejectIfTooManyLaunches(count);
+    if (log.isDebugEnabled()) {
+      log.with("caseId", caseId)
+          .with("request", batchRequest)
+          .debug("Processing request to create batch of launch URLs");
+    }
+
+    CaseContainerDTO caseDetails = getLaunchCase(caseId);
+    rejectIfSurveyDisabled(caseDetails);
+    boolean individual = Boolean.TRUE.equals(batchRequest.getIndividual());
+    int agentId = batchRequest.getAgentId();
+
+    // Each launch gets its questionnaire ID from RM as a batch item. Its launch URL is then created
+    // on the launch pool, which is sized for the CPU bound work of encrypting the launch token.
+    List<CaseContainerDTO> launchCases = launchCases(caseDetails, individual, count);
+    long rmDeadline = batchDeadline(count, appConfig.getLookupSettings().getRmTimeoutMillis());
+    List<LaunchBatchResultDTO> results = new ArrayList<>(count);
+    List<SurveyLaunchedResponse> launched = new ArrayList<>(count);
+    try (BatchLookup batch = newBatch()) {
+      List<Future<SingleUseQuestionnaireIdDTO>> newQids = new ArrayList<>(count);
+      for (CaseContainerDTO launchCase : launchCases) {
+        newQids.add(batch.start(() -> getNewQidForCase(launchCase, individual), rmDeadline, "RM"));
+      }
+      List<Future<LaunchBatchResultDTO>> launches = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        CaseContainerDTO launchCase = launchCases.get(i);
+        try {
+          SingleUseQuestionnaireIdDTO newQid =
+              ConcurrentLookup.await(newQids.get(i), rmDeadline, "RM");
+          launches.add(
+              ConcurrentLookup.start(
+                  launchExecutor, () -> launchInBatch(launchCase, newQid, agentId)));
+        } catch (CTPException | RuntimeException e) {
+          logLaunchFailure(caseId, e);
+          launches.add(
+              CompletableFuture.completedFuture(
+                  new LaunchBatchResultDTO(null, null, batchError(e), batchMessage(e))));
+        }
+      }
+      for (int i = 0; i < count; i++) {
+        LaunchBatchResultDTO result;
+        try {
+          result = ConcurrentLookup.await(launches.get(i), rmDeadline, "EQ");
+        } catch (CTPException | RuntimeException e) {
+          result = new LaunchBatchResultDTO(null, null, batchError(e), batchMessage(e));
+          logLaunchFailure(caseId, e);
+        }
+        results.add(result);
+        if (result.getLaunchUrl() != null) {
+          launched.add(
+              surveyLaunched(launchCases.get(i).getId(), result.getQuestionnaireId(), agentId));
+        }
+      }
+    }
+
+    if (!launched.isEmpty()) {
+      log.with("caseId", caseId)
+          .with("agentId", agentId)
+          .with("launched", launched.size())
+          .info("Generating batch of SurveyLaunched events");
+      sendEvents(EventType.SURVEY_LAUNCHED, launched, caseId);
+    }
+    return results;
+  }
+
+  @Override
+  public List<UACBatchResultDTO> getUACsForCaseId(UUID caseId, UACBatchRequestDTO batchRequest)
+      throws CTPException {
+    int count = batchRequest.getCount();
+    rejectIfTooManyLaunches(count);
+    if (log.isDebugEnabled()) {
+      log.with("caseId", caseId)
+          .with("request", batchRequest)
+          .debug("Processing request to get batch of UACs for Case");
+    }
+
+    CaseContainerDTO caseDetails = getLaunchCase(caseId);
+    boolean individual = Boolean.TRUE.equals(batchRequest.getIndividual());
+
+    List<CaseContainerDTO> launchCases = launchCases(caseDetails, individual, count);
+    long rmDeadline = batchDeadline(count, appConfig.getLookupSettings().getRmTimeoutMillis());
+    List<UACBatchResultDTO> results = new ArrayList<>(count);
+    try (BatchLookup batch = newBatch()) {
+      List<Future<SingleUseQuestionnaireIdDTO>> newQids = new ArrayList<>(count);
+      for (CaseContainerDTO launchCase : launchCases) {
+        newQids.add(batch.start(() -> getNewQidForCase(launchCase, individual), rmDeadline, "RM"));
+      }
+      for (Future<SingleUseQuestionnaireIdDTO> newQid : newQids) {
+        try {
+          SingleUseQuestionnaireIdDTO qid = ConcurrentLookup.await(newQid, rmDeadline, "RM");
+          results.add(new UACBatchResultDTO(qid.getQuestionnaireId(), qid.getUac(), null, null));
+        } catch (CTPException | RuntimeException e) {
+          results.add(new UACBatchResultDTO(null, null, batchError(e), batchMessage(e)));
+          logLaunchFailure(caseId, e);
+        }
+      }
+    }
+    return results;
+  }
+
   @Override
   public ResponseDTO invalidateCase(InvalidateCaseRequestDTO invalidateCaseRequestDTO)
       throws CTPException {
@@ -522,6 +854,7 @@ public class CaseServiceImpl implements CaseService {
             .build();
 
     sendEvent(EventType.ADDRESS_NOT_VALID, payload, caseId);
+    rmCaseCache.invalidate(caseId, caseDetails.getCaseRef(), caseDetails.getUprn());
     ResponseDTO response =
         ResponseDTO.builder().id(caseId.toString()).dateTime(DateTimeUtil.nowUTC()).build();
 
@@ -537,16 +870,20 @@ public class CaseServiceImpl implements CaseService {
         .with("agentId", agentId)
         .info("Generating SurveyLaunched event");
 
-    SurveyLaunchedResponse response =
-        SurveyLaunchedResponse.builder()
-            .questionnaireId(questionnaireId)
-            .caseId(caseId)
-            .agentId(Integer.toString(agentId))
-            .build();
+    SurveyLaunchedResponse response = surveyLaunched(caseId, questionnaireId, agentId);
 
     sendEvent(EventType.SURVEY_LAUNCHED, response, response.getCaseId());
   }
 
+  private SurveyLaunchedResponse surveyLaunched(
+      UUID caseId, String questionnaireId, Integer agentId) {
+    return SurveyLaunchedResponse.builder()
+        .questionnaireId(questionnaireId)
+        .caseId(caseId)
+        .agentId(Integer.toString(agentId))
+        .build();
+  }
+
   private void publishNewAddressReportedEvent(
       UUID caseId,
       CaseType caseType,
@@ -706,7 +1043,9 @@ public class CaseServiceImpl implements CaseService {
         if (log.isDebugEnabled()) {
           log.with("caseId", caseId).debug("Case Id Not Found calling Case Service");
         }
-        Optional<CachedCase> cachedCase = dataRepo.readCachedCaseById(caseId);
+        Optional<CachedCase> cachedCase =
+            downstreamTimers.record(
+                FIRESTORE, "readCachedCaseById", () -> dataRepo.readCachedCaseById(caseId));
         if (cachedCase.isPresent()) {
           log.with("caseId", caseId).info("Using stored case details");
           caze = caseDTOMapper.map(cachedCase.get(), CaseContainerDTO.class);
@@ -725,22 +1064,61 @@ public class CaseServiceImpl implements CaseService {
   }
 
   private CaseContainerDTO getCaseFromRm(UUID caseId, boolean getCaseEvents) {
-    CaseContainerDTO caseDetails = caseServiceClient.getCaseById(caseId, getCaseEvents);
+    CaseContainerDTO caseDetails =
+        rmCaseCache.getCaseById(
+            caseId,
+            getCaseEvents,
+            () ->
+                downstreamLimits.callRm(
+                    () ->
+                        downstreamTimers.record(
+                            RM,
+                            "getCaseById",
+                            () -> caseServiceClient.getCaseById(caseId, getCaseEvents))));
     return filterCaseEvents(caseDetails, getCaseEvents);
   }
 
   private CaseContainerDTO getCaseFromRm(long caseRef, boolean getCaseEvents) {
-    CaseContainerDTO caseDetails = caseServiceClient.getCaseByCaseRef(caseRef, getCaseEvents);
+    CaseContainerDTO caseDetails =
+        rmCaseCache.getCaseByCaseRef(
+            caseRef,
+            getCaseEvents,
+            () ->
+                downstreamLimits.callRm(
+                    () ->
+                        downstreamTimers.record(
+                            RM,
+                            "getCaseByCaseRef",
+                            () -> caseServiceClient.getCaseByCaseRef(caseRef, getCaseEvents))));
     return filterCaseEvents(caseDetails, getCaseEvents);
   }
 
   private List<CaseContainerDTO> getCasesFromRm(long uprn, boolean getCaseEvents) {
-    var caseList = caseServiceClient.getCaseByUprn(uprn, getCaseEvents);
+    var caseList =
+        rmCaseCache.getCasesByUprn(
+            uprn,
+            getCaseEvents,
+            () ->
+                downstreamLimits.callRm(
+                    () ->
+                        downstreamTimers.record(
+                            RM,
+                            "getCaseByUprn",
+                            () -> caseServiceClient.getCaseByUprn(uprn, getCaseEvents))));
     return caseList.stream().map(c -> filterCaseEvents(c, getCaseEvents)).collect(toList());
   }
 
   private List<CaseContainerDTO> getCcsCasesFromRm(String postcode) {
-    List<CaseContainerDTO> caseList = caseServiceClient.getCcsCaseByPostcode(postcode);
+    List<CaseContainerDTO> caseList =
+        rmCaseCache.getCcsCasesByPostcode(
+            postcode,
+            () ->
+                downstreamLimits.callRm(
+                    () ->
+                        downstreamTimers.record(
+                            RM,
+                            "getCcsCaseByPostcode",
+                            () -> caseServiceClient.getCcsCaseByPostcode(postcode))));
     return caseList;
   }
 
@@ -795,20 +1173,27 @@ public class CaseServiceImpl implements CaseService {
 
     if (refusalRequest.getReason() == Reason.HARD) {
       contact = new ContactCompact();
-      contact.setTitle(encrypt(refusalRequest.getTitle()));
-      contact.setForename(encrypt(refusalRequest.getForename()));
-      contact.setSurname(encrypt(refusalRequest.getSurname()));
+      List<String> encrypted =
+          encrypt(
+              refusalRequest.getTitle(),
+              refusalRequest.getForename(),
+              refusalRequest.getSurname());
+      contact.setTitle(encrypted.get(0));
+      contact.setForename(encrypted.get(1));
+      contact.setSurname(encrypted.get(2));
     }
     return contact;
   }
 
-  private String encrypt(String clearValue) {
-    if (clearValue == null) {
-      return null;
-    }
-    List<Resource> keys = List.of(appConfig.getPublicPgpKey1(), appConfig.getPublicPgpKey2());
-    String encStr = PgpEncrypt.encrypt(clearValue, keys);
-    return Base64.getEncoder().encodeToString(encStr.getBytes(StandardCharsets.UTF_8));
+  private List<String> encrypt(String... clearValues) {
+    List<String> encrypted =
+        downstreamTimers.record(
+            PGP,
+            "encrypt",
+            () -> PgpEncrypt.encryptAll(Arrays.asList(clearValues), pgpPublicKeys.getKeys()));
+    return encrypted.stream()
+        .map(s -> s == null ? null : Base64.getEncoder().encodeToString(s.getBytes(UTF_8)))
+        .collect(toList());
   }
 
   private String mapToType(Reason reason) throws CTPException {
@@ -836,15 +1221,22 @@ public class CaseServiceImpl implements CaseService {
     try {
       rmCases = getCasesFromRm(uprn, listCaseEvents);
     } catch (ResponseStatusException ex) {
-      if (ex.getStatus() == HttpStatus.NOT_FOUND) {
-        log.with(uprn).info("Case by UPRN Not Found calling Case Service");
-        return Collections.emptyList();
-      } else {
-        log.with("uprn", uprn).error("Error calling Case Service", ex);
-        throw ex;
-      }
+      return rmCasesByUprnNotFound(uprn, ex);
+    }
+    return rmCasesForUprn(rmCases);
+  }
+
+  private List<CaseDTO> rmCasesByUprnNotFound(Long uprn, ResponseStatusException ex) {
+    if (ex.getStatus() == HttpStatus.NOT_FOUND) {
+      log.with(uprn).info("Case by UPRN Not Found calling Case Service");
+      return Collections.emptyList();
+    } else {
+      log.with("uprn", uprn).error("Error calling Case Service", ex);
+      throw ex;
     }
+  }
 
+  private List<CaseDTO> rmCasesForUprn(List<CaseContainerDTO> rmCases) {
     // Only return cases that are not of caseType = HI
     List<CaseContainerDTO> casesToReturn =
         (List<CaseContainerDTO>)
@@ -867,7 +1259,40 @@ public class CaseServiceImpl implements CaseService {
 
     // Query AIMS for UPRN
     AddressIndexAddressCompositeDTO address = addressSvc.uprnQuery(uprn);
+    return createNewCachedCase(uprn, address);
+  }
+
+  /**
+   * Create new skeleton case from an address already retrieved from AIMS. The new case is only
+   * stored once the new address reported event has been published, so a case is never served from
+   * the repository cache without RM having been told of its address.
+   *
+   * @param uprn for address
+   * @param address AIMS details for the UPRN
+   * @return CachedCase details of created skeleton case
+   * @throws CTPException
+   */
+  private CachedCase createNewCachedCase(Long uprn, AddressIndexAddressCompositeDTO address)
+      throws CTPException {
+    CachedCase cachedCase = prepareNewCachedCase(uprn, address);
+    publishNewAddressReportedEvent(
+        UUID.fromString(cachedCase.getId()), cachedCase.getCaseType(), 0, address);
 
+    downstreamTimers.run(FIRESTORE, "writeCachedCase", () -> dataRepo.writeCachedCase(cachedCase));
+    rmCaseCache.invalidateUprn(cachedCase.getUprn());
+    return cachedCase;
+  }
+
+  /**
+   * Validate an AIMS address and map it to a new skeleton case.
+   *
+   * @param uprn for address
+   * @param address AIMS details for the UPRN
+   * @return CachedCase with a new case id, not yet stored
+   * @throws CTPException if the address is Scottish or of a type not valid for Census
+   */
+  private CachedCase prepareNewCachedCase(Long uprn, AddressIndexAddressCompositeDTO address)
+      throws CTPException {
     if (SCOTLAND_COUNTRY_CODE.equals(address.getCountryCode())) {
       log.with("uprn", uprn)
           .with("countryCode", address.getCountryCode())
@@ -903,10 +1328,6 @@ public class CaseServiceImpl implements CaseService {
     UUID newCaseId = UUID.randomUUID();
     cachedCase.setId(newCaseId.toString());
     cachedCase.setCreatedDateTime(DateTimeUtil.nowUTC());
-
-    publishNewAddressReportedEvent(newCaseId, cachedCase.getCaseType(), 0, address);
-
-    dataRepo.writeCachedCase(cachedCase);
     return cachedCase;
   }
 
@@ -942,9 +1363,22 @@ public class CaseServiceImpl implements CaseService {
   }
 
   private void sendEvent(EventType eventType, EventPayload payload, Object caseId) {
+    if (eventOutbox.isEnabled()) {
+      eventOutbox.append(
+          eventType, Source.CONTACT_CENTRE_API, appConfig.getChannel(), payload, caseId);
+      if (log.isDebugEnabled()) {
+        log.with("caseId", caseId).debug("{} event added to outbox", eventType);
+      }
+      return;
+    }
+
     String transactionId =
-        eventPublisher.sendEvent(
-            eventType, Source.CONTACT_CENTRE_API, appConfig.getChannel(), payload);
+        downstreamTimers.record(
+            RABBIT,
+            "sendEvent",
+            () ->
+                eventPublisher.sendEvent(
+                    eventType, Source.CONTACT_CENTRE_API, appConfig.getChannel(), payload));
 
     if (log.isDebugEnabled()) {
       log.with("caseId", caseId)
@@ -953,6 +1387,30 @@ public class CaseServiceImpl implements CaseService {
     }
   }
 
+  /**
+   * Send a number of events for a case, appending them to the outbox together if it is enabled.
+   * Otherwise they are published one after another on a single channel, each still committed or
+   * confirmed on its own so that the event publisher can persist any one which fails.
+   */
+  private void sendEvents(
+      EventType eventType, List<? extends EventPayload> payloads, Object caseId) {
+    if (!eventOutbox.isEnabled()) {
+      rabbitTemplate.invoke(
+          operations -> {
+            payloads.forEach(payload -> sendEvent(eventType, payload, caseId));
+            return null;
+          });
+      return;
+    }
+    eventOutbox.appendAll(
+        eventType, Source.CONTACT_CENTRE_API, appConfig.getChannel(), payloads, caseId);
+    if (log.isDebugEnabled()) {
+      log.with("caseId", caseId)
+          .with("events", payloads.size())
+          .debug("{} events added to outbox", eventType);
+    }
+  }
+
   private void validatePostcode(String postcode) throws CTPException {
     if (!ccsPostcodesBean.isInCCSPostcodes(postcode)) {
       log.with(postcode).info("Check failed for postcode");
@@ -988,9 +1446,11 @@ public class CaseServiceImpl implements CaseService {
       String caseType = caseServiceResponse.getCaseType();
       caseServiceResponse.setEstabType(
           CaseType.HH.name().equals(caseType) ? EstabType.HOUSEHOLD : EstabType.OTHER);
-      log.with("caseType", caseType)
-          .with("estabType", caseServiceResponse.getEstabType())
-          .info("Case has a null estabDescription so estabType is based on the caseType");
+      if (log.isDebugEnabled()) {
+        log.with("caseType", caseType)
+            .with("estabType", caseServiceResponse.getEstabType())
+            .debug("Case has a null estabDescription so estabType is based on the caseType");
+      }
     } else {
       caseServiceResponse.setEstabType(
           EstabType.forCode(caseServiceResponse.getEstabDescription()));
@@ -1001,29 +1461,11 @@ public class CaseServiceImpl implements CaseService {
   private CaseDTO getLatestCaseById(UUID caseId, Boolean getCaseEvents) throws CTPException {
     TimeOrderedCases timeOrderedCases = new TimeOrderedCases();
 
-    try {
-      CaseContainerDTO caseFromRM = getCaseFromRm(caseId, getCaseEvents);
-      if (caseFromRM != null) {
-        timeOrderedCases.addCase(mapCaseContainerDTO(caseFromRM));
-      }
-    } catch (ResponseStatusException ex) {
-      if (ex.getStatus() == HttpStatus.NOT_FOUND) {
-        if (log.isDebugEnabled()) {
-          log.with("caseId", caseId).debug("Case Id Not Found by Case Service");
-        }
-      } else {
-        log.with("caseId", caseId).error("Error calling Case Service", ex);
-        throw ex;
-      }
-    }
-
-    Optional<CaseDTO> cachedCase =
-        dataRepo
-            .readCachedCaseById(caseId)
-            .map(cc -> createNewCachedCaseResponse(cc, getCaseEvents));
-
-    if (cachedCase.isPresent()) {
-      timeOrderedCases.addCase(cachedCase.get());
+    if (appConfig.getLookupSettings().isConcurrent()) {
+      lookupCaseByIdConcurrently(caseId, getCaseEvents, timeOrderedCases);
+    } else {
+      findRmCaseById(caseId, getCaseEvents).ifPresent(timeOrderedCases::addCase);
+      findCachedCaseById(caseId, getCaseEvents).ifPresent(timeOrderedCases::addCase);
     }
     Optional<CaseDTO> latest = timeOrderedCases.latest();
 
@@ -1038,30 +1480,243 @@ public class CaseServiceImpl implements CaseService {
     return latestCaseDto;
   }
 
+  /** @return true if RM is to be called with the non-blocking client during concurrent lookups */
+  private boolean isAsyncHttp() {
+    return caseServiceAsyncClient != null;
+  }
+
+  /**
+   * Query RM and our cache for a case at the same time, rather than one after the other. Each
+   * source has its own deadline, measured from when both lookups were started.
+   *
+   * @param caseId of case to find
+   * @param getCaseEvents true if the caller wants case events returned
+   * @param timeOrderedCases to which any cases found are added
+   * @throws CTPException on error reading the cache
+   */
+  private void lookupCaseByIdConcurrently(
+      UUID caseId, Boolean getCaseEvents, TimeOrderedCases timeOrderedCases) throws CTPException {
+    LookupSettings lookupSettings = appConfig.getLookupSettings();
+    long rmDeadline = ConcurrentLookup.deadline(lookupSettings.getRmTimeoutMillis());
+    long cacheDeadline = ConcurrentLookup.deadline(lookupSettings.getCacheTimeoutMillis());
+
+    Future<Optional<CaseDTO>> rmLookup =
+        isAsyncHttp()
+            ? findRmCaseByIdAsync(caseId, getCaseEvents)
+            : ConcurrentLookup.start(lookupExecutor, () -> findRmCaseById(caseId, getCaseEvents));
+    Future<Optional<CaseDTO>> cacheLookup =
+        ConcurrentLookup.start(lookupExecutor, () -> findCachedCaseById(caseId, getCaseEvents));
+
+    try {
+      ConcurrentLookup.await(rmLookup, rmDeadline, "RM").ifPresent(timeOrderedCases::addCase);
+    } catch (CTPException | RuntimeException e) {
+      cacheLookup.cancel(true);
+      throw e;
+    }
+    ConcurrentLookup.await(cacheLookup, cacheDeadline, "Firestore")
+        .ifPresent(timeOrderedCases::addCase);
+  }
+
+  private Optional<CaseDTO> findRmCaseById(UUID caseId, Boolean getCaseEvents) {
+    try {
+      CaseContainerDTO caseFromRM = getCaseFromRm(caseId, getCaseEvents);
+      return Optional.ofNullable(caseFromRM).map(this::mapCaseContainerDTO);
+    } catch (ResponseStatusException ex) {
+      return rmCaseByIdNotFound(caseId, ex);
+    }
+  }
+
+  /** As {@link #findRmCaseById(UUID, Boolean)}, without holding a thread while RM answers. */
+  private CompletableFuture<Optional<CaseDTO>> findRmCaseByIdAsync(
+      UUID caseId, Boolean getCaseEvents) {
+    return rmCaseCache
+        .getCaseByIdAsync(
+            caseId,
+            getCaseEvents,
+            () ->
+                downstreamLimits.callRmAsync(
+                    () ->
+                        downstreamTimers.recordAsync(
+                            RM,
+                            "getCaseById",
+                            () -> caseServiceAsyncClient.getCaseById(caseId, getCaseEvents))))
+        .handle(
+            (caseFromRM, failure) ->
+                failure == null
+                    ? Optional.ofNullable(caseFromRM)
+                        .map(c -> mapCaseContainerDTO(filterCaseEvents(c, getCaseEvents)))
+                    : rmCaseByIdNotFound(caseId, responseStatusFailure(failure)));
+  }
+
+  private Optional<CaseDTO> rmCaseByIdNotFound(UUID caseId, ResponseStatusException ex) {
+    if (ex.getStatus() == HttpStatus.NOT_FOUND) {
+      if (log.isDebugEnabled()) {
+        log.with("caseId", caseId).debug("Case Id Not Found by Case Service");
+      }
+      return Optional.empty();
+    } else {
+      log.with("caseId", caseId).error("Error calling Case Service", ex);
+      throw ex;
+    }
+  }
+
+  /**
+   * Get the failure of an asynchronous RM call as the blocking call would have thrown it.
+   *
+   * @param failure of the call
+   * @return the failure, if it is a {@link ResponseStatusException}
+   * @throws CompletionException holding any other failure
+   */
+  private static ResponseStatusException responseStatusFailure(Throwable failure) {
+    Throwable cause = failure;
+    if (cause instanceof CompletionException && cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+    if (cause instanceof ResponseStatusException) {
+      return (ResponseStatusException) cause;
+    }
+    throw new CompletionException(cause);
+  }
+
+  private Optional<CaseDTO> findCachedCaseById(UUID caseId, Boolean getCaseEvents)
+      throws CTPException {
+    return downstreamTimers
+        .record(
+            FIRESTORE,
+            "readCachedCaseById",
+            () ->
+                dataRepo.readCachedCaseById(
+                    caseId, CachedCaseProjection.forCaseEvents(getCaseEvents)))
+        .map(cc -> createNewCachedCaseResponse(cc, getCaseEvents));
+  }
+
   private Optional<CaseDTO> getLatestCaseByUprn(
       UniquePropertyReferenceNumber uprn, boolean addCaseEvents) throws CTPException {
     TimeOrderedCases timeOrderedCases = new TimeOrderedCases();
 
-    List<CaseDTO> rmCases = callCaseSvcByUPRN(uprn.getValue(), addCaseEvents);
+    timeOrderedCases.add(findRmCasesByUprn(uprn, addCaseEvents));
+    findLatestCachedCaseByUprn(uprn, addCaseEvents).ifPresent(timeOrderedCases::addCase);
+
+    return timeOrderedCases.latest();
+  }
+
+  /**
+   * Resolve the case for a UPRN by querying RM, our cache and AIMS at the same time. The AIMS
+   * query is speculative: its result is only used, to create a new skeleton case, when neither RM
+   * nor the cache holds a case for the UPRN, and it is cancelled otherwise. Any AIMS failure is
+   * likewise only reported when a new case is needed.
+   *
+   * @param uprn of the address
+   * @param addCaseEvents true if the caller wants case events returned
+   * @return the latest case for the UPRN, or a new skeleton case
+   * @throws CTPException on error reading the cache, or creating a new case
+   */
+  private CaseDTO resolveCaseByUprnConcurrently(
+      UniquePropertyReferenceNumber uprn, boolean addCaseEvents) throws CTPException {
+    LookupSettings lookupSettings = appConfig.getLookupSettings();
+    long rmDeadline = ConcurrentLookup.deadline(lookupSettings.getRmTimeoutMillis());
+    long cacheDeadline = ConcurrentLookup.deadline(lookupSettings.getCacheTimeoutMillis());
+    long aimsDeadline = ConcurrentLookup.deadline(lookupSettings.getAimsTimeoutMillis());
+
+    Future<List<CaseDTO>> rmLookup =
+        isAsyncHttp()
+            ? findRmCasesByUprnAsync(uprn, addCaseEvents)
+            : ConcurrentLookup.start(lookupExecutor, () -> findRmCasesByUprn(uprn, addCaseEvents));
+    Future<Optional<CaseDTO>> cacheLookup =
+        ConcurrentLookup.start(
+            lookupExecutor, () -> findLatestCachedCaseByUprn(uprn, addCaseEvents));
+    Future<AddressIndexAddressCompositeDTO> aimsLookup =
+        ConcurrentLookup.start(lookupExecutor, () -> addressSvc.uprnQuery(uprn.getValue()));
+
+    TimeOrderedCases timeOrderedCases = new TimeOrderedCases();
+    try {
+      timeOrderedCases.add(ConcurrentLookup.await(rmLookup, rmDeadline, "RM"));
+      ConcurrentLookup.await(cacheLookup, cacheDeadline, "Firestore")
+          .ifPresent(timeOrderedCases::addCase);
+    } catch (CTPException | RuntimeException e) {
+      cacheLookup.cancel(true);
+      aimsLookup.cancel(true);
+      throw e;
+    }
+
+    Optional<CaseDTO> latest = timeOrderedCases.latest();
+    if (latest.isPresent()) {
+      aimsLookup.cancel(true);
+      return latest.get();
+    }
+
+    AddressIndexAddressCompositeDTO address =
+        ConcurrentLookup.await(aimsLookup, aimsDeadline, "AIMS");
+    CachedCase newcase = createNewCachedCase(uprn.getValue(), address);
+    if (log.isDebugEnabled()) {
+      log.with("uprn", uprn)
+          .with("caseId", newcase.getId())
+          .debug("Returning new skeleton case for UPRN");
+    }
+    return createNewCachedCaseResponse(newcase, false);
+  }
+
+  private List<CaseDTO> findRmCasesByUprn(
+      UniquePropertyReferenceNumber uprn, boolean addCaseEvents) throws CTPException {
+    return logRmCasesByUprn(uprn, callCaseSvcByUPRN(uprn.getValue(), addCaseEvents));
+  }
+
+  /**
+   * As {@link #findRmCasesByUprn(UniquePropertyReferenceNumber, boolean)}, without holding a
+   * thread while RM answers.
+   */
+  private CompletableFuture<List<CaseDTO>> findRmCasesByUprnAsync(
+      UniquePropertyReferenceNumber uprn, boolean addCaseEvents) {
+    long uprnValue = uprn.getValue();
+    return rmCaseCache
+        .getCasesByUprnAsync(
+            uprnValue,
+            addCaseEvents,
+            () ->
+                downstreamLimits.callRmAsync(
+                    () ->
+                        downstreamTimers.recordAsync(
+                            RM,
+                            "getCaseByUprn",
+                            () -> caseServiceAsyncClient.getCaseByUprn(uprnValue, addCaseEvents))))
+        .handle(
+            (rmCases, failure) ->
+                failure == null
+                    ? rmCasesForUprn(
+                        rmCases.stream()
+                            .map(c -> filterCaseEvents(c, addCaseEvents))
+                            .collect(toList()))
+                    : rmCasesByUprnNotFound(uprnValue, responseStatusFailure(failure)))
+        .thenApply(rmCases -> logRmCasesByUprn(uprn, rmCases));
+  }
+
+  private List<CaseDTO> logRmCasesByUprn(
+      UniquePropertyReferenceNumber uprn, List<CaseDTO> rmCases) {
     if (log.isDebugEnabled()) {
       log.with("uprn", uprn)
           .with("cases", rmCases.size())
           .debug("Found {} case details in RM for UPRN", rmCases.size());
     }
-    timeOrderedCases.add(rmCases);
+    return rmCases;
+  }
 
-    List<CaseDTO> cachedCases =
-        dataRepo.readCachedCasesByUprn(uprn).stream()
-            .map(cc -> createNewCachedCaseResponse(cc, addCaseEvents))
-            .collect(toList());
+  private Optional<CaseDTO> findLatestCachedCaseByUprn(
+      UniquePropertyReferenceNumber uprn, boolean addCaseEvents) throws CTPException {
+    Optional<CaseDTO> cachedCase =
+        downstreamTimers
+            .record(
+                FIRESTORE,
+                "readLatestCachedCaseByUprn",
+                () ->
+                    dataRepo.readLatestCachedCaseByUprn(
+                        uprn, CachedCaseProjection.forCaseEvents(addCaseEvents)))
+            .map(cc -> createNewCachedCaseResponse(cc, addCaseEvents));
     if (log.isDebugEnabled()) {
       log.with("uprn", uprn)
-          .with("cases", cachedCases.size())
-          .debug("Found {} case details in Cache for UPRN", cachedCases.size());
+          .with("found", cachedCase.isPresent())
+          .debug("Read latest case details in Cache for UPRN");
     }
-    timeOrderedCases.add(cachedCases);
-
-    return timeOrderedCases.latest();
+    return cachedCase;
   }
 
   private void validateCaseRef(long caseRef) throws CTPException {
@@ -1151,8 +1806,18 @@ public class CaseServiceImpl implements CaseService {
       try {
         String path = appConfig.getAddressIndexSettings().getPostcodeLookupPath();
         addressIndexResponse =
-            addressIndexClient.getResource(
-                path, AddressIndexSearchResultsDTO.class, null, queryParams, postcode);
+            downstreamLimits.callAims(
+                () ->
+                    downstreamTimers.record(
+                        AIMS,
+                        "searchByPostcode",
+                        () ->
+                            addressIndexClient.getResource(
+                                path,
+                                AddressIndexSearchResultsDTO.class,
+                                null,
+                                queryParams,
+                                postcode)));
       } catch (ResponseStatusException e) {
         // Something went wrong calling AI.
         // Never mind, we'll still be able to use the Serco supplied region
@@ -1228,7 +1893,8 @@ public class CaseServiceImpl implements CaseService {
     cachedCase.setAddressLine2(modifyRequestDTO.getAddressLine2());
     cachedCase.setAddressLine3(modifyRequestDTO.getAddressLine3());
     cachedCase.setCeOrgName(modifyRequestDTO.getCeOrgName());
-    dataRepo.writeCachedCase(cachedCase);
+    downstreamTimers.run(FIRESTORE, "writeCachedCase", () -> dataRepo.writeCachedCase(cachedCase));
+    rmCaseCache.invalidate(caseId, caseDetails.getCaseRef(), caseDetails.getUprn());
   }
 
   private void sendAddressModifiedEvent(
@@ -1333,11 +1999,10 @@ public class CaseServiceImpl implements CaseService {
     }
 
     // Get RM to allocate a new questionnaire ID
-    log.info("Before new QID");
+    log.debug("Before new QID");
     SingleUseQuestionnaireIdDTO newQuestionnaireIdDto;
     try {
-      newQuestionnaireIdDto =
-          caseServiceClient.getSingleUseQuestionnaireId(parentCaseId, individual, individualCaseId);
+      newQuestionnaireIdDto = getNewQidFromRm(parentCaseId, individual, individualCaseId);
     } catch (ResponseStatusException ex) {
       if (ex.getCause() != null) {
         HttpStatusCodeException cause = (HttpStatusCodeException) ex.getCause();
@@ -1366,6 +2031,18 @@ public class CaseServiceImpl implements CaseService {
     return newQuestionnaireIdDto;
   }
 
+  private SingleUseQuestionnaireIdDTO getNewQidFromRm(
+      UUID parentCaseId, boolean individual, UUID individualCaseId) {
+    return downstreamLimits.callRm(
+        () ->
+            downstreamTimers.record(
+                RM,
+                "getSingleUseQuestionnaireId",
+                () ->
+                    caseServiceClient.getSingleUseQuestionnaireId(
+                        parentCaseId, individual, individualCaseId)));
+  }
+
   /**
    * Get the Case for which the client has requested a launch URL/UAC
    *
@@ -1380,7 +2057,11 @@ public class CaseServiceImpl implements CaseService {
       return caseDetails;
     } catch (ResponseStatusException ex) {
       if (ex.getStatus() == HttpStatus.NOT_FOUND) {
-        Optional<CachedCase> cachedCase = dataRepo.readCachedCaseById(caseId);
+        Optional<CachedCase> cachedCase =
+            downstreamTimers.record(
+                FIRESTORE,
+                "readCachedCaseById",
+                () -> dataRepo.readCachedCaseById(caseId, CachedCaseProjection.WITHOUT_EVENTS));
         if (cachedCase.isPresent()) {
           log.with("caseid", caseId)
               .with("status", ex.getStatus())
@@ -1425,41 +2106,37 @@ public class CaseServiceImpl implements CaseService {
       LaunchRequestDTO requestParamsDTO,
       String questionnaireId)
       throws CTPException {
-    String encryptedPayload = "";
+    String eqUrl;
     try {
-      EqLaunchData eqLuanchCoreDate =
-          EqLaunchData.builder()
-              .language(Language.ENGLISH)
-              .source(uk.gov.ons.ctp.common.domain.Source.CONTACT_CENTRE_API)
-              .channel(uk.gov.ons.ctp.common.domain.Channel.CC)
-              .questionnaireId(questionnaireId)
-              .formType(formType)
-              .salt(appConfig.getEq().getResponseIdSalt())
-              .caseContainer(caseDetails)
-              .userId(Integer.toString(requestParamsDTO.getAgentId()))
-              .accountServiceUrl(null)
-              .accountServiceLogoutUrl(null)
-              .build();
-      encryptedPayload = eqLaunchService.getEqLaunchJwe(eqLuanchCoreDate);
-
+      eqUrl =
+          launchTokenEngine.launchUrl(
+              formType, caseDetails, requestParamsDTO.getAgentId(), questionnaireId);
     } catch (CTPException e) {
       log.with("caseId", caseDetails.getId())
           .with("questionnaireId", questionnaireId)
           .error("Failed to create JWE payload for eq launch", e);
       throw e;
     }
-    String eqUrl =
-        appConfig.getEq().getProtocol()
-            + "://"
-            + appConfig.getEq().getHost()
-            + appConfig.getEq().getPath()
-            + encryptedPayload;
     if (log.isDebugEnabled()) {
       log.with("launchURL", eqUrl).debug("Have created launch URL");
     }
     return eqUrl;
   }
 
+  private void rejectIfSurveyDisabled(CaseContainerDTO caseDetails) throws CTPException {
+    // Exit if the survey type is on the disabled list
+    Set<String> disabledSurveyTypes = appConfig.getTelephoneCapture().getDisabled();
+    for (String rawDisabledSurveyType : disabledSurveyTypes) {
+      String disabledSurveyType = rawDisabledSurveyType.trim().toUpperCase();
+      String caseSurveyType = caseDetails.getSurveyType().trim().toUpperCase();
+      if (caseSurveyType.contentEquals(disabledSurveyType)) {
+        throw new CTPException(
+            Fault.ACCEPTED_UNABLE_TO_PROCESS,
+            "The " + caseSurveyType + " Survey related to this case has been closed");
+      }
+    }
+  }
+
   private void verifyFulfilmentCodeNotBlackListed(String fulfilmentCode) throws CTPException {
     Set<String> blacklistedProducts = appConfig.getFulfilments().getBlacklistedCodes();
 
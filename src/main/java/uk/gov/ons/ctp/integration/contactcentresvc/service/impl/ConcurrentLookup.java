@@ -0,0 +1,101 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.service.impl;
+
+import com.godaddy.logging.Logger;
+import com.godaddy.logging.LoggerFactory;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import uk.gov.ons.ctp.common.error.CTPException;
+import uk.gov.ons.ctp.common.error.CTPException.Fault;
+import uk.gov.ons.ctp.integration.contactcentresvc.trace.RequestTrace;
+
+/**
+ * Runs blocking lookups against our downstream sources (RM, Firestore, AIMS) on a shared executor,
+ * so that independent lookups overlap, and waits for each result against its own deadline.
+ *
+ * <p>Failures are surfaced exactly as the lookup raised them, so callers keep the same error
+ * handling as for a direct call. A lookup that misses its deadline is cancelled and reported as a
+ * GATEWAY_TIMEOUT.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class ConcurrentLookup {
+  private static final Logger log = LoggerFactory.getLogger(ConcurrentLookup.class);
+
+  /**
+   * A lookup against a single source.
+   *
+   * @param <T> the type of the lookup result
+   */
+  @FunctionalInterface
+  interface Lookup<T> extends Callable<T> {
+    @Override
+    T call() throws CTPException;
+  }
+
+  /**
+   * Calculate the deadline for a lookup started now.
+   *
+   * @param timeoutMillis time allowed for the lookup
+   * @return the deadline, in {@link System#nanoTime()} terms
+   */
+  static long deadline(long timeoutMillis) {
+    return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+  }
+
+  /**
+   * Start a lookup on the executor. If the request is being traced, the calls made by the lookup
+   * are added to its trace.
+   *
+   * @param <T> the type of the lookup result
+   * @param executor to run the lookup
+   * @param lookup the lookup to run
+   * @return the future result of the lookup
+   */
+  static <T> Future<T> start(ExecutorService executor, Lookup<T> lookup) {
+    return executor.submit(RequestTrace.propagate(lookup));
+  }
+
+  /**
+   * Wait for the result of a lookup.
+   *
+   * @param <T> the type of the lookup result
+   * @param lookup the started lookup
+   * @param deadlineNanos the deadline as calculated by {@link #deadline(long)}
+   * @param source name of the source being queried, for logging
+   * @return the lookup result
+   * @throws CTPException if the lookup failed with a CTPException, or the wait was interrupted
+   * @throws ResponseStatusException with GATEWAY_TIMEOUT if the deadline was missed, or as thrown
+   *     by the lookup
+   */
+  static <T> T await(Future<T> lookup, long deadlineNanos, String source) throws CTPException {
+    try {
+      long remainingNanos = Math.max(0L, deadlineNanos - System.nanoTime());
+      return lookup.get(remainingNanos, TimeUnit.NANOSECONDS);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof CTPException) {
+        throw (CTPException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new CTPException(Fault.SYSTEM_ERROR, cause);
+    } catch (TimeoutException e) {
+      lookup.cancel(true);
+      log.with("source", source).warn("Lookup did not complete within its deadline");
+      throw new ResponseStatusException(
+          HttpStatus.GATEWAY_TIMEOUT, source + " lookup did not complete in time");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      lookup.cancel(true);
+      throw new CTPException(Fault.SYSTEM_ERROR, e);
+    }
+  }
+}
@@ -0,0 +1,117 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.service.impl;
+
+import static uk.gov.ons.ctp.integration.contactcentresvc.client.DownstreamTimers.EQ;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import uk.gov.ons.ctp.common.domain.Channel;
+import uk.gov.ons.ctp.common.domain.Language;
+import uk.gov.ons.ctp.common.domain.Source;
+import uk.gov.ons.ctp.common.error.CTPException;
+import uk.gov.ons.ctp.integration.caseapiclient.caseservice.model.CaseContainerDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.DownstreamTimers;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.AppConfig;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.EqConfig;
+import uk.gov.ons.ctp.integration.eqlaunch.service.EqLaunchData;
+import uk.gov.ons.ctp.integration.eqlaunch.service.EqLaunchService;
+
+/**
+ * Creates EQ launch URLs. The signing and encryption keys are parsed once, when the {@link
+ * EqLaunchService} bean is built, and the parts of the launch which are the same for every case
+ * (the salt, source, channel and language of the payload and the URL up to the token) are worked
+ * out once at start up rather than for each launch.
+ *
+ * <p>Each launch token created or failed is counted by <code>eq.launch.tokens</code>, tagged by
+ * outcome, and those being created now by <code>eq.launch.tokens.active</code>, so that the rate
+ * of launches can be watched as the agents start a shift. The time taken is recorded by the
+ * <code>downstream.calls</code> timer, see {@link DownstreamTimers}.
+ */
+@Component
+public class LaunchTokenEngine {
+  private static final Language LANGUAGE = Language.ENGLISH;
+  private static final Source SOURCE = Source.CONTACT_CENTRE_API;
+  private static final Channel CHANNEL = Channel.CC;
+
+  @Autowired private AppConfig appConfig;
+
+  @Autowired private EqLaunchService eqLaunchService;
+
+  @Autowired private DownstreamTimers downstreamTimers;
+
+  @Autowired private MeterRegistry meterRegistry;
+
+  private String urlPrefix;
+  private String salt;
+  private final AtomicInteger active = new AtomicInteger();
+  private Counter created;
+  private Counter failed;
+
+  @PostConstruct
+  void init() {
+    EqConfig eq = appConfig.getEq();
+    urlPrefix = eq.getProtocol() + "://" + eq.getHost() + eq.getPath();
+    salt = eq.getResponseIdSalt();
+    created = tokens("created");
+    failed = tokens("failed");
+    Gauge.builder("eq.launch.tokens.active", active, AtomicInteger::get)
+        .description("EQ launch tokens being created")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Create the URL to launch a questionnaire for a case.
+   *
+   * @param formType of the questionnaire
+   * @param caseDetails of the case, as held by RM
+   * @param agentId of the agent launching the questionnaire
+   * @param questionnaireId of the questionnaire
+   * @return the launch URL, carrying the encrypted launch token
+   * @throws CTPException if the launch token could not be created
+   */
+  public String launchUrl(
+      String formType, CaseContainerDTO caseDetails, int agentId, String questionnaireId)
+      throws CTPException {
+    EqLaunchData launchData =
+        EqLaunchData.builder()
+            .language(LANGUAGE)
+            .source(SOURCE)
+            .channel(CHANNEL)
+            .questionnaireId(questionnaireId)
+            .formType(formType)
+            .salt(salt)
+            .caseContainer(caseDetails)
+            .userId(Integer.toString(agentId))
+            .accountServiceUrl(null)
+            .accountServiceLogoutUrl(null)
+            .build();
+    return urlPrefix + token(launchData);
+  }
+
+  private String token(EqLaunchData launchData) throws CTPException {
+    active.incrementAndGet();
+    try {
+      String token =
+          downstreamTimers.record(
+              EQ, "getEqLaunchJwe", () -> eqLaunchService.getEqLaunchJwe(launchData));
+      created.increment();
+      return token;
+    } catch (CTPException | RuntimeException e) {
+      failed.increment();
+      throw e;
+    } finally {
+      active.decrementAndGet();
+    }
+  }
+
+  private Counter tokens(String outcome) {
+    return Counter.builder("eq.launch.tokens")
+        .description("EQ launch tokens created")
+        .tag("outcome", outcome)
+        .register(meterRegistry);
+  }
+}
@@ -0,0 +1,247 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.trace;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+
+/**
+ * The span tree of a single request, showing how long each call it made took. The root span is the
+ * request itself, and each call made while a span is current becomes a child of that span.
+ *
+ * <p>The current span is held per thread. Work handed to another thread carries the span with it
+ * if it is wrapped by {@link #propagate(Callable)} or {@link #propagate(Runnable)}, so that calls
+ * made in parallel are still put down to the request. When no request is being traced there is no
+ * current span, and starting a span does nothing.
+ */
+public final class RequestTrace {
+  private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+
+  private final Span root;
+
+  private RequestTrace(String name) {
+    root = new Span(name);
+  }
+
+  /**
+   * Start tracing a request on this thread.
+   *
+   * @param name of the request
+   * @return the trace
+   */
+  public static RequestTrace begin(String name) {
+    RequestTrace trace = new RequestTrace(name);
+    CURRENT.set(trace.root);
+    return trace;
+  }
+
+  /** Stop tracing the request. */
+  public void end() {
+    root.end(null);
+    CURRENT.remove();
+  }
+
+  /** @return the span of the whole request */
+  public Span root() {
+    return root;
+  }
+
+  /**
+   * Start a span for a call, as a child of the current span.
+   *
+   * @param downstream the service called
+   * @param operation the call made
+   * @return the span, or null if no request is being traced on this thread
+   */
+  public static Span startSpan(String downstream, String operation) {
+    Span parent = CURRENT.get();
+    return parent == null ? null : parent.child(downstream + "." + operation);
+  }
+
+  /**
+   * Make a span the current span on this thread.
+   *
+   * @param span to make current, may be null
+   * @return the span which was current, to be restored with {@link #restore(Span)}
+   */
+  public static Span enter(Span span) {
+    Span previous = CURRENT.get();
+    restore(span);
+    return previous;
+  }
+
+  /**
+   * Make a span the current span on this thread once more.
+   *
+   * @param span as returned by {@link #enter(Span)}
+   */
+  public static void restore(Span span) {
+    if (span == null) {
+      CURRENT.remove();
+    } else {
+      CURRENT.set(span);
+    }
+  }
+
+  /**
+   * Wrap a task so that it runs with the span which is current now.
+   *
+   * @param task to wrap
+   * @return the task, wrapped if a request is being traced
+   */
+  public static <T> Callable<T> propagate(Callable<T> task) {
+    Span span = CURRENT.get();
+    if (span == null) {
+      return task;
+    }
+    return () -> {
+      Span previous = enter(span);
+      try {
+        return task.call();
+      } finally {
+        restore(previous);
+      }
+    };
+  }
+
+  /**
+   * Wrap a task so that it runs with the span which is current now.
+   *
+   * @param task to wrap
+   * @return the task, wrapped if a request is being traced
+   */
+  public static Runnable propagate(Runnable task) {
+    Span span = CURRENT.get();
+    if (span == null) {
+      return task;
+    }
+    return () -> {
+      Span previous = enter(span);
+      try {
+        task.run();
+      } finally {
+        restore(previous);
+      }
+    };
+  }
+
+  /**
+   * @return the calls made by the request in the form of a <code>Server-Timing</code> header, each
+   *     as its name, outcome and duration in milliseconds, followed by the whole request, or the
+   *     request so far if it has not ended
+   */
+  public String serverTiming() {
+    StringBuilder header = new StringBuilder();
+    for (Span span : root.descendants()) {
+      header.append(span.name);
+      header.append(";desc=\"").append(span.outcome()).append('"');
+      if (span.isEnded()) {
+        header.append(";dur=").append(millis(span.durationNanos()));
+      }
+      header.append(", ");
+    }
+    return header.append("total;dur=").append(millis(root.elapsedNanos())).toString();
+  }
+
+  /**
+   * @return the span tree, one span per line indented under its parent, each with when it started
+   *     after the request and how long it took
+   */
+  @Override
+  public String toString() {
+    StringBuilder tree = new StringBuilder();
+    root.appendTo(tree, 0, root.startNanos);
+    return tree.toString();
+  }
+
+  private static String millis(long nanos) {
+    return String.format(Locale.ROOT, "%.1f", nanos / 1e6);
+  }
+
+  /** A call made while serving the request. */
+  public static final class Span {
+    private final String name;
+    private final long startNanos = System.nanoTime();
+    private final List<Span> children = new ArrayList<>();
+    private boolean ended;
+    private long endNanos;
+    private String outcome;
+
+    private Span(String name) {
+      this.name = name;
+    }
+
+    /**
+     * End the span.
+     *
+     * @param outcome of the call
+     */
+    public synchronized void end(String outcome) {
+      if (!ended) {
+        ended = true;
+        endNanos = System.nanoTime();
+        this.outcome = outcome;
+      }
+    }
+
+    /** @return the name of the span, as the service and the call made to it */
+    public String name() {
+      return name;
+    }
+
+    /** @return the outcome of the call, or <code>unfinished</code> if it has not ended */
+    public synchronized String outcome() {
+      return ended ? outcome : "unfinished";
+    }
+
+    /** @return the spans of the calls made during this one */
+    public synchronized List<Span> children() {
+      return new ArrayList<>(children);
+    }
+
+    private synchronized Span child(String name) {
+      Span child = new Span(name);
+      children.add(child);
+      return child;
+    }
+
+    private synchronized boolean isEnded() {
+      return ended;
+    }
+
+    private synchronized long durationNanos() {
+      return ended ? endNanos - startNanos : 0;
+    }
+
+    private synchronized long elapsedNanos() {
+      return (ended ? endNanos : System.nanoTime()) - startNanos;
+    }
+
+    private List<Span> descendants() {
+      List<Span> descendants = new ArrayList<>();
+      for (Span child : children()) {
+        descendants.add(child);
+        descendants.addAll(child.descendants());
+      }
+      return descendants;
+    }
+
+    private void appendTo(StringBuilder tree, int depth, long rootStartNanos) {
+      for (int i = 0; i < depth; i++) {
+        tree.append("  ");
+      }
+      tree.append(name)
+          .append(" +")
+          .append(millis(startNanos - rootStartNanos))
+          .append("ms ")
+          .append(isEnded() ? millis(durationNanos()) + "ms" : "unfinished");
+      if (isEnded() && outcome() != null) {
+        tree.append(' ').append(outcome());
+      }
+      for (Span child : children()) {
+        tree.append('\n');
+        child.appendTo(tree, depth + 1, rootStartNanos);
+      }
+    }
+  }
+}
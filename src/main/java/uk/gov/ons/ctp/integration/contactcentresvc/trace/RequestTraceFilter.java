@@ -0,0 +1,210 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.trace;
+
+import com.godaddy.logging.Logger;
+import com.godaddy.logging.LoggerFactory;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.AppConfig;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.RequestTracing;
+
+/**
+ * Traces a request if it is picked at the sample rate, or if an authenticated caller asks for it
+ * by sending the trace header with a value of true. The header of an unauthenticated request is
+ * ignored, so that anyone able to reach the service can't have their requests traced. The span
+ * tree of a traced request is logged, so that the time taken by a slow call can be put down to the
+ * downstream calls it made.
+ *
+ * <p>The response of a traced request carries a <code>Server-Timing</code> header. The response is
+ * not held back, so the header is set as the body starts to be written, or the response is
+ * committed, and its total is the time taken up to then.
+ *
+ * <p>This filter runs after the Spring Security filters, which is what lets it see the caller.
+ */
+@Component
+public class RequestTraceFilter extends OncePerRequestFilter {
+  private static final Logger log = LoggerFactory.getLogger(RequestTraceFilter.class);
+
+  static final String SERVER_TIMING = "Server-Timing";
+
+  @Autowired private AppConfig appConfig;
+
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    if (!isTraced(request)) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+
+    RequestTrace trace = RequestTrace.begin(request.getMethod() + " " + request.getRequestURI());
+    ServerTimingResponse timedResponse = new ServerTimingResponse(response, trace);
+    try {
+      filterChain.doFilter(request, timedResponse);
+    } finally {
+      trace.end();
+      timedResponse.setServerTiming();
+      log.with("method", request.getMethod())
+          .with("uri", request.getRequestURI())
+          .with("status", response.getStatus())
+          .with("spans", trace.toString())
+          .info("Request trace");
+    }
+  }
+
+  private boolean isTraced(HttpServletRequest request) {
+    RequestTracing tracing = appConfig.getRequestTracing();
+    if (tracing == null || !tracing.isEnabled()) {
+      return false;
+    }
+    if (tracing.getHeader() != null
+        && request.getUserPrincipal() != null
+        && Boolean.parseBoolean(request.getHeader(tracing.getHeader()))) {
+      return true;
+    }
+    return tracing.getSampleRate() > 0
+        && ThreadLocalRandom.current().nextDouble() < tracing.getSampleRate();
+  }
+
+  /** Sets the <code>Server-Timing</code> header before anything is written to the response. */
+  private static class ServerTimingResponse extends HttpServletResponseWrapper {
+    private final RequestTrace trace;
+    private boolean timed;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    ServerTimingResponse(HttpServletResponse response, RequestTrace trace) {
+      super(response);
+      this.trace = trace;
+    }
+
+    void setServerTiming() {
+      if (!timed) {
+        timed = true;
+        if (!isCommitted()) {
+          setHeader(SERVER_TIMING, trace.serverTiming());
+        }
+      }
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+      if (outputStream == null) {
+        outputStream = new TimedOutputStream(super.getOutputStream());
+      }
+      return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+      if (writer == null) {
+        writer = new PrintWriter(new TimedWriter(super.getWriter()));
+      }
+      return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+      setServerTiming();
+      super.flushBuffer();
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+      setServerTiming();
+      super.sendError(sc);
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+      setServerTiming();
+      super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+      setServerTiming();
+      super.sendRedirect(location);
+    }
+
+    private class TimedOutputStream extends ServletOutputStream {
+      private final ServletOutputStream delegate;
+
+      TimedOutputStream(ServletOutputStream delegate) {
+        this.delegate = delegate;
+      }
+
+      @Override
+      public void write(int b) throws IOException {
+        setServerTiming();
+        delegate.write(b);
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) throws IOException {
+        setServerTiming();
+        delegate.write(b, off, len);
+      }
+
+      @Override
+      public void flush() throws IOException {
+        setServerTiming();
+        delegate.flush();
+      }
+
+      @Override
+      public void close() throws IOException {
+        setServerTiming();
+        delegate.close();
+      }
+
+      @Override
+      public boolean isReady() {
+        return delegate.isReady();
+      }
+
+      @Override
+      public void setWriteListener(WriteListener writeListener) {
+        delegate.setWriteListener(writeListener);
+      }
+    }
+
+    private class TimedWriter extends Writer {
+      private final PrintWriter delegate;
+
+      TimedWriter(PrintWriter delegate) {
+        this.delegate = delegate;
+      }
+
+      @Override
+      public void write(char[] cbuf, int off, int len) {
+        setServerTiming();
+        delegate.write(cbuf, off, len);
+      }
+
+      @Override
+      public void flush() {
+        setServerTiming();
+        delegate.flush();
+      }
+
+      @Override
+      public void close() {
+        setServerTiming();
+        delegate.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,110 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.util;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+import com.godaddy.logging.Logger;
+import com.godaddy.logging.LoggerFactory;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import lombok.Value;
+
+/**
+ * Calls back when the content of a file may have changed. The file's directory is watched, rather
+ * than the file, as a mounted Kubernetes config map is updated by swapping a symbolic link in the
+ * directory. The callback is made on the watcher's own thread, only when the file's real path,
+ * size or modification time differs from when it was last seen.
+ */
+public class FileWatcher implements Closeable {
+  private static final Logger log = LoggerFactory.getLogger(FileWatcher.class);
+
+  // Lets the several events from one update of the file arrive before the file is looked at
+  private static final long SETTLE_MILLIS = 200;
+
+  private final Path file;
+  private final Runnable onChange;
+  private final WatchService watchService;
+  private final Thread thread;
+  private Version lastSeen;
+
+  /**
+   * Start watching a file.
+   *
+   * @param file to watch
+   * @param onChange called when the file has changed
+   * @throws IOException if the file's directory can't be watched
+   */
+  public FileWatcher(Path file, Runnable onChange) throws IOException {
+    this.file = file.toAbsolutePath();
+    this.onChange = onChange;
+    this.lastSeen = Version.of(this.file);
+    watchService = this.file.getFileSystem().newWatchService();
+    try {
+      this.file.getParent().register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+    } catch (IOException e) {
+      watchService.close();
+      throw e;
+    }
+    thread = new Thread(this::watch, "file-watcher-" + this.file.getFileName());
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  @Override
+  public void close() throws IOException {
+    watchService.close();
+    thread.interrupt();
+  }
+
+  private void watch() {
+    try {
+      while (true) {
+        WatchKey key = watchService.take();
+        Thread.sleep(SETTLE_MILLIS);
+        do {
+          key.pollEvents();
+          key.reset();
+        } while ((key = watchService.poll()) != null);
+
+        Version current = Version.of(file);
+        if (!current.equals(lastSeen)) {
+          lastSeen = current;
+          log.with("file", file).info("Watched file has changed");
+          try {
+            onChange.run();
+          } catch (RuntimeException e) {
+            log.with("file", file).error("Failed to handle change to watched file", e);
+          }
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      log.with("file", file).debug("Stopped watching file");
+    }
+  }
+
+  /** What is known of the file's content without reading it. */
+  @Value
+  private static class Version {
+    private Path realPath;
+    private long size;
+    private long lastModified;
+
+    static Version of(Path file) {
+      try {
+        return new Version(
+            file.toRealPath(),
+            Files.size(file),
+            Files.getLastModifiedTime(file).to(TimeUnit.MILLISECONDS));
+      } catch (IOException e) {
+        return new Version(null, -1, -1);
+      }
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Picks which of a stream of high volume log events to log, keeping one in every <code>n</code> of
+ * them, so that the look ups an agent makes many times a call do not swamp the logs. Events are
+ * picked in turn rather than at random, so that a quiet period still logs some of them.
+ *
+ * <p>Samplers are given to the endpoints as beans, with the rate from <code>logging.sample-one-in
+ * </code>. A rate of 1 or less keeps every event.
+ */
+public class LogSampler {
+  private final int oneIn;
+  private final AtomicLong events = new AtomicLong();
+
+  /**
+   * Constructor.
+   *
+   * @param oneIn the number of events to keep one of
+   */
+  public LogSampler(int oneIn) {
+    this.oneIn = Math.max(1, oneIn);
+  }
+
+  /** @return the number of events this sampler keeps one of */
+  public int getOneIn() {
+    return oneIn;
+  }
+
+  /** @return true if the next event should be logged */
+  public boolean sample() {
+    return oneIn == 1 || events.getAndIncrement() % oneIn == 0;
+  }
+}
@@ -8,8 +8,10 @@ import java.io.OutputStream;
 import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import org.bouncycastle.bcpg.ArmoredOutputStream;
@@ -30,34 +32,96 @@ import org.bouncycastle.openpgp.operator.jcajce.JcePublicKeyKeyEncryptionMethodG
 import org.bouncycastle.util.io.Streams;
 import org.springframework.core.io.Resource;
 
-/** PGP encryption using one or more ascii armoured public keys. */
+/**
+ * PGP encryption using one or more ascii armoured public keys.
+ *
+ * <p>Reading and parsing the armoured key rings costs far more than encrypting a short value, so
+ * callers encrypting more than once should parse the keys once with {@link
+ * #readPublicKeys(Collection)} and encrypt with the parsed keys.
+ */
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public final class PgpEncrypt {
   private static final BouncyCastleProvider PROVIDER = new BouncyCastleProvider();
+  private static final SecureRandom RANDOM = new SecureRandom();
 
   public static String encrypt(String clearMsg, Collection<Resource> publicKeyResources) {
     try {
-      Collection<PGPPublicKey> publicPgpKeys = getPublicKeys(publicKeyResources);
-      byte[] encyptedFileContents = encrypt(publicPgpKeys, clearMsg);
-      return new String(encyptedFileContents);
+      return encryptWithKeys(clearMsg, readPublicKeys(publicKeyResources));
     } catch (PGPException | IOException e) {
       throw new RuntimeException("failed to encrypt contents", e);
     }
   }
 
-  private static byte[] encrypt(Collection<PGPPublicKey> publicPgpKeys, String clearMsg)
+  /**
+   * Encrypt a message with public keys which have already been parsed.
+   *
+   * @param clearMsg message to encrypt
+   * @param publicPgpKeys to encrypt with, any of which can decrypt the result
+   * @return the ascii armoured encrypted message
+   */
+  public static String encryptWithKeys(String clearMsg, Collection<PGPPublicKey> publicPgpKeys) {
+    return encryptAll(Collections.singletonList(clearMsg), publicPgpKeys).get(0);
+  }
+
+  /**
+   * Encrypt a batch of messages with public keys which have already been parsed, sharing the key
+   * encryption setup between them. Each message is encrypted separately.
+   *
+   * @param clearMsgs messages to encrypt, any of which may be null
+   * @param publicPgpKeys to encrypt with, any of which can decrypt the results
+   * @return the ascii armoured encrypted messages, in the same order, with null for a null message
+   */
+  public static List<String> encryptAll(
+      List<String> clearMsgs, Collection<PGPPublicKey> publicPgpKeys) {
+    List<JcePublicKeyKeyEncryptionMethodGenerator> methods = new ArrayList<>();
+    for (PGPPublicKey publicKey : publicPgpKeys) {
+      methods.add(
+          new JcePublicKeyKeyEncryptionMethodGenerator(publicKey)
+              .setProvider(PROVIDER)
+              .setSecureRandom(RANDOM));
+    }
+    try {
+      List<String> encrypted = new ArrayList<>();
+      for (String clearMsg : clearMsgs) {
+        encrypted.add(clearMsg == null ? null : new String(encrypt(methods, clearMsg)));
+      }
+      return encrypted;
+    } catch (PGPException | IOException e) {
+      throw new RuntimeException("failed to encrypt contents", e);
+    }
+  }
+
+  /**
+   * Read the public encryption key from each of a number of ascii armoured key rings.
+   *
+   * @param publicKeyResources holding the key rings
+   * @return the public keys, in the same order
+   * @throws IOException if a key ring can't be read
+   * @throws PGPException if a key ring can't be parsed
+   */
+  public static List<PGPPublicKey> readPublicKeys(Collection<Resource> publicKeyResources)
+      throws IOException, PGPException {
+    var publicKeys = new ArrayList<PGPPublicKey>();
+    for (Resource resource : publicKeyResources) {
+      PGPPublicKey publicPgpKey = getPublicKey(resource);
+      publicKeys.add(publicPgpKey);
+    }
+    return publicKeys;
+  }
+
+  private static byte[] encrypt(
+      List<JcePublicKeyKeyEncryptionMethodGenerator> methods, String clearMsg)
       throws IOException, PGPException {
     final byte[] compressedContents = compress(clearMsg);
     final PGPEncryptedDataGenerator generator =
         new PGPEncryptedDataGenerator(
             new JcePGPDataEncryptorBuilder(SymmetricKeyAlgorithmTags.AES_256)
                 .setWithIntegrityPacket(true)
-                .setSecureRandom(new SecureRandom())
+                .setSecureRandom(RANDOM)
                 .setProvider(PROVIDER));
 
-    for (PGPPublicKey publicKey : publicPgpKeys) {
-      generator.addMethod(
-          new JcePublicKeyKeyEncryptionMethodGenerator(publicKey).setProvider(PROVIDER));
+    for (JcePublicKeyKeyEncryptionMethodGenerator method : methods) {
+      generator.addMethod(method);
     }
     final ByteArrayOutputStream encryptedBytes = new ByteArrayOutputStream();
     try (OutputStream armoredOutputStream = new ArmoredOutputStream(encryptedBytes);
@@ -68,16 +132,6 @@ public final class PgpEncrypt {
     return encryptedBytes.toByteArray();
   }
 
-  private static Collection<PGPPublicKey> getPublicKeys(Collection<Resource> publicKeyResources)
-      throws IOException, PGPException {
-    var publicKeys = new ArrayList<PGPPublicKey>();
-    for (Resource resource : publicKeyResources) {
-      PGPPublicKey publicPgpKey = getPublicKey(resource);
-      publicKeys.add(publicPgpKey);
-    }
-    return publicKeys;
-  }
-
   private static PGPPublicKey getPublicKey(Resource pgpKey) throws IOException, PGPException {
     InputStream input = PGPUtil.getDecoderStream(pgpKey.getInputStream());
 
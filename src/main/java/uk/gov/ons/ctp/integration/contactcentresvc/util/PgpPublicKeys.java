@@ -0,0 +1,113 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.util;
+
+import com.godaddy.logging.Logger;
+import com.godaddy.logging.LoggerFactory;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import lombok.Value;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.AppConfig;
+
+/**
+ * Holds the public PGP keys used to encrypt respondent details, parsed once rather than for every
+ * value encrypted.
+ *
+ * <p>The key files are checked for changes at most once every <code>
+ * public-pgp-key-check-seconds</code>, and are parsed again if either has changed. If a changed
+ * key can't be parsed the keys already held continue to be used.
+ */
+@Component
+public class PgpPublicKeys {
+  private static final Logger log = LoggerFactory.getLogger(PgpPublicKeys.class);
+
+  @Autowired private AppConfig appConfig;
+
+  private volatile KeyRings keyRings;
+  private volatile long nextCheckNanos;
+
+  @Value
+  private static class KeyRings {
+    private List<Resource> resources;
+    private List<Long> lastModified;
+    private List<PGPPublicKey> keys;
+  }
+
+  @PostConstruct
+  void init() throws IOException, PGPException {
+    keyRings = load(configuredResources());
+    scheduleNextCheck();
+    log.info("Loaded public PGP keys");
+  }
+
+  /**
+   * Get the public keys, parsing them again first if the key files have changed.
+   *
+   * @return the parsed public keys
+   */
+  public List<PGPPublicKey> getKeys() {
+    KeyRings current = keyRings;
+    if (current == null || System.nanoTime() - nextCheckNanos >= 0) {
+      current = reloadIfChanged();
+    }
+    return current.getKeys();
+  }
+
+  private synchronized KeyRings reloadIfChanged() {
+    KeyRings current = keyRings;
+    if (current != null && System.nanoTime() - nextCheckNanos < 0) {
+      return current;
+    }
+    List<Resource> resources = configuredResources();
+    try {
+      if (current == null) {
+        current = load(resources);
+      } else if (!resources.equals(current.getResources())
+          || !lastModified(resources).equals(current.getLastModified())) {
+        current = load(resources);
+        log.info("Public PGP keys have changed, reloaded them");
+      }
+    } catch (IOException | PGPException e) {
+      if (current == null) {
+        throw new RuntimeException("failed to read public PGP keys", e);
+      }
+      log.with("error", e.getMessage()).warn("Failed to reload public PGP keys, keeping old keys");
+    }
+    keyRings = current;
+    scheduleNextCheck();
+    return current;
+  }
+
+  private KeyRings load(List<Resource> resources) throws IOException, PGPException {
+    List<Long> lastModified = lastModified(resources);
+    List<PGPPublicKey> keys = PgpEncrypt.readPublicKeys(resources);
+    for (int i = 0; i < keys.size(); i++) {
+      if (keys.get(i) == null) {
+        throw new PGPException("no public encryption key in " + resources.get(i));
+      }
+    }
+    return new KeyRings(resources, lastModified, keys);
+  }
+
+  private List<Resource> configuredResources() {
+    return List.of(appConfig.getPublicPgpKey1(), appConfig.getPublicPgpKey2());
+  }
+
+  private List<Long> lastModified(List<Resource> resources) throws IOException {
+    Long[] lastModified = new Long[resources.size()];
+    for (int i = 0; i < lastModified.length; i++) {
+      lastModified[i] = resources.get(i).lastModified();
+    }
+    return List.of(lastModified);
+  }
+
+  private void scheduleNextCheck() {
+    nextCheckNanos =
+        System.nanoTime() + TimeUnit.SECONDS.toNanos(appConfig.getPublicPgpKeyCheckSeconds());
+  }
+}
@@ -0,0 +1,116 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.util;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Immutable set of postcodes, held compactly. A postcode of up to 10 letters and digits is packed
+ * into a long, six bits to a character, and the packed postcodes are kept in a sorted array to be
+ * binary searched. Anything which can't be packed is held as a string.
+ *
+ * <p>A million postcodes take about 8MB this way, against well over 100MB as a set of strings.
+ */
+public final class PostcodeIndex {
+  private static final int MAX_PACKED_LENGTH = 10;
+
+  private final long[] packed;
+  private final Set<String> unpacked;
+
+  private PostcodeIndex(long[] packed, Set<String> unpacked) {
+    this.packed = packed;
+    this.unpacked = unpacked;
+  }
+
+  /**
+   * Find whether the index holds a postcode. The postcode must be normalised as it was when it was
+   * added.
+   *
+   * @param postcode to look for
+   * @return true if the postcode is in the index
+   */
+  public boolean contains(String postcode) {
+    long key = pack(postcode);
+    return key < 0 ? unpacked.contains(postcode) : Arrays.binarySearch(packed, key) >= 0;
+  }
+
+  /** @return the number of postcodes in the index */
+  public int size() {
+    return packed.length + unpacked.size();
+  }
+
+  /** @return a builder for a new index */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /** Collects the postcodes for an index. A postcode may be added more than once. */
+  public static final class Builder {
+    private long[] packed = new long[1024];
+    private int count;
+    private final Set<String> unpacked = new HashSet<>();
+
+    private Builder() {}
+
+    public Builder add(String postcode) {
+      long key = pack(postcode);
+      if (key < 0) {
+        unpacked.add(postcode);
+      } else {
+        if (count == packed.length) {
+          packed = Arrays.copyOf(packed, count * 2);
+        }
+        packed[count++] = key;
+      }
+      return this;
+    }
+
+    public PostcodeIndex build() {
+      long[] keys = Arrays.copyOf(packed, count);
+      Arrays.sort(keys);
+      int distinct = 0;
+      for (int i = 0; i < keys.length; i++) {
+        if (i == 0 || keys[i] != keys[i - 1]) {
+          keys[distinct++] = keys[i];
+        }
+      }
+      return new PostcodeIndex(Arrays.copyOf(keys, distinct), Set.copyOf(unpacked));
+    }
+  }
+
+  /**
+   * Pack a postcode into a long. As no character packs to zero, each postcode packs to a different
+   * value.
+   *
+   * @param postcode to pack
+   * @return the packed postcode, or -1 if it is too long or not just letters and digits
+   */
+  static long pack(String postcode) {
+    int length = postcode.length();
+    if (length == 0 || length > MAX_PACKED_LENGTH) {
+      return -1;
+    }
+    long key = 0;
+    for (int i = 0; i < length; i++) {
+      int code = code(postcode.charAt(i));
+      if (code == 0) {
+        return -1;
+      }
+      key = key << 6 | code;
+    }
+    return key;
+  }
+
+  private static int code(char c) {
+    if (c >= '0' && c <= '9') {
+      return c - '0' + 1;
+    }
+    if (c >= 'A' && c <= 'Z') {
+      return c - 'A' + 11;
+    }
+    if (c >= 'a' && c <= 'z') {
+      return c - 'a' + 37;
+    }
+    return 0;
+  }
+}
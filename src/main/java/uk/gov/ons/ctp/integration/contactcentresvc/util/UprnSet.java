@@ -0,0 +1,127 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.util;
+
+import java.util.Arrays;
+
+/**
+ * Immutable set of UPRNs, held as a sorted array of longs to be binary searched, so neither the
+ * set nor a lookup boxes its values.
+ *
+ * <p>The set may also have a bloom filter, which answers most lookups for UPRNs not in the set
+ * from a few bits, without searching the array. It costs about 10 bits a UPRN, and lets through
+ * about 1% of the UPRNs not in the set to the search.
+ */
+public final class UprnSet {
+  private static final int BLOOM_BITS_PER_UPRN = 10;
+  private static final int BLOOM_HASHES = 7;
+
+  private final long[] uprns;
+  private final long[] bloom;
+  private final int bloomMask;
+
+  private UprnSet(long[] uprns, boolean withBloomFilter) {
+    this.uprns = uprns;
+    if (withBloomFilter) {
+      int bits = Integer.highestOneBit(Math.max(64, uprns.length * BLOOM_BITS_PER_UPRN - 1) << 1);
+      bloom = new long[bits / 64];
+      bloomMask = bits - 1;
+      for (long uprn : uprns) {
+        long hash = mix(uprn);
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+          int bit = bloomBit(hash, i);
+          bloom[bit >>> 6] |= 1L << bit;
+        }
+      }
+    } else {
+      bloom = null;
+      bloomMask = 0;
+    }
+  }
+
+  /**
+   * Find whether the set holds a UPRN.
+   *
+   * @param uprn to look for
+   * @return true if the UPRN is in the set
+   */
+  public boolean contains(long uprn) {
+    if (bloom != null && !mightContain(uprn)) {
+      return false;
+    }
+    return Arrays.binarySearch(uprns, uprn) >= 0;
+  }
+
+  /** @return the number of UPRNs in the set */
+  public int size() {
+    return uprns.length;
+  }
+
+  /**
+   * Create a builder for a new set.
+   *
+   * @param withBloomFilter true if the set is to have a bloom filter in front of it
+   * @return the builder
+   */
+  public static Builder builder(boolean withBloomFilter) {
+    return new Builder(withBloomFilter);
+  }
+
+  /** Collects the UPRNs for a set. A UPRN may be added more than once. */
+  public static final class Builder {
+    private final boolean withBloomFilter;
+    private long[] uprns = new long[1024];
+    private int count;
+
+    private Builder(boolean withBloomFilter) {
+      this.withBloomFilter = withBloomFilter;
+    }
+
+    public Builder add(long uprn) {
+      if (count == uprns.length) {
+        uprns = Arrays.copyOf(uprns, count * 2);
+      }
+      uprns[count++] = uprn;
+      return this;
+    }
+
+    public UprnSet build() {
+      long[] sorted = Arrays.copyOf(uprns, count);
+      Arrays.sort(sorted);
+      int distinct = 0;
+      for (int i = 0; i < sorted.length; i++) {
+        if (i == 0 || sorted[i] != sorted[i - 1]) {
+          sorted[distinct++] = sorted[i];
+        }
+      }
+      return new UprnSet(Arrays.copyOf(sorted, distinct), withBloomFilter);
+    }
+  }
+
+  private boolean mightContain(long uprn) {
+    long hash = mix(uprn);
+    for (int i = 0; i < BLOOM_HASHES; i++) {
+      int bit = bloomBit(hash, i);
+      if ((bloom[bit >>> 6] & 1L << bit) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // The bits for a UPRN are taken from two halves of one hash, h1 + i * h2
+  private int bloomBit(long hash, int i) {
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32) | 1;
+    return (h1 + i * h2) & bloomMask;
+  }
+
+  // UPRNs are often close together, so spread their bits before hashing (the MurmurHash3 finaliser)
+  private static long mix(long value) {
+    long hash = value;
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
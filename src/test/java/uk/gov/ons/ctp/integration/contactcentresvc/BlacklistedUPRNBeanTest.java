@@ -0,0 +1,161 @@
+package uk.gov.ons.ctp.integration.contactcentresvc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Set;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import uk.gov.ons.ctp.common.domain.UniquePropertyReferenceNumber;
+import uk.gov.ons.ctp.common.event.EventPublisher.Channel;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.AppConfig;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.UPRNBlacklist;
+
+public class BlacklistedUPRNBeanTest {
+  private static final UniquePropertyReferenceNumber UPRN_1 =
+      new UniquePropertyReferenceNumber(100060447618L);
+  private static final UniquePropertyReferenceNumber UPRN_2 =
+      new UniquePropertyReferenceNumber(666666666666L);
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Test
+  public void testNullUprn_notBlacklisted() throws IOException {
+    BlacklistedUPRNBean bean = createBeanWithNoFile(UPRN_1.getValue());
+    assertFalse(bean.isUPRNBlacklisted(null));
+  }
+
+  @Test
+  public void testDefaultList_findBlacklistedUprn() throws IOException {
+    BlacklistedUPRNBean bean = createBeanWithNoFile(UPRN_1.getValue());
+    assertTrue(bean.isUPRNBlacklisted(UPRN_1));
+    assertFalse(bean.isUPRNBlacklisted(UPRN_2));
+  }
+
+  @Test
+  public void testBlacklistFile_findBlacklistedUprn() throws IOException {
+    BlacklistedUPRNBean bean = createBeanWithFile(true, " 666666666666 ");
+    assertTrue(bean.isUPRNBlacklisted(UPRN_2));
+    assertFalse(bean.isUPRNBlacklisted(UPRN_1));
+  }
+
+  @Test
+  public void testBlacklistFile_findBlacklistedUprnWithoutBloomFilter() throws IOException {
+    BlacklistedUPRNBean bean = createBeanWithFile(false, "666666666666");
+    assertTrue(bean.isUPRNBlacklisted(UPRN_2));
+    assertFalse(bean.isUPRNBlacklisted(UPRN_1));
+  }
+
+  @Test
+  public void testNotCC_nothingBlacklisted() throws IOException {
+    Path blacklistFile = writeBlacklist("666666666666");
+    BlacklistedUPRNBean bean =
+        createBean(Channel.AD, blacklistFile.toString(), Set.of(UPRN_1.getValue()), false);
+    assertFalse(bean.isUPRNBlacklisted(UPRN_1));
+    assertFalse(bean.isUPRNBlacklisted(UPRN_2));
+  }
+
+  @Test
+  public void testBlacklistFile_metricsPublished() throws IOException {
+    createBeanWithFile(true, "666666666666", "100060447618", "666666666666");
+    assertEquals(2, meterRegistry.get("uprn.blacklist.size").gauge().value(), 0.001);
+    assertEquals(1, meterRegistry.get("uprn.blacklist.load").timer().count());
+  }
+
+  @Test
+  public void testBlacklistFile_reloadedWhenChanged() throws Exception {
+    Path blacklistFile = writeBlacklist("666666666666");
+    BlacklistedUPRNBean bean = createBean(Channel.CC, blacklistFile.toString(), Set.of(), true);
+    try {
+      assertTrue(bean.isUPRNBlacklisted(UPRN_2));
+
+      // Replace the file as a config map update does, so the new content is seen at once
+      Path updatedFile = folder.newFile("blacklist.new").toPath();
+      Files.write(updatedFile, Arrays.asList("100060447618"));
+      Files.move(updatedFile, blacklistFile, StandardCopyOption.REPLACE_EXISTING);
+
+      long deadline = System.currentTimeMillis() + 30_000;
+      while (!bean.isUPRNBlacklisted(UPRN_1) && System.currentTimeMillis() < deadline) {
+        Thread.sleep(50);
+      }
+      assertTrue(bean.isUPRNBlacklisted(UPRN_1));
+      assertFalse(bean.isUPRNBlacklisted(UPRN_2));
+    } finally {
+      bean.close();
+    }
+  }
+
+  @Test
+  public void testBlacklistFile_keptWhenReloadFails() throws Exception {
+    Path blacklistFile = writeBlacklist("666666666666");
+    BlacklistedUPRNBean bean = createBean(Channel.CC, blacklistFile.toString(), Set.of(), true);
+    try {
+      Files.write(blacklistFile, Arrays.asList("not a uprn"));
+      ReflectionTestUtils.invokeMethod(bean, "reload", blacklistFile.toString());
+      assertTrue(bean.isUPRNBlacklisted(UPRN_2));
+    } finally {
+      bean.close();
+    }
+  }
+
+  private Path writeBlacklist(String... uprns) throws IOException {
+    Path blacklistFile = folder.newFile("blacklist").toPath();
+    Files.write(blacklistFile, Arrays.asList(uprns));
+    return blacklistFile;
+  }
+
+  private BlacklistedUPRNBean createBeanWithNoFile(Long... defaultUprns) {
+    return createBean(
+        Channel.CC,
+        "/tmp/unknownFile_5b1fd3a2-6b0e-4d43-9a39-1d8e3f7fb0c4",
+        Set.of(defaultUprns),
+        false);
+  }
+
+  private BlacklistedUPRNBean createBeanWithFile(boolean bloomFilter, String... uprns)
+      throws IOException {
+    Path blacklistFile = writeBlacklist(uprns);
+    AppConfig appConfig = createAppConfig(Channel.CC, blacklistFile.toString(), Set.of(), false);
+    appConfig.getUprnBlacklist().setBloomFilter(bloomFilter);
+    return init(new BlacklistedUPRNBean(), appConfig);
+  }
+
+  private BlacklistedUPRNBean createBean(
+      Channel channel, String blacklistFile, Set<Long> defaultUprns, boolean reload) {
+    return init(
+        new BlacklistedUPRNBean(), createAppConfig(channel, blacklistFile, defaultUprns, reload));
+  }
+
+  private AppConfig createAppConfig(
+      Channel channel, String blacklistFile, Set<Long> defaultUprns, boolean reload) {
+    UPRNBlacklist uprnBlacklist = new UPRNBlacklist();
+    uprnBlacklist.setUprnBlacklistPath(blacklistFile);
+    uprnBlacklist.setDefaultUprnBlacklist(defaultUprns);
+    uprnBlacklist.setReload(reload);
+    uprnBlacklist.setBloomFilter(true);
+
+    AppConfig appConfig = new AppConfig();
+    appConfig.setChannel(channel);
+    appConfig.setUprnBlacklist(uprnBlacklist);
+    return appConfig;
+  }
+
+  private BlacklistedUPRNBean init(BlacklistedUPRNBean bean, AppConfig appConfig) {
+    ReflectionTestUtils.setField(bean, "appConfig", appConfig);
+    ReflectionTestUtils.setField(bean, "meterRegistry", meterRegistry);
+    bean.init();
+    return bean;
+  }
+}
@@ -1,17 +1,23 @@
 package uk.gov.ons.ctp.integration.contactcentresvc;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.springframework.test.util.ReflectionTestUtils;
 import uk.gov.ons.ctp.common.event.EventPublisher.Channel;
 import uk.gov.ons.ctp.integration.contactcentresvc.config.AppConfig;
@@ -19,6 +25,10 @@ import uk.gov.ons.ctp.integration.contactcentresvc.config.CCSPostcodes;
 
 public class CCSPostcodesBeanTest {
 
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
   @Test
   public void testDefaultList_findWithSpaceInSearchPostcode() throws IOException {
     CCSPostcodesBean postcodesBean = createPostcodesBeanWithNoFile("GW12 AAA");
@@ -55,6 +65,39 @@ public class CCSPostcodesBeanTest {
     assertFalse(postcodesBean.isInCCSPostcodes("GW12 AAA"));
   }
 
+  @Test
+  public void testPostcodeFile_metricsPublished() throws IOException {
+    createPostcodesBeanPostcodeFile("PO11 5AB", "AB12 7NB", "AB12 7NB");
+    assertEquals(2, meterRegistry.get("ccs.postcodes.size").gauge().value(), 0.001);
+    assertEquals(1, meterRegistry.get("ccs.postcodes.load").timer().count());
+  }
+
+  @Test
+  public void testPostcodeFile_reloadedWhenChanged() throws Exception {
+    Path postcodesFile = folder.newFile("ccs-postcodes").toPath();
+    Files.write(postcodesFile, Arrays.asList("PO11 5AB"));
+    CCSPostcodesBean postcodesBean =
+        createPostcodesBean(postcodesFile.toString(), Set.of("no-postcodes"), true);
+    try {
+      assertTrue(postcodesBean.isInCCSPostcodes("PO11 5AB"));
+
+      // Replace the file as a config map update does, so the new content is seen at once
+      Path updatedFile = folder.newFile("ccs-postcodes.new").toPath();
+      Files.write(updatedFile, Arrays.asList("AB12 7NB"));
+      Files.move(updatedFile, postcodesFile, StandardCopyOption.REPLACE_EXISTING);
+
+      long deadline = System.currentTimeMillis() + 30_000;
+      while (!postcodesBean.isInCCSPostcodes("AB12 7NB")
+          && System.currentTimeMillis() < deadline) {
+        Thread.sleep(50);
+      }
+      assertTrue(postcodesBean.isInCCSPostcodes("AB12 7NB"));
+      assertFalse(postcodesBean.isInCCSPostcodes("PO11 5AB"));
+    } finally {
+      postcodesBean.close();
+    }
+  }
+
   private CCSPostcodesBean createPostcodesBeanWithNoFile(String... defaultPostcodes)
       throws IOException {
     Set<String> postcodeSet = new HashSet<String>(Arrays.asList(defaultPostcodes));
@@ -78,6 +121,11 @@ public class CCSPostcodesBeanTest {
 
   private CCSPostcodesBean createPostcodesBean(String postcodesFile, Set<String> defaultPostcodes)
       throws IOException {
+    return createPostcodesBean(postcodesFile, defaultPostcodes, false);
+  }
+
+  private CCSPostcodesBean createPostcodesBean(
+      String postcodesFile, Set<String> defaultPostcodes, boolean reload) throws IOException {
     AppConfig appConfig = new AppConfig();
     appConfig.setChannel(Channel.CC);
 
@@ -89,9 +137,11 @@ public class CCSPostcodesBeanTest {
 
     // Populate default test postcodes (not used)
     ccsPostcodes.setCcsDefaultPostcodes(defaultPostcodes);
+    ccsPostcodes.setReload(reload);
 
     CCSPostcodesBean postcodesBean = new CCSPostcodesBean();
     ReflectionTestUtils.setField(postcodesBean, "appConfig", appConfig);
+    ReflectionTestUtils.setField(postcodesBean, "meterRegistry", meterRegistry);
     postcodesBean.init();
 
     return postcodesBean;
@@ -0,0 +1,43 @@
+package uk.gov.ons.ctp.integration.contactcentresvc;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.firestore.Firestore;
+import io.micrometer.stackdriver.StackdriverMeterRegistry;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import uk.gov.ons.ctp.common.cloud.FirestoreDataStore;
+import uk.gov.ons.ctp.common.cloud.RetryableCloudDataStore;
+import uk.gov.ons.ctp.common.event.EventPublisher;
+import uk.gov.ons.ctp.common.event.persistence.FirestoreEventPersistence;
+import uk.gov.ons.ctp.integration.contactcentresvc.repository.CaseDataRepository;
+import uk.gov.ons.ctp.integration.contactcentresvc.repository.impl.InMemoryCaseDataRepository;
+
+/**
+ * Starts the service with the in-memory-cases profile and, unlike the endpoint security tests,
+ * without a GOOGLE_CLOUD_PROJECT, to show that nothing needs Firestore or Stackdriver.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles(InMemoryCaseDataRepository.PROFILE)
+public class InMemoryCasesApplicationTest {
+
+  @Autowired private ApplicationContext context;
+
+  @Test
+  public void shouldStartWithoutFirestore() {
+    assertTrue(context.getBean(CaseDataRepository.class) instanceof InMemoryCaseDataRepository);
+    assertNotNull(context.getBean(EventPublisher.class));
+    assertTrue(context.getBeansOfType(Firestore.class).isEmpty());
+    assertTrue(context.getBeansOfType(FirestoreDataStore.class).isEmpty());
+    assertTrue(context.getBeansOfType(RetryableCloudDataStore.class).isEmpty());
+    assertTrue(context.getBeansOfType(FirestoreEventPersistence.class).isEmpty());
+    assertTrue(context.getBeansOfType(StackdriverMeterRegistry.class).isEmpty());
+  }
+}
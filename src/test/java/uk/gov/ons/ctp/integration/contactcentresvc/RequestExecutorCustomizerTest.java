@@ -0,0 +1,86 @@
+package uk.gov.ons.ctp.integration.contactcentresvc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import io.undertow.servlet.api.DeploymentInfo;
+import java.util.concurrent.ThreadPoolExecutor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.AppConfig;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.RequestExecution;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.RequestExecution.Mode;
+
+public class RequestExecutorCustomizerTest {
+  private AppConfig appConfig = new AppConfig();
+  private RequestExecution settings = new RequestExecution();
+  private RequestExecutorCustomizer customizer = new RequestExecutorCustomizer();
+  private DeploymentInfo deploymentInfo = new DeploymentInfo();
+
+  @Before
+  public void setup() {
+    settings.setMaxThreads(8);
+    settings.setQueueCapacity(16);
+    appConfig.setRequestExecution(settings);
+    ReflectionTestUtils.setField(customizer, "appConfig", appConfig);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    customizer.destroy();
+  }
+
+  @Test
+  public void shouldLeaveRequestsOnWorkerThreadsByDefault() {
+    customizer.customizeDeployment(deploymentInfo);
+
+    assertNull(deploymentInfo.getExecutor());
+  }
+
+  @Test
+  public void shouldLeaveRequestsOnWorkerThreadsWithoutSettings() {
+    appConfig.setRequestExecution(null);
+
+    customizer.customizeDeployment(deploymentInfo);
+
+    assertNull(deploymentInfo.getExecutor());
+  }
+
+  @Test
+  public void shouldRunRequestsOnElasticPool() {
+    settings.setMode(Mode.ELASTIC);
+
+    customizer.customizeDeployment(deploymentInfo);
+
+    ThreadPoolExecutor pool = (ThreadPoolExecutor) deploymentInfo.getExecutor();
+    assertEquals(8, pool.getMaximumPoolSize());
+    assertEquals(16, pool.getQueue().remainingCapacity());
+    assertTrue(pool.getRejectedExecutionHandler() instanceof ThreadPoolExecutor.AbortPolicy);
+    assertTrue(pool.allowsCoreThreadTimeOut());
+  }
+
+  @Test
+  public void shouldRunRequestsOnVirtualThreadsOrElasticPool() {
+    settings.setMode(Mode.VIRTUAL);
+
+    customizer.customizeDeployment(deploymentInfo);
+
+    assertNotNull(deploymentInfo.getExecutor());
+  }
+
+  @Test
+  public void shouldShareExecutorBetweenDeployments() {
+    settings.setMode(Mode.ELASTIC);
+    DeploymentInfo other = new DeploymentInfo();
+
+    customizer.customizeDeployment(deploymentInfo);
+    customizer.customizeDeployment(other);
+
+    assertSame(deploymentInfo.getExecutor(), other.getExecutor());
+  }
+}
@@ -0,0 +1,187 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import uk.gov.ons.ctp.common.FixtureHelper;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.model.AddressIndexAddressCompositeDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.model.AddressIndexSearchResultsCompositeDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.model.AddressIndexSummaryResultsDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.AddressIndexSettings;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.AppConfig;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.CacheSettings;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.LookupSettings;
+
+public class AddressIndexCacheTest {
+  private static final String POSTCODE_PATH = "/addresses/postcode/{postcode}";
+  private static final String UPRN_PATH = "/addresses/rh/uprn/{uprn}";
+  private static final String POSTCODE = "EX1 2ET";
+  private static final long UPRN = 100041045018L;
+
+  private AddressIndexSummaryResultsDTO postcodeResults;
+  private AddressIndexSearchResultsCompositeDTO uprnResults;
+  private AddressIndexSettings addressIndexSettings;
+  private AtomicInteger aimsCalls = new AtomicInteger();
+  private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Before
+  public void setup() {
+    postcodeResults =
+        FixtureHelper.loadClassFixtures(AddressIndexSummaryResultsDTO[].class).get(0);
+    uprnResults =
+        FixtureHelper.loadClassFixtures(AddressIndexSearchResultsCompositeDTO[].class).get(0);
+    uprnResults.setDataVersion(postcodeResults.getDataVersion());
+  }
+
+  @Test
+  public void shouldOnlyCallAimsOnceForRepeatedPostcodeSearches() {
+    AddressIndexCache cache = createCache(true);
+    AddressIndexSummaryResultsDTO first =
+        cache.getPostcodeResults(POSTCODE_PATH, POSTCODE, 0, 100, aims(postcodeResults));
+    AddressIndexSummaryResultsDTO second =
+        cache.getPostcodeResults(POSTCODE_PATH, POSTCODE, 0, 100, aims(postcodeResults));
+    assertEquals(1, aimsCalls.get());
+    assertSame(postcodeResults, first);
+    assertSame(postcodeResults, second);
+    assertEquals(1.0, cacheGets("hit"), 0.0);
+    assertEquals(1.0, cacheGets("miss"), 0.0);
+  }
+
+  @Test
+  public void shouldHoldEachPageOfPostcodeResultsSeparately() {
+    AddressIndexCache cache = createCache(true);
+    cache.getPostcodeResults(POSTCODE_PATH, POSTCODE, 0, 100, aims(postcodeResults));
+    cache.getPostcodeResults(POSTCODE_PATH, POSTCODE, 100, 100, aims(postcodeResults));
+    cache.getPostcodeResults(POSTCODE_PATH, POSTCODE, 0, 50, aims(postcodeResults));
+    assertEquals(3, aimsCalls.get());
+  }
+
+  @Test
+  public void shouldNotHoldUnsuccessfulResponses() {
+    AddressIndexCache cache = createCache(true);
+    postcodeResults.getStatus().setCode(404);
+    cache.getPostcodeResults(POSTCODE_PATH, POSTCODE, 0, 100, aims(postcodeResults));
+    cache.getPostcodeResults(POSTCODE_PATH, POSTCODE, 0, 100, aims(postcodeResults));
+    assertEquals(2, aimsCalls.get());
+  }
+
+  @Test
+  public void shouldGiveEachCallerTheirOwnCopyOfUprnResults() {
+    AddressIndexCache cache = createCache(true);
+    AddressIndexSearchResultsCompositeDTO first =
+        cache.getUprnResults(UPRN_PATH, UPRN, aims(uprnResults));
+    AddressIndexAddressCompositeDTO address = first.getResponse().getAddress();
+    String originalAddressType = address.getCensusAddressType();
+    address.setCensusAddressType("CE");
+
+    AddressIndexSearchResultsCompositeDTO second =
+        cache.getUprnResults(UPRN_PATH, UPRN, aims(uprnResults));
+    assertEquals(1, aimsCalls.get());
+    assertNotSame(first, second);
+    assertEquals(originalAddressType, second.getResponse().getAddress().getCensusAddressType());
+  }
+
+  @Test
+  public void shouldNotServeResponsesForAnEarlierEpoch() {
+    AddressIndexCache cache = createCache(true);
+    cache.getPostcodeResults(POSTCODE_PATH, POSTCODE, 0, 100, aims(postcodeResults));
+    cache.getUprnResults(UPRN_PATH, UPRN, aims(uprnResults));
+
+    addressIndexSettings.setEpoch("100");
+    cache.getPostcodeResults(POSTCODE_PATH, POSTCODE, 0, 100, aims(postcodeResults));
+    cache.getUprnResults(UPRN_PATH, UPRN, aims(uprnResults));
+    assertEquals(4, aimsCalls.get());
+
+    cache.getPostcodeResults(POSTCODE_PATH, POSTCODE, 0, 100, aims(postcodeResults));
+    assertEquals(4, aimsCalls.get());
+  }
+
+  @Test
+  public void shouldDropEverythingWhenDataVersionMovesOn() {
+    AddressIndexCache cache = createCache(true);
+    cache.getPostcodeResults(POSTCODE_PATH, POSTCODE, 0, 100, aims(postcodeResults));
+    cache.getUprnResults(UPRN_PATH, UPRN, aims(uprnResults));
+
+    AddressIndexSearchResultsCompositeDTO reloaded = reloadedUprnResults("40");
+    cache.getUprnResults(UPRN_PATH, UPRN + 1, aims(reloaded));
+    cache.getUprnResults(UPRN_PATH, UPRN, aims(reloaded));
+    assertEquals(4, aimsCalls.get());
+
+    cache.getUprnResults(UPRN_PATH, UPRN + 1, aims(reloaded));
+    cache.getUprnResults(UPRN_PATH, UPRN, aims(reloaded));
+    assertEquals(4, aimsCalls.get());
+  }
+
+  @Test
+  public void shouldNotHoldResponsesFromEarlierDataVersion() {
+    AddressIndexCache cache = createCache(true);
+    cache.getUprnResults(UPRN_PATH, UPRN, aims(reloadedUprnResults("40")));
+
+    cache.getPostcodeResults(POSTCODE_PATH, POSTCODE, 0, 100, aims(postcodeResults));
+    cache.getPostcodeResults(POSTCODE_PATH, POSTCODE, 0, 100, aims(postcodeResults));
+    assertEquals(3, aimsCalls.get());
+
+    cache.getUprnResults(UPRN_PATH, UPRN, aims(uprnResults));
+    assertEquals(3, aimsCalls.get());
+  }
+
+  @Test
+  public void shouldAlwaysCallAimsWhenDisabled() {
+    AddressIndexCache cache = createCache(false);
+    cache.getPostcodeResults(POSTCODE_PATH, POSTCODE, 0, 100, aims(postcodeResults));
+    cache.getPostcodeResults(POSTCODE_PATH, POSTCODE, 0, 100, aims(postcodeResults));
+    assertEquals(2, aimsCalls.get());
+  }
+
+  private AddressIndexSearchResultsCompositeDTO reloadedUprnResults(String dataVersion) {
+    AddressIndexSearchResultsCompositeDTO reloaded =
+        FixtureHelper.loadClassFixtures(AddressIndexSearchResultsCompositeDTO[].class).get(0);
+    reloaded.setDataVersion(dataVersion);
+    return reloaded;
+  }
+
+  private <T> Supplier<T> aims(T results) {
+    return () -> {
+      aimsCalls.incrementAndGet();
+      return results;
+    };
+  }
+
+  private double cacheGets(String result) {
+    return meterRegistry
+        .get("cache.gets")
+        .tag("cache", "addressIndexResponses")
+        .tag("result", result)
+        .functionCounter()
+        .count();
+  }
+
+  private AddressIndexCache createCache(boolean enabled) {
+    CacheSettings cacheSettings = new CacheSettings();
+    cacheSettings.setEnabled(enabled);
+    cacheSettings.setMaximumWeightBytes(1024 * 1024);
+    cacheSettings.setTimeToLiveSeconds(60);
+    addressIndexSettings = new AddressIndexSettings();
+    addressIndexSettings.setEpoch("99");
+    addressIndexSettings.setResponseCache(cacheSettings);
+    LookupSettings lookupSettings = new LookupSettings();
+    lookupSettings.setAimsTimeoutMillis(5000);
+    AppConfig appConfig = new AppConfig();
+    appConfig.setAddressIndexSettings(addressIndexSettings);
+    appConfig.setLookupSettings(lookupSettings);
+
+    AddressIndexCache cache = new AddressIndexCache();
+    ReflectionTestUtils.setField(cache, "appConfig", appConfig);
+    ReflectionTestUtils.setField(cache, "meterRegistry", meterRegistry);
+    cache.init();
+    return cache;
+  }
+}
@@ -0,0 +1,190 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.fail;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+import uk.gov.ons.ctp.common.FixtureHelper;
+import uk.gov.ons.ctp.integration.caseapiclient.caseservice.model.CaseContainerDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.AppConfig;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.CacheSettings;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.CaseServiceSettings;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.LookupSettings;
+
+public class RmCaseCacheTest {
+  private CaseContainerDTO caseFromRm;
+  private UUID caseId;
+  private long caseRef;
+  private long uprn;
+  private AtomicInteger rmCalls = new AtomicInteger();
+  private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Before
+  public void setup() {
+    caseFromRm = FixtureHelper.loadClassFixtures(CaseContainerDTO[].class).get(0);
+    caseId = caseFromRm.getId();
+    caseRef = Long.parseLong(caseFromRm.getCaseRef());
+    uprn = Long.parseLong(caseFromRm.getUprn());
+  }
+
+  @Test
+  public void shouldOnlyCallRmOnceForRepeatedLookupsById() {
+    RmCaseCache cache = createCache(true);
+    CaseContainerDTO first = cache.getCaseById(caseId, true, rm());
+    CaseContainerDTO second = cache.getCaseById(caseId, true, rm());
+    assertEquals(1, rmCalls.get());
+    assertEquals(caseFromRm, first);
+    assertEquals(caseFromRm, second);
+    assertEquals(1.0, cacheGets("rmCasesById", "hit"), 0.0);
+    assertEquals(1.0, cacheGets("rmCasesById", "miss"), 0.0);
+  }
+
+  @Test
+  public void shouldGiveEachCallerTheirOwnCopy() {
+    RmCaseCache cache = createCache(true);
+    CaseContainerDTO first = cache.getCaseById(caseId, true, rm());
+    first.setCaseEvents(Collections.emptyList());
+    first.setAddressLine1("Somewhere else");
+
+    CaseContainerDTO second = cache.getCaseById(caseId, true, rm());
+    assertNotSame(first, second);
+    assertNotSame(caseFromRm, second);
+    assertEquals(caseFromRm, second);
+  }
+
+  @Test
+  public void shouldHoldCasesWithAndWithoutEventsSeparately() {
+    RmCaseCache cache = createCache(true);
+    cache.getCaseByCaseRef(caseRef, true, rm());
+    cache.getCaseByCaseRef(caseRef, false, rm());
+    cache.getCaseByCaseRef(caseRef, false, rm());
+    assertEquals(2, rmCalls.get());
+  }
+
+  @Test
+  public void shouldNotHoldCasesRmCouldNotFind() {
+    RmCaseCache cache = createCache(true);
+    Supplier<CaseContainerDTO> notFound =
+        () -> {
+          rmCalls.incrementAndGet();
+          throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        };
+    for (int i = 0; i < 2; i++) {
+      try {
+        cache.getCaseById(caseId, false, notFound);
+        fail();
+      } catch (ResponseStatusException e) {
+        assertEquals(HttpStatus.NOT_FOUND, e.getStatus());
+      }
+    }
+    assertEquals(2, rmCalls.get());
+  }
+
+  @Test
+  public void shouldDropEverythingHeldForAnInvalidatedCase() {
+    RmCaseCache cache = createCache(true);
+    Supplier<List<CaseContainerDTO>> rmByUprn =
+        () -> {
+          rmCalls.incrementAndGet();
+          return List.of(caseFromRm);
+        };
+    cache.getCaseById(caseId, true, rm());
+    cache.getCaseByCaseRef(caseRef, false, rm());
+    cache.getCasesByUprn(uprn, false, rmByUprn);
+    assertEquals(3, rmCalls.get());
+
+    cache.invalidate(caseId, caseFromRm.getCaseRef(), caseFromRm.getUprn());
+
+    cache.getCaseById(caseId, true, rm());
+    cache.getCaseByCaseRef(caseRef, false, rm());
+    List<CaseContainerDTO> cases = cache.getCasesByUprn(uprn, false, rmByUprn);
+    assertEquals(6, rmCalls.get());
+    assertEquals(List.of(caseFromRm), cases);
+  }
+
+  @Test
+  public void shouldDropCasesForAnInvalidatedUprn() {
+    RmCaseCache cache = createCache(true);
+    Supplier<List<CaseContainerDTO>> rmByUprn =
+        () -> {
+          rmCalls.incrementAndGet();
+          return List.of(caseFromRm);
+        };
+    cache.getCasesByUprn(uprn, true, rmByUprn);
+    cache.invalidateUprn(caseFromRm.getUprn());
+    cache.getCasesByUprn(uprn, true, rmByUprn);
+    assertEquals(2, rmCalls.get());
+  }
+
+  @Test
+  public void shouldNotHoldCaseReadBeforeInvalidation() {
+    RmCaseCache cache = createCache(true);
+    cache.getCaseById(
+        caseId,
+        true,
+        () -> {
+          rmCalls.incrementAndGet();
+          cache.invalidate(caseId, null, null);
+          return caseFromRm;
+        });
+    cache.getCaseById(caseId, true, rm());
+    assertEquals(2, rmCalls.get());
+  }
+
+  @Test
+  public void shouldAlwaysCallRmWhenDisabled() {
+    RmCaseCache cache = createCache(false);
+    cache.getCaseById(caseId, true, rm());
+    cache.getCaseById(caseId, true, rm());
+    cache.invalidate(caseId, caseFromRm.getCaseRef(), caseFromRm.getUprn());
+    assertEquals(2, rmCalls.get());
+  }
+
+  private Supplier<CaseContainerDTO> rm() {
+    return () -> {
+      rmCalls.incrementAndGet();
+      return caseFromRm;
+    };
+  }
+
+  private double cacheGets(String cacheName, String result) {
+    return meterRegistry
+        .get("cache.gets")
+        .tag("cache", cacheName)
+        .tag("result", result)
+        .functionCounter()
+        .count();
+  }
+
+  private RmCaseCache createCache(boolean enabled) {
+    CacheSettings cacheSettings = new CacheSettings();
+    cacheSettings.setEnabled(enabled);
+    cacheSettings.setMaximumSize(100);
+    cacheSettings.setTimeToLiveSeconds(60);
+    CaseServiceSettings caseServiceSettings = new CaseServiceSettings();
+    caseServiceSettings.setCaseCache(cacheSettings);
+    LookupSettings lookupSettings = new LookupSettings();
+    lookupSettings.setRmTimeoutMillis(5000);
+    AppConfig appConfig = new AppConfig();
+    appConfig.setCaseServiceSettings(caseServiceSettings);
+    appConfig.setLookupSettings(lookupSettings);
+
+    RmCaseCache cache = new RmCaseCache();
+    ReflectionTestUtils.setField(cache, "appConfig", appConfig);
+    ReflectionTestUtils.setField(cache, "meterRegistry", meterRegistry);
+    cache.init();
+    return cache;
+  }
+}
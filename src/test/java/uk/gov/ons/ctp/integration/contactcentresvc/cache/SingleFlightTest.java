@@ -0,0 +1,267 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+public class SingleFlightTest {
+  private static final int FOLLOWERS = 4;
+
+  private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private SingleFlight<String, Object> singleFlight =
+      new SingleFlight<>("test", Duration.ofSeconds(5), meterRegistry);
+  private ExecutorService executor = Executors.newFixedThreadPool(FOLLOWERS + 1);
+  private AtomicInteger calls = new AtomicInteger();
+  private CountDownLatch release = new CountDownLatch(1);
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void shouldShareOneCallBetweenIdenticalRequests() throws Exception {
+    Object result = new Object();
+    List<Future<Object>> requests = startIdenticalRequests(blockingCall(() -> result));
+    release.countDown();
+
+    for (Future<Object> request : requests) {
+      assertSame(result, request.get(5, TimeUnit.SECONDS));
+    }
+    assertEquals(1, calls.get());
+    assertEquals(FOLLOWERS, meterRegistry.get("singleflight.coalesced").counter().count(), 0.0);
+    assertEquals(0.0, waiting(), 0.0);
+  }
+
+  @Test
+  public void shouldShareFailureBetweenIdenticalRequests() throws Exception {
+    List<Future<Object>> requests =
+        startIdenticalRequests(
+            blockingCall(
+                () -> {
+                  throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE);
+                }));
+    release.countDown();
+
+    for (Future<Object> request : requests) {
+      try {
+        request.get(5, TimeUnit.SECONDS);
+        fail();
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof ResponseStatusException);
+      }
+    }
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  public void shouldMakeNewCallOnceCallHasCompleted() {
+    release.countDown();
+    singleFlight.call("key", blockingCall(Object::new));
+    singleFlight.call("key", blockingCall(Object::new));
+    assertEquals(2, calls.get());
+    assertEquals(0.0, meterRegistry.get("singleflight.coalesced").counter().count(), 0.0);
+  }
+
+  @Test
+  public void shouldNotShareCallsForDifferentKeys() throws Exception {
+    release.countDown();
+    Future<Object> first = executor.submit(() -> singleFlight.call("a", blockingCall(Object::new)));
+    Future<Object> second =
+        executor.submit(() -> singleFlight.call("b", blockingCall(Object::new)));
+    first.get(5, TimeUnit.SECONDS);
+    second.get(5, TimeUnit.SECONDS);
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  public void shouldStopWaitingForIdenticalCallAfterTimeout() throws Exception {
+    singleFlight = new SingleFlight<>("test", Duration.ofMillis(50), meterRegistry);
+    List<Future<Object>> requests = startIdenticalRequests(blockingCall(Object::new));
+
+    for (Future<Object> follower : requests.subList(1, requests.size())) {
+      try {
+        follower.get(5, TimeUnit.SECONDS);
+        fail();
+      } catch (ExecutionException e) {
+        assertEquals(
+            HttpStatus.GATEWAY_TIMEOUT, ((ResponseStatusException) e.getCause()).getStatus());
+      }
+    }
+    release.countDown();
+    requests.get(0).get(5, TimeUnit.SECONDS);
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  public void shouldRetryWhenThreadMakingCallIsInterrupted() throws Exception {
+    Object result = new Object();
+    CountDownLatch started = new CountDownLatch(1);
+    Future<Object> interrupted =
+        executor.submit(
+            () ->
+                singleFlight.call(
+                    "key",
+                    () -> {
+                      calls.incrementAndGet();
+                      started.countDown();
+                      try {
+                        new CountDownLatch(1).await();
+                      } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                      }
+                      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE);
+                    }));
+    started.await(5, TimeUnit.SECONDS);
+    Future<Object> follower = executor.submit(() -> singleFlight.call("key", () -> result));
+    while (waiting() < 1) {
+      Thread.sleep(1);
+    }
+
+    interrupted.cancel(true);
+
+    assertSame(result, follower.get(5, TimeUnit.SECONDS));
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  public void shouldMakeNewCallAfterInvalidation() throws Exception {
+    Future<Object> first =
+        executor.submit(() -> singleFlight.call("key", blockingCall(Object::new)));
+    while (calls.get() == 0) {
+      Thread.sleep(1);
+    }
+    long generation = singleFlight.generation();
+
+    singleFlight.invalidate("key");
+    release.countDown();
+    singleFlight.call("key", blockingCall(Object::new));
+
+    first.get(5, TimeUnit.SECONDS);
+    assertEquals(2, calls.get());
+    assertFalse(singleFlight.isCurrent(generation));
+  }
+
+  @Test
+  public void shouldShareOneAsyncCallBetweenIdenticalRequests() throws Exception {
+    Object result = new Object();
+    CompletableFuture<Object> call = new CompletableFuture<>();
+
+    CompletableFuture<Object> first = singleFlight.callAsync("key", asyncCall(call));
+    CompletableFuture<Object> second = singleFlight.callAsync("key", asyncCall(call));
+    assertFalse(first.isDone());
+    call.complete(result);
+
+    assertSame(result, first.get(5, TimeUnit.SECONDS));
+    assertSame(result, second.get(5, TimeUnit.SECONDS));
+    assertEquals(1, calls.get());
+    assertEquals(1.0, meterRegistry.get("singleflight.coalesced").counter().count(), 0.0);
+  }
+
+  @Test
+  public void shouldShareAsyncFailureWithBlockingRequest() throws Exception {
+    CompletableFuture<Object> call = new CompletableFuture<>();
+    CompletableFuture<Object> first = singleFlight.callAsync("key", asyncCall(call));
+    Future<Object> second = executor.submit(() -> singleFlight.call("key", blockingCall(null)));
+    while (waiting() < 1) {
+      Thread.sleep(1);
+    }
+
+    call.completeExceptionally(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE));
+
+    for (Future<Object> request : List.of(first, second)) {
+      try {
+        request.get(5, TimeUnit.SECONDS);
+        fail();
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof ResponseStatusException);
+      }
+    }
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  public void shouldNotLetCallerCancelSharedAsyncCall() throws Exception {
+    Object result = new Object();
+    CompletableFuture<Object> call = new CompletableFuture<>();
+    CompletableFuture<Object> first = singleFlight.callAsync("key", asyncCall(call));
+    CompletableFuture<Object> second = singleFlight.callAsync("key", asyncCall(call));
+
+    first.cancel(true);
+    call.complete(result);
+
+    assertSame(result, second.get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void shouldMakeNewAsyncCallOnceCallHasCompleted() throws Exception {
+    singleFlight.callAsync("key", asyncCall(CompletableFuture.completedFuture(new Object())));
+    singleFlight
+        .callAsync("key", asyncCall(CompletableFuture.completedFuture(new Object())))
+        .get(5, TimeUnit.SECONDS);
+    assertEquals(2, calls.get());
+  }
+
+  private Supplier<CompletableFuture<Object>> asyncCall(CompletableFuture<Object> result) {
+    return () -> {
+      calls.incrementAndGet();
+      return result;
+    };
+  }
+
+  /**
+   * Start one request which blocks in its call until released, and then wait for the followers to
+   * start waiting for it.
+   */
+  private List<Future<Object>> startIdenticalRequests(Supplier<Object> call) throws Exception {
+    List<Future<Object>> requests = new ArrayList<>();
+    requests.add(executor.submit(() -> singleFlight.call("key", call)));
+    while (calls.get() == 0) {
+      Thread.sleep(1);
+    }
+    for (int i = 0; i < FOLLOWERS; i++) {
+      requests.add(executor.submit(() -> singleFlight.call("key", call)));
+    }
+    while (waiting() < FOLLOWERS) {
+      Thread.sleep(1);
+    }
+    return requests;
+  }
+
+  private Supplier<Object> blockingCall(Supplier<Object> result) {
+    return () -> {
+      calls.incrementAndGet();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return result.get();
+    };
+  }
+
+  private double waiting() {
+    return meterRegistry.get("singleflight.waiting").gauge().value();
+  }
+}
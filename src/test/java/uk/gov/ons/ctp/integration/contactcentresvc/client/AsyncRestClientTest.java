@@ -0,0 +1,140 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.server.ResponseStatusException;
+import uk.gov.ons.ctp.common.jackson.CustomObjectMapper;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.model.ResponseStatusData;
+
+public class AsyncRestClientTest {
+  private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+  private HttpServer server;
+  private AsyncRestClient client;
+  private volatile String requestUri;
+  private volatile String authorization;
+
+  @Before
+  public void setup() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/status", e -> respond(e, 200, "{\"code\":200,\"message\":\"Ok\"}"));
+    server.createContext("/missing", e -> respond(e, 404, "{\"error\":\"not found\"}"));
+    server.createContext("/down", e -> respond(e, 503, ""));
+    server.createContext("/slow", this::respondSlowly);
+    server.start();
+
+    Map<HttpStatus, HttpStatus> httpErrorMapping =
+        Map.of(
+            HttpStatus.NOT_FOUND, HttpStatus.NOT_FOUND,
+            HttpStatus.GATEWAY_TIMEOUT, HttpStatus.GATEWAY_TIMEOUT);
+    client =
+        new AsyncRestClient(
+            HttpClient.newHttpClient(),
+            "http://localhost:" + server.getAddress().getPort(),
+            "user",
+            "secret",
+            new CustomObjectMapper(),
+            httpErrorMapping,
+            HttpStatus.INTERNAL_SERVER_ERROR);
+  }
+
+  @After
+  public void tearDown() {
+    server.stop(0);
+  }
+
+  @Test
+  public void shouldReadResource() throws Exception {
+    MultiValueMap<String, String> queryParams = new LinkedMultiValueMap<>();
+    queryParams.add("caseEvents", "true");
+
+    ResponseStatusData status =
+        client
+            .getResource("/status/{id}", ResponseStatusData.class, queryParams, TIMEOUT, "a b")
+            .get(5, TimeUnit.SECONDS);
+
+    assertEquals(200, status.getCode());
+    assertEquals("Ok", status.getMessage());
+    assertEquals("/status/a%20b?caseEvents=true", requestUri);
+    String credentials = Base64.getEncoder().encodeToString("user:secret".getBytes());
+    assertEquals("Basic " + credentials, authorization);
+  }
+
+  @Test
+  public void shouldReportMappedStatusWithDownstreamCause() throws Exception {
+    ResponseStatusException failure = failure("/missing", TIMEOUT);
+
+    assertEquals(HttpStatus.NOT_FOUND, failure.getStatus());
+    HttpClientErrorException cause = (HttpClientErrorException) failure.getCause();
+    assertEquals(HttpStatus.NOT_FOUND, cause.getStatusCode());
+  }
+
+  @Test
+  public void shouldReportUnmappedStatusAsDefault() throws Exception {
+    ResponseStatusException failure = failure("/down", TIMEOUT);
+
+    assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, failure.getStatus());
+  }
+
+  @Test
+  public void shouldFailRequestAfterDeadline() throws Exception {
+    ResponseStatusException failure = failure("/slow", Duration.ofMillis(50));
+
+    assertEquals(HttpStatus.GATEWAY_TIMEOUT, failure.getStatus());
+    assertTrue(failure.getCause() instanceof HttpTimeoutException);
+  }
+
+  private ResponseStatusException failure(String path, Duration timeout) throws Exception {
+    try {
+      client
+          .getResource(path, ResponseStatusData.class, null, timeout)
+          .get(5, TimeUnit.SECONDS);
+      fail();
+      return null;
+    } catch (ExecutionException e) {
+      return (ResponseStatusException) e.getCause();
+    }
+  }
+
+  private void respond(HttpExchange exchange, int status, String body) throws IOException {
+    requestUri = exchange.getRequestURI().toString();
+    authorization = exchange.getRequestHeaders().getFirst("Authorization");
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  private void respondSlowly(HttpExchange exchange) throws IOException {
+    try {
+      Thread.sleep(1000);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    respond(exchange, 200, "{}");
+  }
+}
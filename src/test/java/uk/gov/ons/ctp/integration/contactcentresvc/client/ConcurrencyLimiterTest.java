@@ -0,0 +1,113 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+public class ConcurrencyLimiterTest {
+  private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private CountDownLatch release = new CountDownLatch(1);
+  private CompletableFuture<String> held;
+
+  @After
+  public void tearDown() throws Exception {
+    release.countDown();
+    if (held != null) {
+      held.get(5, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  public void shouldReturnResultOfCall() {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter("rm", 1, meterRegistry);
+
+    assertEquals("case", limiter.call(() -> "case"));
+    assertEquals(0, limiter.active());
+  }
+
+  @Test
+  public void shouldRejectCallWhenLimitReached() throws Exception {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter("rm", 1, meterRegistry);
+    hold(limiter);
+
+    try {
+      limiter.call(() -> "case");
+      fail();
+    } catch (ResponseStatusException e) {
+      assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatus());
+    }
+    assertEquals(1, limiter.active());
+    assertEquals(1.0, meterRegistry.get("downstream.calls.rejected").counter().count(), 0);
+    assertEquals(1.0, meterRegistry.get("downstream.calls.active").gauge().value(), 0);
+  }
+
+  @Test
+  public void shouldRejectAsyncCallWhenLimitReached() throws Exception {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter("aims", 1, meterRegistry);
+    hold(limiter);
+
+    CompletableFuture<String> result =
+        limiter.callAsync(() -> CompletableFuture.completedFuture("address"));
+
+    assertTrue(result.isCompletedExceptionally());
+    assertEquals(1.0, meterRegistry.get("downstream.calls.rejected").counter().count(), 0);
+  }
+
+  @Test
+  public void shouldFreeLimitWhenAsyncCallCompletes() {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter("aims", 1, meterRegistry);
+    CompletableFuture<String> call = new CompletableFuture<>();
+
+    CompletableFuture<String> result = limiter.callAsync(() -> call);
+    assertEquals(1, limiter.active());
+    call.complete("address");
+
+    assertEquals("address", result.join());
+    assertEquals(0, limiter.active());
+  }
+
+  @Test
+  public void shouldFreeLimitWhenCallFails() {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter("rm", 1, meterRegistry);
+
+    try {
+      limiter.call(
+          () -> {
+            throw new IllegalStateException("RM is down");
+          });
+      fail();
+    } catch (IllegalStateException e) {
+      assertEquals(0, limiter.active());
+    }
+    assertEquals("case", limiter.call(() -> "case"));
+  }
+
+  /** Start a call which is held in flight until released. */
+  private void hold(ConcurrencyLimiter limiter) throws InterruptedException {
+    CountDownLatch started = new CountDownLatch(1);
+    held =
+        CompletableFuture.supplyAsync(
+            () ->
+                limiter.call(
+                    () -> {
+                      started.countDown();
+                      try {
+                        release.await();
+                      } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                      }
+                      return "held";
+                    }));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+  }
+}
@@ -0,0 +1,112 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+import uk.gov.ons.ctp.common.error.CTPException;
+import uk.gov.ons.ctp.common.error.CTPException.Fault;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.AppConfig;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.DownstreamTiming;
+
+public class DownstreamTimersTest {
+  private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private DownstreamTimers timers = new DownstreamTimers();
+
+  @Before
+  public void setup() {
+    DownstreamTiming timing = new DownstreamTiming();
+    timing.setSloMillis(List.of(100L, 500L));
+    AppConfig appConfig = new AppConfig();
+    appConfig.setDownstreamTiming(timing);
+    ReflectionTestUtils.setField(timers, "appConfig", appConfig);
+    ReflectionTestUtils.setField(timers, "meterRegistry", meterRegistry);
+    timers.init();
+  }
+
+  @Test
+  public void shouldTimeCallBySuccess() {
+    assertEquals("case", timers.record("rm", "getCaseById", () -> "case"));
+
+    Timer timer = timer("rm", "getCaseById", "success");
+    assertEquals(1, timer.count());
+    assertEquals(2, timer.takeSnapshot().histogramCounts().length);
+  }
+
+  @Test
+  public void shouldRecordRepeatedCallsOnOneTimer() {
+    timers.record("rm", "getCaseById", () -> "case");
+    Timer timer = timer("rm", "getCaseById", "success");
+    timers.record("rm", "getCaseById", () -> "case");
+
+    assertEquals(2, timer.count());
+    assertEquals(1, meterRegistry.find("downstream.calls").timers().size());
+  }
+
+  @Test
+  public void shouldTimeEmptyResultAsNotFound() throws Exception {
+    timers.record("firestore", "readCachedCaseById", () -> Optional.empty());
+    timers.run("firestore", "writeCachedCase", () -> {});
+
+    assertEquals(1, timer("firestore", "readCachedCaseById", "not_found").count());
+    assertEquals(1, timer("firestore", "writeCachedCase", "success").count());
+  }
+
+  @Test
+  public void shouldTimeFailedCallByOutcome() {
+    try {
+      timers.record(
+          "rm",
+          "getCaseByUprn",
+          () -> {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+          });
+      fail();
+    } catch (ResponseStatusException e) {
+      assertEquals(1, timer("rm", "getCaseByUprn", "not_found").count());
+    }
+    try {
+      timers.record(
+          "eq",
+          "getEqLaunchJwe",
+          () -> {
+            throw new CTPException(Fault.SYSTEM_ERROR);
+          });
+      fail();
+    } catch (CTPException e) {
+      assertEquals(1, timer("eq", "getEqLaunchJwe", "error").count());
+    }
+  }
+
+  @Test
+  public void shouldTimeAsyncCallUntilComplete() {
+    CompletableFuture<String> call = new CompletableFuture<>();
+
+    CompletableFuture<String> result = timers.recordAsync("aims", "searchByAddress", () -> call);
+    assertEquals(0, meterRegistry.find("downstream.calls").timers().size());
+    call.completeExceptionally(new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT));
+
+    assertTrue(result.isCompletedExceptionally());
+    assertEquals(1, timer("aims", "searchByAddress", "server_error").count());
+  }
+
+  private Timer timer(String downstream, String operation, String outcome) {
+    return meterRegistry
+        .get("downstream.calls")
+        .tag("downstream", downstream)
+        .tag("operation", operation)
+        .tag("outcome", outcome)
+        .timer();
+  }
+}
@@ -0,0 +1,131 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+public class HedgedCallerTest {
+  private static final long WAIT_SECONDS = 5;
+
+  private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private Queue<CompletableFuture<String>> attempts = new ArrayDeque<>();
+
+  @Test
+  public void shouldNotHedgeUntilLatencyMeasured() throws Exception {
+    HedgedCaller caller = new HedgedCaller("aims", 50, 1, 10, 5, 100, meterRegistry);
+    CompletableFuture<String> first = new CompletableFuture<>();
+    attempts.add(first);
+
+    CompletableFuture<String> result = caller.call(this::attempt);
+    Thread.sleep(50);
+    first.complete("address");
+
+    assertEquals("address", result.get(WAIT_SECONDS, TimeUnit.SECONDS));
+    assertEquals(0.0, count("downstream.hedge.sent"), 0);
+    assertTrue(Double.isNaN(caller.delayMillis()));
+  }
+
+  @Test
+  public void shouldHedgeSlowCallAndTakeFirstAnswer() throws Exception {
+    HedgedCaller caller = measured(100);
+    CompletableFuture<String> first = new CompletableFuture<>();
+    attempts.add(first);
+    attempts.add(CompletableFuture.completedFuture("hedge"));
+
+    CompletableFuture<String> result = caller.call(this::attempt);
+
+    assertEquals("hedge", result.get(WAIT_SECONDS, TimeUnit.SECONDS));
+    assertEquals(3.0, count("downstream.hedge.calls"), 0);
+    assertEquals(1.0, count("downstream.hedge.sent"), 0);
+    awaitCount("downstream.hedge.wins", 1);
+    first.complete("address");
+    assertEquals("hedge", result.get());
+  }
+
+  @Test
+  public void shouldNotHedgeBeyondBudget() throws Exception {
+    HedgedCaller caller = measured(0);
+    CompletableFuture<String> first = new CompletableFuture<>();
+    attempts.add(first);
+
+    CompletableFuture<String> result = caller.call(this::attempt);
+    awaitCount("downstream.hedge.over.budget", 1);
+    first.complete("address");
+
+    assertEquals("address", result.get(WAIT_SECONDS, TimeUnit.SECONDS));
+    assertEquals(0.0, count("downstream.hedge.sent"), 0);
+  }
+
+  @Test
+  public void shouldWaitForHedgeWhenFirstCallFails() throws Exception {
+    HedgedCaller caller = measured(100);
+    CompletableFuture<String> first = new CompletableFuture<>();
+    CompletableFuture<String> hedge = new CompletableFuture<>();
+    attempts.add(first);
+    attempts.add(hedge);
+
+    CompletableFuture<String> result = caller.call(this::attempt);
+    awaitCount("downstream.hedge.sent", 1);
+    first.completeExceptionally(new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT));
+    assertFalse(result.isDone());
+    hedge.complete("hedge");
+
+    assertEquals("hedge", result.get(WAIT_SECONDS, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void shouldNotHedgeCallWhichHasFailed() throws Exception {
+    HedgedCaller caller = measured(100);
+    attempts.add(
+        CompletableFuture.failedFuture(new ResponseStatusException(HttpStatus.NOT_FOUND)));
+
+    try {
+      caller.call(this::attempt).get(WAIT_SECONDS, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      assertEquals(HttpStatus.NOT_FOUND, ((ResponseStatusException) e.getCause()).getStatus());
+    }
+    Thread.sleep(50);
+    assertEquals(0.0, count("downstream.hedge.sent"), 0);
+  }
+
+  /** Make two quick calls, so that slower calls are hedged after the minimum delay. */
+  private HedgedCaller measured(int maxExtraLoadPercent) throws Exception {
+    HedgedCaller caller =
+        new HedgedCaller("aims", 50, 10, 10, 2, maxExtraLoadPercent, meterRegistry);
+    for (int i = 0; i < 2; i++) {
+      attempts.add(CompletableFuture.completedFuture("quick"));
+      caller.call(this::attempt).get();
+    }
+    assertEquals(10.0, caller.delayMillis(), 0);
+    return caller;
+  }
+
+  private synchronized CompletableFuture<String> attempt() {
+    return attempts.remove();
+  }
+
+  private double count(String name) {
+    return meterRegistry.get(name).counter().count();
+  }
+
+  private void awaitCount(String name, double expected) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(WAIT_SECONDS);
+    while (count(name) < expected && System.currentTimeMillis() < deadline) {
+      Thread.sleep(1);
+    }
+    assertEquals(expected, count(name), 0);
+  }
+}
@@ -4,6 +4,8 @@ import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -12,15 +14,21 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import uk.gov.ons.ctp.common.FixtureHelper;
 import uk.gov.ons.ctp.common.rest.RestClient;
+import uk.gov.ons.ctp.integration.contactcentresvc.cache.AddressIndexCache;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.DownstreamLimits;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.DownstreamTimers;
 import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.AddressServiceClientServiceImpl;
 import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.model.AddressIndexSearchResultsCompositeDTO;
-import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.model.AddressIndexSearchResultsDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.model.AddressIndexSummaryResultsDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.config.AddressIndexSettings;
 import uk.gov.ons.ctp.integration.contactcentresvc.config.AppConfig;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.LookupSettings;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.AddressQueryRequestDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.PostcodeQueryRequestDTO;
 
@@ -37,6 +45,12 @@ public class AddressServiceClientServiceImplTest {
 
   @Mock RestClient restClient;
 
+  @Spy AddressIndexCache addressIndexCache = new AddressIndexCache();
+
+  @Spy DownstreamLimits downstreamLimits = new DownstreamLimits();
+
+  @Spy DownstreamTimers downstreamTimers = new DownstreamTimers();
+
   @InjectMocks
   AddressServiceClientServiceImpl addressClientService = new AddressServiceClientServiceImpl();
 
@@ -57,17 +71,28 @@ public class AddressServiceClientServiceImplTest {
     addressIndexSettings.setAddressType(ADDRESS_TYPE);
     addressIndexSettings.setEpoch(EPOCH);
     Mockito.when(appConfig.getAddressIndexSettings()).thenReturn(addressIndexSettings);
+    LookupSettings lookupSettings = new LookupSettings();
+    lookupSettings.setAimsTimeoutMillis(5000);
+    Mockito.when(appConfig.getLookupSettings()).thenReturn(lookupSettings);
+
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    ReflectionTestUtils.setField(addressIndexCache, "appConfig", appConfig);
+    ReflectionTestUtils.setField(addressIndexCache, "meterRegistry", meterRegistry);
+    addressIndexCache.init();
+    ReflectionTestUtils.setField(downstreamTimers, "appConfig", appConfig);
+    ReflectionTestUtils.setField(downstreamTimers, "meterRegistry", meterRegistry);
+    downstreamTimers.init();
   }
 
   @Test
   public void testAddressQueryProcessing() throws Exception {
     // Build results to be returned from search
-    AddressIndexSearchResultsDTO resultsFromAddressIndex =
-        FixtureHelper.loadClassFixtures(AddressIndexSearchResultsDTO[].class).get(0);
+    AddressIndexSummaryResultsDTO resultsFromAddressIndex =
+        FixtureHelper.loadClassFixtures(AddressIndexSummaryResultsDTO[].class).get(0);
     Mockito.when(
             restClient.getResource(
                 eq(ADDRESS_QUERY_PATH),
-                eq(AddressIndexSearchResultsDTO.class),
+                eq(AddressIndexSummaryResultsDTO.class),
                 any(),
                 any(),
                 any()))
@@ -76,9 +101,9 @@ public class AddressServiceClientServiceImplTest {
     // Run the request and sanity check the results. We can't thoroughly check the data as it
     // is not coming from a fixed test data set
     AddressQueryRequestDTO request = AddressQueryRequestDTO.create("Michael", 0, 100);
-    AddressIndexSearchResultsDTO results = addressClientService.searchByAddress(request);
+    AddressIndexSummaryResultsDTO results = addressClientService.searchByAddress(request);
     assertEquals("39", results.getDataVersion());
-    assertEquals(4, results.getResponse().getAddresses().size());
+    assertEquals(4, results.getAddresses().size());
 
     // Verify that the query parameters being passed to AddressIndex are as expected
     Mockito.verify(restClient).getResource(any(), any(), any(), queryParamsCaptor.capture(), any());
@@ -99,20 +124,20 @@ public class AddressServiceClientServiceImplTest {
     String paddedInput = "     " + input + "       ";
 
     // Build results to be returned from search
-    AddressIndexSearchResultsDTO resultsFromAddressIndex =
-        FixtureHelper.loadClassFixtures(AddressIndexSearchResultsDTO[].class).get(0);
+    AddressIndexSummaryResultsDTO resultsFromAddressIndex =
+        FixtureHelper.loadClassFixtures(AddressIndexSummaryResultsDTO[].class).get(0);
     Mockito.when(
             restClient.getResource(
                 eq(ADDRESS_QUERY_PATH),
-                eq(AddressIndexSearchResultsDTO.class),
+                eq(AddressIndexSummaryResultsDTO.class),
                 any(),
                 any(),
                 any()))
         .thenReturn(resultsFromAddressIndex);
 
     AddressQueryRequestDTO request = AddressQueryRequestDTO.create(paddedInput, 0, 100);
-    AddressIndexSearchResultsDTO results = addressClientService.searchByAddress(request);
-    assertEquals(4, results.getResponse().getAddresses().size());
+    AddressIndexSummaryResultsDTO results = addressClientService.searchByAddress(request);
+    assertEquals(4, results.getAddresses().size());
 
     Mockito.verify(restClient).getResource(any(), any(), any(), queryParamsCaptor.capture(), any());
     MultiValueMap<String, String> queryParams = queryParamsCaptor.getValue();
@@ -123,12 +148,12 @@ public class AddressServiceClientServiceImplTest {
   public void testAddressQueryProcessingNoEpoch() throws Exception {
     addressIndexSettings.setEpoch("");
     // Build results to be returned from search
-    AddressIndexSearchResultsDTO resultsFromAddressIndex =
-        FixtureHelper.loadClassFixtures(AddressIndexSearchResultsDTO[].class).get(0);
+    AddressIndexSummaryResultsDTO resultsFromAddressIndex =
+        FixtureHelper.loadClassFixtures(AddressIndexSummaryResultsDTO[].class).get(0);
     Mockito.when(
             restClient.getResource(
                 eq(ADDRESS_QUERY_PATH),
-                eq(AddressIndexSearchResultsDTO.class),
+                eq(AddressIndexSummaryResultsDTO.class),
                 any(),
                 any(),
                 any()))
@@ -137,9 +162,9 @@ public class AddressServiceClientServiceImplTest {
     // Run the request and sanity check the results. We can't thoroughly check the data as it
     // is not coming from a fixed test data set
     AddressQueryRequestDTO request = AddressQueryRequestDTO.create("Michael", 0, 100);
-    AddressIndexSearchResultsDTO results = addressClientService.searchByAddress(request);
+    AddressIndexSummaryResultsDTO results = addressClientService.searchByAddress(request);
     assertEquals("39", results.getDataVersion());
-    assertEquals(4, results.getResponse().getAddresses().size());
+    assertEquals(4, results.getAddresses().size());
 
     // Verify that the query parameters being passed to AddressIndex are as expected
     Mockito.verify(restClient).getResource(any(), any(), any(), queryParamsCaptor.capture(), any());
@@ -156,12 +181,12 @@ public class AddressServiceClientServiceImplTest {
   @Test
   public void testPostcodeQueryProcessing() throws Exception {
     // Build results to be returned from search
-    AddressIndexSearchResultsDTO resultsFromAddressIndex =
-        FixtureHelper.loadClassFixtures(AddressIndexSearchResultsDTO[].class).get(0);
+    AddressIndexSummaryResultsDTO resultsFromAddressIndex =
+        FixtureHelper.loadClassFixtures(AddressIndexSummaryResultsDTO[].class).get(0);
     Mockito.when(
             restClient.getResource(
                 eq(POSTCODE_QUERY_PATH),
-                eq(AddressIndexSearchResultsDTO.class),
+                eq(AddressIndexSummaryResultsDTO.class),
                 any(),
                 any(),
                 eq("EX2 8DD")))
@@ -169,9 +194,9 @@ public class AddressServiceClientServiceImplTest {
 
     // Run the request and sanity check the results
     PostcodeQueryRequestDTO request = PostcodeQueryRequestDTO.create("EX2 8DD", 0, 100);
-    AddressIndexSearchResultsDTO results = addressClientService.searchByPostcode(request);
+    AddressIndexSummaryResultsDTO results = addressClientService.searchByPostcode(request);
     assertEquals("39", results.getDataVersion());
-    assertEquals(4, results.getResponse().getAddresses().size());
+    assertEquals(4, results.getAddresses().size());
 
     // Verify that the query parameters being passed to AddressIndex are as expected
     Mockito.verify(restClient).getResource(any(), any(), any(), queryParamsCaptor.capture(), any());
@@ -0,0 +1,103 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.client.addressIndex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import org.junit.Test;
+import uk.gov.ons.ctp.common.jackson.CustomObjectMapper;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.model.AddressIndexSummaryResultsDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.AddressDTO;
+
+public class AddressSummaryDeserializerTest {
+  private CustomObjectMapper mapper = new CustomObjectMapper();
+
+  @Test
+  public void shouldSummariseEachAddress() throws Exception {
+    AddressIndexSummaryResultsDTO results =
+        read(
+            "{'apiVersion': 'v1', 'dataVersion': '39',"
+                + " 'response': {'tokens': {'StreetName': 'MICHAEL'}, 'addresses': ["
+                + "  {'uprn': '100041045018', 'parentUprn': '0',"
+                + "   'census': {'countryCode': 'W', 'addressType': 'CE',"
+                + "    'estabType': 'CARE HOME'},"
+                + "   'formattedAddress': '1f', 'formattedAddressNag': '1n',"
+                + "   'formattedAddressPaf': '', 'welshFormattedAddressNag': '',"
+                + "   'welshFormattedAddressPaf': '1wp',"
+                + "   'geo': {'latitude': 50.7, 'longitude': -3.5}, 'lpiLogicalStatus': '1'}],"
+                + "  'limit': 100, 'offset': 0, 'total': 23},"
+                + " 'status': {'code': 200, 'message': 'Ok'}, 'errors': ['none']}");
+
+    assertEquals("39", results.getDataVersion());
+    assertEquals(23, results.getTotal());
+    assertEquals(200, results.getStatus().getCode());
+    assertEquals("Ok", results.getStatus().getMessage());
+    assertEquals("none", results.getErrors().get(0));
+    assertEquals(1, results.getAddresses().size());
+
+    AddressDTO address = results.getAddresses().get(0);
+    assertEquals("100041045018", address.getUprn());
+    assertEquals("W", address.getRegion());
+    assertEquals("CE", address.getAddressType());
+    assertEquals("CARE_HOME", address.getEstabType());
+    assertEquals("CARE HOME", address.getEstabDescription());
+    assertEquals("1n", address.getFormattedAddress());
+    assertEquals("1wp", address.getWelshFormattedAddress());
+  }
+
+  @Test
+  public void shouldDropHistoricalAddresses() throws Exception {
+    AddressIndexSummaryResultsDTO results =
+        read(
+            "{'response': {'addresses': ["
+                + "  {'uprn': '1', 'formattedAddress': 'current', 'lpiLogicalStatus': '1'},"
+                + "  {'uprn': '2', 'formattedAddress': 'historical', 'lpiLogicalStatus': '8'}],"
+                + "  'total': 2}}");
+
+    assertEquals(1, results.getAddresses().size());
+    assertEquals("1", results.getAddresses().get(0).getUprn());
+    assertEquals(2, results.getTotal());
+  }
+
+  @Test
+  public void shouldReclassifyNaAddressesAsHousehold() throws Exception {
+    AddressIndexSummaryResultsDTO results =
+        read(
+            "{'response': {'addresses': [{'uprn': '1',"
+                + " 'census': {'countryCode': 'E', 'addressType': 'NA', 'estabType': 'NA'}}]}}");
+
+    AddressDTO address = results.getAddresses().get(0);
+    assertEquals("HH", address.getAddressType());
+    assertEquals("HOUSEHOLD", address.getEstabType());
+    assertEquals("Household", address.getEstabDescription());
+  }
+
+  @Test
+  public void shouldAcceptSingleAddress() throws Exception {
+    AddressIndexSummaryResultsDTO results =
+        read("{'response': {'address': {'uprn': 100041045018, 'formattedAddress': 'f'}}}");
+
+    assertEquals(1, results.getAddresses().size());
+    assertEquals("100041045018", results.getAddresses().get(0).getUprn());
+    assertEquals("f", results.getAddresses().get(0).getFormattedAddress());
+  }
+
+  @Test
+  public void shouldHaveNoAddressesWithoutResponse() throws Exception {
+    AddressIndexSummaryResultsDTO results = read("{'status': {'code': 404, 'message': 'None'}}");
+
+    assertTrue(results.getAddresses().isEmpty());
+    assertNull(results.getDataVersion());
+    assertEquals(404, results.getStatus().getCode());
+  }
+
+  @Test(expected = JsonMappingException.class)
+  public void shouldRejectResponseWhichIsNotAnObject() throws Exception {
+    read("['not', 'a', 'response']");
+  }
+
+  private AddressIndexSummaryResultsDTO read(String json) throws Exception {
+    return mapper.readValue(json.replace('\'', '"'), AddressIndexSummaryResultsDTO.class);
+  }
+}
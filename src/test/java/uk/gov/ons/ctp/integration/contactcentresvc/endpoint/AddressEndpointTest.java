@@ -19,6 +19,7 @@ import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.test.web.servlet.MockMvc;
@@ -30,6 +31,7 @@ import uk.gov.ons.ctp.common.jackson.CustomObjectMapper;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.AddressDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.AddressQueryResponseDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.service.AddressService;
+import uk.gov.ons.ctp.integration.contactcentresvc.util.LogSampler;
 
 /** Contact Centre Data endpoint Unit tests */
 @RunWith(MockitoJUnitRunner.class)
@@ -52,6 +54,8 @@ public final class AddressEndpointTest {
 
   @InjectMocks private AddressEndpoint addressEndpoint;
 
+  @Spy LogSampler lookupSampler = new LogSampler(1);
+
   @Mock AddressService addressService;
 
   private MockMvc mockMvc;
@@ -1,20 +1,28 @@
 package uk.gov.ons.ctp.integration.contactcentresvc.endpoint;
 
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static uk.gov.ons.ctp.common.MvcHelper.getJson;
+import static uk.gov.ons.ctp.common.MvcHelper.postJson;
 import static uk.gov.ons.ctp.common.utility.MockMvcControllerAdviceHelper.mockAdviceFor;
 
+import java.util.List;
 import java.util.UUID;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
@@ -26,13 +34,19 @@ import uk.gov.ons.ctp.common.error.CTPException;
 import uk.gov.ons.ctp.common.error.CTPException.Fault;
 import uk.gov.ons.ctp.common.error.RestExceptionHandler;
 import uk.gov.ons.ctp.common.jackson.CustomObjectMapper;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.LaunchBatchRequestDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.LaunchBatchResultDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.UACBatchResultDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.service.CaseService;
+import uk.gov.ons.ctp.integration.contactcentresvc.util.LogSampler;
 
 /** Contact Centre Data Endpoint Unit tests */
 public class CaseEndpointCaseLaunchTest {
 
   @InjectMocks private CaseEndpoint caseEndpoint;
 
+  @Spy LogSampler lookupSampler = new LogSampler(1);
+
   @Mock CaseService caseService;
 
   @Autowired private MockMvc mockMvc;
@@ -136,4 +150,59 @@ public class CaseEndpointCaseLaunchTest {
         .andExpect(status().isIAmATeapot())
         .andExpect(content().string(containsString("SYSTEM_ERROR")));
   }
+
+  @Test
+  public void shouldCreateBatchOfLaunchUrls() throws Exception {
+    when(caseService.getLaunchURLsForCaseId(eq(uuid), any()))
+        .thenReturn(
+            List.of(
+                new LaunchBatchResultDTO("qid-1", "https://eq/launch?token=1", null, null),
+                new LaunchBatchResultDTO(null, null, "BAD_REQUEST", "a message")));
+
+    ResultActions actions =
+        mockMvc.perform(
+            postJson(
+                "/cases/" + uuid + "/launch/batch",
+                "{\"agentId\": 12345, \"individual\": true, \"count\": 2}"));
+
+    actions
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[0].questionnaireId", is("qid-1")))
+        .andExpect(jsonPath("$[0].launchUrl", is("https://eq/launch?token=1")))
+        .andExpect(jsonPath("$[1].error", is("BAD_REQUEST")));
+    ArgumentCaptor<LaunchBatchRequestDTO> request =
+        ArgumentCaptor.forClass(LaunchBatchRequestDTO.class);
+    verify(caseService).getLaunchURLsForCaseId(eq(uuid), request.capture());
+    assertEquals(new LaunchBatchRequestDTO(12345, true, 2), request.getValue());
+  }
+
+  @Test
+  public void shouldRejectBatchOfNoLaunches() throws Exception {
+    ResultActions actions =
+        mockMvc.perform(
+            postJson("/cases/" + uuid + "/launch/batch", "{\"agentId\": 12345, \"count\": 0}"));
+    actions.andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void shouldRejectBatchOfLaunchesWithoutAgent() throws Exception {
+    ResultActions actions =
+        mockMvc.perform(postJson("/cases/" + uuid + "/launch/batch", "{\"count\": 2}"));
+    actions.andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void shouldGetBatchOfUacs() throws Exception {
+    when(caseService.getUACsForCaseId(eq(uuid), any()))
+        .thenReturn(List.of(new UACBatchResultDTO("qid-1", "uac-1", null, null)));
+
+    ResultActions actions =
+        mockMvc.perform(
+            postJson("/cases/" + uuid + "/uac/batch", "{\"individual\": true, \"count\": 1}"));
+
+    actions
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[0].id", is("qid-1")))
+        .andExpect(jsonPath("$[0].uac", is("uac-1")));
+  }
 }
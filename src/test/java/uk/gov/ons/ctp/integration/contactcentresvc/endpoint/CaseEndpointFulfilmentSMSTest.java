@@ -16,6 +16,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
@@ -27,6 +28,7 @@ import uk.gov.ons.ctp.common.time.DateTimeUtil;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.ResponseDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.SMSFulfilmentRequestDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.service.CaseService;
+import uk.gov.ons.ctp.integration.contactcentresvc.util.LogSampler;
 
 /** Contact Centre Data Endpoint Unit tests */
 public final class CaseEndpointFulfilmentSMSTest {
@@ -37,6 +39,8 @@ public final class CaseEndpointFulfilmentSMSTest {
 
   @InjectMocks private CaseEndpoint caseEndpoint;
 
+  @Spy LogSampler lookupSampler = new LogSampler(1);
+
   private MockMvc mockMvc;
 
   private ObjectMapper mapper = new ObjectMapper();
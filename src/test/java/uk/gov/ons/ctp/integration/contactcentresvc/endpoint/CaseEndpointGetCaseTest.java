@@ -6,6 +6,7 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static uk.gov.ons.ctp.common.MvcHelper.getJson;
+import static uk.gov.ons.ctp.common.MvcHelper.postJson;
 import static uk.gov.ons.ctp.common.utility.MockMvcControllerAdviceHelper.mockAdviceFor;
 
 import java.text.ParseException;
@@ -20,6 +21,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
@@ -29,7 +31,10 @@ import uk.gov.ons.ctp.common.error.RestExceptionHandler;
 import uk.gov.ons.ctp.common.jackson.CustomObjectMapper;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.CaseDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.CaseEventDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.UprnBatchRequestDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.UprnCaseResultDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.service.CaseService;
+import uk.gov.ons.ctp.integration.contactcentresvc.util.LogSampler;
 
 /**
  * Contact Centre Data Endpoint Unit tests. This class tests the get case endpoints, covering gets
@@ -55,6 +60,8 @@ public final class CaseEndpointGetCaseTest {
 
   @InjectMocks private CaseEndpoint caseEndpoint;
 
+  @Spy LogSampler lookupSampler = new LogSampler(1);
+
   @Mock CaseService caseService;
 
   private MockMvc mockMvc;
@@ -174,6 +181,37 @@ public final class CaseEndpointGetCaseTest {
     actions.andExpect(status().isBadRequest());
   }
 
+  @Test
+  public void getCasesByUprns_GoodUPRNs() throws Exception {
+    UniquePropertyReferenceNumber foundUprn = new UniquePropertyReferenceNumber(123456789012L);
+    UniquePropertyReferenceNumber failedUprn = new UniquePropertyReferenceNumber(123456789013L);
+    UprnBatchRequestDTO batchRequest =
+        new UprnBatchRequestDTO(Arrays.asList(foundUprn, failedUprn), false);
+    List<UprnCaseResultDTO> results =
+        Arrays.asList(
+            new UprnCaseResultDTO(foundUprn, Arrays.asList(createResponseCaseDTO()), null, null),
+            new UprnCaseResultDTO(failedUprn, null, "RESOURCE_NOT_FOUND", "No address"));
+    Mockito.when(caseService.getCasesByUPRNs(eq(batchRequest))).thenReturn(results);
+
+    ResultActions actions = mockMvc.perform(postJson("/cases/uprn/batch", toJson(batchRequest)));
+    actions.andExpect(status().isOk());
+
+    actions.andExpect(jsonPath("$[0].cases[0].id", is(CASE_UUID_STRING)));
+    actions.andExpect(jsonPath("$[1].error", is("RESOURCE_NOT_FOUND")));
+    actions.andExpect(jsonPath("$[1].message", is("No address")));
+  }
+
+  @Test
+  public void getCasesByUprns_NoUPRNs() throws Exception {
+    UprnBatchRequestDTO batchRequest = new UprnBatchRequestDTO(new ArrayList<>(), false);
+    ResultActions actions = mockMvc.perform(postJson("/cases/uprn/batch", toJson(batchRequest)));
+    actions.andExpect(status().isBadRequest());
+  }
+
+  private String toJson(Object value) throws Exception {
+    return new CustomObjectMapper().writeValueAsString(value);
+  }
+
   private CaseDTO createResponseCaseDTO() throws ParseException {
     SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSX");
 
@@ -19,6 +19,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.test.web.servlet.MockMvc;
@@ -31,6 +32,7 @@ import uk.gov.ons.ctp.common.jackson.CustomObjectMapper;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.CaseDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.CaseEventDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.service.CaseService;
+import uk.gov.ons.ctp.integration.contactcentresvc.util.LogSampler;
 
 /**
  * Contact Centre Data Endpoint Unit tests. This class tests the get ccs case endpoints, covering
@@ -56,6 +58,8 @@ public final class CaseEndpointGetCcsCaseTest {
 
   @InjectMocks private CaseEndpoint caseEndpoint;
 
+  @Spy LogSampler lookupSampler = new LogSampler(1);
+
   @Mock CaseService caseService;
 
   private MockMvc mockMvc;
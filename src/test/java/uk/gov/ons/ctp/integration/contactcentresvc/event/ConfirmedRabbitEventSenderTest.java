@@ -0,0 +1,95 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.event;
+
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+
+import java.util.function.Consumer;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.AmqpTimeoutException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.connection.CorrelationData.Confirm;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ConfirmedRabbitEventSenderTest {
+  private static final String ROUTING_KEY = "event.fulfilment.request";
+  private static final Object EVENT = "{\"event\":{}}";
+
+  @Mock RabbitTemplate rabbitTemplate;
+
+  private ConfirmedRabbitEventSender sender;
+
+  @Before
+  public void setup() {
+    sender = new ConfirmedRabbitEventSender(rabbitTemplate, 200);
+  }
+
+  @Test
+  public void shouldSendConfirmedEvent() {
+    onSend(correlation -> correlation.getFuture().set(new Confirm(true, null)));
+
+    sender.send(ROUTING_KEY, EVENT);
+
+    verify(rabbitTemplate).convertAndSend(eq(ROUTING_KEY), eq(EVENT), any(CorrelationData.class));
+  }
+
+  @Test
+  public void shouldFailNackedEvent() {
+    onSend(correlation -> correlation.getFuture().set(new Confirm(false, "queue full")));
+
+    AmqpException e = assertThrows(AmqpException.class, () -> sender.send(ROUTING_KEY, EVENT));
+    assertTrue(e.getMessage(), e.getMessage().contains("queue full"));
+  }
+
+  @Test
+  public void shouldFailReturnedEvent() {
+    onSend(
+        correlation -> {
+          correlation.setReturnedMessage(new Message(new byte[0], new MessageProperties()));
+          correlation.getFuture().set(new Confirm(true, null));
+        });
+
+    AmqpException e = assertThrows(AmqpException.class, () -> sender.send(ROUTING_KEY, EVENT));
+    assertTrue(e.getMessage(), e.getMessage().contains("could not be routed"));
+  }
+
+  @Test
+  public void shouldFailUnconfirmedEvent() {
+    onSend(correlation -> {});
+
+    assertThrows(AmqpTimeoutException.class, () -> sender.send(ROUTING_KEY, EVENT));
+  }
+
+  @Test
+  public void shouldFailWhenSendFails() {
+    doAnswer(
+            invocation -> {
+              throw new AmqpException("connection refused");
+            })
+        .when(rabbitTemplate)
+        .convertAndSend(eq(ROUTING_KEY), eq(EVENT), any(CorrelationData.class));
+
+    assertThrows(AmqpException.class, () -> sender.send(ROUTING_KEY, EVENT));
+  }
+
+  private void onSend(Consumer<CorrelationData> broker) {
+    doAnswer(
+            invocation -> {
+              broker.accept(invocation.getArgument(2));
+              return null;
+            })
+        .when(rabbitTemplate)
+        .convertAndSend(eq(ROUTING_KEY), eq(EVENT), any(CorrelationData.class));
+  }
+}
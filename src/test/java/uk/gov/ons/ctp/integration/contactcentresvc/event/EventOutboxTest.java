@@ -0,0 +1,295 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.event;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import uk.gov.ons.ctp.common.event.EventPublisher;
+import uk.gov.ons.ctp.common.event.EventPublisher.Channel;
+import uk.gov.ons.ctp.common.event.EventPublisher.EventType;
+import uk.gov.ons.ctp.common.event.EventPublisher.Source;
+import uk.gov.ons.ctp.common.event.model.AddressNotValid;
+import uk.gov.ons.ctp.common.event.model.CollectionCaseCompact;
+import uk.gov.ons.ctp.common.jackson.CustomObjectMapper;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.DownstreamTimers;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.AppConfig;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.MessagingConfig;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.MessagingConfig.OutboxConfig;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EventOutboxTest {
+  private static final UUID CASE_ID = UUID.fromString("dca05c61-8b95-46af-8f73-36f0dc2cbf5e");
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Mock EventPublisher eventPublisher;
+
+  private OutboxConfig outboxConfig;
+  private MeterRegistry meterRegistry;
+  private EventOutbox outbox;
+
+  @Before
+  public void setup() {
+    outboxConfig = new OutboxConfig();
+    outboxConfig.setEnabled(true);
+    outboxConfig.setDirectory(folder.getRoot().getPath());
+    outboxConfig.setPublishers(2);
+    outboxConfig.setQueueCapacity(10);
+    outboxConfig.setBatchSize(5);
+    outboxConfig.setCompactBytes(1_000_000);
+    outboxConfig.setAppendTimeoutMillis(5000);
+    meterRegistry = new SimpleMeterRegistry();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (outbox != null) {
+      outbox.shutdown();
+    }
+  }
+
+  @Test
+  public void shouldBeDisabledUnlessEnabledInConfig() throws Exception {
+    outboxConfig.setEnabled(false);
+    outbox = createOutbox();
+    assertFalse(outbox.isEnabled());
+  }
+
+  @Test
+  public void shouldSendAppendedEventsInOrderForCase() throws Exception {
+    List<String> sentNotes = new CopyOnWriteArrayList<>();
+    doAnswer(
+            invocation -> {
+              sentNotes.add(((AddressNotValid) invocation.getArgument(3)).getNotes());
+              return "transaction";
+            })
+        .when(eventPublisher)
+        .sendEvent(any(), any(), any(), any());
+    outbox = createOutbox();
+    assertTrue(outbox.isEnabled());
+
+    for (int i = 0; i < 20; i++) {
+      append("event " + i);
+    }
+
+    verify(eventPublisher, timeout(5000).times(20))
+        .sendEvent(
+            eq(EventType.ADDRESS_NOT_VALID),
+            eq(Source.CONTACT_CENTRE_API),
+            eq(Channel.CC),
+            any(AddressNotValid.class));
+    for (int i = 0; i < 20; i++) {
+      assertEquals("event " + i, sentNotes.get(i));
+    }
+  }
+
+  @Test
+  public void shouldSendEventsAppendedTogetherInOrder() throws Exception {
+    List<String> sentNotes = new CopyOnWriteArrayList<>();
+    doAnswer(
+            invocation -> {
+              sentNotes.add(((AddressNotValid) invocation.getArgument(3)).getNotes());
+              return "transaction";
+            })
+        .when(eventPublisher)
+        .sendEvent(any(), any(), any(), any());
+    outbox = createOutbox();
+
+    append("first");
+    outbox.appendAll(
+        EventType.ADDRESS_NOT_VALID,
+        Source.CONTACT_CENTRE_API,
+        Channel.CC,
+        List.of(payload("second"), payload("third")),
+        CASE_ID);
+    append("fourth");
+
+    verify(eventPublisher, timeout(5000).times(4)).sendEvent(any(), any(), any(), any());
+    assertEquals(List.of("first", "second", "third", "fourth"), sentNotes);
+  }
+
+  // Appending would hang if the journal writer waited for the stuck publisher
+  @Test(timeout = 20000)
+  public void shouldAppendForOtherCasesWhilePublisherIsStuck() throws Exception {
+    CountDownLatch rabbitBack = new CountDownLatch(1);
+    List<String> sentNotes = new CopyOnWriteArrayList<>();
+    doAnswer(
+            invocation -> {
+              String notes = ((AddressNotValid) invocation.getArgument(3)).getNotes();
+              if (notes.startsWith("stuck")) {
+                rabbitBack.await();
+              }
+              sentNotes.add(notes);
+              return "transaction";
+            })
+        .when(eventPublisher)
+        .sendEvent(any(), any(), any(), any());
+    outbox = createOutbox();
+
+    // More events than the publisher for the case can queue
+    for (int i = 0; i < 30; i++) {
+      append("stuck " + i, CASE_ID);
+    }
+    append("other", caseForOtherPublisher());
+    awaitSent(sentNotes, 1);
+    assertEquals(List.of("other"), sentNotes);
+
+    rabbitBack.countDown();
+    awaitSent(sentNotes, 31);
+    List<String> stuckNotes =
+        sentNotes.stream().filter(notes -> notes.startsWith("stuck")).collect(Collectors.toList());
+    for (int i = 0; i < 30; i++) {
+      assertEquals("stuck " + i, stuckNotes.get(i));
+    }
+  }
+
+  @Test
+  public void shouldSendUnsentEventsOnRestart() throws Exception {
+    // Nothing is sent while Rabbit, and the Firestore fallback, are unavailable
+    doAnswer(
+            invocation -> {
+              throw new IllegalStateException("Firestore unavailable");
+            })
+        .when(eventPublisher)
+        .sendEvent(any(), any(), any(), any());
+    outbox = createOutbox();
+    append("not sent");
+    verify(eventPublisher, timeout(5000)).sendEvent(any(), any(), any(), any());
+    outbox.shutdown();
+    outbox = null;
+
+    List<String> journal =
+        Files.readAllLines(folder.getRoot().toPath().resolve(OutboxJournal.EVENTS_FILE), UTF_8);
+    assertEquals(1, journal.size());
+    assertTrue(journal.get(0).contains("not sent"));
+
+    EventPublisher restartedPublisher = mock(EventPublisher.class);
+    outbox = createOutbox(restartedPublisher);
+
+    verify(restartedPublisher, timeout(5000))
+        .sendEvent(
+            eq(EventType.ADDRESS_NOT_VALID),
+            eq(Source.CONTACT_CENTRE_API),
+            eq(Channel.CC),
+            any(AddressNotValid.class));
+  }
+
+  @Test
+  public void shouldNotSendPublishedEventsOnRestart() throws Exception {
+    outbox = createOutbox();
+    append("sent");
+    verify(eventPublisher, timeout(5000)).sendEvent(any(), any(), any(), any());
+    outbox.shutdown();
+
+    EventPublisher restartedPublisher = mock(EventPublisher.class);
+    outbox = createOutbox(restartedPublisher);
+    outbox.shutdown();
+    outbox = null;
+
+    verify(restartedPublisher, never()).sendEvent(any(), any(), any(), any());
+    Path eventsFile = folder.getRoot().toPath().resolve(OutboxJournal.EVENTS_FILE);
+    assertEquals(0, Files.size(eventsFile));
+  }
+
+  @Test
+  public void shouldPublishBacklogMetrics() throws Exception {
+    outbox = createOutbox();
+    append("sent");
+    verify(eventPublisher, timeout(5000)).sendEvent(any(), any(), any(), any());
+
+    long deadline = System.currentTimeMillis() + 5000;
+    while (meterRegistry.get("outbox.backlog").gauge().value() > 0
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(0, meterRegistry.get("outbox.backlog").gauge().value(), 0.001);
+    assertEquals(0, meterRegistry.get("outbox.backlog.age").gauge().value(), 0.001);
+    assertEquals(1, meterRegistry.get("outbox.published").counter().count(), 0.001);
+  }
+
+  private void awaitSent(List<String> sentNotes, int count) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (sentNotes.size() < count && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(count, sentNotes.size());
+  }
+
+  private void append(String notes) {
+    append(notes, CASE_ID);
+  }
+
+  private void append(String notes, UUID caseId) {
+    outbox.append(
+        EventType.ADDRESS_NOT_VALID, Source.CONTACT_CENTRE_API, Channel.CC, payload(notes), caseId);
+  }
+
+  // A case whose events are sent by a different publisher to those of CASE_ID
+  private UUID caseForOtherPublisher() {
+    int publishers = outboxConfig.getPublishers();
+    int stuck = Math.floorMod(CASE_ID.toString().hashCode(), publishers);
+    UUID caseId = UUID.randomUUID();
+    while (Math.floorMod(caseId.toString().hashCode(), publishers) == stuck) {
+      caseId = UUID.randomUUID();
+    }
+    return caseId;
+  }
+
+  private AddressNotValid payload(String notes) {
+    return AddressNotValid.builder()
+        .collectionCase(new CollectionCaseCompact(CASE_ID))
+        .notes(notes)
+        .reason("DERELICT")
+        .build();
+  }
+
+  private EventOutbox createOutbox() throws Exception {
+    return createOutbox(eventPublisher);
+  }
+
+  private EventOutbox createOutbox(EventPublisher publisher) throws Exception {
+    MessagingConfig messagingConfig = new MessagingConfig();
+    messagingConfig.setOutbox(outboxConfig);
+    AppConfig appConfig = new AppConfig();
+    appConfig.setMessaging(messagingConfig);
+
+    EventOutbox eventOutbox = new EventOutbox();
+    ReflectionTestUtils.setField(eventOutbox, "appConfig", appConfig);
+    ReflectionTestUtils.setField(eventOutbox, "eventPublisher", publisher);
+    ReflectionTestUtils.setField(eventOutbox, "mapper", new CustomObjectMapper());
+    ReflectionTestUtils.setField(eventOutbox, "meterRegistry", meterRegistry);
+    DownstreamTimers downstreamTimers = new DownstreamTimers();
+    ReflectionTestUtils.setField(downstreamTimers, "appConfig", appConfig);
+    ReflectionTestUtils.setField(downstreamTimers, "meterRegistry", meterRegistry);
+    downstreamTimers.init();
+    ReflectionTestUtils.setField(eventOutbox, "downstreamTimers", downstreamTimers);
+    eventOutbox.init();
+    return eventOutbox;
+  }
+}
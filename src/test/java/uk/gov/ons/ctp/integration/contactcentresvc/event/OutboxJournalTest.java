@@ -0,0 +1,163 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.event;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import uk.gov.ons.ctp.common.event.EventPublisher.Channel;
+import uk.gov.ons.ctp.common.event.EventPublisher.EventType;
+import uk.gov.ons.ctp.common.event.EventPublisher.Source;
+import uk.gov.ons.ctp.common.jackson.CustomObjectMapper;
+
+public class OutboxJournalTest {
+  private static final long APPEND_TIMEOUT_MILLIS = 5000;
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private OutboxJournal journal;
+
+  @After
+  public void tearDown() throws Exception {
+    if (journal != null) {
+      journal.close();
+    }
+  }
+
+  @Test
+  public void shouldPassOnEventsAppendedAtOnceInSequenceOrder() throws Exception {
+    journal = open(1_000_000);
+    List<Long> passedOn = new CopyOnWriteArrayList<>();
+    ExecutorService appenders = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> appended = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        appended.add(
+            appenders.submit(
+                () -> {
+                  journal.append(
+                      List.of(event(), event()),
+                      written -> written.forEach(event -> passedOn.add(event.getSeq())));
+                  return null;
+                }));
+      }
+      for (Future<?> append : appended) {
+        append.get();
+      }
+    } finally {
+      appenders.shutdown();
+    }
+
+    assertEquals(400, passedOn.size());
+    for (int i = 0; i < passedOn.size(); i++) {
+      assertEquals(i, passedOn.get(i).longValue());
+    }
+    assertEquals(400, journal.backlog());
+  }
+
+  @Test
+  public void shouldCompactUpToLowestUnpublishedEvent() throws Exception {
+    journal = open(1);
+    for (int i = 0; i < 3; i++) {
+      journal.append(List.of(event()), written -> {});
+    }
+    journal.published(List.of(0L, 2L));
+    journal.append(List.of(event()), written -> {});
+    journal.close();
+
+    Path directory = folder.getRoot().toPath();
+    assertEquals(List.of(1L, 2L, 3L), seqs(directory.resolve(OutboxJournal.EVENTS_FILE)));
+    assertEquals(
+        List.of("2"), Files.readAllLines(directory.resolve(OutboxJournal.PUBLISHED_FILE), UTF_8));
+
+    journal = new OutboxJournal(directory, new CustomObjectMapper(), 1, APPEND_TIMEOUT_MILLIS);
+    List<Long> unpublished =
+        journal.open().stream().map(OutboxEvent::getSeq).collect(Collectors.toList());
+    assertEquals(List.of(1L, 3L), unpublished);
+  }
+
+  @Test
+  public void shouldWithdrawEventsWhichWriterDoesNotTakeInTime() throws Exception {
+    journal = open(1_000_000, 100);
+    CountDownLatch writing = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService appender = Executors.newSingleThreadExecutor();
+    try {
+      // The writer is held up passing on the first event, which it has already taken
+      Future<?> taken =
+          appender.submit(
+              () -> {
+                journal.append(
+                    List.of(event()),
+                    written -> {
+                      writing.countDown();
+                      try {
+                        release.await();
+                      } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                      }
+                    });
+                return null;
+              });
+      writing.await();
+
+      assertThrows(IOException.class, () -> journal.append(List.of(event()), written -> {}));
+
+      release.countDown();
+      taken.get();
+    } finally {
+      appender.shutdown();
+    }
+    journal.close();
+
+    assertEquals(List.of(0L), seqs(folder.getRoot().toPath().resolve(OutboxJournal.EVENTS_FILE)));
+    assertEquals(1, journal.backlog());
+  }
+
+  private OutboxJournal open(long compactBytes) throws Exception {
+    return open(compactBytes, APPEND_TIMEOUT_MILLIS);
+  }
+
+  private OutboxJournal open(long compactBytes, long appendTimeoutMillis) throws Exception {
+    OutboxJournal outboxJournal =
+        new OutboxJournal(
+            folder.getRoot().toPath(), new CustomObjectMapper(), compactBytes, appendTimeoutMillis);
+    outboxJournal.open();
+    return outboxJournal;
+  }
+
+  private List<Long> seqs(Path eventsFile) throws Exception {
+    CustomObjectMapper mapper = new CustomObjectMapper();
+    List<Long> seqs = new ArrayList<>();
+    for (String line : Files.readAllLines(eventsFile, UTF_8)) {
+      seqs.add(mapper.readValue(line, OutboxEvent.class).getSeq());
+    }
+    return seqs;
+  }
+
+  private OutboxEvent event() {
+    return new OutboxEvent(
+        0L,
+        EventType.ADDRESS_NOT_VALID,
+        Source.CONTACT_CENTRE_API,
+        Channel.CC,
+        "dca05c61-8b95-46af-8f73-36f0dc2cbf5e",
+        String.class.getName(),
+        null,
+        System.currentTimeMillis());
+  }
+}
@@ -0,0 +1,211 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.repository.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+import uk.gov.ons.ctp.integration.contactcentresvc.cloud.CachedCase;
+
+public class CachedCaseWriteBehindTest {
+  private static final long WAIT_SECONDS = 5;
+
+  private BlockingQueue<List<CachedCase>> commits = new LinkedBlockingQueue<>();
+  private CountDownLatch commitAllowed = new CountDownLatch(0);
+  private int failures;
+  private volatile String badId;
+  private CachedCaseWriteBehind writeBehind;
+
+  @After
+  public void tearDown() throws Exception {
+    if (writeBehind != null) {
+      writeBehind.close();
+    }
+  }
+
+  @Test
+  public void shouldCommitWritesTogether() throws Exception {
+    writeBehind = new CachedCaseWriteBehind(this::commit, 500, 200, 10, 3, 100);
+
+    assertTrue(writeBehind.offer(caze("1", "100")));
+    assertTrue(writeBehind.offer(caze("2", "100")));
+    assertTrue(writeBehind.offer(caze("3", "200")));
+
+    assertEquals(3, commits.poll(WAIT_SECONDS, TimeUnit.SECONDS).size());
+    awaitCommitted();
+  }
+
+  @Test
+  public void shouldLimitBatchSize() throws Exception {
+    writeBehind = new CachedCaseWriteBehind(this::commit, 2, 200, 10, 3, 100);
+
+    writeBehind.offer(caze("1", "100"));
+    writeBehind.offer(caze("2", "100"));
+    writeBehind.offer(caze("3", "100"));
+
+    assertEquals(2, commits.poll(WAIT_SECONDS, TimeUnit.SECONDS).size());
+    assertEquals(1, commits.poll(WAIT_SECONDS, TimeUnit.SECONDS).size());
+  }
+
+  @Test
+  public void shouldServePendingWritesUntilCommitted() throws Exception {
+    commitAllowed = new CountDownLatch(1);
+    writeBehind = new CachedCaseWriteBehind(this::commit, 500, 1, 10, 3, 100);
+    CachedCase caze = caze("1", "100");
+
+    writeBehind.offer(caze);
+
+    assertEquals(Optional.of(caze), writeBehind.pending("1"));
+    assertEquals(List.of(caze), writeBehind.pendingForUprn("100"));
+    assertTrue(writeBehind.pendingForUprn("200").isEmpty());
+    assertFalse(writeBehind.pending("2").isPresent());
+
+    commitAllowed.countDown();
+    awaitCommitted();
+    assertFalse(writeBehind.pending("1").isPresent());
+  }
+
+  @Test
+  public void shouldKeepLaterWriteOfCaseBeingCommitted() throws Exception {
+    commitAllowed = new CountDownLatch(1);
+    writeBehind = new CachedCaseWriteBehind(this::commit, 500, 1, 10, 3, 100);
+    CachedCase first = caze("1", "100");
+    writeBehind.offer(first);
+    assertEquals(List.of(first), commits.poll(WAIT_SECONDS, TimeUnit.SECONDS));
+
+    CachedCase second = caze("1", "100");
+    second.setAddressLine1("Flat 2");
+    writeBehind.offer(second);
+    assertEquals(Optional.of(second), writeBehind.pending("1"));
+
+    commitAllowed.countDown();
+    assertEquals(List.of(second), commits.poll(WAIT_SECONDS, TimeUnit.SECONDS));
+    awaitCommitted();
+  }
+
+  @Test
+  public void shouldRetryFailedCommit() throws Exception {
+    failures = 2;
+    writeBehind = new CachedCaseWriteBehind(this::commit, 500, 1, 10, 3, 100);
+
+    writeBehind.offer(caze("1", "100"));
+
+    for (int i = 0; i < 3; i++) {
+      assertEquals(1, commits.poll(WAIT_SECONDS, TimeUnit.SECONDS).size());
+    }
+    awaitCommitted();
+  }
+
+  @Test
+  public void shouldCommitOneByOneAndRetryBadCaseAfterLastAttempt() throws Exception {
+    badId = "2";
+    writeBehind = new CachedCaseWriteBehind(this::commit, 500, 200, 10, 2, 100);
+
+    writeBehind.offer(caze("1", "100"));
+    writeBehind.offer(caze("2", "100"));
+    writeBehind.offer(caze("3", "100"));
+
+    assertEquals(3, commits.poll(WAIT_SECONDS, TimeUnit.SECONDS).size());
+    assertEquals(3, commits.poll(WAIT_SECONDS, TimeUnit.SECONDS).size());
+    for (String id : new String[] {"1", "2", "3"}) {
+      assertEquals(id, commits.poll(WAIT_SECONDS, TimeUnit.SECONDS).get(0).getId());
+    }
+    long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(WAIT_SECONDS);
+    while (writeBehind.failing() == 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(1);
+    }
+    assertEquals(1, writeBehind.failing());
+    assertEquals(1, writeBehind.size());
+    assertTrue(writeBehind.pending("2").isPresent());
+
+    badId = null;
+    awaitCommitted();
+    assertEquals(0, writeBehind.failing());
+  }
+
+  @Test
+  public void shouldAcceptLaterWriteOfPendingCaseWhileStopping() throws Exception {
+    commitAllowed = new CountDownLatch(1);
+    writeBehind = new CachedCaseWriteBehind(this::commit, 500, 1, 10, 3, 100);
+    writeBehind.offer(caze("1", "100"));
+    assertEquals(1, commits.poll(WAIT_SECONDS, TimeUnit.SECONDS).size());
+
+    CountDownLatch stopped = new CountDownLatch(1);
+    writeBehind.stop(stopped::countDown);
+    CachedCase later = caze("1", "100");
+    later.setAddressLine1("Flat 2");
+
+    // Written directly, the later write could be overwritten by the commit of the earlier one
+    assertTrue(writeBehind.offer(later));
+    assertFalse(writeBehind.offer(caze("2", "100")));
+
+    commitAllowed.countDown();
+    assertTrue(stopped.await(WAIT_SECONDS, TimeUnit.SECONDS));
+    assertEquals(List.of(later), commits.poll());
+    assertEquals(0, writeBehind.size());
+  }
+
+  @Test
+  public void shouldRefuseWritesWhenTooManyPending() throws Exception {
+    commitAllowed = new CountDownLatch(1);
+    writeBehind = new CachedCaseWriteBehind(this::commit, 500, 1, 10, 3, 2);
+
+    assertTrue(writeBehind.offer(caze("1", "100")));
+    assertTrue(writeBehind.offer(caze("2", "100")));
+    assertFalse(writeBehind.offer(caze("3", "100")));
+    // A case which is already pending can still be written again
+    assertTrue(writeBehind.offer(caze("2", "100")));
+    commitAllowed.countDown();
+  }
+
+  @Test
+  public void shouldCommitPendingWritesWhenStopped() throws Exception {
+    writeBehind = new CachedCaseWriteBehind(this::commit, 500, 60000, 10, 3, 100);
+    writeBehind.offer(caze("1", "100"));
+    writeBehind.offer(caze("2", "100"));
+
+    CountDownLatch stopped = new CountDownLatch(1);
+    writeBehind.stop(stopped::countDown);
+
+    assertTrue(stopped.await(WAIT_SECONDS, TimeUnit.SECONDS));
+    assertEquals(2, commits.poll().size());
+    assertEquals(0, writeBehind.size());
+    assertFalse(writeBehind.offer(caze("3", "100")));
+  }
+
+  private void commit(List<CachedCase> batch) throws ExecutionException, InterruptedException {
+    commits.add(new ArrayList<>(batch));
+    commitAllowed.await();
+    if (badId != null && batch.stream().anyMatch(c -> badId.equals(c.getId()))) {
+      throw new ExecutionException(new RuntimeException("Bad case"));
+    }
+    if (failures > 0) {
+      failures--;
+      throw new ExecutionException(new RuntimeException("Firestore is down"));
+    }
+  }
+
+  private void awaitCommitted() throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(WAIT_SECONDS);
+    while (writeBehind.size() > 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(1);
+    }
+    assertEquals(0, writeBehind.size());
+  }
+
+  private CachedCase caze(String id, String uprn) {
+    CachedCase caze = new CachedCase();
+    caze.setId(id);
+    caze.setUprn(uprn);
+    return caze;
+  }
+}
@@ -1,25 +1,48 @@
 package uk.gov.ons.ctp.integration.contactcentresvc.repository.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.grpc.GrpcStatusCode;
+import com.google.api.gax.rpc.FailedPreconditionException;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldMask;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import io.grpc.Status;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.test.util.ReflectionTestUtils;
 import uk.gov.ons.ctp.common.FixtureHelper;
@@ -27,6 +50,7 @@ import uk.gov.ons.ctp.common.cloud.RetryableCloudDataStore;
 import uk.gov.ons.ctp.common.domain.UniquePropertyReferenceNumber;
 import uk.gov.ons.ctp.common.error.CTPException;
 import uk.gov.ons.ctp.integration.contactcentresvc.cloud.CachedCase;
+import uk.gov.ons.ctp.integration.contactcentresvc.repository.CachedCaseProjection;
 
 @RunWith(MockitoJUnitRunner.class)
 public class CaseDataRepositoryImplTest {
@@ -37,6 +61,10 @@ public class CaseDataRepositoryImplTest {
 
   @Mock RetryableCloudDataStore dataStore;
 
+  @Mock Firestore firestore;
+
+  @Mock CollectionReference collection;
+
   @InjectMocks private CaseDataRepositoryImpl repo;
 
   @Before
@@ -45,6 +73,11 @@ public class CaseDataRepositoryImplTest {
     ReflectionTestUtils.setField(repo, "gcpProject", GCP_PROJECT_NAME);
   }
 
+  @After
+  public void tearDown() throws Exception {
+    repo.close();
+  }
+
   @Test
   public void init_withExistingNewCaseCollection() throws Exception {
     // Firestore already has the new-case collection
@@ -120,4 +153,333 @@ public class CaseDataRepositoryImplTest {
     List<CachedCase> result = readCachedCases("9999999999");
     assertTrue(result.isEmpty());
   }
+
+  @Test
+  public void shouldReadCachedCasesForManyUprnsInChunks() throws Exception {
+    CachedCase caze = FixtureHelper.loadClassFixtures(CachedCase[].class).get(0);
+    UniquePropertyReferenceNumber cachedUprn = new UniquePropertyReferenceNumber(caze.getUprn());
+    List<UniquePropertyReferenceNumber> uprns = new ArrayList<>();
+    uprns.add(cachedUprn);
+    for (long uprn = 1; uprn <= 10; uprn++) {
+      uprns.add(new UniquePropertyReferenceNumber(uprn));
+    }
+
+    Query query = mockUprnQuery();
+    QueryDocumentSnapshot document = Mockito.mock(QueryDocumentSnapshot.class);
+    when(document.toObject(CachedCase.class)).thenReturn(caze);
+    QuerySnapshot snapshot = Mockito.mock(QuerySnapshot.class);
+    when(snapshot.getDocuments()).thenReturn(List.of(document));
+    QuerySnapshot emptySnapshot = Mockito.mock(QuerySnapshot.class);
+    when(emptySnapshot.getDocuments()).thenReturn(List.of());
+    when(query.get())
+        .thenReturn(ApiFutures.immediateFuture(snapshot))
+        .thenReturn(ApiFutures.immediateFuture(emptySnapshot));
+
+    repo.init();
+    Map<UniquePropertyReferenceNumber, List<CachedCase>> result =
+        repo.readCachedCasesByUprns(uprns);
+
+    assertEquals(uprns, new ArrayList<>(result.keySet()));
+    assertEquals(List.of(caze), result.get(cachedUprn));
+    assertTrue(result.get(new UniquePropertyReferenceNumber(1L)).isEmpty());
+
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<List<Object>> keysCaptor = ArgumentCaptor.forClass(List.class);
+    verify(collection, times(2)).whereIn(eq("uprn"), keysCaptor.capture());
+    assertEquals(10, keysCaptor.getAllValues().get(0).size());
+    assertEquals(List.of("10"), keysCaptor.getAllValues().get(1));
+  }
+
+  @Test
+  public void shouldFailToReadCachedCasesByUprnsWhenQueryFails() throws Exception {
+    Query query = mockUprnQuery();
+    when(query.get())
+        .thenReturn(ApiFutures.immediateFailedFuture(new RuntimeException("Firestore is down")));
+
+    repo.init();
+    CTPException e =
+        assertThrows(
+            CTPException.class,
+            () -> repo.readCachedCasesByUprns(List.of(new UniquePropertyReferenceNumber(1L))));
+    assertTrue(e.getMessage(), e.getMessage().contains("Firestore is down"));
+  }
+
+  @Test
+  public void shouldReadCachedCasesByUprnWithoutEvents() throws Exception {
+    CachedCase caze = FixtureHelper.loadClassFixtures(CachedCase[].class).get(0);
+    when(firestore.collection(CASE_SCHEMA)).thenReturn(collection);
+    Query query = Mockito.mock(Query.class);
+    when(collection.whereEqualTo("uprn", caze.getUprn())).thenReturn(query);
+    Query projectedQuery = Mockito.mock(Query.class);
+    when(query.select(CachedCaseProjection.WITHOUT_EVENTS.getFieldNames()))
+        .thenReturn(projectedQuery);
+    QueryDocumentSnapshot document = Mockito.mock(QueryDocumentSnapshot.class);
+    when(document.toObject(CachedCase.class)).thenReturn(caze);
+    QuerySnapshot snapshot = Mockito.mock(QuerySnapshot.class);
+    when(snapshot.getDocuments()).thenReturn(List.of(document));
+    when(projectedQuery.get()).thenReturn(ApiFutures.immediateFuture(snapshot));
+
+    repo.init();
+    List<CachedCase> result =
+        repo.readCachedCasesByUprn(
+            new UniquePropertyReferenceNumber(caze.getUprn()), CachedCaseProjection.WITHOUT_EVENTS);
+
+    assertEquals(List.of(caze), result);
+    verify(dataStore, never()).search(any(), any(), any(), any());
+  }
+
+  @Test
+  public void shouldReadLatestCachedCaseByUprn() throws Exception {
+    CachedCase caze = FixtureHelper.loadClassFixtures(CachedCase[].class).get(0);
+    Query query = mockLatestQuery(caze.getUprn());
+    QueryDocumentSnapshot document = Mockito.mock(QueryDocumentSnapshot.class);
+    when(document.toObject(CachedCase.class)).thenReturn(caze);
+    QuerySnapshot snapshot = Mockito.mock(QuerySnapshot.class);
+    when(snapshot.getDocuments()).thenReturn(List.of(document));
+    when(query.get()).thenReturn(ApiFutures.immediateFuture(snapshot));
+
+    repo.init();
+    Optional<CachedCase> result =
+        repo.readLatestCachedCaseByUprn(
+            new UniquePropertyReferenceNumber(caze.getUprn()), CachedCaseProjection.FULL);
+
+    assertEquals(Optional.of(caze), result);
+  }
+
+  @Test
+  public void shouldReadNoLatestCachedCaseByUprnWithoutEvents() throws Exception {
+    Query query = mockLatestQuery("1");
+    Query projectedQuery = Mockito.mock(Query.class);
+    when(query.select(CachedCaseProjection.WITHOUT_EVENTS.getFieldNames()))
+        .thenReturn(projectedQuery);
+    QuerySnapshot emptySnapshot = Mockito.mock(QuerySnapshot.class);
+    when(emptySnapshot.getDocuments()).thenReturn(List.of());
+    when(projectedQuery.get()).thenReturn(ApiFutures.immediateFuture(emptySnapshot));
+
+    repo.init();
+    Optional<CachedCase> result =
+        repo.readLatestCachedCaseByUprn(
+            new UniquePropertyReferenceNumber(1L), CachedCaseProjection.WITHOUT_EVENTS);
+
+    assertFalse(result.isPresent());
+  }
+
+  @Test
+  public void shouldFailToReadLatestCachedCaseByUprnWhenQueryFails() throws Exception {
+    Query query = mockLatestQuery("1");
+    when(query.get())
+        .thenReturn(ApiFutures.immediateFailedFuture(new RuntimeException("Firestore is down")));
+
+    repo.init();
+    CTPException e =
+        assertThrows(
+            CTPException.class,
+            () ->
+                repo.readLatestCachedCaseByUprn(
+                    new UniquePropertyReferenceNumber(1L), CachedCaseProjection.FULL));
+    assertTrue(e.getMessage(), e.getMessage().contains("Firestore is down"));
+  }
+
+  @Test
+  public void shouldReadLatestCachedCaseByUprnWithoutIndex() throws Exception {
+    List<CachedCase> cases = FixtureHelper.loadClassFixtures(CachedCase[].class);
+    CachedCase older = cases.get(0);
+    older.setCreatedDateTime(new Date(1000L));
+    CachedCase newer = cases.get(1);
+    newer.setCreatedDateTime(new Date(2000L));
+    Query latestQuery = mockLatestQuery("1");
+    when(latestQuery.get())
+        .thenReturn(
+            ApiFutures.immediateFailedFuture(
+                new FailedPreconditionException(
+                    "The query requires an index",
+                    null,
+                    GrpcStatusCode.of(Status.Code.FAILED_PRECONDITION),
+                    false)));
+    QuerySnapshot snapshot = Mockito.mock(QuerySnapshot.class);
+    when(snapshot.getDocuments()).thenReturn(List.of(document(newer), document(older)));
+    when(collection.whereEqualTo("uprn", "1").get())
+        .thenReturn(ApiFutures.immediateFuture(snapshot));
+
+    repo.init();
+    Optional<CachedCase> result =
+        repo.readLatestCachedCaseByUprn(
+            new UniquePropertyReferenceNumber(1L), CachedCaseProjection.FULL);
+
+    assertEquals(Optional.of(newer), result);
+  }
+
+  @Test
+  public void shouldReadCachedCasesForManyUprnsWithoutEvents() throws Exception {
+    Query query = mockUprnQuery();
+    Query projectedQuery = Mockito.mock(Query.class);
+    when(query.select(CachedCaseProjection.WITHOUT_EVENTS.getFieldNames()))
+        .thenReturn(projectedQuery);
+    QuerySnapshot emptySnapshot = Mockito.mock(QuerySnapshot.class);
+    when(emptySnapshot.getDocuments()).thenReturn(List.of());
+    when(projectedQuery.get()).thenReturn(ApiFutures.immediateFuture(emptySnapshot));
+
+    repo.init();
+    UniquePropertyReferenceNumber uprn = new UniquePropertyReferenceNumber(1L);
+    Map<UniquePropertyReferenceNumber, List<CachedCase>> result =
+        repo.readCachedCasesByUprns(List.of(uprn), CachedCaseProjection.WITHOUT_EVENTS);
+
+    assertTrue(result.get(uprn).isEmpty());
+    verify(query, never()).get();
+  }
+
+  @Test
+  public void shouldReadCachedCaseByIdWithoutEvents() throws Exception {
+    CachedCase caze = FixtureHelper.loadClassFixtures(CachedCase[].class).get(0);
+    DocumentSnapshot document = mockCaseDocument(caze.getId());
+    when(document.exists()).thenReturn(true);
+    when(document.toObject(CachedCase.class)).thenReturn(caze);
+
+    repo.init();
+    Optional<CachedCase> result =
+        repo.readCachedCaseById(UUID.fromString(caze.getId()), CachedCaseProjection.WITHOUT_EVENTS);
+
+    assertEquals(Optional.of(caze), result);
+    verify(dataStore, never()).retrieveObject(any(), any(), any());
+  }
+
+  @Test
+  public void shouldReadNoCachedCaseByIdWithoutEvents() throws Exception {
+    UUID caseId = UUID.randomUUID();
+    DocumentSnapshot document = mockCaseDocument(caseId.toString());
+    when(document.exists()).thenReturn(false);
+
+    repo.init();
+    Optional<CachedCase> result =
+        repo.readCachedCaseById(caseId, CachedCaseProjection.WITHOUT_EVENTS);
+
+    assertFalse(result.isPresent());
+  }
+
+  @Test
+  public void shouldFailToReadCachedCaseByIdWhenLookupFails() throws Exception {
+    UUID caseId = UUID.randomUUID();
+    DocumentReference reference = mockCaseReference(caseId.toString());
+    when(reference.get(any(FieldMask.class)))
+        .thenReturn(ApiFutures.immediateFailedFuture(new RuntimeException("Firestore is down")));
+
+    repo.init();
+    CTPException e =
+        assertThrows(
+            CTPException.class,
+            () -> repo.readCachedCaseById(caseId, CachedCaseProjection.WITHOUT_EVENTS));
+    assertTrue(e.getMessage(), e.getMessage().contains("Firestore is down"));
+  }
+
+  @Test
+  public void shouldReadEverythingButCaseEvents() {
+    List<String> fieldNames = Arrays.asList(CachedCaseProjection.WITHOUT_EVENTS.getFieldNames());
+    assertFalse(fieldNames.contains("caseEvents"));
+    assertTrue(fieldNames.containsAll(List.of("id", "uprn", "addressLine1", "caseType")));
+    assertTrue(CachedCaseProjection.forCaseEvents(true).isFull());
+    assertEquals(CachedCaseProjection.WITHOUT_EVENTS, CachedCaseProjection.forCaseEvents(false));
+  }
+
+  @Test
+  public void shouldReadBackCaseWaitingToBeWrittenBehind() throws Exception {
+    CachedCase caze = FixtureHelper.loadClassFixtures(CachedCase[].class).get(0);
+    enableWriteBehind();
+
+    repo.writeCachedCase(caze);
+
+    verify(dataStore, never()).storeObject(any(), eq(caze.getId()), any(), any());
+    assertEquals(
+        Optional.of(caze),
+        repo.readCachedCaseById(UUID.fromString(caze.getId()), CachedCaseProjection.FULL));
+    verify(dataStore, never()).retrieveObject(any(), any(), any());
+  }
+
+  @Test
+  public void shouldReadLatestCaseWaitingToBeWrittenBehind() throws Exception {
+    CachedCase stored = FixtureHelper.loadClassFixtures(CachedCase[].class).get(0);
+    stored.setCreatedDateTime(new Date(1000));
+    CachedCase newer =
+        CachedCase.builder()
+            .id(UUID.randomUUID().toString())
+            .uprn(stored.getUprn())
+            .createdDateTime(new Date(2000))
+            .build();
+    Query query = mockLatestQuery(stored.getUprn());
+    QueryDocumentSnapshot document = Mockito.mock(QueryDocumentSnapshot.class);
+    when(document.toObject(CachedCase.class)).thenReturn(stored);
+    QuerySnapshot snapshot = Mockito.mock(QuerySnapshot.class);
+    when(snapshot.getDocuments()).thenReturn(List.of(document));
+    when(query.get()).thenReturn(ApiFutures.immediateFuture(snapshot));
+    enableWriteBehind();
+
+    repo.writeCachedCase(newer);
+
+    Optional<CachedCase> result =
+        repo.readLatestCachedCaseByUprn(
+            new UniquePropertyReferenceNumber(stored.getUprn()), CachedCaseProjection.FULL);
+    assertEquals(Optional.of(newer), result);
+  }
+
+  @Test
+  public void shouldStopAtOnceWithoutWriteBehind() throws Exception {
+    repo.init();
+    repo.start();
+    assertTrue(repo.isRunning());
+
+    repo.stop();
+
+    assertFalse(repo.isRunning());
+  }
+
+  /** Enable write-behind, with a delay long enough that nothing is committed during the test. */
+  private void enableWriteBehind() throws Exception {
+    ReflectionTestUtils.setField(repo, "writeBehindEnabled", true);
+    ReflectionTestUtils.setField(repo, "writeBehindMaxBatchSize", 500);
+    ReflectionTestUtils.setField(repo, "writeBehindMaxDelayMillis", 60000L);
+    ReflectionTestUtils.setField(repo, "writeBehindRetryMillis", 10L);
+    ReflectionTestUtils.setField(repo, "writeBehindMaxAttempts", 3);
+    ReflectionTestUtils.setField(repo, "writeBehindMaxPending", 100);
+    ReflectionTestUtils.setField(repo, "meterRegistry", new SimpleMeterRegistry());
+    repo.init();
+  }
+
+  private DocumentSnapshot mockCaseDocument(String caseId) {
+    DocumentReference reference = mockCaseReference(caseId);
+    DocumentSnapshot document = Mockito.mock(DocumentSnapshot.class);
+    when(reference.get(any(FieldMask.class))).thenReturn(ApiFutures.immediateFuture(document));
+    return document;
+  }
+
+  private DocumentReference mockCaseReference(String caseId) {
+    when(firestore.collection(CASE_SCHEMA)).thenReturn(collection);
+    DocumentReference reference = Mockito.mock(DocumentReference.class);
+    when(collection.document(caseId)).thenReturn(reference);
+    return reference;
+  }
+
+  /** Mock the query for the newest case for a UPRN, returning the query limited to one case. */
+  private Query mockLatestQuery(String uprn) {
+    when(firestore.collection(CASE_SCHEMA)).thenReturn(collection);
+    Query uprnQuery = Mockito.mock(Query.class);
+    when(collection.whereEqualTo("uprn", uprn)).thenReturn(uprnQuery);
+    Query orderedQuery = Mockito.mock(Query.class);
+    when(uprnQuery.orderBy("createdDateTime", Query.Direction.DESCENDING))
+        .thenReturn(orderedQuery);
+    Query latestQuery = Mockito.mock(Query.class);
+    when(orderedQuery.limit(1)).thenReturn(latestQuery);
+    return latestQuery;
+  }
+
+  private QueryDocumentSnapshot document(CachedCase caze) {
+    QueryDocumentSnapshot document = Mockito.mock(QueryDocumentSnapshot.class);
+    when(document.toObject(CachedCase.class)).thenReturn(caze);
+    return document;
+  }
+
+  private Query mockUprnQuery() {
+    when(firestore.collection(CASE_SCHEMA)).thenReturn(collection);
+    Query query = Mockito.mock(Query.class);
+    when(collection.whereIn(eq("uprn"), any())).thenReturn(query);
+    return query;
+  }
 }
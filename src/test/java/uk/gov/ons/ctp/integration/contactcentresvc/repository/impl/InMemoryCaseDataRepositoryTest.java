@@ -0,0 +1,192 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.repository.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import uk.gov.ons.ctp.common.FixtureHelper;
+import uk.gov.ons.ctp.common.domain.UniquePropertyReferenceNumber;
+import uk.gov.ons.ctp.common.jackson.CustomObjectMapper;
+import uk.gov.ons.ctp.integration.contactcentresvc.cloud.CachedCase;
+import uk.gov.ons.ctp.integration.contactcentresvc.repository.CachedCaseProjection;
+
+public class InMemoryCaseDataRepositoryTest {
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private InMemoryCaseDataRepository repo =
+      new InMemoryCaseDataRepository(new CustomObjectMapper());
+  private List<CachedCase> cases;
+  private UniquePropertyReferenceNumber uprn;
+
+  @Before
+  public void setup() {
+    cases = FixtureHelper.loadClassFixtures(CachedCase[].class);
+    uprn = new UniquePropertyReferenceNumber(cases.get(0).getUprn());
+  }
+
+  @Test
+  public void shouldReadCaseWrittenById() throws Exception {
+    CachedCase caze = cases.get(0);
+    repo.writeCachedCase(caze);
+
+    Optional<CachedCase> result = repo.readCachedCaseById(UUID.fromString(caze.getId()));
+
+    assertEquals(Optional.of(caze), result);
+    assertNotSame(caze, result.get());
+    assertFalse(repo.readCachedCaseById(UUID.randomUUID()).isPresent());
+  }
+
+  @Test
+  public void shouldReadCasesWrittenByUprn() throws Exception {
+    writeAll();
+
+    assertEquals(cases, repo.readCachedCasesByUprn(uprn));
+    assertTrue(repo.readCachedCasesByUprn(new UniquePropertyReferenceNumber(1L)).isEmpty());
+  }
+
+  @Test
+  public void shouldReadCaseAgainForItsNewUprn() throws Exception {
+    CachedCase caze = cases.get(0);
+    repo.writeCachedCase(caze);
+    caze.setUprn("1");
+    repo.writeCachedCase(caze);
+
+    assertTrue(repo.readCachedCasesByUprn(uprn).isEmpty());
+    assertEquals(List.of(caze), repo.readCachedCasesByUprn(new UniquePropertyReferenceNumber(1L)));
+    assertEquals(1, repo.size());
+    Map<?, ?> idsByUprn = (Map<?, ?>) ReflectionTestUtils.getField(repo, "idsByUprn");
+    assertEquals(Set.of("1"), idsByUprn.keySet());
+  }
+
+  @Test
+  public void shouldReadLatestCaseByUprn() throws Exception {
+    writeAll();
+    CachedCase undated = FixtureHelper.loadClassFixtures(CachedCase[].class).get(0);
+    undated.setId(UUID.randomUUID().toString());
+    undated.setCreatedDateTime(null);
+    repo.writeCachedCase(undated);
+
+    assertEquals(
+        Optional.of(cases.get(1)),
+        repo.readLatestCachedCaseByUprn(uprn, CachedCaseProjection.FULL));
+    assertFalse(
+        repo.readLatestCachedCaseByUprn(
+                new UniquePropertyReferenceNumber(1L), CachedCaseProjection.FULL)
+            .isPresent());
+  }
+
+  @Test
+  public void shouldReadCasesForManyUprns() throws Exception {
+    writeAll();
+    UniquePropertyReferenceNumber other = new UniquePropertyReferenceNumber(1L);
+
+    Map<UniquePropertyReferenceNumber, List<CachedCase>> result =
+        repo.readCachedCasesByUprns(List.of(other, uprn));
+
+    assertEquals(List.of(other, uprn), List.copyOf(result.keySet()));
+    assertTrue(result.get(other).isEmpty());
+    assertEquals(cases, result.get(uprn));
+  }
+
+  @Test
+  public void shouldReadCaseWithoutEvents() throws Exception {
+    CachedCase caze = cases.get(0);
+    assertFalse(caze.getCaseEvents().isEmpty());
+    repo.writeCachedCase(caze);
+
+    CachedCase result =
+        repo.readCachedCaseById(UUID.fromString(caze.getId()), CachedCaseProjection.WITHOUT_EVENTS)
+            .get();
+
+    assertEquals(new CachedCase().getCaseEvents(), result.getCaseEvents());
+    assertEquals(caze.getUprn(), result.getUprn());
+    assertEquals(caze.getAddressLine1(), result.getAddressLine1());
+  }
+
+  @Test
+  public void shouldRestoreCasesFromSnapshot() throws Exception {
+    writeAll();
+    Path snapshot = folder.getRoot().toPath().resolve("cases.snapshot");
+    repo.snapshot(snapshot);
+
+    InMemoryCaseDataRepository restored = new InMemoryCaseDataRepository(new CustomObjectMapper());
+    restored.restore(snapshot);
+
+    assertEquals(cases.size(), restored.size());
+    assertEquals(cases, restored.readCachedCasesByUprn(uprn));
+    assertEquals(
+        Optional.of(cases.get(0)),
+        restored.readCachedCaseById(UUID.fromString(cases.get(0).getId())));
+  }
+
+  @Test
+  public void shouldSnapshotWhenClosedAndRestoreOnStartup() throws Exception {
+    Path snapshot = folder.getRoot().toPath().resolve("cases.snapshot");
+    ReflectionTestUtils.setField(repo, "snapshotPath", snapshot.toString());
+    ReflectionTestUtils.setField(repo, "snapshotSeconds", 60L);
+    repo.init();
+    writeAll();
+    repo.close();
+
+    InMemoryCaseDataRepository restored = new InMemoryCaseDataRepository(new CustomObjectMapper());
+    ReflectionTestUtils.setField(restored, "snapshotPath", snapshot.toString());
+    ReflectionTestUtils.setField(restored, "snapshotSeconds", 60L);
+    restored.init();
+    try {
+      assertEquals(cases, restored.readCachedCasesByUprn(uprn));
+    } finally {
+      restored.close();
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void shouldRejectFileWhichIsNotSnapshot() throws Exception {
+    Path snapshot = folder.newFile("cases.snapshot").toPath();
+    Files.write(snapshot, "not a snapshot".getBytes());
+
+    repo.restore(snapshot);
+  }
+
+  @Test
+  public void shouldStartEmptyFromTruncatedSnapshot() throws Exception {
+    writeAll();
+    Path snapshot = folder.getRoot().toPath().resolve("cases.snapshot");
+    repo.snapshot(snapshot);
+    byte[] whole = Files.readAllBytes(snapshot);
+    Files.write(snapshot, Arrays.copyOf(whole, whole.length - 10));
+
+    InMemoryCaseDataRepository restored = new InMemoryCaseDataRepository(new CustomObjectMapper());
+    ReflectionTestUtils.setField(restored, "snapshotPath", snapshot.toString());
+    ReflectionTestUtils.setField(restored, "snapshotSeconds", 60L);
+    restored.init();
+    try {
+      assertEquals(0, restored.size());
+      assertTrue(restored.readCachedCasesByUprn(uprn).isEmpty());
+      assertFalse(Files.exists(snapshot));
+      assertTrue(Files.exists(snapshot.resolveSibling("cases.snapshot.failed")));
+    } finally {
+      restored.close();
+    }
+  }
+
+  private void writeAll() throws Exception {
+    for (CachedCase caze : cases) {
+      repo.writeCachedCase(caze);
+    }
+  }
+}
@@ -23,7 +23,7 @@ import uk.gov.ons.ctp.common.error.CTPException;
 import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.AddressServiceClientServiceImpl;
 import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.model.AddressIndexAddressCompositeDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.model.AddressIndexSearchResultsCompositeDTO;
-import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.model.AddressIndexSearchResultsDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.model.AddressIndexSummaryResultsDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.AddressDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.AddressQueryRequestDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.AddressQueryResponseDTO;
@@ -39,9 +39,9 @@ public class AddressServiceImplTest {
   @InjectMocks AddressService addressService = new AddressServiceImpl();
 
   private void mockSearchByAddress(String qualifier, int expectedNumAddresses) {
-    AddressIndexSearchResultsDTO results =
-        FixtureHelper.loadClassFixtures(AddressIndexSearchResultsDTO[].class, qualifier).get(0);
-    assertEquals(expectedNumAddresses, results.getResponse().getAddresses().size());
+    AddressIndexSummaryResultsDTO results =
+        FixtureHelper.loadClassFixtures(AddressIndexSummaryResultsDTO[].class, qualifier).get(0);
+    assertEquals(expectedNumAddresses, results.getAddresses().size());
     when(addressClientService.searchByAddress(any())).thenReturn(results);
   }
 
@@ -85,7 +85,8 @@ public class AddressServiceImplTest {
   public void shouldFilterHistoricalAddresses() throws Exception {
     int numAllAddresses = 10;
     int numHistorical = 2;
-    mockSearchByAddress("somehistoric", numAllAddresses);
+    // Historical addresses are dropped as the AIMS response is read
+    mockSearchByAddress("somehistoric", numAllAddresses - numHistorical);
 
     AddressQueryRequestDTO request = AddressQueryRequestDTO.create("Flixton", 0, 100);
     AddressQueryResponseDTO results = addressService.addressQuery(request);
@@ -114,8 +115,8 @@ public class AddressServiceImplTest {
   @Test
   public void testPostcodeQueryProcessing() {
     // Build results to be returned from search
-    AddressIndexSearchResultsDTO addressIndexResults =
-        FixtureHelper.loadClassFixtures(AddressIndexSearchResultsDTO[].class, "current").get(0);
+    AddressIndexSummaryResultsDTO addressIndexResults =
+        FixtureHelper.loadClassFixtures(AddressIndexSummaryResultsDTO[].class, "current").get(0);
     when(addressClientService.searchByPostcode(any())).thenReturn(addressIndexResults);
 
     // Run the request and verify results
@@ -4,6 +4,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static uk.gov.ons.ctp.integration.contactcentresvc.CaseServiceFixture.UUID_0;
 
@@ -59,6 +60,7 @@ public class CaseServiceImplCaseInvalidateTest extends CaseServiceImplTestBase {
     assertEquals(dto.getCaseId(), payload.getCollectionCase().getId());
     assertEquals(dto.getNotes(), payload.getNotes());
     assertEquals(dto.getStatus().name(), payload.getReason());
+    verify(rmCaseCache).invalidate(UUID_0, ccDto.getCaseRef(), ccDto.getUprn());
   }
 
   @Test
@@ -5,6 +5,7 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
 import static uk.gov.ons.ctp.integration.contactcentresvc.CaseServiceFixture.UUID_0;
 import static uk.gov.ons.ctp.integration.contactcentresvc.CaseServiceFixture.UUID_1;
 
@@ -15,13 +16,19 @@ import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import lombok.SneakyThrows;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.server.ResponseStatusException;
 import uk.gov.ons.ctp.common.FixtureHelper;
 import uk.gov.ons.ctp.common.domain.CaseType;
@@ -31,6 +38,7 @@ import uk.gov.ons.ctp.common.error.CTPException;
 import uk.gov.ons.ctp.common.error.CTPException.Fault;
 import uk.gov.ons.ctp.integration.caseapiclient.caseservice.model.CaseContainerDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.cloud.CachedCase;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.LookupSettings;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.CaseDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.CaseQueryRequestDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.service.CaseService;
@@ -49,11 +57,20 @@ public class CaseServiceImplGetCaseByIdTest extends CaseServiceImplTestBase {
   private static final String CACHED_CASE_UPRN_0 = "1347459987";
   private static final String RM_CASE_UPRN_0 = "1347459988";
 
+  private ExecutorService lookupExecutor;
+
   @Before
   public void setup() {
     mockCaseEventWhiteList();
   }
 
+  @After
+  public void tearDown() {
+    if (lookupExecutor != null) {
+      lookupExecutor.shutdownNow();
+    }
+  }
+
   @Test
   public void testGetHouseholdCaseByCaseId_withCaseDetails() {
     doTestGetCaseByCaseId(CaseType.HH, CASE_EVENTS_TRUE, NO_CACHED_CASE);
@@ -230,6 +247,75 @@ public class CaseServiceImplGetCaseByIdTest extends CaseServiceImplTestBase {
     doGetCaseByIdGetsError(UUID_0);
   }
 
+  @Test
+  public void testGetLatestFromCacheWhenLookingUpConcurrently() throws Exception {
+    enableConcurrentLookup(5000);
+    CaseContainerDTO caseFromCaseService = casesFromCaseService().get(0);
+    CachedCase caseFromRepository = FixtureHelper.loadPackageFixtures(CachedCase[].class).get(0);
+
+    setUpCachedCase(caseFromRepository, UUID_0.toString(), CACHED_CASE_UPRN_0);
+    setUpCaseFromCaseService(caseFromCaseService, UUID_0, RM_CASE_UPRN_0);
+    caseFromRepository.setCreatedDateTime(new Date());
+
+    doGetCaseById(caseFromCaseService, caseFromRepository, UUID_0, CACHED_CASE_UPRN_0);
+  }
+
+  @Test
+  public void testGetLatestFromRmWhenLookingUpConcurrently() throws Exception {
+    enableConcurrentLookup(5000);
+    CaseContainerDTO caseFromCaseService = casesFromCaseService().get(0);
+    CachedCase caseFromRepository = FixtureHelper.loadPackageFixtures(CachedCase[].class).get(0);
+
+    setUpCachedCase(caseFromRepository, UUID_0.toString(), CACHED_CASE_UPRN_0);
+    setUpCaseFromCaseService(caseFromCaseService, UUID_0, RM_CASE_UPRN_0);
+    caseFromCaseService.setLastUpdated(new Date());
+
+    doGetCaseById(caseFromCaseService, caseFromRepository, UUID_0, RM_CASE_UPRN_0);
+  }
+
+  @Test
+  public void testRMCaseNotFoundWhenLookingUpConcurrently() throws CTPException {
+    enableConcurrentLookup(5000);
+    CaseContainerDTO caseFromCaseService = casesFromCaseService().get(0);
+    List<CachedCase> casesFromRepository = FixtureHelper.loadPackageFixtures(CachedCase[].class);
+
+    setUpCachedCase(casesFromRepository.get(0), UUID_0.toString(), CACHED_CASE_UPRN_0);
+
+    doGetCaseByIdNotFoundInRM(caseFromCaseService, casesFromRepository, UUID_0, CACHED_CASE_UPRN_0);
+  }
+
+  @Test
+  public void testRMAndCachedCaseNotFoundWhenLookingUpConcurrently() throws CTPException {
+    enableConcurrentLookup(5000);
+    doGetCaseByIdNotFound(UUID_0);
+  }
+
+  @Test
+  public void testHandleErrorFromRMWhenLookingUpConcurrently() throws CTPException {
+    enableConcurrentLookup(5000);
+    doGetCaseByIdGetsError(UUID_0);
+  }
+
+  @Test
+  public void testRmDeadlineExceededWhenLookingUpConcurrently() throws Exception {
+    enableConcurrentLookup(50);
+    CountDownLatch neverReleased = new CountDownLatch(1);
+    Mockito.when(caseServiceClient.getCaseById(eq(UUID_0), any()))
+        .thenAnswer(
+            invocation -> {
+              neverReleased.await(5, TimeUnit.SECONDS);
+              return casesFromCaseService().get(0);
+            });
+
+    try {
+      target.getCaseById(UUID_0, new CaseQueryRequestDTO(false));
+      fail();
+    } catch (ResponseStatusException e) {
+      assertEquals(HttpStatus.GATEWAY_TIMEOUT, e.getStatus());
+    }
+    verify(caseServiceClient).getCaseById(eq(UUID_0), any());
+  }
+
   @SneakyThrows
   private void doTestGetCaseByCaseId(CaseType caseType, boolean caseEvents, boolean cached) {
     // Build results to be returned from search
@@ -246,7 +332,7 @@ public class CaseServiceImplGetCaseByIdTest extends CaseServiceImplTestBase {
       List<CachedCase> casesFromRepository = FixtureHelper.loadPackageFixtures(CachedCase[].class);
       caseFromRepository = casesFromRepository.get(1);
       caseFromRepository.setCaseType(caseType);
-      Mockito.when(dataRepo.readCachedCaseById(eq(UUID_0)))
+      Mockito.when(dataRepo.readCachedCaseById(eq(UUID_0), any()))
           .thenReturn(Optional.of(caseFromRepository));
 
       expectedCaseResult = mapperFacade.map(caseFromRepository, CaseDTO.class);
@@ -278,6 +364,17 @@ public class CaseServiceImplGetCaseByIdTest extends CaseServiceImplTestBase {
     }
   }
 
+  private void enableConcurrentLookup(long rmTimeoutMillis) {
+    LookupSettings lookupSettings = new LookupSettings();
+    lookupSettings.setConcurrent(true);
+    lookupSettings.setRmTimeoutMillis(rmTimeoutMillis);
+    lookupSettings.setCacheTimeoutMillis(5000);
+    appConfig.setLookupSettings(lookupSettings);
+
+    lookupExecutor = Executors.newFixedThreadPool(2);
+    ReflectionTestUtils.setField(target, "lookupExecutor", lookupExecutor);
+  }
+
   private List<CaseContainerDTO> casesFromCaseService() {
     return FixtureHelper.loadPackageFixtures(CaseContainerDTO[].class);
   }
@@ -293,7 +390,7 @@ public class CaseServiceImplGetCaseByIdTest extends CaseServiceImplTestBase {
       String expectedUprn)
       throws CTPException {
     Mockito.when(caseServiceClient.getCaseById(eq(caseId), any())).thenReturn(caseFromCaseService);
-    Mockito.when(dataRepo.readCachedCaseById(eq(caseId)))
+    Mockito.when(dataRepo.readCachedCaseById(eq(caseId), any()))
         .thenReturn(Optional.of(caseFromRepository));
 
     // Run the request
@@ -312,7 +409,7 @@ public class CaseServiceImplGetCaseByIdTest extends CaseServiceImplTestBase {
       throws CTPException {
     Mockito.when(caseServiceClient.getCaseById(eq(caseId), any()))
         .thenThrow(new ResponseStatusException(HttpStatus.NOT_FOUND)); // Not in RM
-    Mockito.when(dataRepo.readCachedCaseById(eq(caseId)))
+    Mockito.when(dataRepo.readCachedCaseById(eq(caseId), any()))
         .thenReturn(Optional.of(casesFromRepository.get(0)));
 
     // Run the request
@@ -326,7 +423,7 @@ public class CaseServiceImplGetCaseByIdTest extends CaseServiceImplTestBase {
   private void doGetCaseByIdNotFound(UUID caseId) throws CTPException {
     Mockito.when(caseServiceClient.getCaseById(eq(caseId), any()))
         .thenThrow(new ResponseStatusException(HttpStatus.NOT_FOUND)); // Not in RM
-    Mockito.when(dataRepo.readCachedCaseById(eq(caseId))).thenReturn(Optional.empty());
+    Mockito.when(dataRepo.readCachedCaseById(eq(caseId), any())).thenReturn(Optional.empty());
 
     Fault fault = null;
     String message = null;
@@ -2,6 +2,7 @@ package uk.gov.ons.ctp.integration.contactcentresvc.service.impl;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
@@ -16,18 +17,22 @@ import static uk.gov.ons.ctp.integration.contactcentresvc.CaseServiceFixture.UUI
 
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.server.ResponseStatusException;
 import uk.gov.ons.ctp.common.FixtureHelper;
 import uk.gov.ons.ctp.common.domain.AddressType;
@@ -40,9 +45,12 @@ import uk.gov.ons.ctp.common.event.EventPublisher.Channel;
 import uk.gov.ons.ctp.common.event.EventPublisher.EventType;
 import uk.gov.ons.ctp.common.event.model.CollectionCaseNewAddress;
 import uk.gov.ons.ctp.common.event.model.NewAddress;
+import uk.gov.ons.ctp.common.jackson.CustomObjectMapper;
 import uk.gov.ons.ctp.integration.caseapiclient.caseservice.model.CaseContainerDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.model.AddressIndexAddressCompositeDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.cloud.CachedCase;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.LookupSettings;
+import uk.gov.ons.ctp.integration.contactcentresvc.repository.impl.InMemoryCaseDataRepository;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.CaseDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.CaseQueryRequestDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.DeliveryChannel;
@@ -70,6 +78,7 @@ public class CaseServiceImplGetCaseByUprnTest extends CaseServiceImplTestBase {
   List<CaseContainerDTO> casesFromRm;
   List<CachedCase> casesFromCache;
   private AddressIndexAddressCompositeDTO addressFromAI;
+  private ExecutorService lookupExecutor;
 
   @Before
   public void setup() {
@@ -84,6 +93,13 @@ public class CaseServiceImplGetCaseByUprnTest extends CaseServiceImplTestBase {
     addressFromAI = FixtureHelper.loadClassFixtures(AddressIndexAddressCompositeDTO[].class).get(0);
   }
 
+  @After
+  public void tearDown() {
+    if (lookupExecutor != null) {
+      lookupExecutor.shutdownNow();
+    }
+  }
+
   @Test
   public void testGetCaseByUprn_withCaseDetailsForCaseTypeHH() throws Exception {
     casesFromRm.get(0).setCaseType(CaseType.HH.name());
@@ -427,8 +443,112 @@ public class CaseServiceImplGetCaseByUprnTest extends CaseServiceImplTestBase {
     assertEquals(UUID_0, result.getId());
   }
 
+  // --- concurrent lookup ...
+
+  @Test
+  public void shouldGetLatestFromCacheWhenLookingUpConcurrently() throws Exception {
+    enableConcurrentLookup();
+    mockCasesFromRm();
+    mockCasesFromCache();
+    CaseDTO result = getCasesByUprn(false);
+    assertEquals(CACHED_CASE_ID_1, result.getId());
+    verifyNotWrittenCachedCase();
+    verifyEventNotSent();
+  }
+
+  @Test
+  public void shouldGetLatestFromRmWhenLookingUpConcurrently() throws Exception {
+    enableConcurrentLookup();
+    casesFromCache.get(0).setCreatedDateTime(utcDate(LocalDateTime.of(2020, 1, 2, 0, 0)));
+    casesFromCache.get(1).setCreatedDateTime(utcDate(LocalDateTime.of(2020, 1, 3, 0, 0)));
+    casesFromRm.get(0).setLastUpdated(utcDate(LocalDateTime.of(2020, 1, 1, 0, 0)));
+    casesFromRm.get(1).setLastUpdated(utcDate(LocalDateTime.of(2020, 1, 23, 0, 0)));
+    mockCasesFromRm();
+    mockCasesFromCache();
+    CaseDTO result = getCasesByUprn(false);
+    assertEquals(UUID_1, result.getId());
+    verifyNotWrittenCachedCase();
+    verifyEventNotSent();
+  }
+
+  @Test
+  public void shouldIgnoreAddressServiceFailureWhenCaseFoundConcurrently() throws Exception {
+    enableConcurrentLookup();
+    mockNothingInRm();
+    mockCachedCase();
+    // the speculative AIMS query may be cancelled before it has run
+    Mockito.lenient()
+        .doThrow(new ResponseStatusException(HttpStatus.I_AM_A_TEAPOT))
+        .when(addressSvc)
+        .uprnQuery(UPRN.getValue());
+
+    CaseDTO result = getCasesByUprn(false);
+    assertEquals(CACHED_CASE_ID_0, result.getId());
+    verifyNotWrittenCachedCase();
+    verifyEventNotSent();
+  }
+
+  @Test
+  public void shouldCreateNewCaseWhenNothingFoundConcurrently() throws Exception {
+    enableConcurrentLookup();
+    mockNothingInRm();
+    mockNothingInTheCache();
+    mockAddressFromAI();
+
+    CaseDTO result = getCasesByUprn(false);
+    verifyNewCase(result, AddressType.HH.name(), "Household", "U");
+  }
+
+  @Test
+  public void shouldNotStoreNewCaseWhenEventFailsConcurrently() throws Exception {
+    enableConcurrentLookup();
+    mockNothingInRm();
+    mockNothingInTheCache();
+    mockAddressFromAI();
+    doThrow(new RuntimeException("Rabbit is down"))
+        .when(eventPublisher)
+        .sendEvent(any(), any(), any(), any());
+
+    assertThrows(
+        RuntimeException.class,
+        () -> target.getCaseByUPRN(UPRN, new CaseQueryRequestDTO(false)));
+    verifyNotWrittenCachedCase();
+  }
+
+  @Test(expected = CTPException.class)
+  public void shouldReportAddressServiceFailureWhenNothingFoundConcurrently() throws Exception {
+    enableConcurrentLookup();
+    mockNothingInRm();
+    mockNothingInTheCache();
+    doThrow(new CTPException(Fault.RESOURCE_NOT_FOUND)).when(addressSvc).uprnQuery(UPRN.getValue());
+
+    target.getCaseByUPRN(UPRN, new CaseQueryRequestDTO(false));
+  }
+
+  @Test(expected = ResponseStatusException.class)
+  public void shouldReportCaseServiceFailureWhenLookingUpConcurrently() throws Exception {
+    enableConcurrentLookup();
+    doThrow(new ResponseStatusException(HttpStatus.I_AM_A_TEAPOT))
+        .when(caseServiceClient)
+        .getCaseByUprn(eq(UPRN.getValue()), any());
+
+    target.getCaseByUPRN(UPRN, new CaseQueryRequestDTO(false));
+  }
+
   // ---- helpers methods below ---
 
+  private void enableConcurrentLookup() {
+    LookupSettings lookupSettings = new LookupSettings();
+    lookupSettings.setConcurrent(true);
+    lookupSettings.setRmTimeoutMillis(5000);
+    lookupSettings.setCacheTimeoutMillis(5000);
+    lookupSettings.setAimsTimeoutMillis(5000);
+    appConfig.setLookupSettings(lookupSettings);
+
+    lookupExecutor = Executors.newFixedThreadPool(3);
+    ReflectionTestUtils.setField(target, "lookupExecutor", lookupExecutor);
+  }
+
   private Date utcDate(LocalDateTime dateTime) {
     return Date.from(dateTime.toInstant(ZoneOffset.UTC));
   }
@@ -453,19 +573,28 @@ public class CaseServiceImplGetCaseByUprnTest extends CaseServiceImplTestBase {
   }
 
   private void mockCachedCase() throws Exception {
-    when(dataRepo.readCachedCasesByUprn(UPRN)).thenReturn(List.of(casesFromCache.get(0)));
+    mockCache(List.of(casesFromCache.get(0)));
   }
 
   private void mockCasesFromCache() throws Exception {
-    when(dataRepo.readCachedCasesByUprn(UPRN)).thenReturn(casesFromCache);
+    mockCache(casesFromCache);
   }
 
   private void mockNothingInTheCache() throws Exception {
-    when(dataRepo.readCachedCasesByUprn(UPRN)).thenReturn(new ArrayList<>());
+    mockCache(List.of());
+  }
+
+  private void mockCache(List<CachedCase> cachedCases) throws Exception {
+    InMemoryCaseDataRepository cache = new InMemoryCaseDataRepository(new CustomObjectMapper());
+    for (CachedCase cachedCase : cachedCases) {
+      cache.writeCachedCase(cachedCase);
+    }
+    when(dataRepo.readLatestCachedCaseByUprn(eq(UPRN), any()))
+        .thenAnswer(i -> cache.readLatestCachedCaseByUprn(i.getArgument(0), i.getArgument(1)));
   }
 
   private void verifyHasReadCachedCases() throws Exception {
-    verify(dataRepo).readCachedCasesByUprn(any(UniquePropertyReferenceNumber.class));
+    verify(dataRepo).readLatestCachedCaseByUprn(any(UniquePropertyReferenceNumber.class), any());
   }
 
   private CachedCase verifyHasWrittenCachedCase() throws Exception {
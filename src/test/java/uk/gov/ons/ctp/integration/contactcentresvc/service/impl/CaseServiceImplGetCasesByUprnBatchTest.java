@@ -0,0 +1,249 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+import uk.gov.ons.ctp.common.FixtureHelper;
+import uk.gov.ons.ctp.common.domain.UniquePropertyReferenceNumber;
+import uk.gov.ons.ctp.common.error.CTPException;
+import uk.gov.ons.ctp.common.error.CTPException.Fault;
+import uk.gov.ons.ctp.common.event.EventPublisher.Channel;
+import uk.gov.ons.ctp.common.event.EventPublisher.EventType;
+import uk.gov.ons.ctp.common.event.model.NewAddress;
+import uk.gov.ons.ctp.integration.caseapiclient.caseservice.model.CaseContainerDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.addressindex.model.AddressIndexAddressCompositeDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.cloud.CachedCase;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.CaseServiceSettings;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.LookupSettings;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.UprnBatchRequestDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.UprnCaseResultDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.service.CaseService;
+
+/** Unit Test {@link CaseService#getCasesByUPRNs(UprnBatchRequestDTO) getCasesByUPRNs}. */
+@RunWith(MockitoJUnitRunner.class)
+public class CaseServiceImplGetCasesByUprnBatchTest extends CaseServiceImplTestBase {
+  private static final UniquePropertyReferenceNumber CACHED_UPRN =
+      new UniquePropertyReferenceNumber(334999999999L);
+  private static final UniquePropertyReferenceNumber RM_UPRN =
+      new UniquePropertyReferenceNumber(334999999998L);
+  private static final UniquePropertyReferenceNumber NEW_UPRN =
+      new UniquePropertyReferenceNumber(334999999997L);
+
+  private static final String SURVEY_NAME = "CENSUS";
+  private static final String COLLECTION_EXERCISE_ID = "34d7f3bb-91c9-45d0-bb2d-90afce4fc790";
+
+  private static final UUID CACHED_CASE_ID_1 =
+      UUID.fromString("c46e5dd4-4b17-45ac-a034-0e514e8592c0");
+
+  private List<CaseContainerDTO> casesFromRm;
+  private List<CachedCase> casesFromCache;
+  private AddressIndexAddressCompositeDTO addressFromAI;
+  private Map<UniquePropertyReferenceNumber, List<CachedCase>> cachedCasesByUprn;
+  private ExecutorService lookupExecutor;
+  private ExecutorService batchExecutor;
+
+  @Before
+  public void setup() throws Exception {
+    appConfig.setChannel(Channel.CC);
+    appConfig.setSurveyName(SURVEY_NAME);
+    appConfig.setCollectionExerciseId(COLLECTION_EXERCISE_ID);
+    CaseServiceSettings caseServiceSettings = new CaseServiceSettings();
+    caseServiceSettings.setWhitelistedEventCategories(Set.of("CASE_CREATED", "CASE_UPDATED"));
+    appConfig.setCaseServiceSettings(caseServiceSettings);
+
+    LookupSettings lookupSettings = new LookupSettings();
+    lookupSettings.setRmTimeoutMillis(5000);
+    lookupSettings.setCacheTimeoutMillis(5000);
+    lookupSettings.setAimsTimeoutMillis(5000);
+    lookupSettings.setBatchMaxUprns(3);
+    lookupSettings.setBatchConcurrency(2);
+    appConfig.setLookupSettings(lookupSettings);
+
+    lookupExecutor = Executors.newFixedThreadPool(3);
+    ReflectionTestUtils.setField(target, "lookupExecutor", lookupExecutor);
+    batchExecutor = Executors.newFixedThreadPool(2);
+    ReflectionTestUtils.setField(target, "batchExecutor", batchExecutor);
+
+    casesFromRm = FixtureHelper.loadPackageFixtures(CaseContainerDTO[].class);
+    casesFromCache = FixtureHelper.loadPackageFixtures(CachedCase[].class);
+    addressFromAI = FixtureHelper.loadClassFixtures(AddressIndexAddressCompositeDTO[].class).get(0);
+
+    cachedCasesByUprn = new HashMap<>();
+    cachedCasesByUprn.put(CACHED_UPRN, casesFromCache);
+    cachedCasesByUprn.put(RM_UPRN, List.of());
+    cachedCasesByUprn.put(NEW_UPRN, List.of());
+  }
+
+  @After
+  public void tearDown() {
+    lookupExecutor.shutdownNow();
+    batchExecutor.shutdownNow();
+  }
+
+  @Test
+  public void shouldResolveEachUprnInRequestOrder() throws Exception {
+    mockNothingInRm(CACHED_UPRN);
+    when(caseServiceClient.getCaseByUprn(eq(RM_UPRN.getValue()), any())).thenReturn(casesFromRm);
+    mockNothingInRm(NEW_UPRN);
+    mockCachedCases(RM_UPRN, CACHED_UPRN, NEW_UPRN);
+    when(addressSvc.uprnQuery(NEW_UPRN.getValue())).thenReturn(addressFromAI);
+
+    List<UprnCaseResultDTO> results = getCasesByUprns(RM_UPRN, CACHED_UPRN, NEW_UPRN);
+
+    assertEquals(3, results.size());
+    assertEquals(RM_UPRN, results.get(0).getUprn());
+    assertEquals(casesFromRm.get(0).getId(), results.get(0).getCases().get(0).getId());
+    assertEquals(CACHED_UPRN, results.get(1).getUprn());
+    assertEquals(CACHED_CASE_ID_1, results.get(1).getCases().get(0).getId());
+    assertEquals(NEW_UPRN, results.get(2).getUprn());
+    assertEquals(1, results.get(2).getCases().size());
+    for (UprnCaseResultDTO result : results) {
+      assertNull(result.getError());
+    }
+
+    verify(dataRepo, never()).readCachedCasesByUprn(any(), any());
+    verify(dataRepo).writeCachedCase(any());
+    NewAddress newAddress = verifyEventSent(EventType.NEW_ADDRESS_REPORTED, NewAddress.class);
+    assertEquals(
+        results.get(2).getCases().get(0).getId().toString(),
+        newAddress.getCollectionCase().getId());
+  }
+
+  @Test
+  public void shouldLookUpRepeatedUprnOnce() throws Exception {
+    when(caseServiceClient.getCaseByUprn(eq(RM_UPRN.getValue()), any())).thenReturn(casesFromRm);
+    mockCachedCases(RM_UPRN);
+
+    List<UprnCaseResultDTO> results = getCasesByUprns(RM_UPRN, RM_UPRN);
+
+    assertEquals(1, results.size());
+    verify(caseServiceClient, times(1)).getCaseByUprn(eq(RM_UPRN.getValue()), any());
+  }
+
+  @Test
+  public void shouldReportFailureAgainstItsUprn() throws Exception {
+    doThrow(new ResponseStatusException(HttpStatus.I_AM_A_TEAPOT, "RM is a teapot"))
+        .when(caseServiceClient)
+        .getCaseByUprn(eq(RM_UPRN.getValue()), any());
+    mockNothingInRm(NEW_UPRN);
+    mockNothingInRm(CACHED_UPRN);
+    mockCachedCases(RM_UPRN, CACHED_UPRN, NEW_UPRN);
+    doThrow(new CTPException(Fault.RESOURCE_NOT_FOUND, "No address for UPRN"))
+        .when(addressSvc)
+        .uprnQuery(NEW_UPRN.getValue());
+
+    List<UprnCaseResultDTO> results = getCasesByUprns(RM_UPRN, CACHED_UPRN, NEW_UPRN);
+
+    assertEquals(HttpStatus.I_AM_A_TEAPOT.name(), results.get(0).getError());
+    assertEquals("RM is a teapot", results.get(0).getMessage());
+    assertNull(results.get(0).getCases());
+    assertEquals(CACHED_CASE_ID_1, results.get(1).getCases().get(0).getId());
+    assertEquals(Fault.RESOURCE_NOT_FOUND.name(), results.get(2).getError());
+    assertEquals("No address for UPRN", results.get(2).getMessage());
+    verifyNotWrittenCachedCase();
+    verifyEventNotSent();
+  }
+
+  @Test
+  public void shouldReportUnexpectedFailureAgainstItsUprn() throws Exception {
+    doThrow(new IllegalStateException("Bad case from RM"))
+        .when(caseServiceClient)
+        .getCaseByUprn(eq(RM_UPRN.getValue()), any());
+    mockNothingInRm(CACHED_UPRN);
+    mockCachedCases(RM_UPRN, CACHED_UPRN);
+
+    List<UprnCaseResultDTO> results = getCasesByUprns(RM_UPRN, CACHED_UPRN);
+
+    assertEquals(Fault.SYSTEM_ERROR.name(), results.get(0).getError());
+    assertNull(results.get(0).getCases());
+    assertEquals(CACHED_CASE_ID_1, results.get(1).getCases().get(0).getId());
+    verifyNotWrittenCachedCase();
+  }
+
+  @Test
+  public void shouldRejectTooManyUprns() throws Exception {
+    try {
+      getCasesByUprns(
+          CACHED_UPRN, RM_UPRN, NEW_UPRN, new UniquePropertyReferenceNumber(334999999996L));
+      fail();
+    } catch (CTPException e) {
+      assertEquals(Fault.BAD_REQUEST, e.getFault());
+    }
+    verify(dataRepo, never()).readCachedCasesByUprns(any(), any());
+    verify(caseServiceClient, never()).getCaseByUprn(anyLong(), any());
+  }
+
+  @Test(expected = CTPException.class)
+  public void shouldFailWholeBatchWhenCacheCannotBeRead() throws Exception {
+    // the RM lookup may be cancelled before it has run
+    Mockito.lenient()
+        .doThrow(new ResponseStatusException(HttpStatus.NOT_FOUND))
+        .when(caseServiceClient)
+        .getCaseByUprn(eq(RM_UPRN.getValue()), any());
+    when(dataRepo.readCachedCasesByUprns(any(), any()))
+        .thenThrow(new CTPException(Fault.SYSTEM_ERROR, "Firestore unavailable"));
+
+    getCasesByUprns(RM_UPRN);
+  }
+
+  @Test
+  public void shouldNotCreateCaseWhenCaseFoundForEveryUprn() throws Exception {
+    mockNothingInRm(CACHED_UPRN);
+    when(caseServiceClient.getCaseByUprn(eq(RM_UPRN.getValue()), any())).thenReturn(casesFromRm);
+    mockCachedCases(CACHED_UPRN, RM_UPRN);
+
+    List<UprnCaseResultDTO> results = getCasesByUprns(CACHED_UPRN, RM_UPRN);
+
+    assertEquals(CACHED_CASE_ID_1, results.get(0).getCases().get(0).getId());
+    assertEquals(casesFromRm.get(0).getId(), results.get(1).getCases().get(0).getId());
+    verify(addressSvc, never()).uprnQuery(anyLong());
+    verifyNotWrittenCachedCase();
+    verifyEventNotSent();
+  }
+
+  // ---- helpers methods below ---
+
+  private List<UprnCaseResultDTO> getCasesByUprns(UniquePropertyReferenceNumber... uprns)
+      throws CTPException {
+    return target.getCasesByUPRNs(new UprnBatchRequestDTO(List.of(uprns), false));
+  }
+
+  private void mockNothingInRm(UniquePropertyReferenceNumber uprn) {
+    doThrow(new ResponseStatusException(HttpStatus.NOT_FOUND))
+        .when(caseServiceClient)
+        .getCaseByUprn(eq(uprn.getValue()), any());
+  }
+
+  private void mockCachedCases(UniquePropertyReferenceNumber... uprns) throws Exception {
+    Map<UniquePropertyReferenceNumber, List<CachedCase>> cachedCases = new HashMap<>();
+    for (UniquePropertyReferenceNumber uprn : uprns) {
+      cachedCases.put(uprn, cachedCasesByUprn.get(uprn));
+    }
+    when(dataRepo.readCachedCasesByUprns(any(), any())).thenReturn(cachedCases);
+  }
+}
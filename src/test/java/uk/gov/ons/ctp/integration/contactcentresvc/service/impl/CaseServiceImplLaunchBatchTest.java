@@ -0,0 +1,282 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.ons.ctp.integration.contactcentresvc.CaseServiceFixture.UUID_0;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.amqp.rabbit.core.RabbitOperations.OperationsCallback;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+import uk.gov.ons.ctp.common.domain.FormType;
+import uk.gov.ons.ctp.common.error.CTPException;
+import uk.gov.ons.ctp.common.error.CTPException.Fault;
+import uk.gov.ons.ctp.common.event.EventPublisher.Channel;
+import uk.gov.ons.ctp.common.event.EventPublisher.EventType;
+import uk.gov.ons.ctp.common.event.EventPublisher.Source;
+import uk.gov.ons.ctp.common.event.model.SurveyLaunchedResponse;
+import uk.gov.ons.ctp.integration.caseapiclient.caseservice.model.SingleUseQuestionnaireIdDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.EqConfig;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.LookupSettings;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.TelephoneCapture;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.LaunchBatchRequestDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.LaunchBatchResultDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.UACBatchRequestDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.representation.UACBatchResultDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.service.CaseService;
+import uk.gov.ons.ctp.integration.eqlaunch.service.EqLaunchData;
+
+/**
+ * Unit Test {@link CaseService#getLaunchURLsForCaseId(UUID, LaunchBatchRequestDTO)
+ * getLaunchURLsForCaseId} and {@link CaseService#getUACsForCaseId(UUID, UACBatchRequestDTO)
+ * getUACsForCaseId}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class CaseServiceImplLaunchBatchTest extends CaseServiceImplTestBase {
+  private static final int AGENT_ID = 123;
+  private static final String LAUNCH_URL_PREFIX = "https://localhost/en/start/launch-eq/?token=";
+
+  private ExecutorService lookupExecutor;
+  private ExecutorService batchExecutor;
+  private ExecutorService launchExecutor;
+
+  @Before
+  public void setup() {
+    appConfig.setChannel(Channel.CC);
+
+    EqConfig eqConfig = new EqConfig();
+    eqConfig.setProtocol("https");
+    eqConfig.setHost("localhost");
+    eqConfig.setPath("/en/start/launch-eq/?token=");
+    eqConfig.setResponseIdSalt("CENSUS");
+    appConfig.setEq(eqConfig);
+    launchTokenEngine.init();
+
+    TelephoneCapture telephoneCapture = new TelephoneCapture();
+    telephoneCapture.setDisabled(new HashSet<String>());
+    appConfig.setTelephoneCapture(telephoneCapture);
+
+    LookupSettings lookupSettings = new LookupSettings();
+    lookupSettings.setRmTimeoutMillis(5000);
+    lookupSettings.setBatchConcurrency(2);
+    lookupSettings.setBatchMaxLaunches(3);
+    appConfig.setLookupSettings(lookupSettings);
+
+    lookupExecutor = Executors.newFixedThreadPool(3);
+    ReflectionTestUtils.setField(target, "lookupExecutor", lookupExecutor);
+    batchExecutor = Executors.newFixedThreadPool(2);
+    ReflectionTestUtils.setField(target, "batchExecutor", batchExecutor);
+    launchExecutor = Executors.newFixedThreadPool(2);
+    ReflectionTestUtils.setField(target, "launchExecutor", launchExecutor);
+
+    // Run the events published on one channel straight away
+    lenient()
+        .when(rabbitTemplate.invoke(any()))
+        .thenAnswer(
+            invocation ->
+                invocation.<OperationsCallback<?>>getArgument(0).doInRabbit(rabbitTemplate));
+  }
+
+  @After
+  public void tearDown() {
+    lookupExecutor.shutdownNow();
+    batchExecutor.shutdownNow();
+    launchExecutor.shutdownNow();
+  }
+
+  @Test
+  public void shouldLaunchEachIndividualWithCaseOfItsOwn() throws Exception {
+    mockGetCaseById("HH", "U", "E");
+    mockNewQids(true);
+    when(eqLaunchService.getEqLaunchJwe(any(EqLaunchData.class))).thenReturn("payload");
+
+    List<LaunchBatchResultDTO> results =
+        target.getLaunchURLsForCaseId(UUID_0, new LaunchBatchRequestDTO(AGENT_ID, true, 3));
+
+    assertEquals(3, results.size());
+    for (LaunchBatchResultDTO result : results) {
+      assertEquals(LAUNCH_URL_PREFIX + "payload", result.getLaunchUrl());
+      assertNull(result.getError());
+    }
+    assertEquals(Set.of("qid-1", "qid-2", "qid-3"), questionnaireIds(results));
+
+    // The case is fetched once, and each individual is given a new case
+    verify(caseServiceClient).getCaseById(eq(UUID_0), any());
+    ArgumentCaptor<UUID> individualCaseIds = ArgumentCaptor.forClass(UUID.class);
+    verify(caseServiceClient, times(3))
+        .getSingleUseQuestionnaireId(eq(UUID_0), eq(true), individualCaseIds.capture());
+    Set<UUID> newCaseIds = new HashSet<>(individualCaseIds.getAllValues());
+    assertEquals(3, newCaseIds.size());
+    assertFalse(newCaseIds.contains(UUID_0));
+
+    // The events are published together on one channel
+    verify(rabbitTemplate).invoke(any());
+    ArgumentCaptor<SurveyLaunchedResponse> launched =
+        ArgumentCaptor.forClass(SurveyLaunchedResponse.class);
+    verify(eventPublisher, times(3))
+        .sendEvent(
+            eq(EventType.SURVEY_LAUNCHED),
+            eq(Source.CONTACT_CENTRE_API),
+            eq(Channel.CC),
+            launched.capture());
+    assertEquals(
+        newCaseIds,
+        launched.getAllValues().stream()
+            .map(SurveyLaunchedResponse::getCaseId)
+            .collect(Collectors.toSet()));
+  }
+
+  @Test
+  public void shouldAppendSurveyLaunchedEventsToOutboxTogether() throws Exception {
+    mockGetCaseById("CE", "E", "E");
+    mockNewQids(false);
+    when(eqLaunchService.getEqLaunchJwe(any(EqLaunchData.class))).thenReturn("payload");
+    when(eventOutbox.isEnabled()).thenReturn(true);
+
+    target.getLaunchURLsForCaseId(UUID_0, new LaunchBatchRequestDTO(AGENT_ID, false, 2));
+
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<List<SurveyLaunchedResponse>> launched = ArgumentCaptor.forClass(List.class);
+    verify(eventOutbox)
+        .appendAll(
+            eq(EventType.SURVEY_LAUNCHED),
+            eq(Source.CONTACT_CENTRE_API),
+            eq(Channel.CC),
+            launched.capture(),
+            eq(UUID_0));
+    assertEquals(2, launched.getValue().size());
+    verify(eventPublisher, never()).sendEvent(any(), any(), any(), any());
+  }
+
+  @Test
+  public void shouldReportFailedLaunchInItsResult() throws Exception {
+    mockGetCaseById("CE", "E", "E");
+    when(caseServiceClient.getSingleUseQuestionnaireId(eq(UUID_0), eq(false), any()))
+        .thenReturn(newQid("qid-1"))
+        .thenThrow(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
+    when(eqLaunchService.getEqLaunchJwe(any(EqLaunchData.class))).thenReturn("payload");
+
+    List<LaunchBatchResultDTO> results =
+        target.getLaunchURLsForCaseId(UUID_0, new LaunchBatchRequestDTO(AGENT_ID, false, 2));
+
+    List<LaunchBatchResultDTO> failed =
+        results.stream().filter(r -> r.getError() != null).collect(Collectors.toList());
+    assertEquals(1, failed.size());
+    assertEquals("INTERNAL_SERVER_ERROR", failed.get(0).getError());
+    assertNull(failed.get(0).getLaunchUrl());
+    assertEquals(1, results.stream().filter(r -> r.getLaunchUrl() != null).count());
+    verifyEventSent(EventType.SURVEY_LAUNCHED, SurveyLaunchedResponse.class);
+  }
+
+  @Test
+  public void shouldKeepQuestionnaireIdOfLaunchWhichFailsInEq() throws Exception {
+    mockGetCaseById("CE", "E", "E");
+    mockNewQids(false);
+    when(eqLaunchService.getEqLaunchJwe(any(EqLaunchData.class)))
+        .thenReturn("payload")
+        .thenThrow(new IllegalStateException("Bad key"));
+
+    List<LaunchBatchResultDTO> results =
+        target.getLaunchURLsForCaseId(UUID_0, new LaunchBatchRequestDTO(AGENT_ID, false, 2));
+
+    assertEquals(2, results.size());
+    assertEquals(Set.of("qid-1", "qid-2"), questionnaireIds(results));
+    List<LaunchBatchResultDTO> failed =
+        results.stream().filter(r -> r.getError() != null).collect(Collectors.toList());
+    assertEquals(1, failed.size());
+    assertEquals(Fault.SYSTEM_ERROR.name(), failed.get(0).getError());
+    assertNull(failed.get(0).getLaunchUrl());
+    verifyEventSent(EventType.SURVEY_LAUNCHED, SurveyLaunchedResponse.class);
+  }
+
+  @Test
+  public void shouldRejectTooManyLaunches() {
+    try {
+      target.getLaunchURLsForCaseId(UUID_0, new LaunchBatchRequestDTO(AGENT_ID, true, 4));
+      fail();
+    } catch (CTPException e) {
+      assertEquals(Fault.BAD_REQUEST, e.getFault());
+      assertTrue(e.getMessage().contains("No more than 3 launches"));
+    }
+    verify(caseServiceClient, never()).getCaseById(any(), any());
+  }
+
+  @Test
+  public void shouldRejectLaunchesForClosedSurvey() throws Exception {
+    mockGetCaseById("HH", "U", "E");
+    appConfig.getTelephoneCapture().setDisabled(Set.of("census"));
+
+    try {
+      target.getLaunchURLsForCaseId(UUID_0, new LaunchBatchRequestDTO(AGENT_ID, true, 2));
+      fail();
+    } catch (CTPException e) {
+      assertEquals(Fault.ACCEPTED_UNABLE_TO_PROCESS, e.getFault());
+    }
+    verify(caseServiceClient, never()).getSingleUseQuestionnaireId(any(), anyBoolean(), any());
+    verifyEventNotSent();
+  }
+
+  @Test
+  public void shouldGetUacForEachLaunch() throws Exception {
+    mockGetCaseById("HH", "U", "E");
+    mockNewQids(true);
+
+    List<UACBatchResultDTO> results =
+        target.getUACsForCaseId(UUID_0, new UACBatchRequestDTO(true, 3));
+
+    assertEquals(3, results.size());
+    for (UACBatchResultDTO result : results) {
+      assertNotNull(result.getUac());
+      assertEquals("uac-" + result.getId(), result.getUac());
+    }
+    assertEquals(
+        Set.of("qid-1", "qid-2", "qid-3"),
+        results.stream().map(UACBatchResultDTO::getId).collect(Collectors.toSet()));
+    verify(caseServiceClient).getCaseById(eq(UUID_0), any());
+    verifyEventNotSent();
+  }
+
+  private void mockNewQids(boolean individual) {
+    when(caseServiceClient.getSingleUseQuestionnaireId(eq(UUID_0), eq(individual), any()))
+        .thenReturn(newQid("qid-1"), newQid("qid-2"), newQid("qid-3"));
+  }
+
+  private SingleUseQuestionnaireIdDTO newQid(String questionnaireId) {
+    SingleUseQuestionnaireIdDTO newQid = new SingleUseQuestionnaireIdDTO();
+    newQid.setQuestionnaireId(questionnaireId);
+    newQid.setUac("uac-" + questionnaireId);
+    newQid.setFormType(FormType.H.name());
+    return newQid;
+  }
+
+  private Set<String> questionnaireIds(List<LaunchBatchResultDTO> results) {
+    return results.stream()
+        .map(LaunchBatchResultDTO::getQuestionnaireId)
+        .collect(Collectors.toSet());
+  }
+}
@@ -71,6 +71,7 @@ public class CaseServiceImplLaunchTest extends CaseServiceImplTestBase {
 
     Mockito.when(appConfig.getChannel()).thenReturn(Channel.CC);
     Mockito.when(appConfig.getEq()).thenReturn(eqConfig);
+    launchTokenEngine.init();
 
     TelephoneCapture telephoneCapture = new TelephoneCapture();
     telephoneCapture.setDisabled(new HashSet<String>());
@@ -184,7 +185,8 @@ public class CaseServiceImplLaunchTest extends CaseServiceImplTestBase {
     Mockito.doThrow(new ResponseStatusException(HttpStatus.NOT_FOUND))
         .when(caseServiceClient)
         .getCaseById(UUID_0, false);
-    Mockito.when(dataRepo.readCachedCaseById(UUID_0)).thenReturn(Optional.of(new CachedCase()));
+    Mockito.when(dataRepo.readCachedCaseById(eq(UUID_0), any()))
+        .thenReturn(Optional.of(new CachedCase()));
     target.getLaunchURLForCaseId(UUID_0, new LaunchRequestDTO());
   }
 
@@ -193,7 +195,7 @@ public class CaseServiceImplLaunchTest extends CaseServiceImplTestBase {
     Mockito.doThrow(new ResponseStatusException(HttpStatus.NOT_FOUND))
         .when(caseServiceClient)
         .getCaseById(UUID_0, false);
-    Mockito.when(dataRepo.readCachedCaseById(UUID_0)).thenReturn(Optional.empty());
+    Mockito.when(dataRepo.readCachedCaseById(eq(UUID_0), any())).thenReturn(Optional.empty());
     target.getLaunchURLForCaseId(UUID_0, new LaunchRequestDTO());
   }
 
@@ -253,6 +253,9 @@ public class CaseServiceImplModifyCaseTest extends CaseServiceImplTestBase {
     verifyChangedAddress(payload.getNewAddress());
 
     verifyEventNotSent(EventType.ADDRESS_TYPE_CHANGED);
+    verify(rmCaseCache)
+        .invalidate(
+            requestDTO.getCaseId(), caseContainerDTO.getCaseRef(), caseContainerDTO.getUprn());
   }
 
   private void verifyChangedAddress(AddressCompact newAddress) {
@@ -17,6 +17,7 @@ import org.junit.runner.RunWith;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
+import org.springframework.test.util.ReflectionTestUtils;
 import uk.gov.ons.ctp.common.domain.UniquePropertyReferenceNumber;
 import uk.gov.ons.ctp.common.event.EventPublisher.Channel;
 import uk.gov.ons.ctp.common.event.EventPublisher.EventType;
@@ -48,6 +49,7 @@ public class CaseServiceImplReportRefusalTest extends CaseServiceImplTestBase {
     Resource pubKey2 = new ClassPathResource(PUBLIC_KEY_2);
     when(appConfig.getPublicPgpKey1()).thenReturn(pubKey1);
     when(appConfig.getPublicPgpKey2()).thenReturn(pubKey2);
+    ReflectionTestUtils.setField(pgpPublicKeys, "appConfig", appConfig);
   }
 
   @Test
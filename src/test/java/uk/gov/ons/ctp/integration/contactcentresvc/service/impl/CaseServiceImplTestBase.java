@@ -15,6 +15,8 @@ import static org.mockito.Mockito.when;
 import static uk.gov.ons.ctp.integration.contactcentresvc.CaseServiceFixture.AN_AGENT_ID;
 import static uk.gov.ons.ctp.integration.contactcentresvc.CaseServiceFixture.UUID_0;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Collections;
@@ -22,11 +24,14 @@ import java.util.Date;
 import java.util.List;
 import java.util.Set;
 import ma.glasnost.orika.MapperFacade;
+import org.junit.Before;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.Spy;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.server.ResponseStatusException;
 import uk.gov.ons.ctp.common.FixtureHelper;
 import uk.gov.ons.ctp.common.domain.EstabType;
@@ -45,8 +50,13 @@ import uk.gov.ons.ctp.integration.common.product.ProductReference;
 import uk.gov.ons.ctp.integration.contactcentresvc.BlacklistedUPRNBean;
 import uk.gov.ons.ctp.integration.contactcentresvc.CCSPostcodesBean;
 import uk.gov.ons.ctp.integration.contactcentresvc.CCSvcBeanMapper;
+import uk.gov.ons.ctp.integration.contactcentresvc.cache.RmCaseCache;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.DownstreamLimits;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.DownstreamTimers;
 import uk.gov.ons.ctp.integration.contactcentresvc.config.AppConfig;
 import uk.gov.ons.ctp.integration.contactcentresvc.config.CaseServiceSettings;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.LookupSettings;
+import uk.gov.ons.ctp.integration.contactcentresvc.event.EventOutbox;
 import uk.gov.ons.ctp.integration.contactcentresvc.repository.CaseDataRepository;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.CaseDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.CaseEventDTO;
@@ -54,6 +64,7 @@ import uk.gov.ons.ctp.integration.contactcentresvc.representation.DeliveryChanne
 import uk.gov.ons.ctp.integration.contactcentresvc.representation.UACRequestDTO;
 import uk.gov.ons.ctp.integration.contactcentresvc.service.AddressService;
 import uk.gov.ons.ctp.integration.contactcentresvc.service.CaseService;
+import uk.gov.ons.ctp.integration.contactcentresvc.util.PgpPublicKeys;
 import uk.gov.ons.ctp.integration.eqlaunch.service.EqLaunchService;
 
 public abstract class CaseServiceImplTestBase {
@@ -63,16 +74,30 @@ public abstract class CaseServiceImplTestBase {
 
   @Mock CaseServiceClientServiceImpl caseServiceClient;
 
+  @Spy RmCaseCache rmCaseCache = new RmCaseCache();
+
+  @Spy DownstreamLimits downstreamLimits = new DownstreamLimits();
+
+  @Spy DownstreamTimers downstreamTimers = new DownstreamTimers();
+
   @Mock EqLaunchService eqLaunchService;
 
+  @Spy LaunchTokenEngine launchTokenEngine = new LaunchTokenEngine();
+
   @Mock EventPublisher eventPublisher;
 
+  @Mock EventOutbox eventOutbox;
+
+  @Mock RabbitTemplate rabbitTemplate;
+
   @Spy MapperFacade mapperFacade = new CCSvcBeanMapper();
 
   @Mock CaseDataRepository dataRepo;
 
   @Mock AddressService addressSvc;
 
+  @Spy PgpPublicKeys pgpPublicKeys = new PgpPublicKeys();
+
   @Mock CCSPostcodesBean ccsPostcodesBean;
 
   @Mock BlacklistedUPRNBean blacklistedUPRNBean;
@@ -82,6 +107,32 @@ public abstract class CaseServiceImplTestBase {
 
   @InjectMocks CaseService target = new CaseServiceImpl();
 
+  @Before
+  public void setupLookupSettings() {
+    appConfig.setLookupSettings(new LookupSettings());
+
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    ReflectionTestUtils.setField(downstreamTimers, "appConfig", appConfig);
+    ReflectionTestUtils.setField(downstreamTimers, "meterRegistry", meterRegistry);
+    downstreamTimers.init();
+
+    // The launch token engine is initialised by the tests which set up the EQ configuration
+    ReflectionTestUtils.setField(launchTokenEngine, "appConfig", appConfig);
+    ReflectionTestUtils.setField(launchTokenEngine, "eqLaunchService", eqLaunchService);
+    ReflectionTestUtils.setField(launchTokenEngine, "downstreamTimers", downstreamTimers);
+    ReflectionTestUtils.setField(launchTokenEngine, "meterRegistry", meterRegistry);
+
+    // The case cache is left disabled, with a configuration of its own
+    LookupSettings cacheLookupSettings = new LookupSettings();
+    cacheLookupSettings.setRmTimeoutMillis(5000);
+    AppConfig cacheConfig = new AppConfig();
+    cacheConfig.setCaseServiceSettings(new CaseServiceSettings());
+    cacheConfig.setLookupSettings(cacheLookupSettings);
+    ReflectionTestUtils.setField(rmCaseCache, "appConfig", cacheConfig);
+    ReflectionTestUtils.setField(rmCaseCache, "meterRegistry", meterRegistry);
+    rmCaseCache.init();
+  }
+
   void verifyTimeInExpectedRange(long minAllowed, long maxAllowed, Date dateTime) {
     long actualInMillis = dateTime.getTime();
     assertTrue(actualInMillis + " not after " + minAllowed, actualInMillis >= minAllowed);
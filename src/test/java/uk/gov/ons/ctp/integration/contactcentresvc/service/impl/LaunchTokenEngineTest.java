@@ -0,0 +1,94 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import uk.gov.ons.ctp.common.domain.Channel;
+import uk.gov.ons.ctp.common.domain.Language;
+import uk.gov.ons.ctp.common.domain.Source;
+import uk.gov.ons.ctp.common.error.CTPException;
+import uk.gov.ons.ctp.common.error.CTPException.Fault;
+import uk.gov.ons.ctp.integration.caseapiclient.caseservice.model.CaseContainerDTO;
+import uk.gov.ons.ctp.integration.contactcentresvc.client.DownstreamTimers;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.AppConfig;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.EqConfig;
+import uk.gov.ons.ctp.integration.eqlaunch.service.EqLaunchData;
+import uk.gov.ons.ctp.integration.eqlaunch.service.EqLaunchService;
+
+public class LaunchTokenEngineTest {
+  private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private EqLaunchService eqLaunchService = mock(EqLaunchService.class);
+  private LaunchTokenEngine engine = new LaunchTokenEngine();
+
+  @Before
+  public void setup() throws Exception {
+    EqConfig eq = new EqConfig();
+    eq.setProtocol("https");
+    eq.setHost("eq.ons.gov.uk");
+    eq.setPath("/en/start/launch-eq/?token=");
+    eq.setResponseIdSalt("CENSUS");
+    AppConfig appConfig = new AppConfig();
+    appConfig.setEq(eq);
+    ReflectionTestUtils.setField(engine, "appConfig", appConfig);
+    ReflectionTestUtils.setField(engine, "eqLaunchService", eqLaunchService);
+    DownstreamTimers downstreamTimers = new DownstreamTimers();
+    ReflectionTestUtils.setField(downstreamTimers, "appConfig", appConfig);
+    ReflectionTestUtils.setField(downstreamTimers, "meterRegistry", meterRegistry);
+    downstreamTimers.init();
+    ReflectionTestUtils.setField(engine, "downstreamTimers", downstreamTimers);
+    ReflectionTestUtils.setField(engine, "meterRegistry", meterRegistry);
+    when(eqLaunchService.getEqLaunchJwe(any())).thenReturn("token");
+    engine.init();
+  }
+
+  @Test
+  public void shouldCreateLaunchUrl() throws Exception {
+    CaseContainerDTO caseDetails = new CaseContainerDTO();
+    caseDetails.setId(UUID.randomUUID());
+
+    String url = engine.launchUrl("H", caseDetails, 123, "0130000000000300");
+
+    assertEquals("https://eq.ons.gov.uk/en/start/launch-eq/?token=token", url);
+    ArgumentCaptor<EqLaunchData> launchData = ArgumentCaptor.forClass(EqLaunchData.class);
+    verify(eqLaunchService).getEqLaunchJwe(launchData.capture());
+    EqLaunchData launched = launchData.getValue();
+    assertEquals(Language.ENGLISH, launched.getLanguage());
+    assertEquals(Source.CONTACT_CENTRE_API, launched.getSource());
+    assertEquals(Channel.CC, launched.getChannel());
+    assertEquals("CENSUS", launched.getSalt());
+    assertEquals("H", launched.getFormType());
+    assertEquals("123", launched.getUserId());
+    assertEquals("0130000000000300", launched.getQuestionnaireId());
+    assertEquals(caseDetails, launched.getCaseContainer());
+    assertEquals(1.0, tokens("created"), 0);
+    assertEquals(0.0, meterRegistry.get("eq.launch.tokens.active").gauge().value(), 0);
+  }
+
+  @Test
+  public void shouldCountFailedLaunch() throws Exception {
+    when(eqLaunchService.getEqLaunchJwe(any())).thenThrow(new CTPException(Fault.SYSTEM_ERROR));
+
+    try {
+      engine.launchUrl("H", new CaseContainerDTO(), 123, "0130000000000300");
+      fail();
+    } catch (CTPException e) {
+      assertEquals(1.0, tokens("failed"), 0);
+      assertEquals(0.0, tokens("created"), 0);
+    }
+  }
+
+  private double tokens(String outcome) {
+    return meterRegistry.get("eq.launch.tokens").tag("outcome", outcome).counter().count();
+  }
+}
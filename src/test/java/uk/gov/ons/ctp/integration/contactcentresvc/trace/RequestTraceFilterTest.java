@@ -0,0 +1,169 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.util.List;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.AppConfig;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.RequestTracing;
+
+public class RequestTraceFilterTest {
+  private RequestTraceFilter filter = new RequestTraceFilter();
+  private RequestTracing tracing = new RequestTracing();
+  private MockHttpServletRequest request = new MockHttpServletRequest("GET", "/cases/uprn/1");
+  private MockHttpServletResponse response = new MockHttpServletResponse();
+
+  @Before
+  public void setup() {
+    tracing.setEnabled(true);
+    tracing.setHeader("X-Request-Trace");
+    AppConfig appConfig = new AppConfig();
+    appConfig.setRequestTracing(tracing);
+    ReflectionTestUtils.setField(filter, "appConfig", appConfig);
+  }
+
+  @Test
+  public void shouldTraceAuthenticatedRequestWhichAsksForIt() throws Exception {
+    request.setUserPrincipal(() -> "agent");
+    request.addHeader("X-Request-Trace", "true");
+
+    filter.doFilter(request, response, new MockFilterChain(new CaseServlet()));
+
+    assertTrue(
+        response
+            .getHeader(RequestTraceFilter.SERVER_TIMING)
+            .matches("rm\\.getCaseByUprn;desc=\"success\";dur=[0-9.]+, total;dur=[0-9.]+"));
+    assertEquals("[]", response.getContentAsString());
+    assertNull(RequestTrace.startSpan("rm", "getCaseById"));
+  }
+
+  @Test
+  public void shouldIgnoreTraceHeaderOfUnauthenticatedRequest() throws Exception {
+    request.addHeader("X-Request-Trace", "true");
+
+    filter.doFilter(request, response, new MockFilterChain(new CaseServlet()));
+
+    assertNull(response.getHeader(RequestTraceFilter.SERVER_TIMING));
+    assertEquals("[]", response.getContentAsString());
+  }
+
+  @Test
+  public void shouldSetServerTimingBeforeResponseIsCommitted() throws Exception {
+    tracing.setSampleRate(1);
+
+    filter.doFilter(
+        request,
+        response,
+        new MockFilterChain(
+            new CaseServlet() {
+              private static final long serialVersionUID = 1L;
+
+              @Override
+              protected void doGet(HttpServletRequest request, HttpServletResponse response)
+                  throws IOException {
+                super.doGet(request, response);
+                response.flushBuffer();
+              }
+            }));
+
+    assertTrue(response.isCommitted());
+    assertTrue(response.getHeader(RequestTraceFilter.SERVER_TIMING).startsWith("rm."));
+    assertEquals("[]", response.getContentAsString());
+  }
+
+  @Test
+  public void shouldSetServerTimingOnResponseOfController() throws Exception {
+    tracing.setSampleRate(1);
+    MockMvc mockMvc =
+        MockMvcBuilders.standaloneSetup(new CaseController()).addFilters(filter).build();
+
+    MockHttpServletResponse controllerResponse =
+        mockMvc
+            .perform(get("/cases/uprn/1"))
+            .andExpect(status().isOk())
+            .andExpect(content().string("[\"case\"]"))
+            .andReturn()
+            .getResponse();
+
+    assertTrue(controllerResponse.isCommitted());
+    assertTrue(
+        controllerResponse
+            .getHeader(RequestTraceFilter.SERVER_TIMING)
+            .matches("rm\\.getCaseByUprn;desc=\"success\";dur=[0-9.]+, total;dur=[0-9.]+"));
+  }
+
+  @Test
+  public void shouldNotTraceOtherRequests() throws Exception {
+    filter.doFilter(request, response, new MockFilterChain(new CaseServlet()));
+
+    assertNull(response.getHeader(RequestTraceFilter.SERVER_TIMING));
+    assertEquals("[]", response.getContentAsString());
+  }
+
+  @Test
+  public void shouldTraceSampledRequests() throws Exception {
+    tracing.setSampleRate(1);
+
+    filter.doFilter(request, response, new MockFilterChain(new CaseServlet()));
+
+    assertTrue(response.getHeader(RequestTraceFilter.SERVER_TIMING).startsWith("rm."));
+  }
+
+  @Test
+  public void shouldNotTraceWhenDisabled() throws Exception {
+    tracing.setEnabled(false);
+    request.setUserPrincipal(() -> "agent");
+    request.addHeader("X-Request-Trace", "true");
+
+    filter.doFilter(request, response, new MockFilterChain(new CaseServlet()));
+
+    assertNull(response.getHeader(RequestTraceFilter.SERVER_TIMING));
+  }
+
+  /** Makes one call to RM, then returns a body for the message converters to write. */
+  @RestController
+  static class CaseController {
+    @GetMapping("/cases/uprn/{uprn}")
+    public List<String> getCasesByUprn(@PathVariable String uprn) {
+      RequestTrace.Span span = RequestTrace.startSpan("rm", "getCaseByUprn");
+      if (span != null) {
+        span.end("success");
+      }
+      return List.of("case");
+    }
+  }
+
+  /** Makes one call to RM, then writes the response. */
+  private static class CaseServlet extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+        throws IOException {
+      RequestTrace.Span span = RequestTrace.startSpan("rm", "getCaseByUprn");
+      if (span != null) {
+        span.end("success");
+      }
+      response.getWriter().write("[]");
+    }
+  }
+}
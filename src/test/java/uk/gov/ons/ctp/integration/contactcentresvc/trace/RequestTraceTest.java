@@ -0,0 +1,76 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Test;
+import uk.gov.ons.ctp.integration.contactcentresvc.trace.RequestTrace.Span;
+
+public class RequestTraceTest {
+  private ExecutorService executor = Executors.newSingleThreadExecutor();
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void shouldNotStartSpanWhenNotTracing() {
+    assertNull(RequestTrace.startSpan("rm", "getCaseById"));
+  }
+
+  @Test
+  public void shouldBuildSpanTreeOfCalls() {
+    RequestTrace trace = RequestTrace.begin("GET /cases/uprn/1");
+    Span rm = RequestTrace.startSpan("rm", "getCaseByUprn");
+    Span parent = RequestTrace.enter(rm);
+    RequestTrace.startSpan("aims", "searchByUPRN").end("success");
+    RequestTrace.restore(parent);
+    rm.end("not_found");
+    RequestTrace.startSpan("firestore", "readLatestCachedCaseByUprn");
+    trace.end();
+
+    assertEquals(
+        List.of("rm.getCaseByUprn", "firestore.readLatestCachedCaseByUprn"),
+        names(trace.root().children()));
+    assertEquals(List.of("aims.searchByUPRN"), names(trace.root().children().get(0).children()));
+    assertEquals("unfinished", trace.root().children().get(1).outcome());
+    assertNull(RequestTrace.startSpan("rm", "getCaseById"));
+
+    String[] timings = trace.serverTiming().split(", ");
+    assertEquals(4, timings.length);
+    assertTrue(timings[0].matches("rm\\.getCaseByUprn;desc=\"not_found\";dur=\\d+\\.\\d"));
+    assertTrue(timings[1].matches("aims\\.searchByUPRN;desc=\"success\";dur=\\d+\\.\\d"));
+    assertEquals("firestore.readLatestCachedCaseByUprn;desc=\"unfinished\"", timings[2]);
+    assertTrue(timings[3].matches("total;dur=\\d+\\.\\d"));
+    assertTrue(trace.toString().startsWith("GET /cases/uprn/1 +0.0ms "));
+    assertTrue(trace.toString().contains("\n    aims.searchByUPRN +"));
+  }
+
+  @Test
+  public void shouldAddCallsOnOtherThreadsToTrace() throws Exception {
+    RequestTrace trace = RequestTrace.begin("GET /cases/1");
+    executor
+        .submit(
+            RequestTrace.propagate(
+                () -> {
+                  RequestTrace.startSpan("rm", "getCaseById").end("success");
+                  return null;
+                }))
+        .get();
+    executor.submit(() -> assertNull(RequestTrace.startSpan("rm", "getCaseById"))).get();
+    trace.end();
+
+    assertEquals(List.of("rm.getCaseById"), names(trace.root().children()));
+  }
+
+  private List<String> names(List<Span> spans) {
+    return spans.stream().map(Span::name).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,41 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LogSamplerTest {
+
+  @Test
+  public void shouldKeepEveryEventForRateOfOne() {
+    LogSampler sampler = new LogSampler(1);
+    for (int i = 0; i < 100; i++) {
+      assertTrue(sampler.sample());
+    }
+  }
+
+  @Test
+  public void shouldKeepOneInEveryN() {
+    LogSampler sampler = new LogSampler(10);
+    assertTrue(sampler.sample());
+    assertEquals(9, kept(new LogSampler(10), 90));
+  }
+
+  @Test
+  public void shouldKeepEveryEventForRateBelowOne() {
+    LogSampler sampler = new LogSampler(0);
+    assertEquals(1, sampler.getOneIn());
+    assertEquals(20, kept(sampler, 20));
+  }
+
+  private int kept(LogSampler sampler, int events) {
+    int kept = 0;
+    for (int i = 0; i < events; i++) {
+      if (sampler.sample()) {
+        kept++;
+      }
+    }
+    return kept;
+  }
+}
@@ -1,6 +1,7 @@
 package uk.gov.ons.ctp.integration.contactcentresvc.util;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 import com.google.common.io.CharStreams;
 import java.io.ByteArrayInputStream;
@@ -9,8 +10,11 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Collection;
+import java.util.List;
+import org.bouncycastle.openpgp.PGPPublicKey;
 import org.junit.Test;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
@@ -80,6 +84,24 @@ public class PgpEncryptTest {
     verifyDecrypt(TEST_STRING, encStr, PASS_PHRASE2, PRIVATE_KEY_2);
   }
 
+  @Test
+  public void shouldEncryptWithParsedKeysThenDecryptWithEitherPrivateKey() throws Exception {
+    List<PGPPublicKey> keys = PgpEncrypt.readPublicKeys(publicKeys());
+    String encStr = PgpEncrypt.encryptWithKeys(TEST_STRING, keys);
+    verifyDecrypt(TEST_STRING, encStr, PASS_PHRASE, PRIVATE_KEY_1);
+    verifyDecrypt(TEST_STRING, encStr, PASS_PHRASE2, PRIVATE_KEY_2);
+  }
+
+  @Test
+  public void shouldEncryptEachOfBatchSeparately() throws Exception {
+    List<PGPPublicKey> keys = PgpEncrypt.readPublicKeys(publicKeys());
+    List<String> encrypted = PgpEncrypt.encryptAll(Arrays.asList("Mr", null, "Bloggs"), keys);
+    assertEquals(3, encrypted.size());
+    verifyDecrypt("Mr", encrypted.get(0), PASS_PHRASE, PRIVATE_KEY_1);
+    assertNull(encrypted.get(1));
+    verifyDecrypt("Bloggs", encrypted.get(2), PASS_PHRASE2, PRIVATE_KEY_2);
+  }
+
   private void verifyEncryptWithBase64(String clearText) throws Exception {
     Resource res = new ClassPathResource(PUBLIC_KEY_1);
     Resource res2 = new ClassPathResource(PUBLIC_KEY_2);
@@ -124,6 +146,10 @@ public class PgpEncryptTest {
     }
   }
 
+  private Collection<Resource> publicKeys() {
+    return List.of(new ClassPathResource(PUBLIC_KEY_1), new ClassPathResource(PUBLIC_KEY_2));
+  }
+
   private void verifyDecrypt(
       String clearText, String encrypted, String passPhrase, String privateKey) throws Exception {
     String privKey = PgpEncryptTest.readFileIntoString(privateKey);
@@ -0,0 +1,90 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.test.util.ReflectionTestUtils;
+import uk.gov.ons.ctp.integration.contactcentresvc.config.AppConfig;
+
+public class PgpPublicKeysTest {
+  private static final String PUBLIC_KEY_1 = "pgp/key1.asc";
+  private static final String PUBLIC_KEY_2 = "pgp/key2.asc";
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private File keyFile1;
+  private File keyFile2;
+  private AppConfig appConfig = new AppConfig();
+  private PgpPublicKeys pgpPublicKeys = new PgpPublicKeys();
+
+  @Before
+  public void setup() throws Exception {
+    keyFile1 = folder.newFile("key1.asc");
+    keyFile2 = folder.newFile("key2.asc");
+    copyKey(PUBLIC_KEY_1, keyFile1);
+    copyKey(PUBLIC_KEY_2, keyFile2);
+    appConfig.setPublicPgpKey1(new FileSystemResource(keyFile1));
+    appConfig.setPublicPgpKey2(new FileSystemResource(keyFile2));
+    ReflectionTestUtils.setField(pgpPublicKeys, "appConfig", appConfig);
+  }
+
+  @Test
+  public void shouldParseKeysOnce() throws Exception {
+    pgpPublicKeys.init();
+    List<PGPPublicKey> keys = pgpPublicKeys.getKeys();
+    assertEquals(2, keys.size());
+    assertEquals(keyId(PUBLIC_KEY_1), keys.get(0).getKeyID());
+    assertEquals(keyId(PUBLIC_KEY_2), keys.get(1).getKeyID());
+    assertSame(keys, pgpPublicKeys.getKeys());
+  }
+
+  @Test
+  public void shouldReloadKeysWhenKeyFileChanges() throws Exception {
+    pgpPublicKeys.init();
+    copyKey(PUBLIC_KEY_2, keyFile1);
+    keyFile1.setLastModified(keyFile1.lastModified() + 10000);
+
+    List<PGPPublicKey> keys = pgpPublicKeys.getKeys();
+    assertEquals(keyId(PUBLIC_KEY_2), keys.get(0).getKeyID());
+    assertEquals(keyId(PUBLIC_KEY_2), keys.get(1).getKeyID());
+  }
+
+  @Test
+  public void shouldNotReloadKeysUntilCheckIsDue() throws Exception {
+    appConfig.setPublicPgpKeyCheckSeconds(3600);
+    pgpPublicKeys.init();
+    copyKey(PUBLIC_KEY_2, keyFile1);
+    keyFile1.setLastModified(keyFile1.lastModified() + 10000);
+
+    assertEquals(keyId(PUBLIC_KEY_1), pgpPublicKeys.getKeys().get(0).getKeyID());
+  }
+
+  @Test
+  public void shouldKeepOldKeysWhenChangedKeyFileIsUnreadable() throws Exception {
+    pgpPublicKeys.init();
+    List<PGPPublicKey> keys = pgpPublicKeys.getKeys();
+    Files.write(keyFile1.toPath(), "not a key".getBytes(StandardCharsets.UTF_8));
+    keyFile1.setLastModified(keyFile1.lastModified() + 10000);
+
+    assertSame(keys, pgpPublicKeys.getKeys());
+  }
+
+  private void copyKey(String key, File file) throws Exception {
+    Files.write(file.toPath(), PgpEncryptTest.readFileIntoString(key).getBytes());
+  }
+
+  private long keyId(String key) throws Exception {
+    return PgpEncrypt.readPublicKeys(List.of(new ClassPathResource(key))).get(0).getKeyID();
+  }
+}
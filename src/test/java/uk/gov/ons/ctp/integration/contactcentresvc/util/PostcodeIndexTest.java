@@ -0,0 +1,66 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PostcodeIndexTest {
+
+  @Test
+  public void shouldFindAddedPostcodes() {
+    PostcodeIndex index = PostcodeIndex.builder().add("PO115AB").add("AB127NB").build();
+    assertTrue(index.contains("PO115AB"));
+    assertTrue(index.contains("AB127NB"));
+    assertFalse(index.contains("GW12AAA"));
+    assertEquals(2, index.size());
+  }
+
+  @Test
+  public void shouldCountDuplicatePostcodesOnce() {
+    PostcodeIndex index =
+        PostcodeIndex.builder()
+            .add("PO115AB")
+            .add("PO115AB")
+            .add("PO11 5AB")
+            .add("PO11 5AB")
+            .build();
+    assertEquals(2, index.size());
+  }
+
+  @Test
+  public void shouldHoldPostcodesWhichCantBePacked() {
+    PostcodeIndex index =
+        PostcodeIndex.builder().add("PO11 5AB").add("ABCDEFGHIJK").add("").build();
+    assertTrue(index.contains("PO11 5AB"));
+    assertTrue(index.contains("ABCDEFGHIJK"));
+    assertTrue(index.contains(""));
+    assertFalse(index.contains("PO115AB"));
+    assertEquals(3, index.size());
+  }
+
+  @Test
+  public void shouldGrowBeyondInitialCapacity() {
+    PostcodeIndex.Builder builder = PostcodeIndex.builder();
+    for (int i = 0; i < 5000; i++) {
+      builder.add("EX" + i + "AB");
+    }
+    PostcodeIndex index = builder.build();
+    assertEquals(5000, index.size());
+    assertTrue(index.contains("EX0AB"));
+    assertTrue(index.contains("EX4999AB"));
+    assertFalse(index.contains("EX5000AB"));
+  }
+
+  @Test
+  public void shouldPackPostcodesDistinctly() {
+    assertNotEquals(PostcodeIndex.pack("A1"), PostcodeIndex.pack("1A"));
+    assertNotEquals(PostcodeIndex.pack("A"), PostcodeIndex.pack("0A"));
+    assertNotEquals(PostcodeIndex.pack("ab"), PostcodeIndex.pack("AB"));
+    assertTrue(PostcodeIndex.pack("zzzzzzzzzz") > 0);
+    assertEquals(-1, PostcodeIndex.pack("AB1 2CD"));
+    assertEquals(-1, PostcodeIndex.pack("ABCDEFGHIJK"));
+  }
+}
@@ -0,0 +1,53 @@
+package uk.gov.ons.ctp.integration.contactcentresvc.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class UprnSetTest {
+
+  @Test
+  public void shouldFindAddedUprns() {
+    for (boolean withBloomFilter : new boolean[] {false, true}) {
+      UprnSet uprns =
+          UprnSet.builder(withBloomFilter).add(100060447618L).add(666666666666L).build();
+      assertTrue(uprns.contains(100060447618L));
+      assertTrue(uprns.contains(666666666666L));
+      assertFalse(uprns.contains(100060447619L));
+      assertEquals(2, uprns.size());
+    }
+  }
+
+  @Test
+  public void shouldCountDuplicateUprnsOnce() {
+    UprnSet uprns = UprnSet.builder(false).add(1L).add(2L).add(1L).build();
+    assertEquals(2, uprns.size());
+  }
+
+  @Test
+  public void shouldHoldNoUprns() {
+    for (boolean withBloomFilter : new boolean[] {false, true}) {
+      UprnSet uprns = UprnSet.builder(withBloomFilter).build();
+      assertFalse(uprns.contains(0L));
+      assertEquals(0, uprns.size());
+    }
+  }
+
+  @Test
+  public void shouldFindEveryUprnThroughBloomFilter() {
+    UprnSet.Builder builder = UprnSet.builder(true);
+    for (long uprn = 10_000_000; uprn < 10_050_000; uprn++) {
+      builder.add(uprn);
+    }
+    UprnSet uprns = builder.build();
+    assertEquals(50_000, uprns.size());
+    for (long uprn = 10_000_000; uprn < 10_050_000; uprn++) {
+      assertTrue(uprns.contains(uprn));
+    }
+    for (long uprn = 20_000_000; uprn < 20_050_000; uprn++) {
+      assertFalse(uprns.contains(uprn));
+    }
+  }
+}